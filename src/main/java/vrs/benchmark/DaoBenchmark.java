@@ -0,0 +1,184 @@
+package vrs.benchmark;
+
+import vrs.dao.BookingsDAO;
+import vrs.dao.CustomerDAO;
+import vrs.dao.FleetRepository;
+import vrs.dao.VehicleDAO;
+import vrs.dao.jdbc.JdbcStore;
+import vrs.models.Bookings;
+import vrs.models.Customer;
+import vrs.models.enums.vehicle.othercategories.EngineType;
+import vrs.models.enums.vehicle.othercategories.FuelType;
+import vrs.models.enums.vehicle.vehiclecategories.CarCategory;
+import vrs.models.enums.vehicle.vehiclecategories.MotorcycleCategory;
+import vrs.models.enums.vehicle.vehiclecategories.TruckCategory;
+import vrs.models.others.Brand;
+import vrs.models.vehicle.Car;
+import vrs.models.vehicle.Motorcycle;
+import vrs.models.vehicle.Truck;
+import vrs.models.vehicle.Vehicle;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * The {@code DaoBenchmark} class times the same workload against the in-memory DAOs and against the JDBC DAOs
+ * over an embedded H2 database in a temporary directory, and prints the time per operation of each step.
+ * <p>
+ * Run it with the H2 driver on the class path, optionally passing the number of vehicles (10,000 by default);
+ * there are half as many customers and five bookings per vehicle.
+ */
+public class DaoBenchmark {
+
+    private static final String[] STEPS = {
+            "vehicle save (one by one)", "vehicle save (batch)", "vehicle lookup by ID", "customer save (batch)",
+            "booking save (batch)", "booking reserve", "bookings by customer", "overlapping bookings by vehicle"
+    };
+
+    private final int vehicleCount;
+    private final Random random = new Random(42);
+    private final Brand brand = new Brand("Toyota", 2022, "Japan");
+    private final LocalDateTime start = LocalDateTime.of(2025, 1, 1, 10, 0);
+
+    private DaoBenchmark(int vehicleCount) {
+        this.vehicleCount = vehicleCount;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int vehicleCount = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        DaoBenchmark benchmark = new DaoBenchmark(vehicleCount);
+
+        // Warm up the JIT on a small run of each before timing
+        FleetRepository warmupFleet = new FleetRepository();
+        new DaoBenchmark(1_000).run(warmupFleet, new CustomerDAO(warmupFleet), new BookingsDAO());
+        Path directory = Files.createTempDirectory("vrs-dao-benchmark");
+        try {
+            try (JdbcStore store = JdbcStore.open(directory.resolve("warmup"), 4)) {
+                new DaoBenchmark(1_000).run(store.getVehicleDAO(), store.getCustomerDAO(), store.getBookingsDAO());
+            }
+            FleetRepository fleet = new FleetRepository();
+            double[] inMemory = benchmark.run(fleet, new CustomerDAO(fleet), new BookingsDAO());
+            double[] jdbc;
+            try (JdbcStore store = JdbcStore.open(directory.resolve("vrs"), 4)) {
+                jdbc = benchmark.run(store.getVehicleDAO(), store.getCustomerDAO(), store.getBookingsDAO());
+            }
+            System.out.printf("%d vehicles, %d customers, %d bookings (microseconds per operation)%n",
+                    vehicleCount, vehicleCount / 2, vehicleCount * 5);
+            System.out.printf("%-34s %12s %12s%n", "", "in-memory", "JDBC (H2)");
+            for (int i = 0; i < STEPS.length; i++) {
+                System.out.printf("%-34s %12.2f %12.2f%n", STEPS[i], inMemory[i], jdbc[i]);
+            }
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    // Runs every step once and returns the microseconds per operation of each
+    private double[] run(VehicleDAO vehicleDAO, CustomerDAO customerDAO, BookingsDAO bookingsDAO) {
+        double[] timings = new double[STEPS.length];
+        int singles = vehicleCount / 10;
+        List<Vehicle> vehicles = new ArrayList<>(vehicleCount);
+        for (int i = 0; i < vehicleCount; i++) {
+            vehicles.add(vehicle(i));
+        }
+
+        long begin = System.nanoTime();
+        for (Vehicle vehicle : vehicles.subList(0, singles)) {
+            vehicleDAO.save(vehicle);
+        }
+        timings[0] = perOperation(begin, singles);
+
+        begin = System.nanoTime();
+        vehicleDAO.saveAll(vehicles.subList(singles, vehicleCount));
+        timings[1] = perOperation(begin, vehicleCount - singles);
+
+        int lookups = vehicleCount;
+        begin = System.nanoTime();
+        for (int i = 0; i < lookups; i++) {
+            vehicleDAO.getById(vehicles.get(random.nextInt(vehicleCount)).getVehicleId());
+        }
+        timings[2] = perOperation(begin, lookups);
+
+        List<Customer> customers = new ArrayList<>(vehicleCount / 2);
+        for (int i = 0; i < vehicleCount / 2; i++) {
+            customers.add(new Customer(String.format("C%07d", i), "Customer " + i, "DL-" + i));
+        }
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));  // CustomerDAO prints every change
+        try {
+            begin = System.nanoTime();
+            customerDAO.saveCustomers(customers);
+            timings[3] = perOperation(begin, customers.size());
+        } finally {
+            System.setOut(out);
+        }
+
+        // Five consecutive weekly bookings per vehicle, so none of them overlap
+        List<Bookings> bookings = new ArrayList<>(vehicleCount * 5);
+        for (int week = 0; week < 5; week++) {
+            for (int i = 0; i < vehicleCount; i++) {
+                LocalDateTime rentalDate = start.plusWeeks(week);
+                bookings.add(new Bookings(vehicles.get(i), customers.get(random.nextInt(customers.size())),
+                        rentalDate, rentalDate.plusDays(3)));
+            }
+        }
+        begin = System.nanoTime();
+        bookingsDAO.saveAll(bookings);
+        timings[4] = perOperation(begin, bookings.size());
+
+        begin = System.nanoTime();
+        for (int i = 0; i < singles; i++) {
+            LocalDateTime rentalDate = start.plusWeeks(5 + i % 4);
+            bookingsDAO.reserve(new Bookings(vehicles.get(i), customers.get(random.nextInt(customers.size())),
+                    rentalDate, rentalDate.plusDays(2)));
+        }
+        timings[5] = perOperation(begin, singles);
+
+        begin = System.nanoTime();
+        for (int i = 0; i < lookups; i++) {
+            bookingsDAO.getBookingsByCustomer(customers.get(random.nextInt(customers.size())).getCustomerId());
+        }
+        timings[6] = perOperation(begin, lookups);
+
+        begin = System.nanoTime();
+        for (int i = 0; i < lookups; i++) {
+            LocalDateTime from = start.plusDays(random.nextInt(35));
+            bookingsDAO.findOverlappingBookings(vehicles.get(random.nextInt(vehicleCount)), from, from.plusDays(2));
+        }
+        timings[7] = perOperation(begin, lookups);
+        return timings;
+    }
+
+    private Vehicle vehicle(int i) {
+        String vehicleId = String.format("V%07d", i);
+        String plate = "GR-" + i;
+        double rate = 40 + random.nextInt(160);
+        switch (i % 3) {
+            case 0:
+                return new Car(vehicleId, plate, "Corolla", brand, FuelType.PETROL, CarCategory.SEDAN, rate, true,
+                        5, "AUTOMATIC", 470, 12.5);
+            case 1:
+                return new Truck(vehicleId, plate, "Hilux", brand, FuelType.DIESEL, TruckCategory.PICKUP, rate, true,
+                        1000, 1500, 2);
+            default:
+                return new Motorcycle(vehicleId, plate, "MT-07", brand, FuelType.PETROL, MotorcycleCategory.STANDARD,
+                        rate, true, EngineType.TWIN_CYLINDER, 25);
+        }
+    }
+
+    private static double perOperation(long begin, int operations) {
+        return (System.nanoTime() - begin) / 1_000.0 / Math.max(1, operations);
+    }
+}
@@ -0,0 +1,248 @@
+package vrs.benchmark;
+
+import vrs.business.CarRentalCostCalculator;
+import vrs.business.MotorRentalCostCalculator;
+import vrs.business.PricingContext;
+import vrs.business.PricingRules;
+import vrs.business.PricingTable;
+import vrs.business.RentalCostCalculator;
+import vrs.business.TruckRentalCostCalculator;
+import vrs.models.Bookings;
+import vrs.models.Customer;
+import vrs.models.enums.vehicle.othercategories.EngineType;
+import vrs.models.enums.vehicle.othercategories.FuelType;
+import vrs.models.enums.vehicle.vehiclecategories.CarCategory;
+import vrs.models.enums.vehicle.vehiclecategories.MotorcycleCategory;
+import vrs.models.enums.vehicle.vehiclecategories.TruckCategory;
+import vrs.models.others.Brand;
+import vrs.models.vehicle.Car;
+import vrs.models.vehicle.Motorcycle;
+import vrs.models.vehicle.Truck;
+import vrs.models.vehicle.Vehicle;
+
+import java.lang.management.ManagementFactory;
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.time.Year;
+
+/**
+ * The {@code PricingBenchmark} class measures the time and the heap allocated per quote, on one thread, for
+ * quotes priced in four ways:
+ * <ul>
+ *     <li>as they were before calculators were shared: a new calculator and a {@link Year#now()} call for every
+ *     quote</li>
+ *     <li>with the factors hardcoded in switch statements, as the calculators had them before they came from
+ *     pricing rules, and the start day's weekend and season surcharges worked out from its date</li>
+ *     <li>through the shared calculators, by the compiled {@link PricingRules} of the system context</li>
+ *     <li>the same while another thread swaps new rules into the context every few milliseconds</li>
+ * </ul>
+ * Allocation is read from the JVM's per-thread allocation counter, so it needs a HotSpot-based JVM. Run it
+ * optionally passing the number of quotes per measurement (10,000,000 by default).
+ */
+public class PricingBenchmark {
+
+    private static final int ROUNDS = 5;
+
+    private final Vehicle[] vehicles;
+    private final Bookings[] bookings;
+    private final PricingTable<CarCategory> carPricing = PricingTable.load("car", CarCategory.class);
+    private final PricingTable<TruckCategory> truckPricing = PricingTable.load("truck", TruckCategory.class);
+    private final PricingTable<MotorcycleCategory> motorcyclePricing = PricingTable.load("motorcycle", MotorcycleCategory.class);
+    private double sink;
+    private long yearSink;
+
+    private PricingBenchmark() {
+        Customer customer = new Customer("C1", "Ama Mensah", "DL-0001");
+        vehicles = new Vehicle[] {
+                new Car("V1", "GR-1001-24", "Corolla", new Brand("Toyota", 2019, "Japan"), FuelType.PETROL,
+                        CarCategory.SEDAN, 45.0, true, 5, "AUTOMATIC", 470, 11.0),
+                new Truck("V2", "GR-1002-24", "F-150", new Brand("Ford", 2017, "USA"), FuelType.DIESEL,
+                        TruckCategory.PICKUP, 80.0, true, 1000, 1500, 2),
+                new Motorcycle("V3", "GR-1003-24", "CBR500R", new Brand("Honda", 2021, "Japan"), FuelType.PETROL,
+                        MotorcycleCategory.SPORTS, 30.0, true, EngineType.values()[0], 25.0)
+        };
+        bookings = new Bookings[vehicles.length];
+        LocalDateTime start = LocalDateTime.of(2025, 7, 5, 10, 0);
+        for (int i = 0; i < vehicles.length; i++) {
+            bookings[i] = new Bookings(vehicles[i], customer, start, start.plusDays(3 + i));
+        }
+    }
+
+    public static void main(String[] args) {
+        int quotes = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        PricingBenchmark benchmark = new PricingBenchmark();
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        System.out.printf("%,d quotes per round, best of %d rounds%n", quotes, ROUNDS);
+        System.out.printf("%-36s %12s %14s%n", "", "ns/quote", "bytes/quote");
+        String[] names = {"new calculator per quote (before)", "hardcoded switch factors", "compiled pricing rules",
+                "compiled rules, swapped every 5 ms"};
+        for (int mode = 0; mode < names.length; mode++) {
+            Thread swapper = mode == 3 ? startRulesSwapper() : null;
+            double bestNanos = Double.MAX_VALUE;
+            double bestBytes = Double.MAX_VALUE;
+            for (int round = 0; round < ROUNDS; round++) {
+                long bytesBefore = threads.getCurrentThreadAllocatedBytes();
+                long begin = System.nanoTime();
+                benchmark.run(mode, quotes);
+                long nanos = System.nanoTime() - begin;
+                long bytes = threads.getCurrentThreadAllocatedBytes() - bytesBefore;
+                bestNanos = Math.min(bestNanos, (double) nanos / quotes);
+                bestBytes = Math.min(bestBytes, (double) bytes / quotes);
+            }
+            if (swapper != null) {
+                swapper.interrupt();
+            }
+            System.out.printf("%-36s %12.1f %14.2f%n", names[mode], bestNanos, bestBytes);
+        }
+        System.out.println("(checksum " + benchmark.sink + ", " + benchmark.yearSink + ")");
+    }
+
+    private void run(int mode, int quotes) {
+        double total = 0;
+        for (int i = 0; i < quotes; i++) {
+            int v = i % vehicles.length;
+            if (mode == 0) {
+                total += quoteAsBefore(vehicles[v], bookings[v]);
+            } else if (mode == 1) {
+                total += quoteHardcoded(vehicles[v], bookings[v]);
+            } else {
+                total += vehicles[v].calculateRentalCost(bookings[v]);
+            }
+        }
+        sink += total;
+    }
+
+    // Builds a calculator for the quote and reads the year from the system clock, as quotes used to
+    private double quoteAsBefore(Vehicle vehicle, Bookings booking) {
+        RentalCostCalculator calculator;
+        if (vehicle instanceof Car) {
+            calculator = new CarRentalCostCalculator(carPricing, PricingContext.systemDefault());
+        } else if (vehicle instanceof Truck) {
+            calculator = new TruckRentalCostCalculator(truckPricing, PricingContext.systemDefault());
+        } else {
+            calculator = new MotorRentalCostCalculator(motorcyclePricing, PricingContext.systemDefault());
+        }
+        yearSink += Year.now().getValue();
+        return calculator.calculateRentalCost(vehicle, booking);
+    }
+
+    // Swaps the rules of the system context for equal ones every 5 ms, until interrupted
+    private static Thread startRulesSwapper() {
+        PricingContext context = PricingContext.systemDefault();
+        PricingRules rules = context.getRules();
+        Thread swapper = new Thread(() -> {
+            try {
+                while (true) {
+                    Thread.sleep(5);
+                    context.setRules(rules.withCalendar(rules.getCalendar()));
+                }
+            } catch (InterruptedException e) {
+                // Done
+            }
+        }, "pricing-rules-swapper");
+        swapper.setDaemon(true);
+        swapper.start();
+        return swapper;
+    }
+
+    // Prices with the factors the calculators had in switch statements, and the dynamic factor of the start day
+    private static double quoteHardcoded(Vehicle vehicle, Bookings booking) {
+        double ageFactor = 0.05 * vehicle.calculateAge(PricingContext.systemDefault().getCurrentYear());
+        LocalDateTime start = booking.getRentalDate();
+        double dynamicFactor = 1.0;
+        if (start.getDayOfWeek() == DayOfWeek.SATURDAY || start.getDayOfWeek() == DayOfWeek.SUNDAY) {
+            dynamicFactor += 0.2;
+        }
+        Month month = start.getMonth();
+        if (month == Month.DECEMBER || month == Month.JUNE || month == Month.JULY || month == Month.AUGUST) {
+            dynamicFactor += 0.5;
+        }
+        double cost = vehicle.getBaseRentalRate() * booking.calculateRentalDuration() * (1 + ageFactor) * dynamicFactor;
+        String brand = vehicle.getBrand().getBrandName();
+        FuelType fuelType = vehicle.getFuelType();
+        if (vehicle instanceof Car) {
+            return cost * carCategoryFactor((CarCategory) vehicle.getVehicleCategory()) * carFuelFactor(fuelType);
+        } else if (vehicle instanceof Truck) {
+            return cost * truckCategoryFactor((TruckCategory) vehicle.getVehicleCategory()) * truckFuelFactor(fuelType)
+                    * truckBrandFactor(brand);
+        }
+        return cost * motorcycleCategoryFactor((MotorcycleCategory) vehicle.getVehicleCategory())
+                * motorcycleFuelFactor(fuelType) * motorcycleBrandFactor(brand);
+    }
+
+    private static double carCategoryFactor(CarCategory category) {
+        switch (category) {
+            case CONVERTIBLE: return 1.5;
+            case SEDAN: return 1.2;
+            case SUV: return 1.3;
+            default: return 1.0;
+        }
+    }
+
+    private static double carFuelFactor(FuelType fuelType) {
+        switch (fuelType) {
+            case ELECTRIC: return 0.8;
+            case HYBRID: return 1.2;
+            case DIESEL: return 1.1;
+            default: return 1.0;
+        }
+    }
+
+    private static double truckCategoryFactor(TruckCategory category) {
+        switch (category) {
+            case BOX_TRUCK: return 1.6;
+            case DUMP_TRUCK: return 1.8;
+            case PICKUP: return 1.2;
+            case SEMI_TRUCK: return 2.0;
+            case TOW_TRUCK: return 1.7;
+            default: return 1.0;
+        }
+    }
+
+    private static double truckFuelFactor(FuelType fuelType) {
+        switch (fuelType) {
+            case HYBRID: return 1.3;
+            case DIESEL: return 1.2;
+            default: return 1.0;
+        }
+    }
+
+    private static double truckBrandFactor(String brand) {
+        switch (brand) {
+            case "Ford": return 1.1;
+            case "Chevrolet": return 1.2;
+            case "Peterbilt": return 1.4;
+            default: return 1.0;
+        }
+    }
+
+    private static double motorcycleCategoryFactor(MotorcycleCategory category) {
+        switch (category) {
+            case CRUISER: return 1.2;
+            case DUAL_SPORT: return 1.3;
+            case SPORTS: return 1.5;
+            case TOURING: return 1.4;
+            default: return 1.0;
+        }
+    }
+
+    private static double motorcycleFuelFactor(FuelType fuelType) {
+        switch (fuelType) {
+            case ELECTRIC: return 0.9;
+            case HYBRID: return 1.1;
+            case DIESEL: return 1.2;
+            default: return 1.0;
+        }
+    }
+
+    private static double motorcycleBrandFactor(String brand) {
+        switch (brand) {
+            case "Harley-Davidson": return 1.4;
+            case "Honda": return 1.1;
+            case "Yamaha": return 1.2;
+            default: return 1.0;
+        }
+    }
+}
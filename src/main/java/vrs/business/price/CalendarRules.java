@@ -0,0 +1,431 @@
+package vrs.business;
+
+import java.time.DateTimeException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.MonthDay;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * The {@code CalendarRules} class describes the dynamic pricing factor of each rented day: 1.0 plus the
+ * surcharge of every rule the day falls under. A day can fall under the weekend, the peak season, any number of
+ * holidays, which recur on the same day every year or fall on one date, and any number of surge windows, which
+ * run over a range of dates. Surcharges are added in that order, holidays and surge windows in the order they
+ * were added.
+ * <p>
+ * Rules are set using the {@code withX} methods, which return {@code this} so calls can be chained, and compiled
+ * into a {@link PricingCalendar} to be priced with. The {@link #defaults()} are 20% more on Saturdays and Sundays
+ * and 50% more in December, June, July and August.
+ */
+public class CalendarRules {
+
+    /**
+     * The prefix of the calendar's properties in the pricing configuration.
+     */
+    public static final String PREFIX = "calendar.";
+
+    private final Set<DayOfWeek> weekendDays = EnumSet.noneOf(DayOfWeek.class);
+    private double weekendSurcharge;
+    private final Set<Month> peakMonths = EnumSet.noneOf(Month.class);
+    private double peakSurcharge;
+    private final List<Holiday> holidays = new ArrayList<>();
+    private final List<Surge> surges = new ArrayList<>();
+
+    /**
+     * Creates rules with no surcharge on any day.
+     */
+    public CalendarRules() {
+    }
+
+    /**
+     * Creates a copy of other rules, which changes to either do not affect.
+     *
+     * @param other the rules to copy
+     */
+    public CalendarRules(CalendarRules other) {
+        weekendDays.addAll(other.weekendDays);
+        weekendSurcharge = other.weekendSurcharge;
+        peakMonths.addAll(other.peakMonths);
+        peakSurcharge = other.peakSurcharge;
+        holidays.addAll(other.holidays);
+        surges.addAll(other.surges);
+    }
+
+    /**
+     * Returns the rules quotes were priced by before they were configurable: 20% more on Saturdays and Sundays and
+     * 50% more in December, June, July and August.
+     *
+     * @return the default rules
+     */
+    public static CalendarRules defaults() {
+        return new CalendarRules()
+                .withWeekend(0.2, DayOfWeek.SATURDAY, DayOfWeek.SUNDAY)
+                .withPeakSeason(0.5, Month.DECEMBER, Month.JUNE, Month.JULY, Month.AUGUST);
+    }
+
+    /**
+     * Reads the rules from the pricing configuration; see {@link #fromProperties(Properties)}.
+     *
+     * @return the rules
+     * @throws IllegalStateException if the configuration cannot be read
+     * @throws IllegalArgumentException if a calendar property is invalid
+     */
+    public static CalendarRules load() {
+        return fromProperties(PricingConfig.read());
+    }
+
+    /**
+     * Reads the rules from the {@code calendar.} properties of a pricing configuration:
+     * <ul>
+     *     <li>{@code calendar.weekend.days} and {@code calendar.weekend.surcharge}, the weekend days as a comma
+     *     separated list of {@link DayOfWeek} names and their surcharge</li>
+     *     <li>{@code calendar.season.months} and {@code calendar.season.surcharge}, the peak months as a comma
+     *     separated list of {@link Month} names and their surcharge</li>
+     *     <li>{@code calendar.holiday.<name>=<MM-dd or yyyy-MM-dd>:<surcharge>}, a holiday recurring every year or
+     *     falling on one date</li>
+     *     <li>{@code calendar.surge.<name>=<yyyy-MM-dd>..<yyyy-MM-dd>:<surcharge>}, a surge window from its first
+     *     to its last day</li>
+     * </ul>
+     * If none of the weekend or season properties is set the {@link #defaults()} are used for them. Holidays and
+     * surge windows are added in the order of their names. Properties of the horizon are left to
+     * {@link PricingCalendar}.
+     *
+     * @param config the pricing properties
+     * @return the rules
+     * @throws IllegalArgumentException if a calendar property is invalid
+     */
+    public static CalendarRules fromProperties(Properties config) {
+        CalendarRules rules = new CalendarRules();
+        CalendarRules defaults = defaults();
+        String weekendDays = config.getProperty(PREFIX + "weekend.days");
+        String weekendSurcharge = config.getProperty(PREFIX + "weekend.surcharge");
+        if (weekendDays == null && weekendSurcharge == null) {
+            rules.weekendDays.addAll(defaults.weekendDays);
+            rules.weekendSurcharge = defaults.weekendSurcharge;
+        } else {
+            rules.withWeekend(parseSurcharge(PREFIX + "weekend.surcharge", weekendSurcharge),
+                    parseConstants(DayOfWeek.class, PREFIX + "weekend.days", weekendDays).toArray(new DayOfWeek[0]));
+        }
+        String peakMonths = config.getProperty(PREFIX + "season.months");
+        String peakSurcharge = config.getProperty(PREFIX + "season.surcharge");
+        if (peakMonths == null && peakSurcharge == null) {
+            rules.peakMonths.addAll(defaults.peakMonths);
+            rules.peakSurcharge = defaults.peakSurcharge;
+        } else {
+            rules.withPeakSeason(parseSurcharge(PREFIX + "season.surcharge", peakSurcharge),
+                    parseConstants(Month.class, PREFIX + "season.months", peakMonths).toArray(new Month[0]));
+        }
+        for (String key : new TreeSet<>(config.stringPropertyNames())) {
+            if (key.startsWith(PREFIX + "holiday.")) {
+                String[] value = splitSurcharge(key, config.getProperty(key));
+                double surcharge = parseSurcharge(key, value[1]);
+                try {
+                    if (value[0].length() == "MM-dd".length()) {
+                        rules.withHoliday(MonthDay.parse("--" + value[0]), surcharge);
+                    } else {
+                        rules.withHoliday(LocalDate.parse(value[0]), surcharge);
+                    }
+                } catch (DateTimeException e) {
+                    throw new IllegalArgumentException("Calendar property " + key + " has an invalid day: " + value[0]);
+                }
+            } else if (key.startsWith(PREFIX + "surge.")) {
+                String[] value = splitSurcharge(key, config.getProperty(key));
+                int separator = value[0].indexOf("..");
+                if (separator < 0) {
+                    throw new IllegalArgumentException("Calendar property " + key + " must be <first day>..<last day>:<surcharge>");
+                }
+                try {
+                    rules.withSurge(LocalDate.parse(value[0].substring(0, separator).trim()),
+                            LocalDate.parse(value[0].substring(separator + 2).trim()), parseSurcharge(key, value[1]));
+                } catch (DateTimeException e) {
+                    throw new IllegalArgumentException("Calendar property " + key + " has an invalid day: " + value[0]);
+                }
+            }
+        }
+        return rules;
+    }
+
+    /**
+     * Sets the days that are weekend days and their surcharge, replacing any set before.
+     *
+     * @param surcharge the surcharge of a weekend day, such as 0.2 for 20% more
+     * @param days the weekend days
+     * @return these rules
+     */
+    public CalendarRules withWeekend(double surcharge, DayOfWeek... days) {
+        checkSurcharge(surcharge);
+        weekendDays.clear();
+        weekendDays.addAll(List.of(days));
+        weekendSurcharge = surcharge;
+        return this;
+    }
+
+    /**
+     * Sets the months of the peak season and their surcharge, replacing any set before.
+     *
+     * @param surcharge the surcharge of a day in the peak season
+     * @param months the peak months
+     * @return these rules
+     */
+    public CalendarRules withPeakSeason(double surcharge, Month... months) {
+        checkSurcharge(surcharge);
+        peakMonths.clear();
+        peakMonths.addAll(List.of(months));
+        peakSurcharge = surcharge;
+        return this;
+    }
+
+    /**
+     * Adds a holiday on the same day every year.
+     *
+     * @param day the day of the holiday
+     * @param surcharge the surcharge of the holiday
+     * @return these rules
+     */
+    public CalendarRules withHoliday(MonthDay day, double surcharge) {
+        if (day == null) {
+            throw new IllegalArgumentException("Holiday cannot be null");
+        }
+        checkSurcharge(surcharge);
+        holidays.add(new Holiday(day, null, surcharge));
+        return this;
+    }
+
+    /**
+     * Adds a holiday on one date.
+     *
+     * @param date the date of the holiday
+     * @param surcharge the surcharge of the holiday
+     * @return these rules
+     */
+    public CalendarRules withHoliday(LocalDate date, double surcharge) {
+        if (date == null) {
+            throw new IllegalArgumentException("Holiday cannot be null");
+        }
+        checkSurcharge(surcharge);
+        holidays.add(new Holiday(null, date, surcharge));
+        return this;
+    }
+
+    /**
+     * Adds a surge window from {@code firstDay} to {@code lastDay}, both inclusive.
+     *
+     * @param firstDay the first day of the window
+     * @param lastDay the last day of the window
+     * @param surcharge the surcharge of a day in the window
+     * @return these rules
+     * @throws IllegalArgumentException if the last day is before the first day
+     */
+    public CalendarRules withSurge(LocalDate firstDay, LocalDate lastDay, double surcharge) {
+        if (firstDay == null || lastDay == null) {
+            throw new IllegalArgumentException("Surge window days cannot be null");
+        }
+        if (lastDay.isBefore(firstDay)) {
+            throw new IllegalArgumentException("Surge window cannot end before it starts");
+        }
+        checkSurcharge(surcharge);
+        surges.add(new Surge(firstDay, lastDay, surcharge));
+        return this;
+    }
+
+    /**
+     * Works out the dynamic pricing factor of a rented day.
+     *
+     * @param day the day
+     * @return the dynamic pricing factor
+     */
+    public double calculateFactor(LocalDate day) {
+        double dynamicFactor = 1.0;
+        if (weekendDays.contains(day.getDayOfWeek())) {
+            dynamicFactor += weekendSurcharge;
+        }
+        if (peakMonths.contains(day.getMonth())) {
+            dynamicFactor += peakSurcharge;
+        }
+        for (Holiday holiday : holidays) {
+            if (holiday.fallsOn(day)) {
+                dynamicFactor += holiday.surcharge;
+            }
+        }
+        for (Surge surge : surges) {
+            if (!day.isBefore(surge.firstDay) && !day.isAfter(surge.lastDay)) {
+                dynamicFactor += surge.surcharge;
+            }
+        }
+        return dynamicFactor;
+    }
+
+    /**
+     * Works out the sum of the dynamic pricing factors of the days from {@code firstEpochDay} up to
+     * {@code endEpochDay}. Rather than working out each day, it counts the weekend days, peak season days and
+     * holidays among them, since those recur every week or year, and the days they share with each surge window,
+     * so it takes the same time for any number of days.
+     *
+     * @param firstEpochDay the first day, as {@code LocalDate.toEpochDay()} gives it
+     * @param endEpochDay the day after the last day
+     * @return the sum of their factors, or 0 if there are no days
+     */
+    public double calculateTotalFactor(long firstEpochDay, long endEpochDay) {
+        if (endEpochDay <= firstEpochDay) {
+            return 0;
+        }
+        LocalDate first = LocalDate.ofEpochDay(firstEpochDay);
+        LocalDate end = LocalDate.ofEpochDay(endEpochDay);
+        double total = endEpochDay - firstEpochDay;
+        total += weekendSurcharge * (weekendDaysBefore(endEpochDay) - weekendDaysBefore(firstEpochDay));
+        total += peakSurcharge * (peakDaysBefore(end) - peakDaysBefore(first));
+        for (Holiday holiday : holidays) {
+            long count;
+            if (holiday.yearlyDay != null) {
+                count = holiday.occurrencesBefore(end) - holiday.occurrencesBefore(first);
+            } else {
+                long day = holiday.date.toEpochDay();
+                count = day >= firstEpochDay && day < endEpochDay ? 1 : 0;
+            }
+            total += holiday.surcharge * count;
+        }
+        for (Surge surge : surges) {
+            long sharedDays = Math.min(endEpochDay, surge.lastDay.toEpochDay() + 1)
+                    - Math.max(firstEpochDay, surge.firstDay.toEpochDay());
+            if (sharedDays > 0) {
+                total += surge.surcharge * sharedDays;
+            }
+        }
+        return total;
+    }
+
+    // The number of weekend days from 1970-01-01, a Thursday, up to the given day, negative for earlier days
+    private long weekendDaysBefore(long epochDay) {
+        long count = Math.floorDiv(epochDay, 7) * weekendDays.size();
+        for (int i = 0; i < Math.floorMod(epochDay, 7); i++) {
+            if (weekendDays.contains(DayOfWeek.THURSDAY.plus(i))) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // The number of peak season days from 1970-01-01 up to the given day, negative for earlier days
+    private long peakDaysBefore(LocalDate day) {
+        long daysInCommonYear = 0;
+        for (Month month : peakMonths) {
+            daysInCommonYear += month.length(false);
+        }
+        long count = (day.getYear() - 1970L) * daysInCommonYear;
+        if (peakMonths.contains(Month.FEBRUARY)) {
+            count += leapYearsBefore(day.getYear()) - leapYearsBefore(1970);
+        }
+        for (Month month : peakMonths) {
+            if (month.compareTo(day.getMonth()) < 0) {
+                count += month.length(day.isLeapYear());
+            }
+        }
+        if (peakMonths.contains(day.getMonth())) {
+            count += day.getDayOfMonth() - 1;
+        }
+        return count;
+    }
+
+    // The number of leap years from year 0 up to the given year, negative for earlier years
+    private static long leapYearsBefore(long year) {
+        return Math.floorDiv(year + 3, 4) - Math.floorDiv(year + 99, 100) + Math.floorDiv(year + 399, 400);
+    }
+
+    private static void checkSurcharge(double surcharge) {
+        if (!(surcharge > -1.0) || Double.isInfinite(surcharge)) {
+            throw new IllegalArgumentException("Surcharge must be greater than -1: " + surcharge);
+        }
+    }
+
+    private static String[] splitSurcharge(String key, String value) {
+        int separator = value.lastIndexOf(':');
+        if (separator < 0) {
+            throw new IllegalArgumentException("Calendar property " + key + " must end with :<surcharge>: " + value);
+        }
+        return new String[] {value.substring(0, separator).trim(), value.substring(separator + 1)};
+    }
+
+    private static double parseSurcharge(String key, String value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Calendar property " + key + " is missing");
+        }
+        double surcharge;
+        try {
+            surcharge = Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Calendar property " + key + " is not a number: " + value);
+        }
+        if (!(surcharge > -1.0) || Double.isInfinite(surcharge)) {
+            throw new IllegalArgumentException("Calendar property " + key + " must be greater than -1: " + value);
+        }
+        return surcharge;
+    }
+
+    private static <E extends Enum<E>> List<E> parseConstants(Class<E> type, String key, String value) {
+        List<E> constants = new ArrayList<>();
+        if (value == null || value.isBlank()) {
+            return constants;
+        }
+        for (String name : value.split(",")) {
+            try {
+                constants.add(Enum.valueOf(type, name.trim()));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown " + type.getSimpleName() + " in calendar property " + key + ": " + name);
+            }
+        }
+        return constants;
+    }
+
+    /**
+     * A holiday on the same day every year, or on one date.
+     */
+    private static final class Holiday {
+        private final MonthDay yearlyDay;
+        private final LocalDate date;
+        private final double surcharge;
+
+        private Holiday(MonthDay yearlyDay, LocalDate date, double surcharge) {
+            this.yearlyDay = yearlyDay;
+            this.date = date;
+            this.surcharge = surcharge;
+        }
+
+        private boolean fallsOn(LocalDate day) {
+            return yearlyDay != null
+                    ? day.getMonthValue() == yearlyDay.getMonthValue() && day.getDayOfMonth() == yearlyDay.getDayOfMonth()
+                    : day.equals(date);
+        }
+
+        // The number of times a yearly holiday falls from 1970-01-01 up to the given day, negative for earlier days
+        private long occurrencesBefore(LocalDate day) {
+            long count = yearlyDay.getMonthValue() == 2 && yearlyDay.getDayOfMonth() == 29
+                    ? leapYearsBefore(day.getYear()) - leapYearsBefore(1970)
+                    : day.getYear() - 1970L;
+            if (yearlyDay.isValidYear(day.getYear()) && yearlyDay.isBefore(MonthDay.from(day))) {
+                count++;
+            }
+            return count;
+        }
+    }
+
+    /**
+     * A range of days with a surcharge.
+     */
+    private static final class Surge {
+        private final LocalDate firstDay;
+        private final LocalDate lastDay;
+        private final double surcharge;
+
+        private Surge(LocalDate firstDay, LocalDate lastDay, double surcharge) {
+            this.firstDay = firstDay;
+            this.lastDay = lastDay;
+            this.surcharge = surcharge;
+        }
+    }
+}
@@ -1,47 +1,48 @@
 package vrs.business;
 
-import vrs.models.enums.vehicle.othercategories.FuelType;
 import vrs.models.enums.vehicle.vehiclecategories.CarCategory;
 import vrs.models.vehicle.Vehicle;
 
 
 public class CarRentalCostCalculator extends RentalCostCalculator {
 
-    @Override
-    protected double getCategoryFactor(Vehicle vehicle) {
-
-        CarCategory category = (CarCategory) vehicle.getVehicleCategory();
-        switch (category) {
-            case CONVERTIBLE: return 1.5; // More expensive
-            case HATCHBACK: return 1.0;   // Base cost
-            case SEDAN: return 1.2;       // Slightly higher than hatchback
-            case SUV: return 1.3;         // Higher base cost
-            default: return 1.0;
-        }
+    private static final CarRentalCostCalculator INSTANCE =
+            new CarRentalCostCalculator(PricingContext.systemDefault());
+
+    private final PricingTable<CarCategory> pricing;
+
+    /**
+     * Creates a calculator that prices by the rules of the given context, following them when they are replaced.
+     *
+     * @param context the pricing context
+     */
+    public CarRentalCostCalculator(PricingContext context) {
+        super(context);
+        this.pricing = null;
     }
 
-    @Override
-    protected double getFuelFactor(Vehicle vehicle) {
-        // Example logic for fuel type pricing
-        FuelType fuelType = vehicle.getFuelType();
-        switch (fuelType) {
-            case ELECTRIC: return 0.8;    // Electric cars might be cheaper
-            case PETROL: return 1.0;      // Standard petrol vehicles
-            case HYBRID: return 1.2;      // Hybrid cars might cost more
-            case DIESEL: return 1.1;      // Diesel cars might be slightly more expensive
-            default: return 1.0;
+    /**
+     * Creates a calculator that takes its car factors from the given table, whatever the rules of the context,
+     * and the current time and calendar from the given context.
+     *
+     * @param pricing the car pricing factors
+     * @param context the pricing context
+     */
+    public CarRentalCostCalculator(PricingTable<CarCategory> pricing, PricingContext context) {
+        super(context);
+        if (pricing == null) {
+            throw new IllegalArgumentException("Pricing table cannot be null");
         }
+        this.pricing = pricing;
     }
 
-    @Override
-    protected double getBrandFactor(Vehicle vehicle) {
-        switch (vehicle.getBrand().getBrandName()) {
-            case "Mercedes": return 1.3;  // Premium brand, higher rental cost
-            case "Toyota": return 1.0;    // Standard brand, no change
-            case "BMW": return 1.2;       // Luxury brand, slightly higher
-            case "Ford": return 0.9;      // Lower cost for this brand
-            default: return 1.0;          // Default factor if brand is not listed
-        }
+    /**
+     * Returns the shared calculator, with the rules and the clock of the system context.
+     *
+     * @return the shared car calculator
+     */
+    public static CarRentalCostCalculator getInstance() {
+        return INSTANCE;
     }
 
     @Override
@@ -51,4 +52,19 @@ public class CarRentalCostCalculator extends RentalCostCalculator {
         return baseCost * daysRented * (1 + ageFactor) * categoryFactor * fuelFactor * dynamicPricingFactor;
     }
 
+    @Override
+    protected void calculateCostsForVehicles(int length, double[] daysRented, double[] baseCosts,
+                                             double[] ageFactors, double[] categoryFactors, double[] fuelFactors,
+                                             double[] brandFactors, double[] dynamicPricingFactors,
+                                             double[] costs, int offset) {
+        for (int j = 0; j < length; j++) {
+            costs[offset + j] = baseCosts[j] * daysRented[j] * (1 + ageFactors[j]) * categoryFactors[j] * fuelFactors[j] * dynamicPricingFactors[j];
+        }
+    }
+
+    @Override
+    protected PricingTable<?> getPricingTable(PricingRules rules) {
+        return pricing != null ? pricing : rules.getCarPricing();
+    }
+
 }
@@ -1,45 +1,47 @@
 package vrs.business;
 
-import vrs.models.enums.vehicle.othercategories.FuelType;
 import vrs.models.enums.vehicle.vehiclecategories.MotorcycleCategory;
 import vrs.models.vehicle.Vehicle;
 
 public class MotorRentalCostCalculator extends RentalCostCalculator {
 
-    @Override
-    protected double getCategoryFactor(Vehicle vehicle) {
-        MotorcycleCategory category = (MotorcycleCategory) vehicle.getVehicleCategory();
-        switch (category) {
-            case CRUISER: return 1.2;  // Cruiser motorcycles
-            case DUAL_SPORT: return 1.3; // Dual-sport motorcycles
-            case STANDARD: return 1.0;  // Standard motorcycles
-            case SPORTS: return 1.5;   // Sports motorcycles
-            case TOURING: return 1.4;  // Touring motorcycles
-            default: return 1.0;       // Default factor
-        }
+    private static final MotorRentalCostCalculator INSTANCE =
+            new MotorRentalCostCalculator(PricingContext.systemDefault());
+
+    private final PricingTable<MotorcycleCategory> pricing;
+
+    /**
+     * Creates a calculator that prices by the rules of the given context, following them when they are replaced.
+     *
+     * @param context the pricing context
+     */
+    public MotorRentalCostCalculator(PricingContext context) {
+        super(context);
+        this.pricing = null;
     }
 
-    @Override
-    protected double getFuelFactor(Vehicle vehicle) {
-        FuelType fuelType = vehicle.getFuelType();
-        switch (fuelType) {
-            case ELECTRIC: return 0.9;    // Electric motorcycles might be cheaper
-            case PETROL: return 1.0;      // Standard petrol motorcycles
-            case HYBRID: return 1.1;      // Hybrid motorcycles might cost more
-            case DIESEL: return 1.2;      // Diesel motorcycles might be slightly more expensive
-            default: return 1.0;
+    /**
+     * Creates a calculator that takes its motorcycle factors from the given table, whatever the rules of the context,
+     * and the current time and calendar from the given context.
+     *
+     * @param pricing the motorcycle pricing factors
+     * @param context the pricing context
+     */
+    public MotorRentalCostCalculator(PricingTable<MotorcycleCategory> pricing, PricingContext context) {
+        super(context);
+        if (pricing == null) {
+            throw new IllegalArgumentException("Pricing table cannot be null");
         }
+        this.pricing = pricing;
     }
 
-    @Override
-    protected double getBrandFactor(Vehicle vehicle) {
-        // Apply different factors based on the vehicle brand (example)
-        switch (vehicle.getBrand().getBrandName()) {
-            case "Harley-Davidson": return 1.4;  // Premium brand
-            case "Honda": return 1.1;    // Standard brand
-            case "Yamaha": return 1.2;   // Slightly higher cost
-            default: return 1.0;          // Default factor
-        }
+    /**
+     * Returns the shared calculator, with the rules and the clock of the system context.
+     *
+     * @return the shared motorcycle calculator
+     */
+    public static MotorRentalCostCalculator getInstance() {
+        return INSTANCE;
     }
 
     @Override
@@ -48,4 +50,19 @@ public class MotorRentalCostCalculator extends RentalCostCalculator {
                                              double brandFactor, double dynamicPriceFactor) {
         return baseCost * daysRented * (1 + ageFactor) * categoryFactor * fuelFactor * brandFactor * dynamicPriceFactor;
     }
+
+    @Override
+    protected void calculateCostsForVehicles(int length, double[] daysRented, double[] baseCosts,
+                                             double[] ageFactors, double[] categoryFactors, double[] fuelFactors,
+                                             double[] brandFactors, double[] dynamicPricingFactors,
+                                             double[] costs, int offset) {
+        for (int j = 0; j < length; j++) {
+            costs[offset + j] = baseCosts[j] * daysRented[j] * (1 + ageFactors[j]) * categoryFactors[j] * fuelFactors[j] * brandFactors[j] * dynamicPricingFactors[j];
+        }
+    }
+
+    @Override
+    protected PricingTable<?> getPricingTable(PricingRules rules) {
+        return pricing != null ? pricing : rules.getMotorcyclePricing();
+    }
 }
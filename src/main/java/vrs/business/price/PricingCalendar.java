@@ -0,0 +1,214 @@
+package vrs.business;
+
+import java.time.LocalDate;
+import java.time.Year;
+import java.util.Properties;
+
+/**
+ * The {@code PricingCalendar} class holds the dynamic pricing factor of every day of a horizon of whole years,
+ * worked out in advance from {@link CalendarRules}, so that the factor of a day is one array read
+ * by epoch day. Days outside the horizon are worked out from the rules when asked for.
+ * {@link PricingContext} moves the horizon on when the year changes, so quotes keep being priced from the arrays.
+ * <p>
+ * A calendar also keeps the running total of the factors from the start of the horizon, so the factors of any
+ * run of days inside the horizon add up with two array reads, however long the run is.
+ * <p>
+ * Calendars are immutable, so changes to the rules a calendar was built from do not affect it. To price by new
+ * rules, build a new calendar and swap it in with {@link PricingContext#setCalendar(PricingCalendar)}.
+ */
+public final class PricingCalendar {
+
+    /**
+     * The number of years a calendar covers if the configuration does not set {@code calendar.horizon.years}.
+     */
+    public static final int DEFAULT_HORIZON_YEARS = 10;
+
+    /**
+     * The largest number of years a calendar can cover.
+     */
+    public static final int MAX_HORIZON_YEARS = 100;
+
+    private final long firstEpochDay;
+    private final double[] factorByDay;
+    // The sum of the factors of the days before each day of the horizon, and of the whole horizon last
+    private final double[] factorsBeforeDay;
+    private final CalendarRules rules;
+    private final int years;
+
+    private PricingCalendar(long firstEpochDay, double[] factorByDay, CalendarRules rules, int years) {
+        this.firstEpochDay = firstEpochDay;
+        this.factorByDay = factorByDay;
+        this.factorsBeforeDay = new double[factorByDay.length + 1];
+        for (int i = 0; i < factorByDay.length; i++) {
+            factorsBeforeDay[i + 1] = factorsBeforeDay[i] + factorByDay[i];
+        }
+        this.rules = rules;
+        this.years = years;
+    }
+
+    /**
+     * Builds a calendar for the given rules from the first day of {@code firstYear}, for {@code years} years.
+     *
+     * @param rules the rules to work the factors out from
+     * @param firstYear the first year of the horizon
+     * @param years the number of years in the horizon
+     * @return the calendar
+     * @throws IllegalArgumentException if the number of years is not positive or more than
+     *         {@link #MAX_HORIZON_YEARS}, or the horizon does not fit the years a {@link LocalDate} can have
+     */
+    public static PricingCalendar build(CalendarRules rules, int firstYear, int years) {
+        if (rules == null) {
+            throw new IllegalArgumentException("Calendar rules cannot be null");
+        }
+        if (years <= 0 || years > MAX_HORIZON_YEARS) {
+            throw new IllegalArgumentException("Calendar horizon must be from 1 to " + MAX_HORIZON_YEARS + " years: " + years);
+        }
+        if (firstYear < Year.MIN_VALUE || (long) firstYear + years > Year.MAX_VALUE) {
+            throw new IllegalArgumentException("Calendar horizon of " + years + " years from " + firstYear
+                    + " is out of range");
+        }
+        CalendarRules snapshot = new CalendarRules(rules);
+        LocalDate firstDay = LocalDate.of(firstYear, 1, 1);
+        long firstEpochDay = firstDay.toEpochDay();
+        double[] factorByDay = new double[(int) (firstDay.plusYears(years).toEpochDay() - firstEpochDay)];
+        LocalDate day = firstDay;
+        for (int i = 0; i < factorByDay.length; i++, day = day.plusDays(1)) {
+            factorByDay[i] = snapshot.calculateFactor(day);
+        }
+        return new PricingCalendar(firstEpochDay, factorByDay, snapshot, years);
+    }
+
+    /**
+     * Builds the calendar of the pricing configuration, starting the year before {@code currentYear} so that
+     * rentals that started recently are covered too.
+     *
+     * @param currentYear the current year
+     * @return the calendar
+     * @throws IllegalStateException if the configuration cannot be read
+     * @throws IllegalArgumentException if a calendar property is invalid
+     */
+    public static PricingCalendar load(int currentYear) {
+        return fromProperties(PricingConfig.read(), currentYear);
+    }
+
+    /**
+     * Builds the calendar of a pricing configuration: its rules as {@link CalendarRules#fromProperties(Properties)}
+     * reads them, over {@code calendar.horizon.years} years starting the year before {@code currentYear}.
+     *
+     * @param config the pricing properties
+     * @param currentYear the current year
+     * @return the calendar
+     * @throws IllegalArgumentException if a calendar property is invalid
+     */
+    public static PricingCalendar fromProperties(Properties config, int currentYear) {
+        String key = CalendarRules.PREFIX + "horizon.years";
+        String value = config.getProperty(key);
+        int years = DEFAULT_HORIZON_YEARS;
+        if (value != null) {
+            try {
+                years = Integer.parseInt(value.trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Calendar property " + key + " is not a number: " + value);
+            }
+        }
+        return build(CalendarRules.fromProperties(config), currentYear - 1, years);
+    }
+
+    /**
+     * Builds a calendar of the same rules and number of years as this one, starting from the first day of
+     * {@code firstYear}.
+     *
+     * @param firstYear the first year of the new horizon
+     * @return the calendar
+     * @throws IllegalArgumentException if the horizon does not fit the years a {@link LocalDate} can have
+     */
+    public PricingCalendar startingIn(int firstYear) {
+        return build(rules, firstYear, years);
+    }
+
+    /**
+     * Returns the dynamic pricing factor of a day.
+     *
+     * @param epochDay the day, as {@code LocalDate.toEpochDay()} gives it
+     * @return the dynamic pricing factor
+     */
+    public double getFactor(long epochDay) {
+        long index = epochDay - firstEpochDay;
+        if (index >= 0 && index < factorByDay.length) {
+            return factorByDay[(int) index];
+        }
+        return rules.calculateFactor(LocalDate.ofEpochDay(epochDay));
+    }
+
+    public double getFactor(LocalDate day) {
+        return getFactor(day.toEpochDay());
+    }
+
+    /**
+     * Returns the sum of the dynamic pricing factors of {@code days} days in a row. This takes the same time for
+     * any number of days: inside the horizon the running totals are read, and days outside it are added up by
+     * {@link CalendarRules#calculateTotalFactor(long, long)}.
+     *
+     * @param firstEpochDay the first of the days, as {@code LocalDate.toEpochDay()} gives it
+     * @param days the number of days
+     * @return the sum of their factors, or 0 if there are no days
+     */
+    public double getTotalFactor(long firstEpochDay, long days) {
+        if (days <= 0) {
+            return 0;
+        }
+        long start = firstEpochDay - this.firstEpochDay;
+        long end = start + days;
+        if (start >= 0 && end <= factorByDay.length) {
+            return factorsBeforeDay[(int) end] - factorsBeforeDay[(int) start];
+        }
+        // Days before the horizon, then those inside it, then those after it
+        long insideStart = Math.min(Math.max(start, 0), factorByDay.length);
+        long insideEnd = Math.max(Math.min(end, factorByDay.length), insideStart);
+        long endEpochDay = firstEpochDay + days;
+        return rules.calculateTotalFactor(firstEpochDay, Math.min(endEpochDay, this.firstEpochDay))
+                + factorsBeforeDay[(int) insideEnd] - factorsBeforeDay[(int) insideStart]
+                + rules.calculateTotalFactor(Math.max(firstEpochDay, this.firstEpochDay + factorByDay.length), endEpochDay);
+    }
+
+    /**
+     * Returns the average dynamic pricing factor of a rental of {@code days} days, each day taking its own
+     * factor. A rental of one day, or of none, takes the factor of the day it starts.
+     *
+     * @param firstEpochDay the day the rental starts, as {@code LocalDate.toEpochDay()} gives it
+     * @param days the length of the rental in days
+     * @return the average factor of its days
+     */
+    public double getAverageFactor(long firstEpochDay, long days) {
+        if (days <= 1) {
+            return getFactor(firstEpochDay);
+        }
+        return getTotalFactor(firstEpochDay, days) / days;
+    }
+
+    public int getHorizonYears() {
+        return years;
+    }
+
+    public LocalDate getFirstDay() {
+        return LocalDate.ofEpochDay(firstEpochDay);
+    }
+
+    /**
+     * Returns the first day after the horizon.
+     *
+     * @return the end of the horizon (exclusive)
+     */
+    public LocalDate getEndDay() {
+        return LocalDate.ofEpochDay(firstEpochDay + factorByDay.length);
+    }
+
+    /**
+     * Returns a copy of the rules this calendar was built from.
+     *
+     * @return the rules
+     */
+    public CalendarRules getRules() {
+        return new CalendarRules(rules);
+    }
+}
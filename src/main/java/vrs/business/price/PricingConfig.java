@@ -0,0 +1,66 @@
+package vrs.business;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+/**
+ * The {@code PricingConfig} class reads the pricing configuration: {@code pricing.properties} on the classpath,
+ * or the file named by the {@code vrs.pricing.config} system property if it is set.
+ */
+public final class PricingConfig {
+
+    /**
+     * The system property naming a configuration file to read instead of the default one.
+     */
+    public static final String CONFIG_PROPERTY = "vrs.pricing.config";
+
+    private static final String DEFAULT_CONFIG = "/pricing.properties";
+
+    private PricingConfig() {
+    }
+
+    /**
+     * Reads the pricing configuration.
+     *
+     * @return the pricing properties
+     * @throws IllegalStateException if the configuration cannot be read
+     */
+    public static Properties read() {
+        String file = System.getProperty(CONFIG_PROPERTY);
+        try {
+            if (file != null) {
+                return read(Path.of(file));
+            }
+            Properties config = new Properties();
+            try (InputStream in = PricingConfig.class.getResourceAsStream(DEFAULT_CONFIG)) {
+                if (in == null) {
+                    throw new IllegalStateException("Pricing configuration " + DEFAULT_CONFIG + " not found on the classpath");
+                }
+                config.load(in);
+            }
+            return config;
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read the pricing configuration: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Reads a pricing configuration file.
+     *
+     * @param file the configuration file
+     * @return the pricing properties
+     * @throws IOException if the file cannot be read
+     */
+    public static Properties read(Path file) throws IOException {
+        Properties config = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            config.load(reader);
+        }
+        return config;
+    }
+}
@@ -0,0 +1,160 @@
+package vrs.business;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The {@code PricingContext} class supplies the time a quote is priced at. It reads a {@link Clock}, which can be
+ * replaced by a fixed or offset clock to price as of another time, and caches the current year together with
+ * the instants it lasts between, so the year of a quote costs a read of the clock and a comparison, without
+ * allocating. The cache is refreshed when the clock leaves the cached year, in either direction.
+ * <p>
+ * It also holds the {@link PricingRules} quotes are priced by: the pricing tables of each kind of vehicle and the
+ * calendar of dynamic pricing factors. The rules can be replaced while quotes are being priced:
+ * {@link #setRules(PricingRules)} swaps the reference in one write, so a quote reads either the old rules or the
+ * new ones in full and never waits for the swap. Every swap moves the {@link #getRulesVersion() rules version}
+ * on, so caches of quotes can tell what they priced under older rules. When the clock moves into another year,
+ * the horizon of the calendar is moved to start the year before it, as the configuration builds it, so rentals
+ * of the coming years stay inside the horizon.
+ * <p>
+ * A context is safe for concurrent use and is meant to be shared; {@link #systemDefault()} reads the system
+ * clock in the default time zone, as {@link java.time.Year#now()} does, and the rules of the pricing
+ * configuration.
+ */
+public final class PricingContext {
+
+    private static final PricingContext SYSTEM_DEFAULT = new PricingContext(Clock.systemDefaultZone());
+
+    private final Clock clock;
+    private volatile CachedYear cachedYear;
+    private volatile PricingRules rules;
+    private final AtomicLong rulesVersion = new AtomicLong();
+
+    /**
+     * Creates a context that reads the given clock, with the rules of the pricing configuration.
+     *
+     * @param clock the clock quotes are priced by
+     * @throws IllegalStateException if the configuration cannot be read
+     * @throws IllegalArgumentException if a pricing property is invalid
+     */
+    public PricingContext(Clock clock) {
+        this(clock, null);
+    }
+
+    /**
+     * Creates a context that reads the given clock and prices by the given rules.
+     *
+     * @param clock the clock quotes are priced by
+     * @param rules the pricing rules, or {@code null} for those of the pricing configuration
+     */
+    public PricingContext(Clock clock, PricingRules rules) {
+        if (clock == null) {
+            throw new IllegalArgumentException("Clock cannot be null");
+        }
+        this.clock = clock;
+        this.cachedYear = CachedYear.containing(clock.millis(), clock.getZone());
+        this.rules = rules != null ? rules : PricingRules.load(cachedYear.year);
+    }
+
+    /**
+     * Returns the shared context over the system clock in the default time zone.
+     *
+     * @return the system context
+     */
+    public static PricingContext systemDefault() {
+        return SYSTEM_DEFAULT;
+    }
+
+    public Clock getClock() {
+        return clock;
+    }
+
+    /**
+     * Returns the current year of the clock, in the clock's time zone.
+     *
+     * @return the current year
+     */
+    public int getCurrentYear() {
+        long now = clock.millis();
+        CachedYear cached = cachedYear;
+        if (now < cached.startMillis || now >= cached.endMillis) {
+            cached = CachedYear.containing(now, clock.getZone());
+            cachedYear = cached;
+            moveCalendar(cached.year);
+        }
+        return cached.year;
+    }
+
+    public PricingRules getRules() {
+        return rules;
+    }
+
+    /**
+     * Replaces the rules quotes are priced by. Quotes being priced finish with the rules they started with.
+     *
+     * @param rules the new rules
+     */
+    public synchronized void setRules(PricingRules rules) {
+        if (rules == null) {
+            throw new IllegalArgumentException("Pricing rules cannot be null");
+        }
+        this.rules = rules;
+        rulesVersion.incrementAndGet();
+    }
+
+    public PricingCalendar getCalendar() {
+        return rules.getCalendar();
+    }
+
+    /**
+     * Replaces the calendar quotes are priced by, keeping the pricing tables.
+     *
+     * @param calendar the new calendar
+     */
+    public synchronized void setCalendar(PricingCalendar calendar) {
+        setRules(rules.withCalendar(calendar));
+    }
+
+    // Rebuilds the calendar to start the year before the current year, unless another thread already has
+    private synchronized void moveCalendar(int currentYear) {
+        PricingCalendar calendar = rules.getCalendar();
+        if (calendar.getFirstDay().getYear() != currentYear - 1) {
+            setRules(rules.withCalendar(calendar.startingIn(currentYear - 1)));
+        }
+    }
+
+    /**
+     * Returns the version of the pricing rules of this context, which changes every time the rules are
+     * replaced.
+     *
+     * @return the rules version
+     */
+    public long getRulesVersion() {
+        return rulesVersion.get();
+    }
+
+    /**
+     * A year and the instants it starts and ends at in one time zone.
+     */
+    private static final class CachedYear {
+        private final int year;
+        private final long startMillis;
+        private final long endMillis;
+
+        private CachedYear(int year, long startMillis, long endMillis) {
+            this.year = year;
+            this.startMillis = startMillis;
+            this.endMillis = endMillis;
+        }
+
+        private static CachedYear containing(long millis, ZoneId zone) {
+            int year = LocalDate.ofInstant(Instant.ofEpochMilli(millis), zone).getYear();
+            long start = LocalDate.of(year, 1, 1).atStartOfDay(zone).toInstant().toEpochMilli();
+            long end = LocalDate.of(year + 1, 1, 1).atStartOfDay(zone).toInstant().toEpochMilli();
+            return new CachedYear(year, start, end);
+        }
+    }
+}
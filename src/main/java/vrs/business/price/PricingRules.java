@@ -0,0 +1,89 @@
+package vrs.business;
+
+import vrs.models.enums.vehicle.vehiclecategories.CarCategory;
+import vrs.models.enums.vehicle.vehiclecategories.MotorcycleCategory;
+import vrs.models.enums.vehicle.vehiclecategories.TruckCategory;
+
+import java.util.Properties;
+
+/**
+ * The {@code PricingRules} class holds everything quotes are priced by: the {@link PricingTable} of each kind of
+ * vehicle and the {@link PricingCalendar} of dynamic pricing factors. Rules are immutable and are replaced as a
+ * whole, through {@link PricingContext#setRules(PricingRules)}, so a quote never mixes old and new rules.
+ */
+public final class PricingRules {
+
+    private final PricingTable<CarCategory> carPricing;
+    private final PricingTable<TruckCategory> truckPricing;
+    private final PricingTable<MotorcycleCategory> motorcyclePricing;
+    private final PricingCalendar calendar;
+
+    public PricingRules(PricingTable<CarCategory> carPricing, PricingTable<TruckCategory> truckPricing,
+                        PricingTable<MotorcycleCategory> motorcyclePricing, PricingCalendar calendar) {
+        if (carPricing == null || truckPricing == null || motorcyclePricing == null) {
+            throw new IllegalArgumentException("Pricing tables cannot be null");
+        }
+        if (calendar == null) {
+            throw new IllegalArgumentException("Calendar cannot be null");
+        }
+        this.carPricing = carPricing;
+        this.truckPricing = truckPricing;
+        this.motorcyclePricing = motorcyclePricing;
+        this.calendar = calendar;
+    }
+
+    /**
+     * Builds the rules of the pricing configuration; see {@link #fromProperties(Properties, int)}.
+     *
+     * @param currentYear the current year
+     * @return the rules
+     * @throws IllegalStateException if the configuration cannot be read
+     * @throws IllegalArgumentException if a pricing property is invalid
+     */
+    public static PricingRules load(int currentYear) {
+        return fromProperties(PricingConfig.read(), currentYear);
+    }
+
+    /**
+     * Builds the rules of a pricing configuration: the tables of the {@code car.}, {@code truck.} and
+     * {@code motorcycle.} properties and the calendar of the {@code calendar.} properties, with its horizon
+     * starting the year before {@code currentYear}.
+     *
+     * @param config the pricing properties
+     * @param currentYear the current year
+     * @return the rules
+     * @throws IllegalArgumentException if a pricing property is invalid
+     */
+    public static PricingRules fromProperties(Properties config, int currentYear) {
+        return new PricingRules(PricingTable.fromProperties(config, "car", CarCategory.class),
+                PricingTable.fromProperties(config, "truck", TruckCategory.class),
+                PricingTable.fromProperties(config, "motorcycle", MotorcycleCategory.class),
+                PricingCalendar.fromProperties(config, currentYear));
+    }
+
+    /**
+     * Returns these rules with another calendar.
+     *
+     * @param calendar the calendar of the new rules
+     * @return the new rules
+     */
+    public PricingRules withCalendar(PricingCalendar calendar) {
+        return new PricingRules(carPricing, truckPricing, motorcyclePricing, calendar);
+    }
+
+    public PricingTable<CarCategory> getCarPricing() {
+        return carPricing;
+    }
+
+    public PricingTable<TruckCategory> getTruckPricing() {
+        return truckPricing;
+    }
+
+    public PricingTable<MotorcycleCategory> getMotorcyclePricing() {
+        return motorcyclePricing;
+    }
+
+    public PricingCalendar getCalendar() {
+        return calendar;
+    }
+}
@@ -0,0 +1,131 @@
+package vrs.business;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@code PricingRulesWatcher} class keeps the rules of a {@link PricingContext} in step with a pricing
+ * configuration file. It watches the file's directory, and when the file is created or changed it reads it,
+ * builds new {@link PricingRules} and swaps them into the context, so price changes take effect without a
+ * restart and without pausing quotes.
+ * <p>
+ * The file is read once changes to it have settled for a moment, so an editor saving it in several writes
+ * causes one reload. Writing the new file next to the old one and renaming it over it avoids reading a file
+ * that is only partly written. A file that cannot be read or has an invalid property is reported and the rules
+ * in use are kept.
+ */
+public class PricingRulesWatcher implements Closeable {
+
+    private static final long SETTLE_MILLIS = 100;
+
+    private final Path file;
+    private final PricingContext context;
+    private final WatchService watchService;
+    private final Thread watcher;
+
+    private PricingRulesWatcher(Path file, PricingContext context) throws IOException {
+        this.file = file;
+        this.context = context;
+        this.watchService = FileSystems.getDefault().newWatchService();
+        file.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        this.watcher = new Thread(this::watch, "pricing-rules-watcher-" + file.getFileName());
+        watcher.setDaemon(true);
+    }
+
+    /**
+     * Loads the rules of a configuration file into a context, then keeps reloading them whenever the file
+     * changes, until the watcher is closed.
+     *
+     * @param file the pricing configuration file
+     * @param context the context to price by the file's rules
+     * @return the running watcher
+     * @throws IOException if the file cannot be read or its directory cannot be watched
+     * @throws IllegalArgumentException if a pricing property of the file is invalid
+     */
+    public static PricingRulesWatcher start(Path file, PricingContext context) throws IOException {
+        if (file == null || context == null) {
+            throw new IllegalArgumentException("File and context cannot be null");
+        }
+        Path absolute = file.toAbsolutePath();
+        context.setRules(PricingRules.fromProperties(PricingConfig.read(absolute), context.getCurrentYear()));
+        PricingRulesWatcher rulesWatcher = new PricingRulesWatcher(absolute, context);
+        rulesWatcher.watcher.start();
+        return rulesWatcher;
+    }
+
+    /**
+     * Reads the file and swaps its rules into the context.
+     *
+     * @return {@code true} if the rules were replaced, {@code false} if the file could not be read or is invalid
+     */
+    public boolean reload() {
+        try {
+            context.setRules(PricingRules.fromProperties(PricingConfig.read(file), context.getCurrentYear()));
+            System.out.println("Pricing rules reloaded from " + file);
+            return true;
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println("Pricing rules in " + file + " not reloaded: " + e.getMessage());
+            return false;
+        }
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Stops watching the file. The rules in use stay in the context.
+     *
+     * @throws IOException if the watch service cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean changed = pollChanges(key);
+                // Wait for the file to settle before reading it
+                while ((key = watchService.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    changed |= pollChanges(key);
+                }
+                if (changed) {
+                    reloadQuietly();
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            // The watcher was closed
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Reloads the file, keeping the watcher running whatever goes wrong, so the next change is still picked up
+    private void reloadQuietly() {
+        try {
+            reload();
+        } catch (RuntimeException e) {
+            System.out.println("Pricing rules in " + file + " not reloaded: " + e);
+        }
+    }
+
+    private boolean pollChanges(WatchKey key) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            changed |= event.kind() == StandardWatchEventKinds.OVERFLOW || file.getFileName().equals(event.context());
+        }
+        key.reset();
+        return changed;
+    }
+}
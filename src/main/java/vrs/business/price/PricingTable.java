@@ -0,0 +1,241 @@
+package vrs.business;
+
+import vrs.models.enums.vehicle.othercategories.FuelType;
+import vrs.models.interfaces.VehicleCategory;
+import vrs.models.others.Brand;
+import vrs.models.vehicle.Vehicle;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * The {@code PricingTable} class holds the category, fuel, brand and rental length factors of one kind of vehicle
+ * in arrays, so that looking a factor up is an array read: categories and fuel types are indexed by their
+ * ordinal, brands by {@link Brand#getBrandId()} and rental lengths by their number of days.
+ * <p>
+ * Tables are built from configuration, with one property per factor named after the kind of vehicle, the factor
+ * and the enum constant or brand name, such as {@code car.category.SUV=1.3} or {@code truck.brand.Peterbilt=1.4}.
+ * Anything not configured has a factor of 1.0. {@code <kind>.age.rate} sets how much the rate goes up for each
+ * year of a vehicle's age (0.05 if not set), and {@code <kind>.duration.<days>} the discount off rentals of at
+ * least that many days, such as {@code car.duration.7=0.1} for 10% off a week or more; a rental gets the
+ * discount of the longest length it reaches. Lengths of up to {@link #MAX_DURATION_DAYS} days can be configured.
+ * The configuration is read through {@link PricingConfig}.
+ * Tables are immutable, so one table can be shared by any number of calculators.
+ *
+ * @param <C> the category type of the vehicles priced with this table
+ */
+public final class PricingTable<C extends Enum<C> & VehicleCategory> {
+
+    /**
+     * The longest rental length, in days, that a {@code <kind>.duration.<days>} property can name.
+     */
+    public static final int MAX_DURATION_DAYS = 3660;
+
+    private static final double DEFAULT_FACTOR = 1.0;
+    private static final double DEFAULT_AGE_RATE = 0.05;
+
+    private final Class<C> categoryType;
+    private final double[] categoryFactors;
+    private final double[] fuelFactors;
+    private final double[] brandFactors;
+    private final double ageRate;
+    // The factor of each rental length up to the longest configured one, which also applies to longer rentals
+    private final double[] durationFactors;
+
+    private PricingTable(Class<C> categoryType, double[] categoryFactors, double[] fuelFactors, double[] brandFactors,
+                         double ageRate, double[] durationFactors) {
+        this.categoryType = categoryType;
+        this.categoryFactors = categoryFactors;
+        this.fuelFactors = fuelFactors;
+        this.brandFactors = brandFactors;
+        this.ageRate = ageRate;
+        this.durationFactors = durationFactors;
+    }
+
+    /**
+     * Builds the table of a kind of vehicle from the default configuration.
+     *
+     * @param vehicleKind the prefix of the vehicle kind's properties, such as {@code car}
+     * @param categoryType the category type of the vehicle kind
+     * @return the table
+     * @throws IllegalStateException if the configuration cannot be read
+     * @throws IllegalArgumentException if a property of the vehicle kind is invalid
+     */
+    public static <C extends Enum<C> & VehicleCategory> PricingTable<C> load(String vehicleKind, Class<C> categoryType) {
+        return fromProperties(PricingConfig.read(), vehicleKind, categoryType);
+    }
+
+    /**
+     * Builds the table of a kind of vehicle from the given configuration. Properties of other vehicle kinds are
+     * ignored.
+     *
+     * @param config the pricing properties
+     * @param vehicleKind the prefix of the vehicle kind's properties, such as {@code car}
+     * @param categoryType the category type of the vehicle kind
+     * @return the table
+     * @throws IllegalArgumentException if a property of the vehicle kind is invalid
+     */
+    public static <C extends Enum<C> & VehicleCategory> PricingTable<C> fromProperties(Properties config, String vehicleKind,
+                                                                                       Class<C> categoryType) {
+        String prefix = vehicleKind + ".";
+        double[] categoryFactors = defaultFactors(categoryType.getEnumConstants().length);
+        double[] fuelFactors = defaultFactors(FuelType.values().length);
+        Map<Integer, Double> factorsByBrandId = new HashMap<>();
+        int maxBrandId = -1;
+        double ageRate = DEFAULT_AGE_RATE;
+        TreeMap<Integer, Double> discountsByDays = new TreeMap<>();
+        for (String key : config.stringPropertyNames()) {
+            if (!key.startsWith(prefix)) {
+                continue;
+            }
+            String name = key.substring(prefix.length());
+            if (name.equals("age.rate")) {
+                ageRate = parseRate(key, config.getProperty(key));
+                continue;
+            }
+            if (name.startsWith("duration.")) {
+                discountsByDays.put(parseDays(key, name.substring("duration.".length())),
+                        parseDiscount(key, config.getProperty(key)));
+                continue;
+            }
+            double factor = parseFactor(key, config.getProperty(key));
+            if (name.startsWith("category.")) {
+                categoryFactors[constantOf(categoryType, key, name.substring("category.".length())).ordinal()] = factor;
+            } else if (name.startsWith("fuel.")) {
+                fuelFactors[constantOf(FuelType.class, key, name.substring("fuel.".length())).ordinal()] = factor;
+            } else if (name.startsWith("brand.")) {
+                int brandId = Brand.idOf(name.substring("brand.".length()));
+                factorsByBrandId.put(brandId, factor);
+                maxBrandId = Math.max(maxBrandId, brandId);
+            } else {
+                throw new IllegalArgumentException("Unknown pricing property: " + key);
+            }
+        }
+        double[] brandFactors = defaultFactors(maxBrandId + 1);
+        factorsByBrandId.forEach((brandId, factor) -> brandFactors[brandId] = factor);
+        double[] durationFactors = defaultFactors(discountsByDays.isEmpty() ? 1 : discountsByDays.lastKey() + 1);
+        discountsByDays.forEach((days, discount) ->
+                Arrays.fill(durationFactors, days, durationFactors.length, 1.0 - discount));
+        return new PricingTable<>(categoryType, categoryFactors, fuelFactors, brandFactors, ageRate, durationFactors);
+    }
+
+    public double getCategoryFactor(Vehicle vehicle) {
+        return getCategoryFactor(categoryType.cast(vehicle.getVehicleCategory()).ordinal());
+    }
+
+    public double getCategoryFactor(int categoryOrdinal) {
+        return categoryFactors[categoryOrdinal];
+    }
+
+    public double getFuelFactor(Vehicle vehicle) {
+        return getFuelFactor(vehicle.getFuelType().ordinal());
+    }
+
+    public double getFuelFactor(int fuelOrdinal) {
+        return fuelFactors[fuelOrdinal];
+    }
+
+    public double getBrandFactor(Vehicle vehicle) {
+        return getBrandFactor(vehicle.getBrand().getBrandId());
+    }
+
+    /**
+     * Returns the factor of a brand; brands not in the configuration have a factor of 1.0.
+     *
+     * @param brandId the ID of the brand
+     * @return the brand factor
+     */
+    public double getBrandFactor(int brandId) {
+        return brandId >= 0 && brandId < brandFactors.length ? brandFactors[brandId] : DEFAULT_FACTOR;
+    }
+
+    /**
+     * Returns how much the rate goes up for each year of a vehicle's age, such as 0.05 for 5% a year.
+     *
+     * @return the age rate
+     */
+    public double getAgeRate() {
+        return ageRate;
+    }
+
+    /**
+     * Returns the factor of a rental length: 1.0 less the discount of the longest configured length the rental
+     * reaches, or 1.0 if it reaches none.
+     *
+     * @param daysRented the length of the rental in days
+     * @return the duration factor
+     */
+    public double getDurationFactor(long daysRented) {
+        return durationFactors[(int) Math.max(0, Math.min(daysRented, durationFactors.length - 1))];
+    }
+
+    private static double parseFactor(String key, String value) {
+        double factor;
+        try {
+            factor = Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Pricing factor " + key + " is not a number: " + value);
+        }
+        if (!(factor > 0) || Double.isInfinite(factor)) {
+            throw new IllegalArgumentException("Pricing factor " + key + " must be positive: " + value);
+        }
+        return factor;
+    }
+
+    private static double parseRate(String key, String value) {
+        double rate;
+        try {
+            rate = Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Pricing rate " + key + " is not a number: " + value);
+        }
+        if (!(rate >= 0) || Double.isInfinite(rate)) {
+            throw new IllegalArgumentException("Pricing rate " + key + " cannot be negative: " + value);
+        }
+        return rate;
+    }
+
+    private static double parseDiscount(String key, String value) {
+        double discount;
+        try {
+            discount = Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Pricing discount " + key + " is not a number: " + value);
+        }
+        if (!(discount >= 0 && discount < 1)) {
+            throw new IllegalArgumentException("Pricing discount " + key + " must be at least 0 and less than 1: " + value);
+        }
+        return discount;
+    }
+
+    private static int parseDays(String key, String days) {
+        int parsed;
+        try {
+            parsed = Integer.parseInt(days);
+        } catch (NumberFormatException e) {
+            parsed = 0;
+        }
+        if (parsed <= 0 || parsed > MAX_DURATION_DAYS) {
+            throw new IllegalArgumentException("Pricing property " + key + " must name a number of days from 1 to "
+                    + MAX_DURATION_DAYS);
+        }
+        return parsed;
+    }
+
+    private static <E extends Enum<E>> E constantOf(Class<E> type, String key, String name) {
+        try {
+            return Enum.valueOf(type, name);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown " + type.getSimpleName() + " in pricing property " + key);
+        }
+    }
+
+    private static double[] defaultFactors(int length) {
+        double[] factors = new double[length];
+        Arrays.fill(factors, DEFAULT_FACTOR);
+        return factors;
+    }
+}
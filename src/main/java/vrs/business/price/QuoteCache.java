@@ -0,0 +1,192 @@
+package vrs.business;
+
+import vrs.dao.cache.CacheStats;
+import vrs.dao.cache.TinyLfuCache;
+import vrs.models.Bookings;
+import vrs.models.enums.vehicle.othercategories.FuelType;
+import vrs.models.interfaces.VehicleCategory;
+import vrs.models.vehicle.Vehicle;
+
+import java.time.LocalDate;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * The {@code QuoteCache} class keeps the rental costs of recently quoted vehicle, start day and rental length
+ * combinations in a bounded {@link TinyLfuCache}, so repeated quotes are not priced again. A cost only depends on
+ * those three and on the vehicle's priced attributes, so any booking with the same start day and length shares
+ * the entry. Concurrent misses for the same quote are priced once.
+ * <p>
+ * Each entry remembers the base rental rate, brand, age, fuel type and category of the vehicle it was priced for,
+ * and the version of the pricing rules at the time. A lookup that finds an entry for other values, as after
+ * {@code setBaseRentalRate}, {@code setBrand}, {@code setFuelType} or {@code setVehicleCategory} changed one of
+ * them or after the rules changed, drops the entry and prices the quote again. Setting an attribute to the value
+ * it already had does not invalidate anything.
+ */
+public class QuoteCache {
+
+    private final TinyLfuCache<QuoteKey, Quote> cache;
+    private final LongSupplier rulesVersion;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    /**
+     * Creates a cache of at most {@code maximumSize} quotes priced by the shared calculators, which follow the
+     * rules of {@link PricingContext#systemDefault()}.
+     *
+     * @param maximumSize the maximum number of cached quotes
+     */
+    public QuoteCache(int maximumSize) {
+        this(maximumSize, PricingContext.systemDefault()::getRulesVersion);
+    }
+
+    /**
+     * Creates a cache of at most {@code maximumSize} quotes, for pricing rules whose current version is given by
+     * {@code rulesVersion}; quotes priced under another version are not reused.
+     *
+     * @param maximumSize the maximum number of cached quotes
+     * @param rulesVersion supplies the version of the pricing rules, which changes whenever the rules do
+     */
+    public QuoteCache(int maximumSize, LongSupplier rulesVersion) {
+        if (rulesVersion == null) {
+            throw new IllegalArgumentException("Rules version cannot be null");
+        }
+        this.cache = new TinyLfuCache<>(maximumSize);
+        this.rulesVersion = rulesVersion;
+    }
+
+    /**
+     * Returns the rental cost of a booking, as {@link Vehicle#calculateRentalCost(Bookings)} would.
+     *
+     * @param vehicle the vehicle to price
+     * @param booking the booking to price
+     * @return the rental cost
+     */
+    public double getQuote(Vehicle vehicle, Bookings booking) {
+        QuoteKey key = new QuoteKey(vehicle.getVehicleId(), booking.getRentalDate().toLocalDate(),
+                booking.calculateRentalDuration());
+        long version = rulesVersion.getAsLong();
+        boolean[] loaded = new boolean[1];
+        Quote quote = cache.get(key, k -> {
+            loaded[0] = true;
+            return Quote.price(vehicle, booking, version);
+        });
+        if (quote.isFor(vehicle, version)) {
+            (loaded[0] ? misses : hits).increment();
+            return quote.cost;
+        }
+        // Priced for other attributes or rules, or for another copy of the vehicle that differs
+        invalidations.increment();
+        misses.increment();
+        cache.invalidate(key);
+        quote = cache.get(key, k -> Quote.price(vehicle, booking, version));
+        return quote.isFor(vehicle, version) ? quote.cost : vehicle.calculateRentalCost(booking);
+    }
+
+    /**
+     * Drops every cached quote, as when the pricing rules change without a version to tell.
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    /**
+     * Returns the counters of this cache. A lookup is a miss if it priced the quote, either because none was
+     * cached or because the cached one was priced for other attributes or rules, and a hit otherwise, including
+     * when it waited for another thread pricing the same quote.
+     *
+     * @return a snapshot of the counters
+     */
+    public CacheStats getStats() {
+        CacheStats entries = cache.getStats();
+        return new CacheStats(hits.sum(), misses.sum(), entries.getLoadCount(), entries.getEvictionCount());
+    }
+
+    /**
+     * Returns the number of quotes dropped because the vehicle's priced attributes or the pricing rules had
+     * changed since they were priced.
+     *
+     * @return the number of invalidated quotes
+     */
+    public long getInvalidationCount() {
+        return invalidations.sum();
+    }
+
+    /**
+     * The inputs a quote is looked up by.
+     */
+    private static final class QuoteKey {
+        private final String vehicleId;
+        private final LocalDate startDate;
+        private final long daysRented;
+
+        private QuoteKey(String vehicleId, LocalDate startDate, long daysRented) {
+            this.vehicleId = vehicleId;
+            this.startDate = startDate;
+            this.daysRented = daysRented;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof QuoteKey)) return false;
+            QuoteKey other = (QuoteKey) o;
+            return daysRented == other.daysRented && vehicleId.equals(other.vehicleId) && startDate.equals(other.startDate);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(vehicleId, startDate, daysRented);
+        }
+    }
+
+    /**
+     * A rental cost together with the priced attributes and rules version it was calculated for.
+     */
+    private static final class Quote {
+        private final double cost;
+        private final double baseRentalRate;
+        private final int brandId;
+        private final int age;
+        private final FuelType fuelType;
+        private final VehicleCategory vehicleCategory;
+        private final long rulesVersion;
+
+        private Quote(double cost, double baseRentalRate, int brandId, int age, FuelType fuelType,
+                      VehicleCategory vehicleCategory, long rulesVersion) {
+            this.cost = cost;
+            this.baseRentalRate = baseRentalRate;
+            this.brandId = brandId;
+            this.age = age;
+            this.fuelType = fuelType;
+            this.vehicleCategory = vehicleCategory;
+            this.rulesVersion = rulesVersion;
+        }
+
+        // Reads the attributes before pricing, so a change made while pricing makes the quote stale rather than wrong
+        private static Quote price(Vehicle vehicle, Bookings booking, long rulesVersion) {
+            double baseRentalRate = vehicle.getBaseRentalRate();
+            int brandId = vehicle.getBrand().getBrandId();
+            int age = vehicle.calculateAge();
+            FuelType fuelType = vehicle.getFuelType();
+            VehicleCategory vehicleCategory = vehicle.getVehicleCategory();
+            double cost = vehicle.calculateRentalCost(booking);
+            return new Quote(cost, baseRentalRate, brandId, age, fuelType, vehicleCategory, rulesVersion);
+        }
+
+        private boolean isFor(Vehicle vehicle, long currentRulesVersion) {
+            return rulesVersion == currentRulesVersion
+                    && Double.compare(baseRentalRate, vehicle.getBaseRentalRate()) == 0
+                    && brandId == vehicle.getBrand().getBrandId()
+                    && age == vehicle.calculateAge()
+                    && fuelType == vehicle.getFuelType()
+                    && Objects.equals(vehicleCategory, vehicle.getVehicleCategory());
+        }
+    }
+}
@@ -3,15 +3,43 @@ package vrs.business;
 import vrs.models.Bookings;
 import vrs.models.vehicle.Vehicle;
 
-import java.time.DayOfWeek;
 import java.time.LocalDateTime;
 
+/**
+ * The {@code RentalCostCalculator} class prices a booking of one kind of vehicle. Calculators keep no state
+ * between quotes, so one instance per kind of vehicle is shared by every quote and thread; the current time is
+ * taken from the calculator's {@link PricingContext}, and so are the {@link PricingRules}. Each quote reads the
+ * rules once, so rules swapped in while it is priced apply from the next quote on.
+ * <p>
+ * Every day of a rental is priced at its own dynamic pricing factor, so a rental running from a weekday into a
+ * weekend or into the peak season pays the surcharges of those days only. The cost is worked out with the
+ * average factor of the rented days, which the calendar gives in constant time for any rental length.
+ */
 public abstract class RentalCostCalculator {
 
+    private static final int BATCH_CHUNK = 1024;
+
+    private final PricingContext context;
+
+    protected RentalCostCalculator() {
+        this(PricingContext.systemDefault());
+    }
+
+    protected RentalCostCalculator(PricingContext context) {
+        if (context == null) {
+            throw new IllegalArgumentException("Pricing context cannot be null");
+        }
+        this.context = context;
+    }
+
+    public PricingContext getPricingContext() {
+        return context;
+    }
+
     // Method to calculate rental cost based on vehicle and booking details
     public double calculateRentalCost(Vehicle vehicle, Bookings booking) {
-        // Base cost calculation
-        double baseCost = vehicle.getBaseRentalRate();
+        PricingRules rules = context.getRules();
+        PricingTable<?> pricing = getPricingTable(rules);
 
         // Access the rental  start date from the booking object
         LocalDateTime rentalStartDate = booking.getRentalDate();
@@ -19,51 +47,111 @@ public abstract class RentalCostCalculator {
         // Calculate the rental duration (in days)
         long daysRented = booking.calculateRentalDuration();
 
+        // Base cost calculation, less any discount for the rental length
+        double baseCost = vehicle.getBaseRentalRate() * pricing.getDurationFactor(daysRented);
+
         // Calculate factors based on vehicle properties
-        double ageFactor = calculateAgeFactor(vehicle);
-        double categoryFactor = getCategoryFactor(vehicle);
-        double fuelFactor = getFuelFactor(vehicle);
-        double brandFactor = getBrandFactor(vehicle);
+        double ageFactor = pricing.getAgeRate() * vehicle.calculateAge(context.getCurrentYear());
+        double categoryFactor = pricing.getCategoryFactor(vehicle);
+        double fuelFactor = pricing.getFuelFactor(vehicle);
+        double brandFactor = pricing.getBrandFactor(vehicle);
 
-        // Calculate dynamic pricing based on the rental start date
-        double dynamicPricingFactor =  calculateDynamicPricingFactor(rentalStartDate);
+        // Calculate dynamic pricing based on the days of the rental
+        double dynamicPricingFactor = rules.getCalendar().getAverageFactor(rentalStartDate.toLocalDate().toEpochDay(), daysRented);
 
         // Return the final calculated rent cost
         return calculateCostForVehicle(vehicle, daysRented, baseCost, ageFactor, categoryFactor, fuelFactor, brandFactor, dynamicPricingFactor);
     }
 
-    // Abstract method that subclasses must implement to calculate final rental cost
-    protected abstract double calculateCostForVehicle(Vehicle vehicle, long daysRented, double baseCost,
-                                                      double ageFactor, double categoryFactor,
-                                                      double fuelFactor, double brandFactor, double dynamicPricingFactor);
-
-    // Helper method to calculate dynamic pricing based on the rental start date
-    private double calculateDynamicPricingFactor(LocalDateTime rentalStartDate) {
-        double dynamicFactor = 1.0;
-
-        // Check if the rental starts on a weekend (Saturday or Sunday)
-        if (rentalStartDate.getDayOfWeek() == DayOfWeek.SATURDAY || rentalStartDate.getDayOfWeek() == DayOfWeek.SUNDAY) {
-            dynamicFactor += 0.2; // Add 20% on weekends
+    /**
+     * Calculates the rental costs of a batch of quotes given as columns, with one array per input and one element
+     * per quote, and writes them to {@code costs}. Each cost is exactly what
+     * {@link #calculateRentalCost(Vehicle, Bookings)} returns for the same vehicle and booking.
+     * <p>
+     * The batch is priced in chunks: the factors of a chunk are first looked up into arrays of doubles, then the
+     * costs are computed in one loop over those arrays, with no dispatch, enum or date handling per quote, which
+     * the JIT can compile to SIMD instructions. The whole batch is priced by the rules the context had when it
+     * started.
+     *
+     * @param baseRates the base rental rate of each vehicle
+     * @param vehicleAges the age of each vehicle, as {@link Vehicle#calculateAge(int)} gives it for the current year
+     *                    of this calculator's context
+     * @param categoryOrdinals the ordinal of each vehicle's category
+     * @param fuelOrdinals the ordinal of each vehicle's fuel type
+     * @param brandIds the brand ID of each vehicle, as {@code Brand.getBrandId()} gives it
+     * @param startEpochDays the day each rental starts, as {@code LocalDate.toEpochDay()} gives it
+     * @param daysRented the length of each rental, as {@link Bookings#calculateRentalDuration()} gives it
+     * @param costs the array to write the cost of each quote to
+     * @throws IllegalArgumentException if the arrays are not all the same length
+     */
+    public void calculateRentalCosts(double[] baseRates, int[] vehicleAges, int[] categoryOrdinals, int[] fuelOrdinals,
+                                     int[] brandIds, long[] startEpochDays, long[] daysRented, double[] costs) {
+        int count = baseRates.length;
+        if (vehicleAges.length != count || categoryOrdinals.length != count || fuelOrdinals.length != count
+                || brandIds.length != count || startEpochDays.length != count || daysRented.length != count
+                || costs.length != count) {
+            throw new IllegalArgumentException("All columns of a pricing batch must have the same length");
         }
-
-        // Check if the rental is during peak season (e.g., December, June, July, August)
-         int month = rentalStartDate.getMonthValue();
-        if (month == 12 || month == 6 || month == 7 || month == 8) {
-            dynamicFactor += 0.5; // Add 50% during peak months
+        PricingRules rules = context.getRules();
+        PricingTable<?> pricing = getPricingTable(rules);
+        PricingCalendar calendar = rules.getCalendar();
+        int chunk = Math.min(count, BATCH_CHUNK);
+        double[] baseCosts = new double[chunk];
+        double[] days = new double[chunk];
+        double[] ageFactors = new double[chunk];
+        double[] categoryFactors = new double[chunk];
+        double[] fuelFactors = new double[chunk];
+        double[] brandFactors = new double[chunk];
+        double[] dynamicPricingFactors = new double[chunk];
+        for (int offset = 0; offset < count; offset += chunk) {
+            int length = Math.min(chunk, count - offset);
+            for (int j = 0; j < length; j++) {
+                int i = offset + j;
+                baseCosts[j] = baseRates[i] * pricing.getDurationFactor(daysRented[i]);
+                days[j] = daysRented[i];
+                ageFactors[j] = pricing.getAgeRate() * vehicleAges[i];
+                categoryFactors[j] = pricing.getCategoryFactor(categoryOrdinals[i]);
+                fuelFactors[j] = pricing.getFuelFactor(fuelOrdinals[i]);
+                brandFactors[j] = pricing.getBrandFactor(brandIds[i]);
+                dynamicPricingFactors[j] = calendar.getAverageFactor(startEpochDays[i], daysRented[i]);
+            }
+            calculateCostsForVehicles(length, days, baseCosts, ageFactors, categoryFactors, fuelFactors, brandFactors,
+                    dynamicPricingFactors, costs, offset);
         }
-
-        return dynamicFactor;
     }
 
-    // Method for calculating age factor
-    protected double calculateAgeFactor(Vehicle vehicle) {
-        int age = vehicle.calculateAge();
-        return 0.05 * age;
-    }
-
-    protected abstract double getCategoryFactor(Vehicle vehicle);
-    protected abstract double getFuelFactor(Vehicle vehicle);
-    protected abstract double getBrandFactor(Vehicle vehicle);
+    // Abstract method that subclasses must implement to calculate final rental cost
+    protected abstract double calculateCostForVehicle(Vehicle vehicle, long daysRented, double baseCost,
+                                                      double ageFactor, double categoryFactor,
+                                                      double fuelFactor, double brandFactor, double dynamicPricingFactor);
 
+    /**
+     * Calculates the final rental costs of a chunk of a batch, with the same formula as
+     * {@link #calculateCostForVehicle}. Element {@code j} of the inputs is the quote written to
+     * {@code costs[offset + j]}.
+     *
+     * @param length the number of quotes in the chunk
+     * @param daysRented the length of each rental in days
+     * @param baseCosts the base rental rate of each vehicle, less any discount for the rental length
+     * @param ageFactors the age factor of each vehicle
+     * @param categoryFactors the category factor of each vehicle
+     * @param fuelFactors the fuel factor of each vehicle
+     * @param brandFactors the brand factor of each vehicle
+     * @param dynamicPricingFactors the average dynamic pricing factor of the days of each rental
+     * @param costs the array to write the costs to
+     * @param offset the position in {@code costs} of the chunk's first quote
+     */
+    protected abstract void calculateCostsForVehicles(int length, double[] daysRented, double[] baseCosts,
+                                                      double[] ageFactors, double[] categoryFactors, double[] fuelFactors,
+                                                      double[] brandFactors, double[] dynamicPricingFactors,
+                                                      double[] costs, int offset);
+
+    /**
+     * Returns the table the factors of this calculator's kind of vehicle come from, under the given rules.
+     *
+     * @param rules the rules a quote is priced by
+     * @return the pricing table
+     */
+    protected abstract PricingTable<?> getPricingTable(PricingRules rules);
 
 }
@@ -1,45 +1,47 @@
 package vrs.business;
 
-import vrs.models.enums.vehicle.othercategories.FuelType;
 import vrs.models.enums.vehicle.vehiclecategories.TruckCategory;
 import vrs.models.vehicle.Vehicle;
 
 public class TruckRentalCostCalculator extends RentalCostCalculator {
 
-    @Override
-    protected double getCategoryFactor(Vehicle vehicle) {
-        TruckCategory category = (TruckCategory) vehicle.getVehicleCategory();
-        switch (category) {
-            case BOX_TRUCK: return 1.6;   // Box trucks typically cost more
-            case DUMP_TRUCK: return 1.8;  // Dump trucks are specialized and usually more expensive
-            case PICKUP: return 1.2;      // Pickup trucks are somewhat cheaper than larger trucks
-            case SEMI_TRUCK: return 2.0;  // Semi trucks are high-cost vehicles
-            case TOW_TRUCK: return 1.7;   // Tow trucks are expensive due to their specialty
-            default: return 1.0;          // Default factor if the category is unknown
-        }
+    private static final TruckRentalCostCalculator INSTANCE =
+            new TruckRentalCostCalculator(PricingContext.systemDefault());
+
+    private final PricingTable<TruckCategory> pricing;
+
+    /**
+     * Creates a calculator that prices by the rules of the given context, following them when they are replaced.
+     *
+     * @param context the pricing context
+     */
+    public TruckRentalCostCalculator(PricingContext context) {
+        super(context);
+        this.pricing = null;
     }
 
-    @Override
-    protected double getFuelFactor(Vehicle vehicle) {
-        FuelType fuelType = vehicle.getFuelType();
-        switch (fuelType) {
-            case ELECTRIC: return 1.0;   // Electric trucks are rare but might cost the same as petrol
-            case PETROL: return 1.0;     // Standard petrol trucks
-            case HYBRID: return 1.3;     // Hybrid trucks might be slightly more expensive
-            case DIESEL: return 1.2;     // Diesel trucks tend to be slightly more expensive
-            default: return 1.0;
+    /**
+     * Creates a calculator that takes its truck factors from the given table, whatever the rules of the context,
+     * and the current time and calendar from the given context.
+     *
+     * @param pricing the truck pricing factors
+     * @param context the pricing context
+     */
+    public TruckRentalCostCalculator(PricingTable<TruckCategory> pricing, PricingContext context) {
+        super(context);
+        if (pricing == null) {
+            throw new IllegalArgumentException("Pricing table cannot be null");
         }
+        this.pricing = pricing;
     }
 
-    @Override
-    protected double getBrandFactor(Vehicle vehicle) {
-        // Brand-specific factors can be applied here (e.g., more premium brands may cost more)
-        switch (vehicle.getBrand().getBrandName()) {
-            case "Ford": return 1.1;   // Ford trucks may have a standard rental cost
-            case "Chevrolet": return 1.2;  // Chevrolet trucks may cost slightly more
-            case "Peterbilt": return 1.4;  // Peterbilt semi trucks are more expensive
-            default: return 1.0;          // Default factor
-        }
+    /**
+     * Returns the shared calculator, with the rules and the clock of the system context.
+     *
+     * @return the shared truck calculator
+     */
+    public static TruckRentalCostCalculator getInstance() {
+        return INSTANCE;
     }
 
     @Override
@@ -48,4 +50,19 @@ public class TruckRentalCostCalculator extends RentalCostCalculator {
                                              double brandFactor, double  dynamicPriceFactor) {
         return baseCost * daysRented * (1 + ageFactor) * categoryFactor * fuelFactor * brandFactor * dynamicPriceFactor;
     }
+
+    @Override
+    protected void calculateCostsForVehicles(int length, double[] daysRented, double[] baseCosts,
+                                             double[] ageFactors, double[] categoryFactors, double[] fuelFactors,
+                                             double[] brandFactors, double[] dynamicPricingFactors,
+                                             double[] costs, int offset) {
+        for (int j = 0; j < length; j++) {
+            costs[offset + j] = baseCosts[j] * daysRented[j] * (1 + ageFactors[j]) * categoryFactors[j] * fuelFactors[j] * brandFactors[j] * dynamicPricingFactors[j];
+        }
+    }
+
+    @Override
+    protected PricingTable<?> getPricingTable(PricingRules rules) {
+        return pricing != null ? pricing : rules.getTruckPricing();
+    }
 }
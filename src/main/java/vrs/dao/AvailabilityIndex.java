@@ -0,0 +1,131 @@
+package vrs.dao;
+
+import vrs.models.Bookings;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The {@code AvailabilityIndex} class keeps the booked intervals of every vehicle, so that a date-range
+ * availability check takes logarithmic time per vehicle instead of scanning all bookings.
+ * It is kept up to date by {@code BookingsDAO} and read by the vehicle DAOs.
+ * <p>
+ * The index is safe for concurrent use. The intervals of a vehicle are changed in place, one change at a time
+ * per vehicle, so a change costs logarithmic time in the vehicle's bookings; availability checks never block,
+ * and changes to different vehicles do not contend.
+ */
+public class AvailabilityIndex {
+
+    private final Map<String, BookedIntervals> intervalsByVehicle = new ConcurrentHashMap<>();
+
+    /**
+     * Records the rental period of a booking for its vehicle.
+     *
+     * @param booking the booking to record
+     */
+    public void addBooking(Bookings booking) {
+        add(booking.getVehicle().getVehicleId(), booking.getRentalDate(), booking.getReturnDate());
+    }
+
+    /**
+     * Releases the rental period of a booking for its vehicle.
+     *
+     * @param booking the booking to release
+     */
+    public void removeBooking(Bookings booking) {
+        remove(booking.getVehicle().getVehicleId(), booking.getRentalDate(), booking.getReturnDate());
+    }
+
+    /**
+     * Records the interval {@code [start, end)} as booked for a vehicle.
+     *
+     * @param vehicleId the ID of the booked vehicle
+     * @param start the start of the rental period (inclusive)
+     * @param end the end of the rental period (exclusive)
+     */
+    public void add(String vehicleId, LocalDateTime start, LocalDateTime end) {
+        // compute runs one at a time per vehicle, which is the only locking changes need
+        intervalsByVehicle.compute(vehicleId, (id, current) -> {
+            BookedIntervals intervals = current == null ? new BookedIntervals() : current;
+            intervals.add(start, end);
+            return intervals;
+        });
+    }
+
+    /**
+     * Records several intervals as booked for a vehicle, as when restoring its bookings in bulk.
+     *
+     * @param vehicleId the ID of the booked vehicle
+     * @param periods the start (inclusive) and end (exclusive) of each rental period
+     */
+    public void addAll(String vehicleId, List<Map.Entry<LocalDateTime, LocalDateTime>> periods) {
+        intervalsByVehicle.compute(vehicleId, (id, current) -> {
+            BookedIntervals intervals = current == null ? new BookedIntervals() : current;
+            for (Map.Entry<LocalDateTime, LocalDateTime> period : periods) {
+                intervals.add(period.getKey(), period.getValue());
+            }
+            return intervals.isEmpty() ? null : intervals;
+        });
+    }
+
+    /**
+     * Releases the interval {@code [start, end)} previously recorded for a vehicle.
+     *
+     * @param vehicleId the ID of the booked vehicle
+     * @param start the start of the rental period (inclusive)
+     * @param end the end of the rental period (exclusive)
+     */
+    public void remove(String vehicleId, LocalDateTime start, LocalDateTime end) {
+        intervalsByVehicle.computeIfPresent(vehicleId, (id, current) -> {
+            current.remove(start, end);
+            return current.isEmpty() ? null : current;
+        });
+    }
+
+    /**
+     * Releases several intervals previously recorded for a vehicle, in one change of its intervals.
+     *
+     * @param vehicleId the ID of the booked vehicle
+     * @param periods the start (inclusive) and end (exclusive) of each rental period
+     */
+    public void removeAll(String vehicleId, List<Map.Entry<LocalDateTime, LocalDateTime>> periods) {
+        intervalsByVehicle.computeIfPresent(vehicleId, (id, current) -> {
+            for (Map.Entry<LocalDateTime, LocalDateTime> period : periods) {
+                current.remove(period.getKey(), period.getValue());
+            }
+            return current.isEmpty() ? null : current;
+        });
+    }
+
+    /**
+     * Checks whether a vehicle has no booking overlapping the interval {@code [start, end)}.
+     *
+     * @param vehicleId the ID of the vehicle
+     * @param start the start of the period (inclusive)
+     * @param end the end of the period (exclusive)
+     * @return {@code true} if the vehicle is free for the whole period, {@code false} otherwise
+     */
+    public boolean isAvailable(String vehicleId, LocalDateTime start, LocalDateTime end) {
+        BookedIntervals intervals = intervalsByVehicle.get(vehicleId);
+        return intervals == null || !intervals.overlaps(start, end);
+    }
+
+    /**
+     * Checks whether a vehicle has no booking on any day from {@code startDate} to {@code endDate}, both inclusive.
+     *
+     * @param vehicleId the ID of the vehicle
+     * @param startDate the first day of the period
+     * @param endDate the last day of the period
+     * @return {@code true} if the vehicle is free for the whole period, {@code false} otherwise
+     * @throws IllegalArgumentException if the end date is before the start date
+     */
+    public boolean isAvailable(String vehicleId, LocalDate startDate, LocalDate endDate) {
+        if (endDate.isBefore(startDate)) {
+            throw new IllegalArgumentException("End date cannot be before start date");
+        }
+        return isAvailable(vehicleId, startDate.atStartOfDay(), endDate.plusDays(1).atStartOfDay());
+    }
+}
@@ -0,0 +1,90 @@
+package vrs.dao;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The {@code BatchResult} class reports the outcome of a batch operation item by item: whether the item at
+ * each position of the batch succeeded, as the single-item operation would have returned.
+ */
+public final class BatchResult {
+
+    private final boolean[] outcomes;
+    private final int successCount;
+
+    BatchResult(boolean[] outcomes) {
+        this.outcomes = outcomes;
+        int count = 0;
+        for (boolean outcome : outcomes) {
+            if (outcome) {
+                count++;
+            }
+        }
+        this.successCount = count;
+    }
+
+    /**
+     * Creates a result from the outcome of each item, for DAOs implemented outside this package.
+     *
+     * @param outcomes for each position of the batch, whether its item succeeded
+     * @return the result
+     */
+    public static BatchResult of(boolean[] outcomes) {
+        return new BatchResult(outcomes.clone());
+    }
+
+    /**
+     * Returns the number of items in the batch.
+     *
+     * @return the batch size
+     */
+    public int size() {
+        return outcomes.length;
+    }
+
+    /**
+     * Checks whether the item at the given position of the batch succeeded.
+     *
+     * @param index the position of the item in the batch
+     * @return {@code true} if the item was applied, {@code false} otherwise
+     * @throws IndexOutOfBoundsException if the index is outside the batch
+     */
+    public boolean isSuccessful(int index) {
+        return outcomes[index];
+    }
+
+    public int getSuccessCount() {
+        return successCount;
+    }
+
+    public int getFailureCount() {
+        return outcomes.length - successCount;
+    }
+
+    public boolean allSucceeded() {
+        return successCount == outcomes.length;
+    }
+
+    /**
+     * Returns the positions of the items that failed, in ascending order.
+     *
+     * @return the failed positions
+     */
+    public List<Integer> getFailedIndexes() {
+        List<Integer> failed = new ArrayList<>(getFailureCount());
+        for (int i = 0; i < outcomes.length; i++) {
+            if (!outcomes[i]) {
+                failed.add(i);
+            }
+        }
+        return failed;
+    }
+
+    @Override
+    public String toString() {
+        return "BatchResult{" +
+                "size=" + outcomes.length +
+                ", succeeded=" + successCount +
+                '}';
+    }
+}
@@ -0,0 +1,218 @@
+package vrs.dao;
+
+import vrs.models.vehicle.Vehicle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+
+/**
+ * The {@code BitmapIndex} class indexes vehicles by attributes with few distinct values, such as fuel type,
+ * category or availability. Every vehicle gets a slot number, and every attribute value a bitmap of
+ * {@code long} words with one bit per slot. A {@code VehicleCriteria} is answered by OR-ing the bitmaps of the
+ * accepted values of an attribute and AND-ing the results across attributes, 64 vehicles per operation.
+ * <p>
+ * Slots of deleted vehicles are reused, so results are in slot order rather than in the order vehicles were saved.
+ * Bits are set and cleared atomically and queries never block; a query running alongside changes may see
+ * some of them, and every candidate is checked against its current values before it is returned.
+ * Changes to the same vehicle must not run concurrently; the owning DAO serializes them with its
+ * per-vehicle write locks.
+ *
+ * @param <T> the type of vehicle indexed
+ */
+class BitmapIndex<T extends Vehicle> implements VehicleIndex<T> {
+
+    private static final Object NO_VALUE = new Object();  // Stands in for null attribute values, which concurrent maps cannot hold
+
+    private final Map<VehicleAttribute, Function<? super T, Object>> attributes = new EnumMap<>(VehicleAttribute.class);
+    private final Map<VehicleAttribute, Map<Object, Bitmap>> bitmaps = new EnumMap<>(VehicleAttribute.class);
+    private final Map<String, Integer> slotsById = new ConcurrentHashMap<>();
+    private final Map<Integer, Slot<T>> slots = new ConcurrentHashMap<>();
+    private final Deque<Integer> freeSlots = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger nextSlot = new AtomicInteger();
+    private final Bitmap occupiedSlots = new Bitmap();
+
+    /**
+     * Adds an attribute to the index. Attributes must be added before any vehicle is indexed.
+     *
+     * @param attribute the attribute
+     * @param valueOf reads the value of the attribute from a vehicle
+     */
+    void addAttribute(VehicleAttribute attribute, Function<? super T, Object> valueOf) {
+        if (!slotsById.isEmpty()) {
+            throw new IllegalStateException("Attributes must be added before vehicles are indexed");
+        }
+        attributes.put(attribute, valueOf);
+        bitmaps.put(attribute, new ConcurrentHashMap<>());
+    }
+
+    @Override
+    public void add(T vehicle) {
+        Integer free = freeSlots.poll();
+        int slot = free != null ? free : nextSlot.getAndIncrement();
+        Map<VehicleAttribute, Object> keys = new EnumMap<>(VehicleAttribute.class);
+        for (Map.Entry<VehicleAttribute, Function<? super T, Object>> attribute : attributes.entrySet()) {
+            keys.put(attribute.getKey(), keyOf(attribute.getValue().apply(vehicle)));
+        }
+        slots.put(slot, new Slot<>(vehicle, keys));
+        for (Map.Entry<VehicleAttribute, Object> key : keys.entrySet()) {
+            bitmaps.get(key.getKey()).computeIfAbsent(key.getValue(), value -> new Bitmap()).set(slot);
+        }
+        occupiedSlots.set(slot);
+        slotsById.put(vehicle.getVehicleId(), slot);
+    }
+
+    @Override
+    public void remove(String vehicleId) {
+        Integer slot = slotsById.remove(vehicleId);
+        if (slot == null) {
+            return;
+        }
+        occupiedSlots.clear(slot);
+        for (Map.Entry<VehicleAttribute, Object> key : slots.get(slot).keys.entrySet()) {
+            bitmaps.get(key.getKey()).get(key.getValue()).clear(slot);
+        }
+        slots.remove(slot);
+        freeSlots.push(slot);
+    }
+
+    /**
+     * Finds the vehicles matching all the given criteria. Criteria on an attribute this index does not have
+     * match no vehicle. A vehicle changed through its setters but not updated in its DAO yet is only returned
+     * if its current values still match.
+     *
+     * @param criteria the criteria to match
+     * @return the matching vehicles
+     */
+    List<T> find(VehicleCriteria criteria) {
+        Map<VehicleAttribute, Set<Object>> acceptedValues = criteria.acceptedValues();
+        List<T> result = new ArrayList<>();
+        long[] matches = occupiedSlots.words();
+        for (Map.Entry<VehicleAttribute, Set<Object>> accepted : acceptedValues.entrySet()) {
+            Map<Object, Bitmap> bitmapsByValue = bitmaps.get(accepted.getKey());
+            if (bitmapsByValue == null) {
+                return result;
+            }
+            long[] anyOf = new long[matches.length];
+            for (Object value : accepted.getValue()) {
+                Bitmap bitmap = bitmapsByValue.get(keyOf(value));
+                if (bitmap != null) {
+                    bitmap.orInto(anyOf);
+                }
+            }
+            for (int i = 0; i < matches.length; i++) {
+                matches[i] &= anyOf[i];
+            }
+        }
+
+        for (int i = 0; i < matches.length; i++) {
+            long word = matches[i];
+            while (word != 0) {
+                Slot<T> slot = slots.get(i * Long.SIZE + Long.numberOfTrailingZeros(word));
+                if (slot != null && stillMatches(slot.vehicle, acceptedValues)) {
+                    result.add(slot.vehicle);
+                }
+                word &= word - 1;
+            }
+        }
+        return result;
+    }
+
+    private boolean stillMatches(T vehicle, Map<VehicleAttribute, Set<Object>> acceptedValues) {
+        for (Map.Entry<VehicleAttribute, Set<Object>> accepted : acceptedValues.entrySet()) {
+            if (!accepted.getValue().contains(attributes.get(accepted.getKey()).apply(vehicle))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Object keyOf(Object value) {
+        return value == null ? NO_VALUE : value;
+    }
+
+    /**
+     * A vehicle in its slot, together with the attribute values it was indexed under.
+     */
+    private static final class Slot<T> {
+        private final T vehicle;
+        private final Map<VehicleAttribute, Object> keys;
+
+        private Slot(T vehicle, Map<VehicleAttribute, Object> keys) {
+            this.vehicle = vehicle;
+            this.keys = keys;
+        }
+    }
+
+    /**
+     * A growable bitmap whose words are updated atomically. Words are kept in fixed-size chunks, so growing
+     * the bitmap only copies the chunk references and never loses a bit set concurrently in an existing chunk.
+     */
+    private static final class Bitmap {
+        private static final int CHUNK_WORDS = 1024;
+
+        private volatile AtomicLongArray[] chunks = new AtomicLongArray[0];
+
+        void set(int bit) {
+            int word = bit / Long.SIZE;
+            long mask = 1L << bit;
+            chunk(word / CHUNK_WORDS).accumulateAndGet(word % CHUNK_WORDS, mask, (current, bits) -> current | bits);
+        }
+
+        void clear(int bit) {
+            int word = bit / Long.SIZE;
+            long mask = ~(1L << bit);
+            chunk(word / CHUNK_WORDS).accumulateAndGet(word % CHUNK_WORDS, mask, (current, bits) -> current & bits);
+        }
+
+        // Copies the current words into a plain array
+        long[] words() {
+            AtomicLongArray[] current = chunks;
+            long[] words = new long[current.length * CHUNK_WORDS];
+            for (int c = 0; c < current.length; c++) {
+                for (int w = 0; w < CHUNK_WORDS; w++) {
+                    words[c * CHUNK_WORDS + w] = current[c].get(w);
+                }
+            }
+            return words;
+        }
+
+        // ORs the current words into the given array, ignoring words beyond its length
+        void orInto(long[] words) {
+            AtomicLongArray[] current = chunks;
+            for (int c = 0; c < current.length && c * CHUNK_WORDS < words.length; c++) {
+                for (int w = 0; w < CHUNK_WORDS; w++) {
+                    words[c * CHUNK_WORDS + w] |= current[c].get(w);
+                }
+            }
+        }
+
+        private AtomicLongArray chunk(int index) {
+            AtomicLongArray[] current = chunks;
+            if (index < current.length) {
+                return current[index];
+            }
+            synchronized (this) {
+                current = chunks;
+                if (index >= current.length) {
+                    AtomicLongArray[] grown = Arrays.copyOf(current, index + 1);
+                    for (int c = current.length; c < grown.length; c++) {
+                        grown[c] = new AtomicLongArray(CHUNK_WORDS);
+                    }
+                    chunks = grown;
+                    current = grown;
+                }
+                return current[index];
+            }
+        }
+    }
+}
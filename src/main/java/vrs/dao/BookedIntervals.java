@@ -0,0 +1,133 @@
+package vrs.dao;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * The {@code BookedIntervals} class keeps the booked time of a single vehicle as a sorted set of
+ * non-overlapping segments. Each segment counts how many bookings cover it, so overlapping bookings
+ * can be added and removed independently, and an overlap check only needs one floor lookup.
+ * <p>
+ * Changes must be made by one thread at a time, which {@code AvailabilityIndex} ensures per vehicle, but
+ * {@link #overlaps} may run concurrently with them without locking. Every step of a change only ever adds
+ * to the booked time, except for releasing the segments a removal frees, so a concurrent check never misses
+ * time that is booked both before and after the change.
+ */
+class BookedIntervals {
+
+    private final NavigableMap<LocalDateTime, Segment> segments = new ConcurrentSkipListMap<>();
+
+    /**
+     * Marks the interval {@code [start, end)} as booked once more.
+     *
+     * @param start the start of the interval (inclusive)
+     * @param end the end of the interval (exclusive)
+     */
+    void add(LocalDateTime start, LocalDateTime end) {
+        if (!start.isBefore(end)) {
+            return;
+        }
+        split(start);
+        split(end);
+
+        List<Map.Entry<LocalDateTime, Segment>> covered = new ArrayList<>(segments.subMap(start, end).entrySet());
+        LocalDateTime cursor = start;
+        for (Map.Entry<LocalDateTime, Segment> entry : covered) {
+            if (cursor.isBefore(entry.getKey())) {
+                segments.put(cursor, new Segment(entry.getKey(), 1));  // Fill the free gap before this segment
+            }
+            entry.getValue().count++;
+            cursor = entry.getValue().end;
+        }
+        if (cursor.isBefore(end)) {
+            segments.put(cursor, new Segment(end, 1));
+        }
+
+        coalesce(start);
+        coalesce(end);
+    }
+
+    /**
+     * Releases one booking of the interval {@code [start, end)}, which must have been added before.
+     *
+     * @param start the start of the interval (inclusive)
+     * @param end the end of the interval (exclusive)
+     */
+    void remove(LocalDateTime start, LocalDateTime end) {
+        if (!start.isBefore(end)) {
+            return;
+        }
+        split(start);
+        split(end);
+
+        List<LocalDateTime> covered = new ArrayList<>(segments.subMap(start, end).keySet());
+        for (LocalDateTime segmentStart : covered) {
+            Segment segment = segments.get(segmentStart);
+            if (--segment.count == 0) {
+                segments.remove(segmentStart);
+            }
+        }
+
+        coalesce(start);
+        coalesce(end);
+    }
+
+    /**
+     * Checks whether any booked segment overlaps the interval {@code [start, end)}.
+     * Segments are disjoint and sorted, so the last segment starting before {@code end}
+     * is the only one that needs to be looked at.
+     *
+     * @param start the start of the interval (inclusive)
+     * @param end the end of the interval (exclusive)
+     * @return {@code true} if the interval overlaps a booking, {@code false} otherwise
+     */
+    boolean overlaps(LocalDateTime start, LocalDateTime end) {
+        Map.Entry<LocalDateTime, Segment> candidate = segments.lowerEntry(end);
+        return candidate != null && candidate.getValue().end.isAfter(start);
+    }
+
+    /**
+     * Checks whether no time is booked at all.
+     *
+     * @return {@code true} if there are no booked segments, {@code false} otherwise
+     */
+    boolean isEmpty() {
+        return segments.isEmpty();
+    }
+
+    // Splits the segment spanning the given point into two segments that meet at the point
+    private void split(LocalDateTime point) {
+        Map.Entry<LocalDateTime, Segment> entry = segments.lowerEntry(point);
+        if (entry != null && entry.getValue().end.isAfter(point)) {
+            Segment segment = entry.getValue();
+            segments.put(point, new Segment(segment.end, segment.count));
+            segment.end = point;
+        }
+    }
+
+    // Merges the segment starting at the given point into its predecessor when both touch and have the same count
+    private void coalesce(LocalDateTime point) {
+        Segment segment = segments.get(point);
+        Map.Entry<LocalDateTime, Segment> previous = segments.lowerEntry(point);
+        if (segment != null && previous != null
+                && previous.getValue().end.equals(point) && previous.getValue().count == segment.count) {
+            previous.getValue().end = segment.end;
+            segments.remove(point);
+        }
+    }
+
+    // Volatile, as they change while readers may look at them
+    private static final class Segment {
+        private volatile LocalDateTime end;
+        private volatile int count;
+
+        private Segment(LocalDateTime end, int count) {
+            this.end = end;
+            this.count = count;
+        }
+    }
+}
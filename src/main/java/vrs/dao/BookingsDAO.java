@@ -4,47 +4,363 @@ import vrs.models.Bookings;
 import vrs.models.Customer;
 import vrs.models.vehicle.Vehicle;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.function.IntConsumer;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
 
 /**
  * The {@code BookingsDAO} class implements the operations specifically for {@code Bookings} objects.
+ * Bookings are stored by their booking ID and indexed by vehicle ID, by customer ID and by the
+ * (vehicle ID, customer ID) pair, so lookups only touch the bookings they return.
+ * <p>
+ * The DAO is safe for concurrent use. Reads never block: they see the bookings and indexes as of some
+ * point during the call. Writes lock only the stripe of the booking ID they change, and each index bucket
+ * is updated atomically, so changes to different bookings do not contend. Saves and updates also lock the
+ * stripe of the booking's vehicle, which lets {@link #reserve(Bookings)} check a vehicle's bookings for
+ * overlaps and insert a new one as a single step, while vehicles remain bookable in parallel.
+ * Every stored booking carries a version, so {@link #compareAndUpdate} can reject updates based on a stale read.
  */
 public class BookingsDAO {
 
-    private List<Bookings> bookingsDatabase = new ArrayList<>();  // Simulating a database with a list
+    private static final long ANY_VERSION = -1;  // Lets a plain update through whatever the stored version
+
+    private final NavigableMap<Long, IndexedBooking> bookingsDatabase = new ConcurrentSkipListMap<>();  // Simulating a database keyed by booking ID
+    private final Map<String, Map<Long, Bookings>> bookingsByVehicle = new ConcurrentHashMap<>();
+    private final Map<String, Map<Long, Bookings>> bookingsByCustomer = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, Map<Long, Bookings>>> bookingsByVehicleAndCustomer = new ConcurrentHashMap<>();
+    private final AvailabilityIndex availabilityIndex;
+    private final AtomicLong lastBookingId = new AtomicLong();
+    private final LockStripes locks = new LockStripes();
+    private final LockStripes vehicleLocks = new LockStripes();
+
+    /**
+     * Creates an empty bookings database with its own availability index.
+     */
+    public BookingsDAO() {
+        this(new AvailabilityIndex());
+    }
+
+    /**
+     * Creates an empty bookings database that records the booked periods in the given availability index.
+     *
+     * @param availabilityIndex the index of booked periods, shared with the vehicle DAOs
+     */
+    public BookingsDAO(AvailabilityIndex availabilityIndex) {
+        if (availabilityIndex == null) {
+            throw new IllegalArgumentException("Availability index cannot be null");
+        }
+        this.availabilityIndex = availabilityIndex;
+    }
+
+    /**
+     * Returns the availability index kept up to date by this DAO.
+     *
+     * @return the availability index
+     */
+    public AvailabilityIndex getAvailabilityIndex() {
+        return availabilityIndex;
+    }
 
     /**
      * Saves a new booking to the database.
+     * A booking without an ID is given the next free booking ID; a booking whose ID is already stored is rejected.
      *
      * @param booking the booking to save
      * @return {@code true} if the booking was saved successfully, {@code false} otherwise
      */
     public boolean save(Bookings booking) {
-        if (booking != null) {
-            bookingsDatabase.add(booking);
-            return true;
+        if (booking == null) {
+            return false;
         }
-        return false;
+        if (booking.getBookingId() == 0) {
+            booking.setBookingId(lastBookingId.incrementAndGet());
+        }
+        Lock vehicleLock = vehicleLocks.forKey(booking.getVehicle().getVehicleId());
+        Lock lock = locks.forKey(booking.getBookingId());
+        vehicleLock.lock();
+        lock.lock();
+        try {
+            return insert(booking);
+        } finally {
+            lock.unlock();
+            vehicleLock.unlock();
+        }
+    }
+
+    /**
+     * Saves a batch of new bookings. The batch is grouped by vehicle lock and, within each group, by booking lock,
+     * so every lock is taken once per batch instead of once per booking.
+     *
+     * @param bookings the bookings to save
+     * @return for each booking, whether it was saved as {@link #save(Bookings)} would have
+     */
+    public BatchResult saveAll(List<Bookings> bookings) {
+        for (Bookings booking : bookings) {
+            if (booking != null && booking.getBookingId() == 0) {
+                booking.setBookingId(lastBookingId.incrementAndGet());
+            }
+        }
+        long[] bookingIds = new long[bookings.size()];
+        for (int i = 0; i < bookingIds.length; i++) {
+            bookingIds[i] = bookings.get(i) == null ? 0 : bookings.get(i).getBookingId();
+        }
+        boolean[] saved = new boolean[bookings.size()];
+        lockEachStripe(bookings, bookingIds, i -> saved[i] = insert(bookings.get(i)));
+        return new BatchResult(saved);
+    }
+
+    // Stores a new booking and indexes it; the caller holds the booking's vehicle lock and booking lock
+    private boolean insert(Bookings booking) {
+        if (booking == null || bookingsDatabase.containsKey(booking.getBookingId())) {
+            return false;
+        }
+        savingBooking(booking);
+        lastBookingId.accumulateAndGet(booking.getBookingId(), Math::max);
+        IndexedBooking stored = new IndexedBooking(booking, 1);
+        bookingsDatabase.put(booking.getBookingId(), stored);
+        addToIndexes(stored);
+        return true;
+    }
+
+    /**
+     * Saves a new booking only if its vehicle has no other booking overlapping its rental period.
+     * The overlap check and the insert happen as one step for the vehicle: concurrent reservations, saves
+     * and updates for the same vehicle wait for each other, while other vehicles are not affected.
+     *
+     * @param booking the booking to reserve
+     * @return the outcome, with the conflicting bookings if the period is taken
+     */
+    public ReservationResult reserve(Bookings booking) {
+        if (booking == null || (booking.getBookingId() != 0 && bookingsDatabase.containsKey(booking.getBookingId()))) {
+            return ReservationResult.rejected(booking);
+        }
+        Vehicle vehicle = booking.getVehicle();
+        Lock vehicleLock = vehicleLocks.forKey(vehicle.getVehicleId());
+        vehicleLock.lock();
+        try {
+            if (!availabilityIndex.isAvailable(vehicle.getVehicleId(), booking.getRentalDate(), booking.getReturnDate())) {
+                return ReservationResult.conflict(booking, findOverlappingBookings(vehicle, booking.getRentalDate(), booking.getReturnDate()));
+            }
+            // Inserted directly rather than through save, so an override of save cannot add work under the vehicle lock
+            if (booking.getBookingId() == 0) {
+                booking.setBookingId(lastBookingId.incrementAndGet());
+            }
+            Lock lock = locks.forKey(booking.getBookingId());
+            lock.lock();
+            try {
+                return insert(booking) ? ReservationResult.reserved(booking) : ReservationResult.rejected(booking);
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            vehicleLock.unlock();
+        }
+    }
+
+    /**
+     * Loads bookings in bulk into an empty database, without logging, as when restoring a snapshot.
+     * The bookings must already have their booking IDs. The primary store is filled in order, then the
+     * secondary indexes and the availability index are rebuilt in parallel, one task per index.
+     *
+     * @param bookings the bookings to load, in booking ID order
+     * @throws IllegalStateException if the database is not empty
+     */
+    public void restoreAll(Collection<Bookings> bookings) {
+        if (!bookingsDatabase.isEmpty()) {
+            throw new IllegalStateException("Bookings can only be restored into an empty database");
+        }
+        for (Bookings booking : bookings) {
+            if (booking.getBookingId() == 0) {
+                throw new IllegalArgumentException("Restored bookings must have a booking ID");
+            }
+            bookingsDatabase.put(booking.getBookingId(), new IndexedBooking(booking, 1));
+            lastBookingId.accumulateAndGet(booking.getBookingId(), Math::max);
+        }
+
+        Collection<IndexedBooking> stored = bookingsDatabase.values();
+        CompletableFuture.allOf(
+                CompletableFuture.runAsync(() -> {
+                    for (IndexedBooking entry : stored) {
+                        addTo(bookingsByVehicle, entry.vehicleId, entry.booking);
+                    }
+                }),
+                CompletableFuture.runAsync(() -> {
+                    for (IndexedBooking entry : stored) {
+                        addTo(bookingsByCustomer, entry.customerId, entry.booking);
+                    }
+                }),
+                CompletableFuture.runAsync(() -> {
+                    for (IndexedBooking entry : stored) {
+                        addToPairIndex(entry);
+                    }
+                }),
+                CompletableFuture.runAsync(() -> {
+                    // Grouped by vehicle, so each vehicle's intervals are built in one go
+                    Map<String, List<Map.Entry<LocalDateTime, LocalDateTime>>> periodsByVehicle = new HashMap<>();
+                    for (IndexedBooking entry : stored) {
+                        periodsByVehicle.computeIfAbsent(entry.vehicleId, id -> new ArrayList<>())
+                                .add(Map.entry(entry.rentalDate, entry.returnDate));
+                    }
+                    periodsByVehicle.forEach(availabilityIndex::addAll);
+                })
+        ).join();
     }
 
     /**
      * Updates an existing booking in the database.
+     * The booking is matched by its booking ID, or, if it has none, by an equal booking for the same
+     * vehicle and customer. Indexes are refreshed, so changed dates, vehicles or customers are picked up.
+     * The update is applied whatever the current version; use {@link #compareAndUpdate} to detect lost updates.
      *
      * @param booking the booking with updated information
      * @return {@code true} if the booking was updated successfully, {@code false} otherwise
      */
     public boolean update(Bookings booking) {
-        for (int i = 0; i < bookingsDatabase.size(); i++) {
-            if (bookingsDatabase.get(i).equals(booking)) {
-                bookingsDatabase.set(i, booking);
+        if (booking == null) {
+            return false;
+        }
+        long bookingId = booking.getBookingId();
+        if (!bookingsDatabase.containsKey(bookingId)) {
+            Bookings equalBooking = findEqual(booking);
+            if (equalBooking == null) {
+                return false;
+            }
+            bookingId = equalBooking.getBookingId();
+        }
+        return replace(bookingId, booking, ANY_VERSION);
+    }
+
+    /**
+     * Updates an existing booking, matched by its booking ID, only if its version is still {@code expectedVersion},
+     * i.e. nobody updated it since that version was read. A stale version fails at once instead of waiting for
+     * other writers; the locks are only held while the version is compared and the booking swapped in.
+     *
+     * @param booking the booking with updated information
+     * @param expectedVersion the version the update is based on
+     * @return {@code true} if the booking was updated, {@code false} if it does not exist or its version changed
+     */
+    public boolean compareAndUpdate(Bookings booking, long expectedVersion) {
+        return booking != null && replace(booking.getBookingId(), booking, expectedVersion);
+    }
+
+    /**
+     * Applies a change to a booking optimistically: reads the booking and its version, applies the change and
+     * tries a {@link #compareAndUpdate}, starting over with a fresh read whenever another writer got there first.
+     * <p>
+     * The change should return a new booking rather than change the stored one through its setters, so that a
+     * retried attempt starts from the latest stored state. The new booking is given the same booking ID.
+     *
+     * @param bookingId the ID of the booking to change
+     * @param change computes the updated booking from the current one
+     * @param maxAttempts the number of attempts before giving up
+     * @return {@code true} if the change was applied, {@code false} if the booking does not exist or every attempt
+     *         lost to a concurrent update
+     */
+    public boolean updateWithRetry(long bookingId, UnaryOperator<Bookings> change, int maxAttempts) {
+        for (int attempt = 0; attempt < maxAttempts; attempt++) {
+            Versioned<Bookings> current = getVersioned(bookingId);
+            if (current == null) {
+                return false;
+            }
+            Bookings updated = change.apply(current.getValue());
+            updated.setBookingId(bookingId);
+            if (compareAndUpdate(updated, current.getVersion())) {
                 return true;
             }
+            Thread.onSpinWait();
         }
         return false;
     }
 
+    /**
+     * Updates a batch of existing bookings, each matched as {@link #update(Bookings)} matches it. The batch is
+     * grouped by vehicle lock and, within each group, by booking lock, so every lock is taken once per batch.
+     *
+     * @param bookings the bookings with updated information
+     * @return for each booking, whether it was updated as {@link #update(Bookings)} would have
+     */
+    public BatchResult updateAll(List<Bookings> bookings) {
+        long[] bookingIds = new long[bookings.size()];
+        for (int i = 0; i < bookingIds.length; i++) {
+            Bookings booking = bookings.get(i);
+            if (booking != null && !bookingsDatabase.containsKey(booking.getBookingId())) {
+                Bookings equalBooking = findEqual(booking);
+                bookingIds[i] = equalBooking == null ? 0 : equalBooking.getBookingId();
+            } else if (booking != null) {
+                bookingIds[i] = booking.getBookingId();
+            }
+        }
+        boolean[] updated = new boolean[bookings.size()];
+        lockEachStripe(bookings, bookingIds, i -> updated[i] = bookingIds[i] != 0 && swap(bookingIds[i], bookings.get(i), ANY_VERSION));
+        return new BatchResult(updated);
+    }
+
+    // Runs the action for each position of a batch with the vehicle lock and booking lock of its booking held.
+    // The batch is grouped by vehicle lock, then each group by booking lock, so every lock is taken once.
+    private void lockEachStripe(List<Bookings> bookings, long[] bookingIds, IntConsumer action) {
+        List<Integer> positions = new ArrayList<>(bookings.size());
+        for (int i = 0; i < bookingIds.length; i++) {
+            positions.add(i);
+        }
+        vehicleLocks.lockEachStripe(positions, i -> vehicleIdOf(bookings.get(i)), group -> {
+            List<Integer> members = new ArrayList<>(group.length);
+            for (int i : group) {
+                members.add(i);
+            }
+            locks.lockEachStripe(members, i -> bookingIds[i], inner -> {
+                for (int m : inner) {
+                    action.accept(members.get(m));
+                }
+            });
+        });
+    }
+
+    private static String vehicleIdOf(Bookings booking) {
+        return booking == null ? null : booking.getVehicle().getVehicleId();
+    }
+
+    private boolean replace(long bookingId, Bookings booking, long expectedVersion) {
+        Lock vehicleLock = vehicleLocks.forKey(booking.getVehicle().getVehicleId());
+        Lock lock = locks.forKey(bookingId);
+        vehicleLock.lock();
+        lock.lock();
+        try {
+            return swap(bookingId, booking, expectedVersion);
+        } finally {
+            lock.unlock();
+            vehicleLock.unlock();
+        }
+    }
+
+    // Replaces a stored booking and refreshes the indexes; the caller holds the booking's vehicle lock and booking lock
+    private boolean swap(long bookingId, Bookings booking, long expectedVersion) {
+        IndexedBooking stale = bookingsDatabase.get(bookingId);
+        if (stale == null || (expectedVersion != ANY_VERSION && stale.version != expectedVersion)) {
+            return false;
+        }
+        booking.setBookingId(bookingId);
+        updatingBooking(booking);
+        IndexedBooking current = new IndexedBooking(booking, stale.version + 1);
+        bookingsDatabase.put(bookingId, current);
+        addToIndexes(current);
+        removeFromIndexes(stale, current);
+        return true;
+    }
+
     /**
      * Cancels a booking made by a specific customer for a specific vehicle.
      *
@@ -53,15 +369,108 @@ public class BookingsDAO {
      * @return {@code true} if the booking was canceled successfully, {@code false} otherwise
      */
     public boolean cancel(Vehicle vehicle, Customer customer) {
-        Optional<Bookings> bookingToCancel = bookingsDatabase.stream()
-                .filter(b -> b.getVehicle().equals(vehicle) && b.getCustomer().equals(customer))
-                .findFirst();
+        Bookings bookingToCancel = firstOf(lookup(vehicle.getVehicleId(), customer.getCustomerId()));
+        while (bookingToCancel != null) {
+            if (cancel(bookingToCancel.getBookingId())) {
+                return true;
+            }
+            // Canceled concurrently, try the next one
+            bookingToCancel = firstOf(lookup(vehicle.getVehicleId(), customer.getCustomerId()));
+        }
+        return false;
+    }
 
-        if (bookingToCancel.isPresent()) {
-            bookingsDatabase.remove(bookingToCancel.get());
+    /**
+     * Cancels a booking by its booking ID.
+     *
+     * @param bookingId the ID of the booking to cancel
+     * @return {@code true} if the booking was canceled successfully, {@code false} otherwise
+     */
+    public boolean cancel(long bookingId) {
+        Lock lock = locks.forKey(bookingId);
+        lock.lock();
+        try {
+            IndexedBooking stored = bookingsDatabase.get(bookingId);
+            if (stored == null) {
+                return false;
+            }
+            cancelingBooking(bookingId);
+            bookingsDatabase.remove(bookingId);
+            removeFromIndexes(stored, null);
             return true;
+        } finally {
+            lock.unlock();
         }
-        return false;
+    }
+
+    /**
+     * Cancels a batch of bookings, each only if it is still at the version it was read at, so that a booking
+     * updated in the meantime is kept. The batch is grouped by vehicle lock, then by booking lock, and the booked
+     * periods of each vehicle are released from the availability index in one change instead of one per booking.
+     *
+     * @param bookings the bookings to cancel, with the versions they were read at
+     * @return for each booking, whether it was canceled
+     */
+    public BatchResult cancelAll(List<Versioned<Bookings>> bookings) {
+        long[] bookingIds = new long[bookings.size()];
+        String[] vehicleIds = new String[bookings.size()];
+        List<Integer> positions = new ArrayList<>(bookings.size());
+        for (int i = 0; i < bookingIds.length; i++) {
+            IndexedBooking stored = bookings.get(i) == null ? null : bookingsDatabase.get(bookings.get(i).getValue().getBookingId());
+            if (stored != null) {
+                bookingIds[i] = stored.booking.getBookingId();
+                vehicleIds[i] = stored.vehicleId;
+                positions.add(i);
+            }
+        }
+        boolean[] canceled = new boolean[bookings.size()];
+        vehicleLocks.lockEachStripe(positions, i -> vehicleIds[i], group -> {
+            List<Integer> members = new ArrayList<>(group.length);
+            for (int g : group) {
+                members.add(positions.get(g));
+            }
+            Map<String, List<Map.Entry<LocalDateTime, LocalDateTime>>> released = new HashMap<>();
+            locks.lockEachStripe(members, i -> bookingIds[i], inner -> {
+                for (int m : inner) {
+                    int i = members.get(m);
+                    IndexedBooking stored = bookingsDatabase.get(bookingIds[i]);
+                    // An unchanged version is the same stored entry, so it is still guarded by the vehicle lock held
+                    if (stored == null || stored.version != bookings.get(i).getVersion()) {
+                        continue;
+                    }
+                    cancelingBooking(bookingIds[i]);
+                    bookingsDatabase.remove(bookingIds[i]);
+                    removeFromKeyIndexes(stored, null);
+                    released.computeIfAbsent(stored.vehicleId, vehicleId -> new ArrayList<>())
+                            .add(Map.entry(stored.rentalDate, stored.returnDate));
+                    canceled[i] = true;
+                }
+            });
+            released.forEach(availabilityIndex::removeAll);
+        });
+        return new BatchResult(canceled);
+    }
+
+    /**
+     * Retrieves a booking by its booking ID.
+     *
+     * @param bookingId the ID of the booking to retrieve
+     * @return the booking with the specified ID, or {@code null} if not found
+     */
+    public Bookings getById(long bookingId) {
+        IndexedBooking stored = bookingsDatabase.get(bookingId);
+        return stored == null ? null : stored.booking;
+    }
+
+    /**
+     * Retrieves a booking together with its current version.
+     *
+     * @param bookingId the ID of the booking to retrieve
+     * @return the booking and its version, or {@code null} if not found
+     */
+    public Versioned<Bookings> getVersioned(long bookingId) {
+        IndexedBooking stored = bookingsDatabase.get(bookingId);
+        return stored == null ? null : new Versioned<>(stored.booking, stored.version);
     }
 
     /**
@@ -72,13 +481,7 @@ public class BookingsDAO {
      * @return the booking with the specified vehicle and customer, or {@code null} if not found
      */
     public Bookings getByVehicleAndCustomer(Vehicle vehicle, String customerId) {
-        for (Bookings booking : bookingsDatabase) {
-            // Ensure we're correctly comparing the customerId with the customer's ID in the booking
-            if (booking.getVehicle().equals(vehicle) && booking.getCustomer().getCustomerId().equals(customerId)) {
-                return booking;
-            }
-        }
-        return null;
+        return firstOf(lookup(vehicle.getVehicleId(), customerId));
     }
 
 
@@ -88,7 +491,58 @@ public class BookingsDAO {
      * @return a list of all bookings
      */
     public List<Bookings> getAll() {
-        return new ArrayList<>(bookingsDatabase);
+        List<Bookings> result = new ArrayList<>(bookingsDatabase.size());
+        for (IndexedBooking stored : bookingsDatabase.values()) {
+            result.add(stored.booking);
+        }
+        return result;
+    }
+
+    /**
+     * Streams all bookings lazily, in booking ID order, without copying the store.
+     * The stream never throws {@code ConcurrentModificationException}; it reflects some of the changes made
+     * while it is consumed.
+     *
+     * @return a stream of all bookings
+     */
+    public Stream<Bookings> stream() {
+        return bookingsDatabase.values().stream().map(stored -> stored.booking);
+    }
+
+    /**
+     * Retrieves the next page of bookings in booking ID order, starting right after {@code afterBookingId}.
+     * Only the page itself is allocated, so paging through any number of bookings takes constant memory.
+     *
+     * @param afterBookingId the ID of the last booking of the previous page, or 0 for the first page
+     * @param pageSize the maximum number of bookings to return
+     * @return the bookings of the page; fewer than {@code pageSize} means it is the last page
+     */
+    public List<Bookings> getPage(long afterBookingId, int pageSize) {
+        List<Bookings> page = new ArrayList<>();
+        for (IndexedBooking stored : KeysetPaging.page(bookingsDatabase, afterBookingId, pageSize)) {
+            page.add(stored.booking);
+        }
+        return page;
+    }
+
+    /**
+     * Streams the bookings of a vehicle lazily, in booking ID order, without copying them.
+     *
+     * @param vehicle the vehicle for which to stream bookings
+     * @return a stream of the bookings for the specified vehicle
+     */
+    public Stream<Bookings> streamBookingsByVehicle(Vehicle vehicle) {
+        return bookingsByVehicle.getOrDefault(vehicle.getVehicleId(), Collections.emptyMap()).values().stream();
+    }
+
+    /**
+     * Streams the bookings of a customer lazily, in booking ID order, without copying them.
+     *
+     * @param customerId the customer ID for which to stream bookings
+     * @return a stream of the bookings for the specified customer
+     */
+    public Stream<Bookings> streamBookingsByCustomer(String customerId) {
+        return bookingsByCustomer.getOrDefault(customerId, Collections.emptyMap()).values().stream();
     }
 
     /**
@@ -98,13 +552,7 @@ public class BookingsDAO {
      * @return a list of bookings for the specified vehicle
      */
     public List<Bookings> getBookingsByVehicle(Vehicle vehicle) {
-        List<Bookings> result = new ArrayList<>();
-        for (Bookings booking : bookingsDatabase) {
-            if (booking.getVehicle().equals(vehicle)) {
-                result.add(booking);
-            }
-        }
-        return result;
+        return new ArrayList<>(bookingsByVehicle.getOrDefault(vehicle.getVehicleId(), Collections.emptyMap()).values());
     }
 
     /**
@@ -114,9 +562,21 @@ public class BookingsDAO {
      * @return a list of bookings for the specified customer
      */
     public List<Bookings> getBookingsByCustomer(String customerId) {
+        return new ArrayList<>(bookingsByCustomer.getOrDefault(customerId, Collections.emptyMap()).values());
+    }
+
+    /**
+     * Retrieves the bookings of a vehicle whose rental period overlaps {@code [start, end)}.
+     *
+     * @param vehicle the vehicle for which to retrieve bookings
+     * @param start the start of the period (inclusive)
+     * @param end the end of the period (exclusive)
+     * @return the overlapping bookings, in booking ID order
+     */
+    public List<Bookings> findOverlappingBookings(Vehicle vehicle, LocalDateTime start, LocalDateTime end) {
         List<Bookings> result = new ArrayList<>();
-        for (Bookings booking : bookingsDatabase) {
-            if (booking.getCustomer().getCustomerId().equals(customerId)) {
+        for (Bookings booking : bookingsByVehicle.getOrDefault(vehicle.getVehicleId(), Collections.emptyMap()).values()) {
+            if (booking.getRentalDate().isBefore(end) && booking.getReturnDate().isAfter(start)) {
                 result.add(booking);
             }
         }
@@ -131,6 +591,135 @@ public class BookingsDAO {
      * @return {@code true} if the booking exists, {@code false} otherwise
      */
     public boolean bookingExists(Vehicle vehicle, String customerId) {
-        return bookingsDatabase.stream().anyMatch(b -> b.getVehicle().equals(vehicle) && b.getCustomer().getCustomerId().equals(customerId));
+        return !lookup(vehicle.getVehicleId(), customerId).isEmpty();
+    }
+
+    /**
+     * Called once a new booking has been checked and just before it is stored, while its write lock is held, so
+     * that subclasses see the changes to a booking in the order they are applied. If it throws, the booking is not
+     * saved. Does nothing by default.
+     *
+     * @param booking the booking to be saved
+     */
+    protected void savingBooking(Bookings booking) {
+    }
+
+    /**
+     * Called just before a booking is replaced by its updated version, while its write lock is held. If it throws,
+     * the booking is not updated. Does nothing by default.
+     *
+     * @param booking the updated booking
+     */
+    protected void updatingBooking(Bookings booking) {
+    }
+
+    /**
+     * Called just before a booking is removed, while its write lock is held. If it throws, the booking is not
+     * canceled. Does nothing by default.
+     *
+     * @param bookingId the ID of the booking to be canceled
+     */
+    protected void cancelingBooking(long bookingId) {
+    }
+
+    // Returns the bookings of a customer for a vehicle, in booking ID order
+    private Map<Long, Bookings> lookup(String vehicleId, String customerId) {
+        Map<String, Map<Long, Bookings>> byCustomer = bookingsByVehicleAndCustomer.get(vehicleId);
+        if (byCustomer == null) {
+            return Collections.emptyMap();
+        }
+        return byCustomer.getOrDefault(customerId, Collections.emptyMap());
+    }
+
+    // Finds a stored booking equal to the given one among the bookings of the same vehicle and customer
+    private Bookings findEqual(Bookings booking) {
+        for (Bookings candidate : lookup(booking.getVehicle().getVehicleId(), booking.getCustomer().getCustomerId()).values()) {
+            if (candidate.equals(booking)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    private void addToIndexes(IndexedBooking stored) {
+        addTo(bookingsByVehicle, stored.vehicleId, stored.booking);
+        addTo(bookingsByCustomer, stored.customerId, stored.booking);
+        addToPairIndex(stored);
+        availabilityIndex.add(stored.vehicleId, stored.rentalDate, stored.returnDate);
+    }
+
+    private void removeFromIndexes(IndexedBooking stale, IndexedBooking current) {
+        removeFromKeyIndexes(stale, current);
+        availabilityIndex.remove(stale.vehicleId, stale.rentalDate, stale.returnDate);
+    }
+
+    // Removes a booking using the keys it was indexed under, which stay valid even if the booking was mutated since.
+    // Buckets the current version of the booking is indexed in are left alone, as it has already replaced the stale entry there.
+    private void removeFromKeyIndexes(IndexedBooking stale, IndexedBooking current) {
+        Long bookingId = stale.booking.getBookingId();
+        boolean sameVehicle = current != null && current.vehicleId.equals(stale.vehicleId);
+        boolean sameCustomer = current != null && current.customerId.equals(stale.customerId);
+        if (!sameVehicle) {
+            removeFrom(bookingsByVehicle, stale.vehicleId, bookingId);
+        }
+        if (!sameCustomer) {
+            removeFrom(bookingsByCustomer, stale.customerId, bookingId);
+        }
+        if (!sameVehicle || !sameCustomer) {
+            bookingsByVehicleAndCustomer.computeIfPresent(stale.vehicleId, (vehicleId, byCustomer) -> {
+                removeFrom(byCustomer, stale.customerId, bookingId);
+                return byCustomer.isEmpty() ? null : byCustomer;
+            });
+        }
+    }
+
+    private void addToPairIndex(IndexedBooking stored) {
+        bookingsByVehicleAndCustomer.compute(stored.vehicleId, (vehicleId, byCustomer) -> {
+            Map<String, Map<Long, Bookings>> updated = byCustomer == null ? new ConcurrentHashMap<>() : byCustomer;
+            addTo(updated, stored.customerId, stored.booking);
+            return updated;
+        });
+    }
+
+    // Buckets are created and dropped inside compute calls, so a booking is never added to a bucket that is being dropped
+    private static void addTo(Map<String, Map<Long, Bookings>> index, String key, Bookings booking) {
+        index.compute(key, (k, bookings) -> {
+            Map<Long, Bookings> updated = bookings == null ? new ConcurrentSkipListMap<>() : bookings;
+            updated.put(booking.getBookingId(), booking);
+            return updated;
+        });
+    }
+
+    private static void removeFrom(Map<String, Map<Long, Bookings>> index, String key, Long bookingId) {
+        index.computeIfPresent(key, (k, bookings) -> {
+            bookings.remove(bookingId);
+            return bookings.isEmpty() ? null : bookings;
+        });
+    }
+
+    private static Bookings firstOf(Map<Long, Bookings> bookings) {
+        Iterator<Bookings> iterator = bookings.values().iterator();
+        return iterator.hasNext() ? iterator.next() : null;
+    }
+
+    /**
+     * A stored booking together with its version and the keys it is indexed under.
+     */
+    private static final class IndexedBooking {
+        private final Bookings booking;
+        private final long version;
+        private final String vehicleId;
+        private final String customerId;
+        private final LocalDateTime rentalDate;
+        private final LocalDateTime returnDate;
+
+        private IndexedBooking(Bookings booking, long version) {
+            this.booking = booking;
+            this.version = version;
+            this.vehicleId = booking.getVehicle().getVehicleId();
+            this.customerId = booking.getCustomer().getCustomerId();
+            this.rentalDate = booking.getRentalDate();
+            this.returnDate = booking.getReturnDate();
+        }
     }
 }
@@ -1,109 +1,40 @@
 package vrs.dao;
 
 import vrs.models.vehicle.Car;
-import vrs.models.vehicle.Vehicle;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * The {@code CarDAO} class implements the {@code VehicleDAO} operations specifically for {@code Car} objects.
  */
-public class CarDAO extends VehicleDAO {
+public class CarDAO extends InMemoryVehicleDAO<Car> {
 
-    private List<Car> carDatabase = new ArrayList<>();  // Simulating a database with a list
+    private final NumericRangeIndex<Car> trunkCapacityIndex = new NumericRangeIndex<>(Car::getTrunkCapacity);
 
     /**
-     * Saves a new car to the database.
-     *
-     * @param vehicle the car to save
-     * @return {@code true} if the car was saved successfully, {@code false} otherwise
-     */
-    @Override
-    public boolean save(Vehicle vehicle) {
-        if (vehicle instanceof Car) {
-            carDatabase.add((Car) vehicle);
-            return true;
-        }
-        return false;
-    }
-
-    /**
-     * Updates an existing car in the database.
-     *
-     * @param vehicle the car with updated information
-     * @return {@code true} if the car was updated successfully, {@code false} otherwise
-     */
-    @Override
-    public boolean update(Vehicle vehicle) {
-        if (vehicle instanceof Car) {
-            for (int i = 0; i < carDatabase.size(); i++) {
-                if (carDatabase.get(i).getVehicleId().equals(vehicle.getVehicleId())) {
-                    carDatabase.set(i, (Car) vehicle);
-                    return true;
-                }
-            }
-        }
-        return false;
-    }
-
-    /**
-     * Deletes a car from the database based on its ID.
-     *
-     * @param vehicleId the ID of the car to delete
-     * @return {@code true} if the car was deleted successfully, {@code false} otherwise
-     */
-    @Override
-    public boolean delete(String vehicleId) {
-        return carDatabase.removeIf(car -> car.getVehicleId().equals(vehicleId));
-    }
-
-    /**
-     * Retrieves a car by its ID.
-     *
-     * @param vehicleId the ID of the car to retrieve
-     * @return the car with the specified ID, or {@code null} if not found
-     */
-    @Override
-    public Vehicle getById(String vehicleId) {
-        for (Car car : carDatabase) {
-            if (car.getVehicleId().equals(vehicleId)) {
-                return car;
-            }
-        }
-        return null;
-    }
-
-    /**
-     * Retrieves a list of all cars.
-     *
-     * @return a list of all cars
+     * Creates an empty car database with its own, empty availability index.
      */
-    @Override
-    public List<Vehicle> getAll() {
-        return new ArrayList<>(carDatabase);
+    public CarDAO() {
+        this(new AvailabilityIndex());
     }
 
     /**
-     * Retrieves a list of available cars.
+     * Creates an empty car database that answers date-range queries from the given availability index.
      *
-     * @return a list of available cars
+     * @param availabilityIndex the index of booked periods, shared with {@code BookingsDAO}
      */
-    @Override
-    public List<Vehicle> getAvailableVehicles() {
-        List<Vehicle> availableCars = new ArrayList<>();
-        for (Car car : carDatabase) {
-            if (car.isAvailable()) {
-                availableCars.add(car);
-            }
-        }
-        return availableCars;
+    public CarDAO(AvailabilityIndex availabilityIndex) {
+        super(Car.class, availabilityIndex);
+        addIndex(trunkCapacityIndex);
+        addAttribute(VehicleAttribute.TRANSMISSION_TYPE, car -> VehicleCriteria.normalizeTransmissionType(car.getTransmissionType()));
     }
 
     public List<Car> findCarsBySeatingCapacity(int seatingCapacity) {
         List<Car> result = new ArrayList<>();
-        for (Car car : carDatabase) {
+        for (Car car : vehicles()) {
             if (car.getSeatingCapacity() == seatingCapacity) {
                 result.add(car);
             }
@@ -112,30 +43,24 @@ public class CarDAO extends VehicleDAO {
     }
 
     public List<Car> findCarsByTrunkCapacityRange(double minCapacity, double maxCapacity) {
-        List<Car> result = new ArrayList<>();
-        for (Car car : carDatabase) {
-            double capacity = car.getTrunkCapacity();
-            if (capacity >= minCapacity && capacity <= maxCapacity) {
-                result.add(car);
-            }
-        }
-        return result;
+        return trunkCapacityIndex.findInRange(minCapacity, maxCapacity);
+    }
+
+    /**
+     * Streams the cars whose trunk capacity lies in the given range, lazily walking the capacity index.
+     */
+    public Stream<Car> streamCarsByTrunkCapacityRange(double minCapacity, double maxCapacity) {
+        return trunkCapacityIndex.streamInRange(minCapacity, maxCapacity);
     }
 
     public List<Car> findCarsByTransmissionType(String transmissionType) {
-        List<Car> result = new ArrayList<>();
-        for (Car car : carDatabase) {
-            if (car.getTransmissionType().equalsIgnoreCase(transmissionType)) {
-                result.add(car);
-            }
-        }
-        return result;
+        return findByCriteria(new VehicleCriteria().withTransmissionTypes(transmissionType));
     }
 
     public List<Car> findAvailableCarsByDateRange(LocalDate startDate, LocalDate endDate) {
         List<Car> result = new ArrayList<>();
-        for (Car car : carDatabase) {
-            if (car.isAvailableOnDate(startDate, endDate)) {
+        for (Car car : vehicles()) {
+            if (isAvailableOnDate(car, startDate, endDate)) {
                 result.add(car);
             }
         }
@@ -1,32 +1,87 @@
 package vrs.dao;
 
+import vrs.dao.offheap.OffHeapBookingTable;
 import vrs.models.Customer;
 import vrs.models.Bookings;
-import java.util.HashMap;
-import java.util.Map;
+import vrs.models.vehicle.Vehicle;
+import java.util.Collection;
+import java.util.NavigableMap;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
+// Safe for concurrent use: reads never block, and writes only lock the stripe of the customer ID they change.
+// Rental histories are lists of booking IDs; the bookings they refer to are kept off the heap, as they were when
+// added, and are built again with the vehicles and customers stored at the time they are read.
 public class CustomerDAO {
     // In-memory database simulation
-    private Map<String, Customer> customerDatabase = new HashMap<>();
+    private final NavigableMap<String, Customer> customerDatabase = new ConcurrentSkipListMap<>();  // Sorted by ID for paging
+    private final LockStripes locks = new LockStripes();
+    private final OffHeapBookingTable historyBookings;
+
+    // Create an empty database whose rental histories are read back with the vehicles of the given DAO
+    public CustomerDAO(VehicleDAO vehicleDAO) {
+        this(vehicleDAO == null ? null : vehicleDAO::getById);
+    }
+
+    // Create an empty database whose rental histories are read back with the vehicles the lookup returns
+    public CustomerDAO(Function<String, ? extends Vehicle> vehicleLookup) {
+        if (vehicleLookup == null) {
+            throw new IllegalArgumentException("Vehicle lookup cannot be null.");
+        }
+        this.historyBookings = new OffHeapBookingTable(vehicleLookup, customerId -> customerDatabase.get(customerId));
+    }
+
+    // For subclasses that keep rental histories themselves and override the methods that use them
+    protected CustomerDAO() {
+        this.historyBookings = null;
+    }
 
     // Save or register a new customer
     public void saveCustomer(Customer customer) {
         if (customer == null) {
             throw new IllegalArgumentException("Customer cannot be null.");
         }
-        if (customerDatabase.containsKey(customer.getCustomerId())) {
-            throw new IllegalStateException("Customer with ID " + customer.getCustomerId() + " already exists.");
+        Lock lock = locks.forKey(customer.getCustomerId());
+        lock.lock();
+        try {
+            if (customerDatabase.containsKey(customer.getCustomerId())) {
+                throw new IllegalStateException("Customer with ID " + customer.getCustomerId() + " already exists.");
+            }
+            savingCustomer(customer);
+            customerDatabase.put(customer.getCustomerId(), customer);
+        } finally {
+            lock.unlock();
         }
-        customerDatabase.put(customer.getCustomerId(), customer);
         System.out.println("Customer registered successfully: " + customer);
     }
 
+    // Register a batch of new customers, taking each lock once for the whole batch; a null customer or an
+    // existing ID fails only that customer. One summary line is printed instead of one line per customer.
+    public BatchResult saveCustomers(List<Customer> customers) {
+        boolean[] saved = new boolean[customers.size()];
+        locks.lockEachStripe(customers, CustomerDAO::customerIdOf, positions -> {
+            for (int i : positions) {
+                Customer customer = customers.get(i);
+                if (customer != null && !customerDatabase.containsKey(customer.getCustomerId())) {
+                    savingCustomer(customer);
+                    customerDatabase.put(customer.getCustomerId(), customer);
+                    saved[i] = true;
+                }
+            }
+        });
+        BatchResult result = new BatchResult(saved);
+        System.out.println(result.getSuccessCount() + " of " + result.size() + " customers registered successfully.");
+        return result;
+    }
+
     // Find customer by ID, return Optional to handle missing customer better
     public Optional<Customer> findCustomerById(String customerId) {
-        return Optional.ofNullable(customerDatabase.get(customerId));
+        return customerId == null ? Optional.empty() : Optional.ofNullable(customerDatabase.get(customerId));
     }
 
     // Update an existing customer's information
@@ -34,19 +89,52 @@ public class CustomerDAO {
         if (customer == null) {
             throw new IllegalArgumentException("Customer cannot be null.");
         }
-        if (!customerDatabase.containsKey(customer.getCustomerId())) {
-            throw new IllegalStateException("Customer with ID " + customer.getCustomerId() + " does not exist.");
+        Lock lock = locks.forKey(customer.getCustomerId());
+        lock.lock();
+        try {
+            if (!customerDatabase.containsKey(customer.getCustomerId())) {
+                throw new IllegalStateException("Customer with ID " + customer.getCustomerId() + " does not exist.");
+            }
+            updatingCustomer(customer);
+            customerDatabase.put(customer.getCustomerId(), customer);
+        } finally {
+            lock.unlock();
         }
-        customerDatabase.put(customer.getCustomerId(), customer);
         System.out.println("Customer updated successfully: " + customer);
     }
 
+    // Update a batch of existing customers, taking each lock once for the whole batch; a null or unknown
+    // customer fails only that customer. One summary line is printed instead of one line per customer.
+    public BatchResult updateCustomers(List<Customer> customers) {
+        boolean[] updated = new boolean[customers.size()];
+        locks.lockEachStripe(customers, CustomerDAO::customerIdOf, positions -> {
+            for (int i : positions) {
+                Customer customer = customers.get(i);
+                if (customer != null && customerDatabase.containsKey(customer.getCustomerId())) {
+                    updatingCustomer(customer);
+                    customerDatabase.put(customer.getCustomerId(), customer);
+                    updated[i] = true;
+                }
+            }
+        });
+        BatchResult result = new BatchResult(updated);
+        System.out.println(result.getSuccessCount() + " of " + result.size() + " customers updated successfully.");
+        return result;
+    }
+
     // Delete a customer from the database
     public void deleteCustomer(String customerId) {
-        if (!customerDatabase.containsKey(customerId)) {
-            throw new IllegalStateException("Customer with ID " + customerId + " does not exist.");
+        Lock lock = locks.forKey(customerId);
+        lock.lock();
+        try {
+            if (customerId == null || !customerDatabase.containsKey(customerId)) {
+                throw new IllegalStateException("Customer with ID " + customerId + " does not exist.");
+            }
+            deletingCustomer(customerId);
+            customerDatabase.remove(customerId);
+        } finally {
+            lock.unlock();
         }
-        customerDatabase.remove(customerId);
         System.out.println("Customer with ID " + customerId + " has been deleted.");
     }
 
@@ -55,25 +143,101 @@ public class CustomerDAO {
         return new ArrayList<>(customerDatabase.values());
     }
 
-    // Add a booking to a customer's rental history
+    // Stream all customers lazily in customer ID order, without copying them into a list
+    public Stream<Customer> streamAllCustomers() {
+        return customerDatabase.values().stream();
+    }
+
+    // Retrieve the next page of customers in customer ID order, after the last customer ID of the previous page (null for the first)
+    public List<Customer> findCustomersPage(String afterCustomerId, int pageSize) {
+        return KeysetPaging.page(customerDatabase, afterCustomerId, pageSize);
+    }
+
+    // Add a saved booking to a customer's rental history
     public void addBookingToCustomerHistory(String customerId, Bookings booking) {
-        Optional<Customer> customerOpt = findCustomerById(customerId);
-        if (customerOpt.isPresent()) {
-            Customer customer = customerOpt.get();
-            customer.addBookingToHistory(booking);
-            System.out.println("Booking added to customer " + customerId + "'s history.");
-        } else {
-            throw new IllegalStateException("Customer with ID " + customerId + " not found.");
+        if (booking == null || booking.getBookingId() == 0) {
+            throw new IllegalArgumentException("Only saved bookings can be added to a rental history.");
+        }
+        Lock lock = locks.forKey(customerId);
+        lock.lock();
+        try {
+            Optional<Customer> customerOpt = findCustomerById(customerId);
+            if (customerOpt.isPresent()) {
+                Customer customer = customerOpt.get();
+                addingBookingToHistory(customerId, booking);
+                historyBookings().append(booking);
+                customer.addBookingToHistory(booking.getBookingId());
+            } else {
+                throw new IllegalStateException("Customer with ID " + customerId + " not found.");
+            }
+        } finally {
+            lock.unlock();
+        }
+        System.out.println("Booking added to customer " + customerId + "'s history.");
+    }
+
+    // Load customers in bulk without checks or logging, used when restoring a snapshot
+    public void restoreAll(Collection<Customer> customers) {
+        for (Customer customer : customers) {
+            restoreCustomer(customer);
+        }
+    }
+
+    // Append bookings to a stored customer's rental history without checks or logging, used when restoring a snapshot
+    public void restoreHistory(String customerId, List<Bookings> bookings) {
+        Customer customer = customerDatabase.get(customerId);
+        if (customer != null) {
+            historyBookings().appendAll(bookings);
+            for (Bookings booking : bookings) {
+                customer.addBookingToHistory(booking.getBookingId());
+            }
         }
     }
 
-    // Get all bookings for a customer
+    // Store a customer without checks or logging, used when rebuilding the database from persistent storage
+    protected void restoreCustomer(Customer customer) {
+        customerDatabase.put(customer.getCustomerId(), customer);
+    }
+
+    // Remove a customer without checks or logging, used when rebuilding the database from persistent storage
+    protected void forgetCustomer(String customerId) {
+        customerDatabase.remove(customerId);
+    }
+
+    private static String customerIdOf(Customer customer) {
+        return customer == null ? null : customer.getCustomerId();
+    }
+
+    // Called once a change has been checked and just before it is applied, while the customer's write lock is
+    // held, so subclasses see the changes to a customer in the order they are applied. If one throws, the change
+    // is not applied. They do nothing by default.
+    protected void savingCustomer(Customer customer) {
+    }
+
+    protected void updatingCustomer(Customer customer) {
+    }
+
+    protected void deletingCustomer(String customerId) {
+    }
+
+    protected void addingBookingToHistory(String customerId, Bookings booking) {
+    }
+
+    // Get all bookings in a customer's rental history, in the order they were added; a booking whose vehicle or
+    // customer has been deleted since is left out
     public List<Bookings> getCustomerBookings(String customerId) {
         Optional<Customer> customerOpt = findCustomerById(customerId);
         if (customerOpt.isPresent()) {
-            return customerOpt.get().getRentalHistory();
+            return historyBookings().getAll(customerOpt.get().getRentalHistory());
         } else {
             throw new IllegalStateException("Customer with ID " + customerId + " not found.");
         }
     }
+
+    private OffHeapBookingTable historyBookings() {
+        if (historyBookings == null) {
+            throw new IllegalStateException("Rental histories are kept by " + getClass().getSimpleName() + ".");
+        }
+        return historyBookings;
+    }
 }
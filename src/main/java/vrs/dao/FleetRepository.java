@@ -0,0 +1,421 @@
+package vrs.dao;
+
+import vrs.models.vehicle.Vehicle;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.stream.Stream;
+
+/**
+ * The {@code FleetRepository} class is a {@code VehicleDAO} over cars, trucks and motorcycles together.
+ * Each vehicle type is stored in its own partition (a {@code CarDAO}, {@code TruckDAO} or {@code MotorcycleDAO}),
+ * while a single ID index maps every vehicle ID to its partition, so IDs are unique across the whole fleet and
+ * a lookup by ID never has to probe each type in turn. Base rental rates are indexed across all types, so
+ * searches such as "anything available under a given rate" take a single indexed pass.
+ * <p>
+ * The partitions should only be changed through the repository; vehicles saved directly into a partition
+ * are not known to its ID and rate indexes.
+ * <p>
+ * The repository is safe for concurrent use. Reads never block; writes lock the stripe of the vehicle ID
+ * they change, then the partition's own stripe, so writes to different vehicles do not contend.
+ */
+public class FleetRepository extends VehicleDAO {
+
+    private final CarDAO carDAO;
+    private final TruckDAO truckDAO;
+    private final MotorcycleDAO motorcycleDAO;
+    private final List<InMemoryVehicleDAO<?>> partitions;
+    private final Map<String, InMemoryVehicleDAO<?>> partitionsById = new ConcurrentHashMap<>();
+    private final LockStripes locks = new LockStripes();
+    private final NumericRangeIndex<Vehicle> rateIndex = new NumericRangeIndex<>(Vehicle::getBaseRentalRate);
+
+    /**
+     * Creates an empty fleet whose partitions share one, empty availability index.
+     */
+    public FleetRepository() {
+        this(new AvailabilityIndex());
+    }
+
+    /**
+     * Creates an empty fleet whose partitions share the given availability index.
+     *
+     * @param availabilityIndex the index of booked periods, maintained by {@code BookingsDAO}
+     */
+    public FleetRepository(AvailabilityIndex availabilityIndex) {
+        this(new CarDAO(availabilityIndex), new TruckDAO(availabilityIndex), new MotorcycleDAO(availabilityIndex));
+    }
+
+    /**
+     * Creates a fleet over existing partitions. Vehicles already stored in them are indexed; a vehicle ID
+     * stored in more than one partition is rejected.
+     *
+     * @param carDAO the partition holding the cars
+     * @param truckDAO the partition holding the trucks
+     * @param motorcycleDAO the partition holding the motorcycles
+     * @throws IllegalArgumentException if a partition is null or a vehicle ID is stored twice
+     */
+    public FleetRepository(CarDAO carDAO, TruckDAO truckDAO, MotorcycleDAO motorcycleDAO) {
+        if (carDAO == null || truckDAO == null || motorcycleDAO == null) {
+            throw new IllegalArgumentException("Vehicle partitions cannot be null");
+        }
+        this.carDAO = carDAO;
+        this.truckDAO = truckDAO;
+        this.motorcycleDAO = motorcycleDAO;
+        this.partitions = List.of(carDAO, truckDAO, motorcycleDAO);
+        for (InMemoryVehicleDAO<?> partition : partitions) {
+            for (Vehicle vehicle : partition.vehicles()) {
+                if (partitionsById.putIfAbsent(vehicle.getVehicleId(), partition) != null) {
+                    throw new IllegalArgumentException("Vehicle ID " + vehicle.getVehicleId() + " is stored in more than one partition");
+                }
+                rateIndex.add(vehicle);
+            }
+        }
+    }
+
+    /**
+     * Saves a new vehicle into the partition for its type.
+     * A vehicle whose ID is already used by a vehicle of any type is rejected.
+     *
+     * @param vehicle the vehicle to save
+     * @return {@code true} if the vehicle was saved successfully, {@code false} if its type is not supported
+     *         or its ID already exists
+     */
+    @Override
+    public boolean save(Vehicle vehicle) {
+        if (vehicle == null) {
+            return false;
+        }
+        Lock lock = locks.forKey(vehicle.getVehicleId());
+        lock.lock();
+        try {
+            if (partitionsById.containsKey(vehicle.getVehicleId())) {
+                return false;
+            }
+            for (InMemoryVehicleDAO<?> partition : partitions) {
+                if (partition.save(vehicle)) {
+                    partitionsById.put(vehicle.getVehicleId(), partition);
+                    rateIndex.add(vehicle);
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Saves a batch of new vehicles into the partitions for their types. The batch is grouped by write lock,
+     * and each group is handed to each partition as one batch, so every lock is taken once per batch.
+     * Of two vehicles with the same ID, of any type, the first in the batch wins.
+     *
+     * @param vehicles the vehicles to save
+     * @return for each vehicle, whether it was saved as {@link #save(Vehicle)} would have
+     */
+    @Override
+    public BatchResult saveAll(List<? extends Vehicle> vehicles) {
+        boolean[] saved = new boolean[vehicles.size()];
+        locks.lockEachStripe(vehicles, VehicleDAO::vehicleIdOf, positions -> {
+            Map<InMemoryVehicleDAO<?>, List<Integer>> byPartition = new HashMap<>();
+            Set<String> claimedIds = new HashSet<>();
+            for (int i : positions) {
+                Vehicle vehicle = vehicles.get(i);
+                InMemoryVehicleDAO<?> partition = vehicle == null ? null : partitionFor(vehicle);
+                if (partition != null && !partitionsById.containsKey(vehicle.getVehicleId())
+                        && claimedIds.add(vehicle.getVehicleId())) {
+                    byPartition.computeIfAbsent(partition, p -> new ArrayList<>()).add(i);
+                }
+            }
+            byPartition.forEach((partition, batch) -> {
+                BatchResult result = partition.saveAll(select(vehicles, batch));
+                for (int b = 0; b < batch.size(); b++) {
+                    if (result.isSuccessful(b)) {
+                        Vehicle vehicle = vehicles.get(batch.get(b));
+                        partitionsById.put(vehicle.getVehicleId(), partition);
+                        rateIndex.add(vehicle);
+                        saved[batch.get(b)] = true;
+                    }
+                }
+            });
+        });
+        return new BatchResult(saved);
+    }
+
+    /**
+     * Updates an existing vehicle in its partition and re-indexes it.
+     *
+     * @param vehicle the vehicle with updated information
+     * @return {@code true} if the vehicle was updated successfully, {@code false} otherwise
+     */
+    @Override
+    public boolean update(Vehicle vehicle) {
+        return replace(vehicle, false, 0);
+    }
+
+    /**
+     * Updates a batch of existing vehicles in their partitions and re-indexes them. The batch is grouped by
+     * write lock, and each group is handed to each partition as one batch, so every lock is taken once per batch.
+     *
+     * @param vehicles the vehicles with updated information
+     * @return for each vehicle, whether it was updated as {@link #update(Vehicle)} would have
+     */
+    @Override
+    public BatchResult updateAll(List<? extends Vehicle> vehicles) {
+        boolean[] updated = new boolean[vehicles.size()];
+        locks.lockEachStripe(vehicles, VehicleDAO::vehicleIdOf, positions -> {
+            Map<InMemoryVehicleDAO<?>, List<Integer>> byPartition = new HashMap<>();
+            for (int i : positions) {
+                Vehicle vehicle = vehicles.get(i);
+                InMemoryVehicleDAO<?> partition = vehicle == null ? null : partitionsById.get(vehicle.getVehicleId());
+                if (partition != null) {
+                    byPartition.computeIfAbsent(partition, p -> new ArrayList<>()).add(i);
+                }
+            }
+            byPartition.forEach((partition, batch) -> {
+                BatchResult result = partition.updateAll(select(vehicles, batch));
+                for (int b = 0; b < batch.size(); b++) {
+                    if (result.isSuccessful(b)) {
+                        Vehicle vehicle = vehicles.get(batch.get(b));
+                        rateIndex.remove(vehicle.getVehicleId());
+                        rateIndex.add(vehicle);
+                        updated[batch.get(b)] = true;
+                    }
+                }
+            });
+        });
+        return new BatchResult(updated);
+    }
+
+    /**
+     * Updates an existing vehicle in its partition only if its version is still {@code expectedVersion},
+     * and re-indexes it.
+     *
+     * @param vehicle the vehicle with updated information
+     * @param expectedVersion the version the update is based on
+     * @return {@code true} if the vehicle was updated, {@code false} if it does not exist or its version changed
+     */
+    @Override
+    public boolean compareAndUpdate(Vehicle vehicle, long expectedVersion) {
+        return replace(vehicle, true, expectedVersion);
+    }
+
+    /**
+     * Retrieves a vehicle of any type together with its current version.
+     *
+     * @param vehicleId the ID of the vehicle to retrieve
+     * @return the vehicle and its version, or {@code null} if not found
+     */
+    @Override
+    public Versioned<Vehicle> getVersioned(String vehicleId) {
+        InMemoryVehicleDAO<?> partition = vehicleId == null ? null : partitionsById.get(vehicleId);
+        return partition == null ? null : partition.getVersioned(vehicleId);
+    }
+
+    private boolean replace(Vehicle vehicle, boolean checkVersion, long expectedVersion) {
+        if (vehicle == null) {
+            return false;
+        }
+        Lock lock = locks.forKey(vehicle.getVehicleId());
+        lock.lock();
+        try {
+            InMemoryVehicleDAO<?> partition = partitionsById.get(vehicle.getVehicleId());
+            boolean updated = partition != null
+                    && (checkVersion ? partition.compareAndUpdate(vehicle, expectedVersion) : partition.update(vehicle));
+            if (!updated) {
+                return false;
+            }
+            rateIndex.remove(vehicle.getVehicleId());
+            rateIndex.add(vehicle);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Deletes a vehicle of any type based on its ID.
+     *
+     * @param vehicleId the ID of the vehicle to delete
+     * @return {@code true} if the vehicle was deleted successfully, {@code false} otherwise
+     */
+    @Override
+    public boolean delete(String vehicleId) {
+        if (vehicleId == null) {
+            return false;
+        }
+        Lock lock = locks.forKey(vehicleId);
+        lock.lock();
+        try {
+            InMemoryVehicleDAO<?> partition = partitionsById.get(vehicleId);
+            if (partition == null || !partition.delete(vehicleId)) {
+                return false;
+            }
+            partitionsById.remove(vehicleId);
+            rateIndex.remove(vehicleId);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Retrieves a vehicle of any type by its ID, with a single lookup in the ID index.
+     *
+     * @param vehicleId the ID of the vehicle to retrieve
+     * @return the vehicle with the specified ID, or {@code null} if not found
+     */
+    @Override
+    public Vehicle getById(String vehicleId) {
+        InMemoryVehicleDAO<?> partition = vehicleId == null ? null : partitionsById.get(vehicleId);
+        return partition == null ? null : partition.getById(vehicleId);
+    }
+
+    /**
+     * Retrieves all vehicles: the cars, then the trucks, then the motorcycles, each in the order they were saved.
+     * The result is filled straight from the partitions, without copying each partition first.
+     *
+     * @return a list of all vehicles
+     */
+    @Override
+    public List<Vehicle> getAll() {
+        List<Vehicle> result = new ArrayList<>(partitionsById.size());
+        for (InMemoryVehicleDAO<?> partition : partitions) {
+            result.addAll(partition.vehicles());
+        }
+        return result;
+    }
+
+    /**
+     * Streams the vehicles of every type lazily, in the same order as {@link #getAll()}, without copying any partition.
+     *
+     * @return a stream of all vehicles
+     */
+    @Override
+    public Stream<Vehicle> stream() {
+        return partitions.stream().flatMap(InMemoryVehicleDAO::stream);
+    }
+
+    /**
+     * Retrieves the next page of vehicles of any type in vehicle ID order, starting right after {@code afterVehicleId}.
+     * Each partition contributes at most one page, which is merged, so memory use only depends on the page size.
+     *
+     * @param afterVehicleId the ID of the last vehicle of the previous page, or {@code null} for the first page
+     * @param pageSize the maximum number of vehicles to return
+     * @return the vehicles of the page; fewer than {@code pageSize} means it is the last page
+     */
+    @Override
+    public List<Vehicle> getPage(String afterVehicleId, int pageSize) {
+        List<Vehicle> merged = new ArrayList<>();
+        for (InMemoryVehicleDAO<?> partition : partitions) {
+            merged.addAll(partition.getPage(afterVehicleId, pageSize));
+        }
+        merged.sort(Comparator.comparing(Vehicle::getVehicleId));
+        return merged.size() > pageSize ? new ArrayList<>(merged.subList(0, pageSize)) : merged;
+    }
+
+    /**
+     * Retrieves the available vehicles of every type, in the same order as {@link #getAll()}.
+     *
+     * @return a list of available vehicles
+     */
+    @Override
+    public List<Vehicle> getAvailableVehicles() {
+        List<Vehicle> result = new ArrayList<>();
+        for (InMemoryVehicleDAO<?> partition : partitions) {
+            for (Vehicle vehicle : partition.vehicles()) {
+                if (vehicle.isAvailable()) {
+                    result.add(vehicle);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Finds vehicles of any type whose base rental rate lies between {@code minRate} and {@code maxRate},
+     * both inclusive.
+     *
+     * @param minRate the lowest rate to include
+     * @param maxRate the highest rate to include
+     * @return the matching vehicles, ordered by base rental rate
+     */
+    public List<Vehicle> findVehiclesByRateRange(double minRate, double maxRate) {
+        return rateIndex.findInRange(minRate, maxRate);
+    }
+
+    /**
+     * Finds the available vehicles of any type whose base rental rate is at most {@code maxRate}.
+     *
+     * @param maxRate the highest rate to include
+     * @return the matching vehicles, cheapest first
+     */
+    public List<Vehicle> findAvailableVehiclesByMaxRate(double maxRate) {
+        List<Vehicle> result = new ArrayList<>();
+        for (Vehicle vehicle : rateIndex.findInRange(0, maxRate)) {
+            if (vehicle.isAvailable()) {
+                result.add(vehicle);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Finds vehicles of any type matching all the given criteria, using the bitmap indexes of each partition.
+     * Criteria on type-specific attributes, such as transmission or engine type, only match vehicles of that type.
+     *
+     * @param criteria the criteria to match
+     * @return the matching vehicles, grouped by type
+     */
+    public List<Vehicle> findByCriteria(VehicleCriteria criteria) {
+        List<Vehicle> result = new ArrayList<>();
+        for (InMemoryVehicleDAO<?> partition : partitions) {
+            result.addAll(partition.findByCriteria(criteria));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of vehicles in the fleet.
+     *
+     * @return the number of vehicles
+     */
+    public int size() {
+        return partitionsById.size();
+    }
+
+    private InMemoryVehicleDAO<?> partitionFor(Vehicle vehicle) {
+        for (InMemoryVehicleDAO<?> partition : partitions) {
+            if (partition.accepts(vehicle)) {
+                return partition;
+            }
+        }
+        return null;
+    }
+
+    private static List<Vehicle> select(List<? extends Vehicle> vehicles, List<Integer> positions) {
+        List<Vehicle> selected = new ArrayList<>(positions.size());
+        for (int position : positions) {
+            selected.add(vehicles.get(position));
+        }
+        return selected;
+    }
+
+    public CarDAO getCarDAO() {
+        return carDAO;
+    }
+
+    public TruckDAO getTruckDAO() {
+        return truckDAO;
+    }
+
+    public MotorcycleDAO getMotorcycleDAO() {
+        return motorcycleDAO;
+    }
+}
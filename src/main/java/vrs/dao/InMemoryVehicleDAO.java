@@ -0,0 +1,397 @@
+package vrs.dao;
+
+import vrs.models.vehicle.Vehicle;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * The {@code InMemoryVehicleDAO} class provides the keyed in-memory storage shared by the
+ * vehicle-type specific DAOs (e.g., {@code CarDAO}, {@code TruckDAO}).
+ * Vehicles are stored by their ID, so lookups, updates and deletes take constant time,
+ * while iteration keeps the order in which the vehicles were saved.
+ * Fuel type, category and availability, plus any attribute a subclass adds, are kept in bitmap indexes
+ * for multi-criteria searches through {@link #findByCriteria(VehicleCriteria)}.
+ * <p>
+ * The DAO is safe for concurrent use. Reads never block: they see the vehicles and indexes as of some
+ * point during the call. Writes lock only the stripe of the vehicle ID they change, so writes to different
+ * vehicles do not contend.
+ *
+ * @param <T> the type of vehicle stored by this DAO
+ */
+public abstract class InMemoryVehicleDAO<T extends Vehicle> extends VehicleDAO {
+
+    private static final long ANY_VERSION = -1;  // Lets a plain update through whatever the stored version
+
+    private final Class<T> vehicleType;
+    private final AvailabilityIndex availabilityIndex;
+    private final Map<String, StoredVehicle<T>> vehicleDatabase = new ConcurrentHashMap<>();  // Simulating a database keyed by vehicle ID
+    private final NavigableMap<Long, T> vehiclesInSaveOrder = new ConcurrentSkipListMap<>();
+    private final NavigableMap<String, T> vehiclesInIdOrder = new ConcurrentSkipListMap<>();
+    private final AtomicLong lastSequence = new AtomicLong();
+    private final LockStripes locks = new LockStripes();
+    private final List<VehicleIndex<T>> indexes = new ArrayList<>();
+    private final BitmapIndex<T> attributeIndex = new BitmapIndex<>();
+
+    /**
+     * Creates a DAO that only accepts vehicles of the given type.
+     *
+     * @param vehicleType the type of vehicle stored by this DAO
+     * @param availabilityIndex the index of booked periods, maintained by {@code BookingsDAO}
+     */
+    protected InMemoryVehicleDAO(Class<T> vehicleType, AvailabilityIndex availabilityIndex) {
+        if (availabilityIndex == null) {
+            throw new IllegalArgumentException("Availability index cannot be null");
+        }
+        this.vehicleType = vehicleType;
+        this.availabilityIndex = availabilityIndex;
+        attributeIndex.addAttribute(VehicleAttribute.FUEL_TYPE, Vehicle::getFuelType);
+        attributeIndex.addAttribute(VehicleAttribute.CATEGORY, Vehicle::getVehicleCategory);
+        attributeIndex.addAttribute(VehicleAttribute.AVAILABILITY, Vehicle::isAvailable);
+        indexes.add(attributeIndex);
+    }
+
+    /**
+     * Saves a new vehicle to the database.
+     * A vehicle whose ID is already stored is rejected.
+     *
+     * @param vehicle the vehicle to save
+     * @return {@code true} if the vehicle was saved successfully, {@code false} if it has the wrong type
+     *         or its ID already exists
+     */
+    @Override
+    public boolean save(Vehicle vehicle) {
+        if (!vehicleType.isInstance(vehicle)) {
+            return false;
+        }
+        Lock lock = locks.forKey(vehicle.getVehicleId());
+        lock.lock();
+        try {
+            return insert(vehicle);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Saves a batch of new vehicles, grouped by write lock so each lock is taken once for the whole batch.
+     * Vehicles are saved in batch order within a group, so of two vehicles with the same ID the first wins.
+     *
+     * @param vehicles the vehicles to save
+     * @return for each vehicle, whether it was saved as {@link #save(Vehicle)} would have
+     */
+    @Override
+    public BatchResult saveAll(List<? extends Vehicle> vehicles) {
+        boolean[] saved = new boolean[vehicles.size()];
+        locks.lockEachStripe(vehicles, VehicleDAO::vehicleIdOf, positions -> {
+            for (int i : positions) {
+                saved[i] = insert(vehicles.get(i));
+            }
+        });
+        return new BatchResult(saved);
+    }
+
+    // Stores a new vehicle and indexes it; the caller holds the vehicle's write lock
+    private boolean insert(Vehicle vehicle) {
+        if (!vehicleType.isInstance(vehicle) || vehicleDatabase.containsKey(vehicle.getVehicleId())) {
+            return false;
+        }
+        T typedVehicle = vehicleType.cast(vehicle);
+        long sequence = lastSequence.incrementAndGet();
+        vehicleDatabase.put(vehicle.getVehicleId(), new StoredVehicle<>(sequence, 1, typedVehicle));
+        vehiclesInSaveOrder.put(sequence, typedVehicle);
+        vehiclesInIdOrder.put(vehicle.getVehicleId(), typedVehicle);
+        for (VehicleIndex<T> index : indexes) {
+            index.add(typedVehicle);
+        }
+        return true;
+    }
+
+    /**
+     * Updates an existing vehicle in the database, keeping its position in the iteration order.
+     * The vehicle is re-indexed, so attributes changed through its setters are picked up by the finders.
+     * The update is applied whatever the current version; use {@link #compareAndUpdate} to detect lost updates.
+     *
+     * @param vehicle the vehicle with updated information
+     * @return {@code true} if the vehicle was updated successfully, {@code false} otherwise
+     */
+    @Override
+    public boolean update(Vehicle vehicle) {
+        return replace(vehicle, ANY_VERSION);
+    }
+
+    /**
+     * Updates an existing vehicle only if its version is still {@code expectedVersion}.
+     * The vehicle's write lock is only held while the version is compared and the vehicle swapped in,
+     * never while the caller prepares the change.
+     *
+     * @param vehicle the vehicle with updated information
+     * @param expectedVersion the version the update is based on
+     * @return {@code true} if the vehicle was updated, {@code false} if it does not exist, has the wrong type
+     *         or its version changed
+     */
+    @Override
+    public boolean compareAndUpdate(Vehicle vehicle, long expectedVersion) {
+        return replace(vehicle, expectedVersion);
+    }
+
+    /**
+     * Retrieves a vehicle together with its current version.
+     *
+     * @param vehicleId the ID of the vehicle to retrieve
+     * @return the vehicle and its version, or {@code null} if not found
+     */
+    @Override
+    public Versioned<Vehicle> getVersioned(String vehicleId) {
+        StoredVehicle<T> stored = vehicleId == null ? null : vehicleDatabase.get(vehicleId);
+        return stored == null ? null : new Versioned<>(stored.vehicle, stored.version);
+    }
+
+    /**
+     * Updates a batch of existing vehicles, grouped by write lock so each lock is taken once for the whole batch.
+     *
+     * @param vehicles the vehicles with updated information
+     * @return for each vehicle, whether it was updated as {@link #update(Vehicle)} would have
+     */
+    @Override
+    public BatchResult updateAll(List<? extends Vehicle> vehicles) {
+        boolean[] updated = new boolean[vehicles.size()];
+        locks.lockEachStripe(vehicles, VehicleDAO::vehicleIdOf, positions -> {
+            for (int i : positions) {
+                updated[i] = swap(vehicles.get(i), ANY_VERSION);
+            }
+        });
+        return new BatchResult(updated);
+    }
+
+    private boolean replace(Vehicle vehicle, long expectedVersion) {
+        if (!vehicleType.isInstance(vehicle)) {
+            return false;
+        }
+        Lock lock = locks.forKey(vehicle.getVehicleId());
+        lock.lock();
+        try {
+            return swap(vehicle, expectedVersion);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Replaces a stored vehicle and re-indexes it; the caller holds the vehicle's write lock
+    private boolean swap(Vehicle vehicle, long expectedVersion) {
+        if (!vehicleType.isInstance(vehicle)) {
+            return false;
+        }
+        T typedVehicle = vehicleType.cast(vehicle);
+        StoredVehicle<T> stored = vehicleDatabase.get(vehicle.getVehicleId());
+        if (stored == null || (expectedVersion != ANY_VERSION && stored.version != expectedVersion)) {
+            return false;
+        }
+        vehicleDatabase.put(vehicle.getVehicleId(), new StoredVehicle<>(stored.sequence, stored.version + 1, typedVehicle));
+        vehiclesInSaveOrder.put(stored.sequence, typedVehicle);
+        vehiclesInIdOrder.put(vehicle.getVehicleId(), typedVehicle);
+        for (VehicleIndex<T> index : indexes) {
+            index.remove(vehicle.getVehicleId());
+            index.add(typedVehicle);
+        }
+        return true;
+    }
+
+    /**
+     * Deletes a vehicle from the database based on its ID.
+     *
+     * @param vehicleId the ID of the vehicle to delete
+     * @return {@code true} if the vehicle was deleted successfully, {@code false} otherwise
+     */
+    @Override
+    public boolean delete(String vehicleId) {
+        if (vehicleId == null) {
+            return false;
+        }
+        Lock lock = locks.forKey(vehicleId);
+        lock.lock();
+        try {
+            StoredVehicle<T> stored = vehicleDatabase.remove(vehicleId);
+            if (stored == null) {
+                return false;
+            }
+            vehiclesInSaveOrder.remove(stored.sequence);
+            vehiclesInIdOrder.remove(vehicleId);
+            for (VehicleIndex<T> index : indexes) {
+                index.remove(vehicleId);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Retrieves a vehicle by its ID.
+     *
+     * @param vehicleId the ID of the vehicle to retrieve
+     * @return the vehicle with the specified ID, or {@code null} if not found
+     */
+    @Override
+    public Vehicle getById(String vehicleId) {
+        StoredVehicle<T> stored = vehicleId == null ? null : vehicleDatabase.get(vehicleId);
+        return stored == null ? null : stored.vehicle;
+    }
+
+    /**
+     * Retrieves a list of all vehicles, in the order they were saved.
+     *
+     * @return a list of all vehicles
+     */
+    @Override
+    public List<Vehicle> getAll() {
+        return new ArrayList<>(vehiclesInSaveOrder.values());
+    }
+
+    /**
+     * Streams all vehicles lazily, in the order they were saved, without copying the store.
+     * The stream never throws {@code ConcurrentModificationException}; it reflects some of the changes made
+     * while it is consumed.
+     *
+     * @return a stream of all vehicles
+     */
+    @Override
+    public Stream<Vehicle> stream() {
+        return vehiclesInSaveOrder.values().stream().map(Vehicle.class::cast);
+    }
+
+    /**
+     * Retrieves the next page of vehicles in vehicle ID order, starting right after {@code afterVehicleId}.
+     * Only the page itself is allocated, and pages stay stable when vehicles are added or deleted elsewhere.
+     *
+     * @param afterVehicleId the ID of the last vehicle of the previous page, or {@code null} for the first page
+     * @param pageSize the maximum number of vehicles to return
+     * @return the vehicles of the page; fewer than {@code pageSize} means it is the last page
+     */
+    @Override
+    public List<Vehicle> getPage(String afterVehicleId, int pageSize) {
+        return new ArrayList<>(KeysetPaging.page(vehiclesInIdOrder, afterVehicleId, pageSize));
+    }
+
+    /**
+     * Retrieves a list of available vehicles.
+     *
+     * @return a list of available vehicles
+     */
+    @Override
+    public List<Vehicle> getAvailableVehicles() {
+        List<Vehicle> availableVehicles = new ArrayList<>();
+        for (T vehicle : vehiclesInSaveOrder.values()) {
+            if (vehicle.isAvailable()) {
+                availableVehicles.add(vehicle);
+            }
+        }
+        return availableVehicles;
+    }
+
+    /**
+     * Finds the vehicles matching all the given criteria, using word-level AND/OR operations on the bitmap indexes.
+     * Vehicles changed through their setters must be updated in this DAO before the change is searchable.
+     *
+     * @param criteria the criteria to match
+     * @return the matching vehicles
+     */
+    public List<T> findByCriteria(VehicleCriteria criteria) {
+        if (criteria == null) {
+            throw new IllegalArgumentException("Criteria cannot be null");
+        }
+        return attributeIndex.find(criteria);
+    }
+
+    /**
+     * Streams the vehicles that have no booking on any day from {@code startDate} to {@code endDate}, both inclusive.
+     * Vehicles are checked against the availability index as the stream is consumed.
+     *
+     * @param startDate the first day of the period
+     * @param endDate the last day of the period
+     * @return a stream of the vehicles free for the whole period, in the order they were saved
+     * @throws IllegalArgumentException if the end date is before the start date
+     */
+    public Stream<T> streamAvailableByDateRange(LocalDate startDate, LocalDate endDate) {
+        if (endDate.isBefore(startDate)) {
+            throw new IllegalArgumentException("End date cannot be before start date");
+        }
+        return vehiclesInSaveOrder.values().stream().filter(vehicle -> isAvailableOnDate(vehicle, startDate, endDate));
+    }
+
+    /**
+     * Checks whether a vehicle has no booking on any day from {@code startDate} to {@code endDate}, both inclusive.
+     *
+     * @param vehicle the vehicle to check
+     * @param startDate the first day of the period
+     * @param endDate the last day of the period
+     * @return {@code true} if the vehicle is free for the whole period, {@code false} otherwise
+     */
+    protected boolean isAvailableOnDate(T vehicle, LocalDate startDate, LocalDate endDate) {
+        return availabilityIndex.isAvailable(vehicle.getVehicleId(), startDate, endDate);
+    }
+
+    /**
+     * Registers a secondary index that is kept up to date on every save, update and delete.
+     * Indexes must be registered while the DAO is still empty, i.e. from the subclass constructor.
+     *
+     * @param index the index to maintain
+     */
+    void addIndex(VehicleIndex<T> index) {
+        if (!vehicleDatabase.isEmpty()) {
+            throw new IllegalStateException("Indexes must be registered before vehicles are saved");
+        }
+        indexes.add(index);
+    }
+
+    /**
+     * Adds a subclass-specific attribute to the bitmap index searched by {@link #findByCriteria(VehicleCriteria)}.
+     * Attributes must be added while the DAO is still empty, i.e. from the subclass constructor.
+     *
+     * @param attribute the attribute
+     * @param valueOf reads the value of the attribute from a vehicle
+     */
+    void addAttribute(VehicleAttribute attribute, Function<? super T, Object> valueOf) {
+        attributeIndex.addAttribute(attribute, valueOf);
+    }
+
+    /**
+     * Returns a read-only view of the stored vehicles, in the order they were saved.
+     *
+     * @return the stored vehicles
+     */
+    protected Collection<T> vehicles() {
+        return Collections.unmodifiableCollection(vehiclesInSaveOrder.values());
+    }
+
+    // Whether vehicles of this type belong in this DAO
+    boolean accepts(Vehicle vehicle) {
+        return vehicleType.isInstance(vehicle);
+    }
+
+    /**
+     * A stored vehicle together with its position in the save order and its version.
+     */
+    private static final class StoredVehicle<T> {
+        private final long sequence;
+        private final long version;
+        private final T vehicle;
+
+        private StoredVehicle(long sequence, long version, T vehicle) {
+            this.sequence = sequence;
+            this.version = version;
+            this.vehicle = vehicle;
+        }
+    }
+}
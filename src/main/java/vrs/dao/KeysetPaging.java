@@ -0,0 +1,39 @@
+package vrs.dao;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+
+/**
+ * The {@code KeysetPaging} class cuts pages out of sorted maps by key: a page starts right after the last key of
+ * the previous one, so only the page is copied, and pages stay stable when entries are added or removed elsewhere.
+ */
+final class KeysetPaging {
+
+    private KeysetPaging() {
+    }
+
+    /**
+     * Returns up to {@code pageSize} values following {@code afterKey} in key order.
+     *
+     * @param map the sorted map to page through
+     * @param afterKey the last key of the previous page, or {@code null} for the first page
+     * @param pageSize the maximum number of values to return
+     * @return the values of the page
+     * @throws IllegalArgumentException if the page size is not positive
+     */
+    static <K, V> List<V> page(NavigableMap<K, V> map, K afterKey, int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        NavigableMap<K, V> rest = afterKey == null ? map : map.tailMap(afterKey, false);
+        List<V> page = new ArrayList<>(Math.min(pageSize, 256));
+        for (V value : rest.values()) {
+            if (page.size() == pageSize) {
+                break;
+            }
+            page.add(value);
+        }
+        return page;
+    }
+}
@@ -0,0 +1,100 @@
+package vrs.dao;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * The {@code LockStripes} class maps keys, such as vehicle or customer IDs, onto a fixed set of locks.
+ * Writes to the same key always take the same lock, while writes to different keys rarely share one,
+ * so they proceed in parallel without a lock object per key.
+ */
+final class LockStripes {
+
+    private static final int DEFAULT_STRIPES = 64;
+
+    private final Lock[] locks;
+    private final int mask;
+
+    /**
+     * Creates a default number of stripes.
+     */
+    LockStripes() {
+        this(DEFAULT_STRIPES);
+    }
+
+    /**
+     * Creates at least the given number of stripes, rounded up to a power of two.
+     *
+     * @param stripes the minimum number of stripes
+     */
+    LockStripes(int stripes) {
+        if (stripes < 1) {
+            throw new IllegalArgumentException("Number of stripes must be positive");
+        }
+        int size = Integer.highestOneBit(stripes - 1) << 1;
+        if (stripes == 1) {
+            size = 1;
+        }
+        locks = new Lock[size];
+        for (int i = 0; i < size; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        mask = size - 1;
+    }
+
+    /**
+     * Returns the lock guarding the given key.
+     *
+     * @param key the key to lock
+     * @return the lock for the key
+     */
+    Lock forKey(Object key) {
+        return locks[stripeOf(key)];
+    }
+
+    /**
+     * Groups the items of a batch by the stripe of their key and runs the action once per group, with the
+     * group's lock held, so a batch takes each lock once however many of its items share it.
+     * Only one lock of these stripes is held at a time.
+     *
+     * @param items the items of the batch
+     * @param keyOf the key of an item
+     * @param action called with the positions in {@code items} of one group, in ascending order
+     */
+    <T> void lockEachStripe(List<T> items, Function<? super T, ?> keyOf, Consumer<int[]> action) {
+        int[] stripes = new int[items.size()];
+        int[] groupStarts = new int[locks.length + 1];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = stripeOf(keyOf.apply(items.get(i)));
+            groupStarts[stripes[i] + 1]++;
+        }
+        for (int s = 0; s < locks.length; s++) {
+            groupStarts[s + 1] += groupStarts[s];
+        }
+        int[] positions = new int[stripes.length];
+        int[] next = Arrays.copyOf(groupStarts, locks.length);
+        for (int i = 0; i < stripes.length; i++) {
+            positions[next[stripes[i]]++] = i;
+        }
+        for (int s = 0; s < locks.length; s++) {
+            if (groupStarts[s] == groupStarts[s + 1]) {
+                continue;
+            }
+            locks[s].lock();
+            try {
+                action.accept(Arrays.copyOfRange(positions, groupStarts[s], groupStarts[s + 1]));
+            } finally {
+                locks[s].unlock();
+            }
+        }
+    }
+
+    private int stripeOf(Object key) {
+        int hash = key == null ? 0 : key.hashCode();
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+}
@@ -1,104 +1,36 @@
 package vrs.dao;
 
+import vrs.models.enums.vehicle.othercategories.EngineType;
 import vrs.models.vehicle.Motorcycle;
-import vrs.models.vehicle.Vehicle;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * The {@code MotorcycleDAO} class implements the {@code VehicleDAO} operations specifically for {@code Motorcycle} objects.
  */
-public class MotorcycleDAO extends VehicleDAO {
+public class MotorcycleDAO extends InMemoryVehicleDAO<Motorcycle> {
 
-    private List<Motorcycle> motorcycleDatabase = new ArrayList<>();  // Simulating a database with a list
+    private final NumericRangeIndex<Motorcycle> mileageIndex = new NumericRangeIndex<>(Motorcycle::getMileage);
 
     /**
-     * Saves a new motorcycle to the database.
-     *
-     * @param vehicle the motorcycle to save
-     * @return {@code true} if the motorcycle was saved successfully, {@code false} otherwise
-     */
-    @Override
-    public boolean save(Vehicle vehicle) {
-        if (vehicle instanceof Motorcycle) {
-            motorcycleDatabase.add((Motorcycle) vehicle);
-            return true;
-        }
-        return false;
-    }
-
-    /**
-     * Updates an existing motorcycle in the database.
-     *
-     * @param vehicle the motorcycle with updated information
-     * @return {@code true} if the motorcycle was updated successfully, {@code false} otherwise
-     */
-    @Override
-    public boolean update(Vehicle vehicle) {
-        if (vehicle instanceof Motorcycle) {
-            for (int i = 0; i < motorcycleDatabase.size(); i++) {
-                if (motorcycleDatabase.get(i).getVehicleId().equals(vehicle.getVehicleId())) {
-                    motorcycleDatabase.set(i, (Motorcycle) vehicle);
-                    return true;
-                }
-            }
-        }
-        return false;
-    }
-
-    /**
-     * Deletes a motorcycle from the database based on its ID.
-     *
-     * @param vehicleId the ID of the motorcycle to delete
-     * @return {@code true} if the motorcycle was deleted successfully, {@code false} otherwise
-     */
-    @Override
-    public boolean delete(String vehicleId) {
-        return motorcycleDatabase.removeIf(motorcycle -> motorcycle.getVehicleId().equals(vehicleId));
-    }
-
-    /**
-     * Retrieves a motorcycle by its ID.
-     *
-     * @param vehicleId the ID of the motorcycle to retrieve
-     * @return the motorcycle with the specified ID, or {@code null} if not found
-     */
-    @Override
-    public Vehicle getById(String vehicleId) {
-        for (Motorcycle motorcycle : motorcycleDatabase) {
-            if (motorcycle.getVehicleId().equals(vehicleId)) {
-                return motorcycle;
-            }
-        }
-        return null;
-    }
-
-    /**
-     * Retrieves a list of all motorcycles.
-     *
-     * @return a list of all motorcycles
+     * Creates an empty motorcycle database with its own, empty availability index.
      */
-    @Override
-    public List<Vehicle> getAll() {
-        return new ArrayList<>(motorcycleDatabase);
+    public MotorcycleDAO() {
+        this(new AvailabilityIndex());
     }
 
     /**
-     * Retrieves a list of available motorcycles.
+     * Creates an empty motorcycle database that answers date-range queries from the given availability index.
      *
-     * @return a list of available motorcycles
+     * @param availabilityIndex the index of booked periods, shared with {@code BookingsDAO}
      */
-    @Override
-    public List<Vehicle> getAvailableVehicles() {
-        List<Vehicle> availableMotorcycles = new ArrayList<>();
-        for (Motorcycle motorcycle : motorcycleDatabase) {
-            if (motorcycle.isAvailable()) {
-                availableMotorcycles.add(motorcycle);
-            }
-        }
-        return availableMotorcycles;
+    public MotorcycleDAO(AvailabilityIndex availabilityIndex) {
+        super(Motorcycle.class, availabilityIndex);
+        addIndex(mileageIndex);
+        addAttribute(VehicleAttribute.ENGINE_TYPE, Motorcycle::getEngineType);
     }
 
     /**
@@ -108,13 +40,16 @@ public class MotorcycleDAO extends VehicleDAO {
      * @return a list of motorcycles with the specified engine type
      */
     public List<Motorcycle> findMotorcyclesByEngineType(String engineType) {
-        List<Motorcycle> result = new ArrayList<>();
-        for (Motorcycle motorcycle : motorcycleDatabase) {
-            if (motorcycle.getEngineType().toString().equalsIgnoreCase(engineType)) {
-                result.add(motorcycle);
+        List<EngineType> engineTypes = new ArrayList<>();
+        for (EngineType candidate : EngineType.values()) {
+            if (candidate.toString().equalsIgnoreCase(engineType)) {
+                engineTypes.add(candidate);
             }
         }
-        return result;
+        if (engineTypes.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return findByCriteria(new VehicleCriteria().withEngineTypes(engineTypes.toArray(new EngineType[0])));
     }
 
     /**
@@ -125,14 +60,18 @@ public class MotorcycleDAO extends VehicleDAO {
      * @return a list of motorcycles with mileage within the specified range
      */
     public List<Motorcycle> findMotorcyclesByMileageRange(double minMileage, double maxMileage) {
-        List<Motorcycle> result = new ArrayList<>();
-        for (Motorcycle motorcycle : motorcycleDatabase) {
-            double mileage = motorcycle.getMileage();
-            if (mileage >= minMileage && mileage <= maxMileage) {
-                result.add(motorcycle);
-            }
-        }
-        return result;
+        return mileageIndex.findInRange(minMileage, maxMileage);
+    }
+
+    /**
+     * Streams the motorcycles with mileage within the given range, lazily walking the mileage index.
+     *
+     * @param minMileage the minimum mileage
+     * @param maxMileage the maximum mileage
+     * @return a stream of motorcycles with mileage within the specified range
+     */
+    public Stream<Motorcycle> streamMotorcyclesByMileageRange(double minMileage, double maxMileage) {
+        return mileageIndex.streamInRange(minMileage, maxMileage);
     }
 
     /**
@@ -144,8 +83,8 @@ public class MotorcycleDAO extends VehicleDAO {
      */
     public List<Motorcycle> findAvailableMotorcyclesByDateRange(LocalDate startDate, LocalDate endDate) {
         List<Motorcycle> result = new ArrayList<>();
-        for (Motorcycle motorcycle : motorcycleDatabase) {
-            if (motorcycle.isAvailableOnDate(startDate, endDate)) {
+        for (Motorcycle motorcycle : vehicles()) {
+            if (isAvailableOnDate(motorcycle, startDate, endDate)) {
                 result.add(motorcycle);
             }
         }
@@ -0,0 +1,107 @@
+package vrs.dao;
+
+import vrs.models.vehicle.Vehicle;
+
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * The {@code NumericRangeIndex} class keeps vehicles sorted by a numeric attribute, so a range query costs
+ * O(log n + k) instead of a scan over every vehicle. Results are ordered by the attribute value, and vehicles
+ * with the same value keep the order in which they were indexed.
+ * <p>
+ * Queries never block and may run alongside changes. Changes to the same vehicle must not run concurrently;
+ * the owning DAO serializes them with its per-vehicle write locks.
+ *
+ * @param <T> the type of vehicle indexed
+ */
+class NumericRangeIndex<T extends Vehicle> implements VehicleIndex<T> {
+
+    private final ToDoubleFunction<T> attribute;
+    private final NavigableMap<IndexKey, T> vehiclesByValue = new ConcurrentSkipListMap<>();
+    private final Map<String, IndexKey> indexedKeys = new ConcurrentHashMap<>();
+    private final AtomicLong lastSequence = new AtomicLong();
+
+    /**
+     * Creates an empty index over the given attribute.
+     *
+     * @param attribute reads the indexed value from a vehicle
+     */
+    NumericRangeIndex(ToDoubleFunction<T> attribute) {
+        this.attribute = attribute;
+    }
+
+    @Override
+    public void add(T vehicle) {
+        IndexKey key = new IndexKey(attribute.applyAsDouble(vehicle), lastSequence.incrementAndGet());
+        vehiclesByValue.put(key, vehicle);
+        indexedKeys.put(vehicle.getVehicleId(), key);
+    }
+
+    @Override
+    public void remove(String vehicleId) {
+        IndexKey key = indexedKeys.remove(vehicleId);
+        if (key != null) {
+            vehiclesByValue.remove(key);
+        }
+    }
+
+    /**
+     * Finds the vehicles whose value lies between {@code min} and {@code max}, both inclusive.
+     * A vehicle changed through its setters but not updated in its DAO yet is only returned if its current
+     * value still matches.
+     *
+     * @param min the lowest value to include
+     * @param max the highest value to include
+     * @return the matching vehicles, ordered by value
+     */
+    List<T> findInRange(double min, double max) {
+        return streamInRange(min, max).collect(Collectors.toList());
+    }
+
+    /**
+     * Streams the vehicles whose value lies between {@code min} and {@code max}, both inclusive, lazily
+     * walking the index as the stream is consumed.
+     *
+     * @param min the lowest value to include
+     * @param max the highest value to include
+     * @return the matching vehicles, ordered by value
+     */
+    Stream<T> streamInRange(double min, double max) {
+        if (min > max) {
+            return Stream.empty();
+        }
+        IndexKey from = new IndexKey(min, Long.MIN_VALUE);
+        IndexKey to = new IndexKey(max, Long.MAX_VALUE);
+        return vehiclesByValue.subMap(from, true, to, true).values().stream().filter(vehicle -> {
+            double current = attribute.applyAsDouble(vehicle);
+            return current >= min && current <= max;
+        });
+    }
+
+    /**
+     * The position of a vehicle in the index: its value, then the order in which it was indexed.
+     */
+    private static final class IndexKey implements Comparable<IndexKey> {
+        private final double value;
+        private final long sequence;
+
+        private IndexKey(double value, long sequence) {
+            this.value = value;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(IndexKey other) {
+            int byValue = Double.compare(value, other.value);
+            return byValue != 0 ? byValue : Long.compare(sequence, other.sequence);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package vrs.dao;
+
+import vrs.models.Bookings;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The {@code ReservationResult} class reports the outcome of {@link BookingsDAO#reserve(Bookings)}:
+ * either the booking was reserved, or the period was already taken and the conflicting bookings are listed,
+ * or the booking was rejected as invalid.
+ */
+public final class ReservationResult {
+
+    /**
+     * The possible outcomes of a reservation.
+     */
+    public enum Status {
+        RESERVED,
+        CONFLICT,
+        REJECTED
+    }
+
+    private final Status status;
+    private final Bookings booking;
+    private final List<Bookings> conflictingBookings;
+
+    private ReservationResult(Status status, Bookings booking, List<Bookings> conflictingBookings) {
+        this.status = status;
+        this.booking = booking;
+        this.conflictingBookings = conflictingBookings;
+    }
+
+    /**
+     * Creates the result of a booking that was reserved.
+     *
+     * @param booking the reserved booking, with its booking ID
+     * @return the result
+     */
+    public static ReservationResult reserved(Bookings booking) {
+        return new ReservationResult(Status.RESERVED, booking, Collections.emptyList());
+    }
+
+    /**
+     * Creates the result of a booking whose period overlaps existing bookings of its vehicle.
+     *
+     * @param booking the booking that was not reserved
+     * @param conflictingBookings the overlapping bookings, in booking ID order
+     * @return the result
+     */
+    public static ReservationResult conflict(Bookings booking, List<Bookings> conflictingBookings) {
+        return new ReservationResult(Status.CONFLICT, booking, Collections.unmodifiableList(conflictingBookings));
+    }
+
+    /**
+     * Creates the result of a booking rejected as invalid, such as a null booking or one whose ID is taken.
+     *
+     * @param booking the rejected booking
+     * @return the result
+     */
+    public static ReservationResult rejected(Bookings booking) {
+        return new ReservationResult(Status.REJECTED, booking, Collections.emptyList());
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * Checks whether the booking was reserved.
+     *
+     * @return {@code true} if the booking was saved, {@code false} otherwise
+     */
+    public boolean isReserved() {
+        return status == Status.RESERVED;
+    }
+
+    /**
+     * Returns the booking that was to be reserved. A reserved booking carries its assigned booking ID.
+     *
+     * @return the booking
+     */
+    public Bookings getBooking() {
+        return booking;
+    }
+
+    /**
+     * Returns the existing bookings of the vehicle that overlap the requested period.
+     * Empty unless the status is {@link Status#CONFLICT}.
+     *
+     * @return the conflicting bookings, in booking ID order
+     */
+    public List<Bookings> getConflictingBookings() {
+        return conflictingBookings;
+    }
+
+    @Override
+    public String toString() {
+        return "ReservationResult{" +
+                "status=" + status +
+                ", bookingId=" + (booking == null ? 0 : booking.getBookingId()) +
+                ", conflictingBookings=" + conflictingBookings.size() +
+                '}';
+    }
+}
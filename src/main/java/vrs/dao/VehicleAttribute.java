@@ -0,0 +1,13 @@
+package vrs.dao;
+
+/**
+ * The {@code VehicleAttribute} enum lists the vehicle attributes with few distinct values that the vehicle DAOs
+ * keep bitmap indexes for, so they can be combined in a {@code VehicleCriteria}.
+ */
+enum VehicleAttribute {
+    FUEL_TYPE,
+    CATEGORY,
+    AVAILABILITY,
+    TRANSMISSION_TYPE,
+    ENGINE_TYPE
+}
@@ -0,0 +1,98 @@
+package vrs.dao;
+
+import vrs.models.enums.vehicle.othercategories.EngineType;
+import vrs.models.enums.vehicle.othercategories.FuelType;
+import vrs.models.interfaces.VehicleCategory;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The {@code VehicleCriteria} class describes a multi-attribute vehicle search, answered by
+ * {@link InMemoryVehicleDAO#findByCriteria(VehicleCriteria)}.
+ * A vehicle matches if, for every attribute that has criteria, its value is one of the accepted values.
+ * Calling the same method again adds more accepted values for that attribute.
+ * <p>
+ * Example: {@code new VehicleCriteria().withFuelTypes(FuelType.DIESEL, FuelType.HYBRID).withAvailability(true)}
+ * finds the available vehicles that run on diesel or are hybrids.
+ */
+public class VehicleCriteria {
+
+    private final Map<VehicleAttribute, Set<Object>> acceptedValues = new EnumMap<>(VehicleAttribute.class);
+
+    /**
+     * Accepts vehicles with any of the given fuel types.
+     *
+     * @param fuelTypes the accepted fuel types
+     * @return this criteria
+     */
+    public VehicleCriteria withFuelTypes(FuelType... fuelTypes) {
+        return accept(VehicleAttribute.FUEL_TYPE, (Object[]) fuelTypes);
+    }
+
+    /**
+     * Accepts vehicles in any of the given categories, e.g. {@code CarCategory.SUV} or {@code TruckCategory.PICKUP}.
+     *
+     * @param categories the accepted categories
+     * @return this criteria
+     */
+    public VehicleCriteria withCategories(VehicleCategory... categories) {
+        return accept(VehicleAttribute.CATEGORY, (Object[]) categories);
+    }
+
+    /**
+     * Accepts vehicles that are, or are not, currently available for rental.
+     *
+     * @param available whether the vehicles must be available
+     * @return this criteria
+     */
+    public VehicleCriteria withAvailability(boolean available) {
+        return accept(VehicleAttribute.AVAILABILITY, available);
+    }
+
+    /**
+     * Accepts cars with any of the given transmission types, ignoring case.
+     * Only cars have a transmission type, so other vehicles never match.
+     *
+     * @param transmissionTypes the accepted transmission types (e.g., Manual, Automatic)
+     * @return this criteria
+     */
+    public VehicleCriteria withTransmissionTypes(String... transmissionTypes) {
+        Object[] normalized = new Object[transmissionTypes.length];
+        for (int i = 0; i < transmissionTypes.length; i++) {
+            normalized[i] = normalizeTransmissionType(transmissionTypes[i]);
+        }
+        return accept(VehicleAttribute.TRANSMISSION_TYPE, normalized);
+    }
+
+    /**
+     * Accepts motorcycles with any of the given engine types.
+     * Only motorcycles have an engine type, so other vehicles never match.
+     *
+     * @param engineTypes the accepted engine types
+     * @return this criteria
+     */
+    public VehicleCriteria withEngineTypes(EngineType... engineTypes) {
+        return accept(VehicleAttribute.ENGINE_TYPE, (Object[]) engineTypes);
+    }
+
+    // Returns the attributes that have criteria, with their accepted values
+    Map<VehicleAttribute, Set<Object>> acceptedValues() {
+        return Collections.unmodifiableMap(acceptedValues);
+    }
+
+    // Transmission types are free text, so they are indexed and searched in upper case
+    static String normalizeTransmissionType(String transmissionType) {
+        return transmissionType == null ? null : transmissionType.toUpperCase(Locale.ROOT);
+    }
+
+    private VehicleCriteria accept(VehicleAttribute attribute, Object... values) {
+        Set<Object> accepted = acceptedValues.computeIfAbsent(attribute, a -> new HashSet<>());
+        Collections.addAll(accepted, values);
+        return this;
+    }
+}
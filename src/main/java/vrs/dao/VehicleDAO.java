@@ -2,7 +2,10 @@ package vrs.dao;
 
 import vrs.models.vehicle.Vehicle;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
 
 /**
  * The {@code VehicleDAO} class is an abstract class that defines the common operations for managing vehicles.
@@ -49,10 +52,125 @@ public abstract class VehicleDAO {
      */
     public abstract List<Vehicle> getAll();
 
+    /**
+     * Streams all vehicles lazily, without copying them into a list first.
+     *
+     * @return a stream of all vehicles
+     */
+    public abstract Stream<Vehicle> stream();
+
+    /**
+     * Retrieves the next page of vehicles in vehicle ID order, starting right after {@code afterVehicleId}.
+     * Pass the ID of the last vehicle of a page to get the next one.
+     *
+     * @param afterVehicleId the ID of the last vehicle of the previous page, or {@code null} for the first page
+     * @param pageSize the maximum number of vehicles to return
+     * @return the vehicles of the page; fewer than {@code pageSize} means it is the last page
+     */
+    public abstract List<Vehicle> getPage(String afterVehicleId, int pageSize);
+
     /**
      * Retrieves a list of available vehicles.
      *
      * @return a list of available vehicles
      */
     public abstract List<Vehicle> getAvailableVehicles();
+
+    /**
+     * Retrieves a vehicle together with its current version.
+     *
+     * @param vehicleId the ID of the vehicle to retrieve
+     * @return the vehicle and its version, or {@code null} if not found
+     */
+    public abstract Versioned<Vehicle> getVersioned(String vehicleId);
+
+    /**
+     * Updates an existing vehicle only if its version is still {@code expectedVersion}, i.e. nobody updated it
+     * since that version was read. A stale version fails at once instead of waiting for other writers.
+     *
+     * @param vehicle the vehicle with updated information
+     * @param expectedVersion the version the update is based on
+     * @return {@code true} if the vehicle was updated, {@code false} if it does not exist or its version changed
+     */
+    public abstract boolean compareAndUpdate(Vehicle vehicle, long expectedVersion);
+
+    /**
+     * Saves a batch of new vehicles. This implementation saves them one by one; in-memory DAOs override it
+     * to take each write lock once per batch.
+     *
+     * @param vehicles the vehicles to save
+     * @return for each vehicle, whether it was saved as {@link #save(Vehicle)} would have
+     */
+    public BatchResult saveAll(List<? extends Vehicle> vehicles) {
+        boolean[] saved = new boolean[vehicles.size()];
+        for (int i = 0; i < saved.length; i++) {
+            saved[i] = save(vehicles.get(i));
+        }
+        return new BatchResult(saved);
+    }
+
+    /**
+     * Updates a batch of existing vehicles. This implementation updates them one by one; in-memory DAOs
+     * override it to take each write lock once per batch.
+     *
+     * @param vehicles the vehicles with updated information
+     * @return for each vehicle, whether it was updated as {@link #update(Vehicle)} would have
+     */
+    public BatchResult updateAll(List<? extends Vehicle> vehicles) {
+        boolean[] updated = new boolean[vehicles.size()];
+        for (int i = 0; i < updated.length; i++) {
+            updated[i] = update(vehicles.get(i));
+        }
+        return new BatchResult(updated);
+    }
+
+    /**
+     * Retrieves a batch of vehicles by their IDs.
+     *
+     * @param vehicleIds the IDs of the vehicles to retrieve
+     * @return the vehicles, in the same order as their IDs, with {@code null} for an ID that is not found
+     */
+    public List<Vehicle> getByIds(List<String> vehicleIds) {
+        List<Vehicle> result = new ArrayList<>(vehicleIds.size());
+        for (String vehicleId : vehicleIds) {
+            result.add(getById(vehicleId));
+        }
+        return result;
+    }
+
+    /**
+     * Applies a change to a vehicle optimistically: reads the vehicle and its version, applies the change to a
+     * copy and tries a {@link #compareAndUpdate}, starting over with a fresh read whenever another writer got there
+     * first. The change may set fields on the copy it is given or return a new vehicle; either way the stored
+     * vehicle is left alone until the update succeeds, so every attempt starts from the latest stored state.
+     *
+     * @param vehicleId the ID of the vehicle to change
+     * @param change computes the updated vehicle from a copy of the current one
+     * @param maxAttempts the number of attempts before giving up
+     * @return {@code true} if the change was applied, {@code false} if the vehicle does not exist or every attempt
+     *         lost to a concurrent update
+     * @throws IllegalArgumentException if the change returns {@code null} or a vehicle with another ID
+     */
+    public boolean updateWithRetry(String vehicleId, UnaryOperator<Vehicle> change, int maxAttempts) {
+        for (int attempt = 0; attempt < maxAttempts; attempt++) {
+            Versioned<Vehicle> current = getVersioned(vehicleId);
+            if (current == null) {
+                return false;
+            }
+            Vehicle updated = change.apply(current.getValue().copy());
+            if (updated == null || !updated.getVehicleId().equals(vehicleId)) {
+                throw new IllegalArgumentException("A change to vehicle " + vehicleId + " must return a vehicle with the same ID");
+            }
+            if (compareAndUpdate(updated, current.getVersion())) {
+                return true;
+            }
+            Thread.onSpinWait();
+        }
+        return false;
+    }
+
+    // The key batches are grouped by, null for a missing vehicle
+    static String vehicleIdOf(Vehicle vehicle) {
+        return vehicle == null ? null : vehicle.getVehicleId();
+    }
 }
@@ -0,0 +1,27 @@
+package vrs.dao;
+
+import vrs.models.vehicle.Vehicle;
+
+/**
+ * The {@code VehicleIndex} interface is implemented by the secondary indexes that {@code InMemoryVehicleDAO}
+ * keeps up to date on every save, update and delete. An index remembers the keys it stored each vehicle under,
+ * so a vehicle whose attributes were changed through its setters can still be removed correctly.
+ *
+ * @param <T> the type of vehicle indexed
+ */
+interface VehicleIndex<T extends Vehicle> {
+
+    /**
+     * Indexes a vehicle under its current attribute values.
+     *
+     * @param vehicle the vehicle to index
+     */
+    void add(T vehicle);
+
+    /**
+     * Removes a vehicle from the index, using the keys it was indexed under.
+     *
+     * @param vehicleId the ID of the vehicle to remove
+     */
+    void remove(String vehicleId);
+}
@@ -0,0 +1,35 @@
+package vrs.dao;
+
+/**
+ * The {@code Versioned} class pairs a stored record with its version stamp, read together as one value.
+ * Versions start at 1 when a record is saved and grow by one with every update, so a writer that passes the
+ * version it read to a {@code compareAndUpdate} method only succeeds if nobody updated the record in between.
+ *
+ * @param <T> the type of record
+ */
+public final class Versioned<T> {
+
+    private final T value;
+    private final long version;
+
+    public Versioned(T value, long version) {
+        this.value = value;
+        this.version = version;
+    }
+
+    public T getValue() {
+        return value;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public String toString() {
+        return "Versioned{" +
+                "value=" + value +
+                ", version=" + version +
+                '}';
+    }
+}
@@ -0,0 +1,70 @@
+package vrs.dao.cache;
+
+/**
+ * The {@code CacheStats} class is a snapshot of the counters of a {@link TinyLfuCache}, or of a cache built on one.
+ * A lookup is either a hit or a miss; a miss either loads the value or waits for the load already under way
+ * for the same key, so there are never more loads than misses.
+ */
+public final class CacheStats {
+
+    private final long hitCount;
+    private final long missCount;
+    private final long loadCount;
+    private final long evictionCount;
+
+    public CacheStats(long hitCount, long missCount, long loadCount, long evictionCount) {
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.loadCount = loadCount;
+        this.evictionCount = evictionCount;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Returns the number of times the backing store was called, which is lower than the number of misses
+     * when concurrent misses for the same key shared one load.
+     *
+     * @return the number of loads
+     */
+    public long getLoadCount() {
+        return loadCount;
+    }
+
+    /**
+     * Returns the number of entries removed to keep the cache within its maximum size.
+     * Entries invalidated by writes are not counted.
+     *
+     * @return the number of evictions
+     */
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * Returns the share of lookups that were hits.
+     *
+     * @return the hit rate between 0 and 1, or 1 if there was no lookup yet
+     */
+    public double getHitRate() {
+        long lookups = hitCount + missCount;
+        return lookups == 0 ? 1.0 : (double) hitCount / lookups;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStats{" +
+                "hits=" + hitCount +
+                ", misses=" + missCount +
+                ", loads=" + loadCount +
+                ", evictions=" + evictionCount +
+                ", hitRate=" + String.format("%.3f", getHitRate()) +
+                '}';
+    }
+}
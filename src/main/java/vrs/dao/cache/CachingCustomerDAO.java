@@ -0,0 +1,178 @@
+package vrs.dao.cache;
+
+import vrs.dao.BatchResult;
+import vrs.dao.CustomerDAO;
+import vrs.models.Bookings;
+import vrs.models.Customer;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * The {@code CachingCustomerDAO} class puts a bounded {@link TinyLfuCache} in front of another {@code CustomerDAO},
+ * so {@link #findCustomerById(String)} only reaches storage for customers that are not among the frequently
+ * requested ones.
+ * <p>
+ * Every write goes to the backing DAO first and then invalidates the customer's entry, including writes that
+ * fail, so a failed write never leaves a stale customer behind. Listings, pages and rental histories always go
+ * to the backing DAO. The backing DAO prints its own messages; this class adds none.
+ */
+public class CachingCustomerDAO extends CustomerDAO {
+
+    private final CustomerDAO delegate;
+    private final TinyLfuCache<String, Customer> cache;
+
+    /**
+     * Creates a cache of at most {@code maximumSize} customers in front of the given DAO.
+     *
+     * @param delegate the DAO that stores the customers
+     * @param maximumSize the maximum number of cached customers
+     */
+    public CachingCustomerDAO(CustomerDAO delegate, int maximumSize) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("Customer DAO cannot be null");
+        }
+        this.delegate = delegate;
+        this.cache = new TinyLfuCache<>(maximumSize);
+    }
+
+    @Override
+    public void saveCustomer(Customer customer) {
+        try {
+            delegate.saveCustomer(customer);
+        } finally {
+            invalidate(customer);
+        }
+    }
+
+    @Override
+    public BatchResult saveCustomers(List<Customer> customers) {
+        try {
+            return delegate.saveCustomers(customers);
+        } finally {
+            customers.forEach(this::invalidate);
+        }
+    }
+
+    // Find customer by ID through the cache; concurrent misses for the same customer share one load
+    @Override
+    public Optional<Customer> findCustomerById(String customerId) {
+        if (customerId == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(cache.get(customerId, id -> delegate.findCustomerById(id).orElse(null)));
+    }
+
+    @Override
+    public void updateCustomer(Customer customer) {
+        try {
+            delegate.updateCustomer(customer);
+        } finally {
+            invalidate(customer);
+        }
+    }
+
+    @Override
+    public BatchResult updateCustomers(List<Customer> customers) {
+        try {
+            return delegate.updateCustomers(customers);
+        } finally {
+            customers.forEach(this::invalidate);
+        }
+    }
+
+    @Override
+    public void deleteCustomer(String customerId) {
+        try {
+            delegate.deleteCustomer(customerId);
+        } finally {
+            if (customerId != null) {
+                cache.invalidate(customerId);
+            }
+        }
+    }
+
+    @Override
+    public List<Customer> findAllCustomers() {
+        return delegate.findAllCustomers();
+    }
+
+    @Override
+    public Stream<Customer> streamAllCustomers() {
+        return delegate.streamAllCustomers();
+    }
+
+    @Override
+    public List<Customer> findCustomersPage(String afterCustomerId, int pageSize) {
+        return delegate.findCustomersPage(afterCustomerId, pageSize);
+    }
+
+    @Override
+    public void addBookingToCustomerHistory(String customerId, Bookings booking) {
+        try {
+            delegate.addBookingToCustomerHistory(customerId, booking);
+        } finally {
+            if (customerId != null) {
+                cache.invalidate(customerId);
+            }
+        }
+    }
+
+    @Override
+    public List<Bookings> getCustomerBookings(String customerId) {
+        return delegate.getCustomerBookings(customerId);
+    }
+
+    @Override
+    public void restoreAll(Collection<Customer> customers) {
+        try {
+            delegate.restoreAll(customers);
+        } finally {
+            cache.invalidateAll();
+        }
+    }
+
+    @Override
+    public void restoreHistory(String customerId, List<Bookings> bookings) {
+        try {
+            delegate.restoreHistory(customerId, bookings);
+        } finally {
+            cache.invalidate(customerId);
+        }
+    }
+
+    @Override
+    protected void restoreCustomer(Customer customer) {
+        restoreAll(List.of(customer));
+    }
+
+    @Override
+    protected void forgetCustomer(String customerId) {
+        if (delegate.findCustomerById(customerId).isPresent()) {
+            deleteCustomer(customerId);
+        }
+    }
+
+    /**
+     * Removes every cached customer, as after the backing store was changed without going through this DAO.
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public CacheStats getStats() {
+        return cache.getStats();
+    }
+
+    public CustomerDAO getDelegate() {
+        return delegate;
+    }
+
+    private void invalidate(Customer customer) {
+        if (customer != null) {
+            cache.invalidate(customer.getCustomerId());
+        }
+    }
+}
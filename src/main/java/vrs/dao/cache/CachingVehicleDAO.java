@@ -0,0 +1,160 @@
+package vrs.dao.cache;
+
+import vrs.dao.BatchResult;
+import vrs.dao.VehicleDAO;
+import vrs.dao.Versioned;
+import vrs.models.vehicle.Vehicle;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * The {@code CachingVehicleDAO} class puts a bounded {@link TinyLfuCache} in front of another {@code VehicleDAO},
+ * typically one backed by a database, so lookups of the most requested vehicles by ID do not reach storage.
+ * <p>
+ * Every write goes to the backing DAO first and then invalidates the vehicle's entry, so the next lookup reads
+ * the stored state. Listings, pages and versioned reads always go to the backing DAO, as they must reflect the
+ * latest writes and would only churn the cache.
+ */
+public class CachingVehicleDAO extends VehicleDAO {
+
+    private final VehicleDAO delegate;
+    private final TinyLfuCache<String, Vehicle> cache;
+
+    /**
+     * Creates a cache of at most {@code maximumSize} vehicles in front of the given DAO.
+     *
+     * @param delegate the DAO that stores the vehicles
+     * @param maximumSize the maximum number of cached vehicles
+     */
+    public CachingVehicleDAO(VehicleDAO delegate, int maximumSize) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("Vehicle DAO cannot be null");
+        }
+        this.delegate = delegate;
+        this.cache = new TinyLfuCache<>(maximumSize);
+    }
+
+    @Override
+    public boolean save(Vehicle vehicle) {
+        boolean saved = delegate.save(vehicle);
+        if (saved) {
+            cache.invalidate(vehicle.getVehicleId());
+        }
+        return saved;
+    }
+
+    @Override
+    public BatchResult saveAll(List<? extends Vehicle> vehicles) {
+        BatchResult result = delegate.saveAll(vehicles);
+        invalidateSucceeded(vehicles, result);
+        return result;
+    }
+
+    // The entry is dropped even if the update failed, since a failed update may be a stale cached vehicle
+    @Override
+    public boolean update(Vehicle vehicle) {
+        try {
+            return delegate.update(vehicle);
+        } finally {
+            invalidate(vehicle);
+        }
+    }
+
+    @Override
+    public BatchResult updateAll(List<? extends Vehicle> vehicles) {
+        try {
+            return delegate.updateAll(vehicles);
+        } finally {
+            for (Vehicle vehicle : vehicles) {
+                invalidate(vehicle);
+            }
+        }
+    }
+
+    @Override
+    public boolean compareAndUpdate(Vehicle vehicle, long expectedVersion) {
+        try {
+            return delegate.compareAndUpdate(vehicle, expectedVersion);
+        } finally {
+            invalidate(vehicle);
+        }
+    }
+
+    @Override
+    public boolean delete(String vehicleId) {
+        try {
+            return delegate.delete(vehicleId);
+        } finally {
+            if (vehicleId != null) {
+                cache.invalidate(vehicleId);
+            }
+        }
+    }
+
+    /**
+     * Retrieves a vehicle by its ID from the cache, loading it from the backing DAO on a miss.
+     * Concurrent misses for the same vehicle share one load.
+     *
+     * @param vehicleId the ID of the vehicle to retrieve
+     * @return the vehicle with the specified ID, or {@code null} if not found
+     */
+    @Override
+    public Vehicle getById(String vehicleId) {
+        return vehicleId == null ? null : cache.get(vehicleId, delegate::getById);
+    }
+
+    @Override
+    public List<Vehicle> getAll() {
+        return delegate.getAll();
+    }
+
+    @Override
+    public Stream<Vehicle> stream() {
+        return delegate.stream();
+    }
+
+    @Override
+    public List<Vehicle> getPage(String afterVehicleId, int pageSize) {
+        return delegate.getPage(afterVehicleId, pageSize);
+    }
+
+    @Override
+    public List<Vehicle> getAvailableVehicles() {
+        return delegate.getAvailableVehicles();
+    }
+
+    @Override
+    public Versioned<Vehicle> getVersioned(String vehicleId) {
+        return delegate.getVersioned(vehicleId);
+    }
+
+    /**
+     * Removes every cached vehicle, as after the backing store was changed without going through this DAO.
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public CacheStats getStats() {
+        return cache.getStats();
+    }
+
+    public VehicleDAO getDelegate() {
+        return delegate;
+    }
+
+    private void invalidate(Vehicle vehicle) {
+        if (vehicle != null) {
+            cache.invalidate(vehicle.getVehicleId());
+        }
+    }
+
+    private void invalidateSucceeded(List<? extends Vehicle> vehicles, BatchResult result) {
+        for (int i = 0; i < vehicles.size(); i++) {
+            if (result.isSuccessful(i)) {
+                cache.invalidate(vehicles.get(i).getVehicleId());
+            }
+        }
+    }
+}
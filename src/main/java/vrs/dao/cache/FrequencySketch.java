@@ -0,0 +1,84 @@
+package vrs.dao.cache;
+
+/**
+ * The {@code FrequencySketch} class estimates how often each key was accessed recently, in constant memory:
+ * a count-min sketch of 4-bit counters, four per key, packed sixteen to a {@code long}. The estimate of a key is
+ * the smallest of its four counters, so collisions can only overestimate it.
+ * <p>
+ * Once the number of recorded accesses reaches ten times the cache size, every counter is halved, so keys that
+ * were popular a while ago fade out and make room for the currently popular ones. The class is not thread-safe;
+ * the cache calls it under its policy lock.
+ */
+final class FrequencySketch {
+
+    private static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+    };
+    private static final long RESET_MASK = 0x7777777777777777L;  // Drops the bit shifted in from the next counter
+    private static final int MAX_COUNT = 15;
+
+    private final long[] table;
+    private final int counterMask;
+    private final int sampleSize;
+    private int additions;
+
+    FrequencySketch(int maximumSize) {
+        int entries = Math.min(maximumSize, 1 << 24);
+        table = new long[Integer.highestOneBit(Math.max(1, entries - 1) << 1)];  // 16 counters per entry
+        counterMask = table.length * 16 - 1;
+        sampleSize = Math.max(10, 10 * entries);
+    }
+
+    /**
+     * Returns the estimated number of recent accesses to a key, at most 15.
+     *
+     * @param hash the hash of the key
+     * @return the estimated frequency
+     */
+    int frequency(int hash) {
+        int frequency = MAX_COUNT;
+        for (int depth = 0; depth < SEEDS.length; depth++) {
+            int counter = counterOf(hash, depth);
+            frequency = Math.min(frequency, (int) ((table[counter >>> 4] >>> shiftOf(counter)) & 0xf));
+        }
+        return frequency;
+    }
+
+    /**
+     * Records an access to a key, halving every counter once enough accesses were recorded.
+     *
+     * @param hash the hash of the key
+     */
+    void increment(int hash) {
+        boolean added = false;
+        for (int depth = 0; depth < SEEDS.length; depth++) {
+            int counter = counterOf(hash, depth);
+            int slot = counter >>> 4;
+            int shift = shiftOf(counter);
+            if (((table[slot] >>> shift) & 0xf) < MAX_COUNT) {
+                table[slot] += 1L << shift;
+                added = true;
+            }
+        }
+        if (added && ++additions == sampleSize) {
+            reset();
+        }
+    }
+
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        additions /= 2;
+    }
+
+    private int counterOf(int hash, int depth) {
+        long h = (hash + SEEDS[depth]) * SEEDS[depth];
+        h ^= h >>> 32;
+        return (int) h & counterMask;
+    }
+
+    private static int shiftOf(int counter) {
+        return (counter & 15) << 2;
+    }
+}
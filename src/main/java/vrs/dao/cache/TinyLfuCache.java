@@ -0,0 +1,334 @@
+package vrs.dao.cache;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * The {@code TinyLfuCache} class is a bounded, thread-safe read-through cache with W-TinyLFU eviction.
+ * <p>
+ * New entries enter a small LRU window, about 1% of the cache. An entry pushed out of the window only replaces
+ * the least recently used entry of the main area if its key was accessed more often recently, as estimated by a
+ * {@link FrequencySketch}; otherwise the newcomer is dropped. The main area is a segmented LRU: entries hit again
+ * while on probation move to a protected segment of 80% of the main area. A burst of one-off lookups, such as a
+ * scan over the whole fleet, therefore cannot flush the popular entries.
+ * <p>
+ * Hits read a concurrent map and never block. The eviction policy is updated under a lock, which hits only try to
+ * take: if it is busy the access is not recorded, which only makes the frequency estimate slightly less precise.
+ * Concurrent misses for the same key share one load. A key invalidated while it is being loaded is not cached,
+ * so the cache never keeps a value read before the write that invalidated it. Null values are not cached.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ */
+public final class TinyLfuCache<K, V> {
+
+    private static final int WINDOW = 0;
+    private static final int PROBATION = 1;
+    private static final int PROTECTED = 2;
+
+    private final int maximumSize;
+    private final int windowMaximum;
+    private final int protectedMaximum;
+    private final Map<K, Node<K, V>> data = new ConcurrentHashMap<>();
+    private final Map<K, CompletableFuture<V>> loading = new ConcurrentHashMap<>();
+    private final ReentrantLock policyLock = new ReentrantLock();
+    private final FrequencySketch sketch;
+    private final AccessOrder<K, V> window = new AccessOrder<>();
+    private final AccessOrder<K, V> probation = new AccessOrder<>();
+    private final AccessOrder<K, V> protectedSegment = new AccessOrder<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Creates an empty cache holding at most {@code maximumSize} entries.
+     *
+     * @param maximumSize the maximum number of entries
+     * @throws IllegalArgumentException if the maximum size is not positive
+     */
+    public TinyLfuCache(int maximumSize) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("Maximum cache size must be positive");
+        }
+        this.maximumSize = maximumSize;
+        this.windowMaximum = Math.max(1, maximumSize / 100);
+        this.protectedMaximum = (int) ((maximumSize - windowMaximum) * 0.8);
+        this.sketch = new FrequencySketch(maximumSize);
+    }
+
+    /**
+     * Returns the cached value of a key, loading it on a miss. If another thread is already loading the key,
+     * waits for its result instead of loading it again.
+     *
+     * @param key the key to look up
+     * @param loader reads the value from the backing store, returning {@code null} if there is none
+     * @return the value, or {@code null} if the loader found none
+     * @throws RuntimeException whatever the loader threw, in every thread waiting for that load
+     */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        Node<K, V> node = data.get(key);
+        if (node != null) {
+            hits.increment();
+            recordHit(node);
+            return node.value;
+        }
+        misses.increment();
+        CompletableFuture<V> load = new CompletableFuture<>();
+        CompletableFuture<V> running = loading.putIfAbsent(key, load);
+        if (running != null) {
+            return await(running);
+        }
+        V value;
+        try {
+            loads.increment();
+            value = loader.apply(key);
+        } catch (RuntimeException | Error e) {
+            loading.remove(key, load);
+            load.completeExceptionally(e);
+            throw e;
+        }
+        policyLock.lock();
+        try {
+            // Only cache the value if no write invalidated the key while it was being loaded
+            if (loading.remove(key, load) && value != null) {
+                admit(key, value);
+            }
+        } finally {
+            policyLock.unlock();
+        }
+        load.complete(value);
+        return value;
+    }
+
+    /**
+     * Returns the cached value of a key without loading it or counting a lookup.
+     *
+     * @param key the key to look up
+     * @return the cached value, or {@code null} if it is not cached
+     */
+    public V getIfPresent(K key) {
+        Node<K, V> node = data.get(key);
+        return node == null ? null : node.value;
+    }
+
+    /**
+     * Removes a key, and makes any load of it that is under way return its value without caching it.
+     * Call it after every write to the backing store.
+     *
+     * @param key the key to remove
+     */
+    public void invalidate(K key) {
+        policyLock.lock();
+        try {
+            loading.remove(key);
+            Node<K, V> node = data.remove(key);
+            if (node != null) {
+                queueOf(node).remove(node);
+                node.removed = true;
+            }
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    /**
+     * Removes every entry, as after a bulk change to the backing store.
+     */
+    public void invalidateAll() {
+        policyLock.lock();
+        try {
+            loading.clear();
+            data.clear();
+            window.clear();
+            probation.clear();
+            protectedSegment.clear();
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    public int size() {
+        return data.size();
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    public CacheStats getStats() {
+        return new CacheStats(hits.sum(), misses.sum(), loads.sum(), evictions.sum());
+    }
+
+    private static <V> V await(CompletableFuture<V> load) {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private void recordHit(Node<K, V> node) {
+        if (!policyLock.tryLock()) {
+            return;
+        }
+        try {
+            if (node.removed) {
+                return;
+            }
+            sketch.increment(node.hash);
+            if (node.queue == PROBATION) {
+                probation.remove(node);
+                node.queue = PROTECTED;
+                protectedSegment.addLast(node);
+                if (protectedSegment.size > protectedMaximum) {
+                    Node<K, V> demoted = protectedSegment.removeFirst();
+                    demoted.queue = PROBATION;
+                    probation.addLast(demoted);
+                }
+            } else {
+                queueOf(node).moveToLast(node);
+            }
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    // Adds a loaded value to the window and lets the entry leaving the window compete for the main area;
+    // the caller holds the policy lock
+    private void admit(K key, V value) {
+        Node<K, V> existing = data.get(key);
+        if (existing != null) {
+            // Another load of the key finished after this one missed; keep its entry, with the newer value
+            existing.value = value;
+            sketch.increment(existing.hash);
+            queueOf(existing).moveToLast(existing);
+            return;
+        }
+        Node<K, V> node = new Node<>(key, value, spread(key.hashCode()));
+        sketch.increment(node.hash);
+        data.put(key, node);
+        window.addLast(node);
+        if (window.size <= windowMaximum) {
+            return;
+        }
+        Node<K, V> candidate = window.removeFirst();
+        if (data.size() <= maximumSize) {
+            candidate.queue = PROBATION;
+            probation.addLast(candidate);
+            return;
+        }
+        Node<K, V> victim = probation.size > 0 ? probation.first() : protectedSegment.first();
+        if (victim != null && sketch.frequency(candidate.hash) > sketch.frequency(victim.hash)) {
+            evict(victim);
+            candidate.queue = PROBATION;
+            probation.addLast(candidate);
+        } else {
+            evict(candidate);
+        }
+    }
+
+    private void evict(Node<K, V> node) {
+        if (node.queue != WINDOW) {
+            queueOf(node).remove(node);
+        }
+        node.removed = true;
+        data.remove(node.key, node);
+        evictions.increment();
+    }
+
+    private AccessOrder<K, V> queueOf(Node<K, V> node) {
+        switch (node.queue) {
+            case WINDOW:
+                return window;
+            case PROBATION:
+                return probation;
+            default:
+                return protectedSegment;
+        }
+    }
+
+    private static int spread(int hash) {
+        int h = hash * 0x9e3779b9;
+        return h ^ (h >>> 16);
+    }
+
+    private static final class Node<K, V> {
+        final K key;
+        volatile V value;
+        final int hash;
+        int queue = WINDOW;
+        boolean removed;
+        Node<K, V> previous;
+        Node<K, V> next;
+
+        Node(K key, V value, int hash) {
+            this.key = key;
+            this.value = value;
+            this.hash = hash;
+        }
+    }
+
+    // A doubly linked list of entries from least to most recently used, linked through the entries themselves
+    private static final class AccessOrder<K, V> {
+        private final Node<K, V> head = new Node<>(null, null, 0);
+        int size;
+
+        AccessOrder() {
+            head.previous = head;
+            head.next = head;
+        }
+
+        Node<K, V> first() {
+            return size == 0 ? null : head.next;
+        }
+
+        void addLast(Node<K, V> node) {
+            node.previous = head.previous;
+            node.next = head;
+            head.previous.next = node;
+            head.previous = node;
+            size++;
+        }
+
+        Node<K, V> removeFirst() {
+            Node<K, V> first = head.next;
+            remove(first);
+            return first;
+        }
+
+        void remove(Node<K, V> node) {
+            node.previous.next = node.next;
+            node.next.previous = node.previous;
+            node.previous = null;
+            node.next = null;
+            size--;
+        }
+
+        void moveToLast(Node<K, V> node) {
+            remove(node);
+            addLast(node);
+        }
+
+        void clear() {
+            for (Node<K, V> node = head.next; node != head; node = node.next) {
+                node.removed = true;
+            }
+            head.previous = head;
+            head.next = head;
+            size = 0;
+        }
+    }
+}
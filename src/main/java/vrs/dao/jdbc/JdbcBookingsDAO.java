@@ -0,0 +1,575 @@
+package vrs.dao.jdbc;
+
+import vrs.dao.BatchResult;
+import vrs.dao.BookingsDAO;
+import vrs.dao.ReservationResult;
+import vrs.dao.Versioned;
+import vrs.models.Bookings;
+import vrs.models.Customer;
+import vrs.models.others.Brand;
+import vrs.models.vehicle.Vehicle;
+
+import java.sql.BatchUpdateException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * The {@code JdbcBookingsDAO} class is a {@code BookingsDAO} that stores bookings in the {@code booking} table of a
+ * relational database, with the IDs of their vehicle and customer. Bookings are read back joined with their vehicle
+ * and customer rows, so both must be stored in the same database: a booking whose vehicle or customer is not stored
+ * is not saved, and a vehicle or customer with bookings cannot be deleted. Lookups by vehicle, by customer and by
+ * rental period use the indexes created by {@link JdbcSchema}.
+ * <p>
+ * {@link #reserve(Bookings)} locks the row of the booking's vehicle for the duration of its transaction, so
+ * reservations for the same vehicle wait for each other while other vehicles stay bookable in parallel.
+ * The overlap check is a query on the booking table: the in-memory availability index of {@link BookingsDAO}
+ * is not maintained by this DAO, and neither are its change hooks called, as the database is the persistent store.
+ */
+public class JdbcBookingsDAO extends BookingsDAO {
+
+    private static final int STREAM_PAGE_SIZE = 500;
+
+    private static final String INSERT = "INSERT INTO booking (booking_id, vehicle_id, customer_id, rental_date, return_date, version) "
+            + "VALUES (?, ?, ?, ?, ?, 1)";
+    private static final String UPDATE = "UPDATE booking SET vehicle_id = ?, customer_id = ?, rental_date = ?, return_date = ?, "
+            + "version = version + 1 WHERE booking_id = ?";
+    private static final String COMPARE_AND_UPDATE = UPDATE + " AND version = ?";
+    private static final String DELETE = "DELETE FROM booking WHERE booking_id = ?";
+    private static final String COMPARE_AND_DELETE = DELETE + " AND version = ?";
+    private static final String DELETE_FIRST_FOR_PAIR = "DELETE FROM booking WHERE booking_id = "
+            + "(SELECT MIN(booking_id) FROM booking WHERE vehicle_id = ? AND customer_id = ?)";
+    private static final String EXISTS = "SELECT 1 FROM booking WHERE booking_id = ?";
+    private static final String EXISTS_FOR_PAIR = "SELECT 1 FROM booking WHERE vehicle_id = ? AND customer_id = ? LIMIT 1";
+    private static final String ANY_BOOKING = "SELECT 1 FROM booking LIMIT 1";
+    private static final String MAX_BOOKING_ID = "SELECT COALESCE(MAX(booking_id), 0) FROM booking";
+    private static final String FIND_EQUAL = "SELECT MIN(booking_id) FROM booking "
+            + "WHERE vehicle_id = ? AND customer_id = ? AND rental_date = ? AND return_date = ?";
+    private static final String LOCK_VEHICLE = "SELECT vehicle_id FROM vehicle WHERE vehicle_id = ? FOR UPDATE";
+    private static final String SELECT_BY_ID = JdbcRows.SELECT_BOOKINGS + " WHERE b.booking_id = ?";
+    private static final String SELECT_ALL = JdbcRows.SELECT_BOOKINGS + " ORDER BY b.booking_id";
+    private static final String SELECT_PAGE = JdbcRows.SELECT_BOOKINGS + " WHERE b.booking_id > ? ORDER BY b.booking_id LIMIT ?";
+    private static final String SELECT_BY_VEHICLE = JdbcRows.SELECT_BOOKINGS + " WHERE b.vehicle_id = ? ORDER BY b.booking_id";
+    private static final String SELECT_BY_CUSTOMER = JdbcRows.SELECT_BOOKINGS + " WHERE b.customer_id = ? ORDER BY b.booking_id";
+    private static final String SELECT_FIRST_FOR_PAIR = JdbcRows.SELECT_BOOKINGS
+            + " WHERE b.vehicle_id = ? AND b.customer_id = ? ORDER BY b.booking_id LIMIT 1";
+    private static final String SELECT_OVERLAPPING = JdbcRows.SELECT_BOOKINGS
+            + " WHERE b.vehicle_id = ? AND b.rental_date < ? AND b.return_date > ? ORDER BY b.booking_id";
+
+    private final JdbcConnectionPool pool;
+    private final Map<String, Brand> brands = new ConcurrentHashMap<>();
+    private final AtomicLong lastBookingId;
+
+    /**
+     * Creates a DAO over the {@code booking} table of the pooled database, which must already have the schema.
+     * New bookings are numbered after the highest booking ID already stored.
+     *
+     * @param pool the connections to the database
+     * @throws SQLException if the highest booking ID cannot be read
+     */
+    public JdbcBookingsDAO(JdbcConnectionPool pool) throws SQLException {
+        if (pool == null) {
+            throw new IllegalArgumentException("Connection pool cannot be null");
+        }
+        this.pool = pool;
+        try (JdbcConnectionPool.Lease lease = pool.lease();
+             ResultSet row = lease.prepare(MAX_BOOKING_ID).executeQuery()) {
+            row.next();
+            this.lastBookingId = new AtomicLong(row.getLong(1));
+        }
+    }
+
+    @Override
+    public boolean save(Bookings booking) {
+        if (booking == null) {
+            return false;
+        }
+        assignId(booking);
+        try (JdbcConnectionPool.Lease lease = pool.lease()) {
+            return insert(lease, booking);
+        } catch (SQLException e) {
+            throw JdbcRows.databaseError("saving booking " + booking.getBookingId(), e);
+        }
+    }
+
+    /**
+     * Saves a batch of new bookings as one JDBC batch in one transaction. Bookings whose ID is already stored,
+     * or repeated within the batch, are left out of the batch; should another writer insert one of the IDs
+     * meanwhile, the batch is rolled back and the bookings are saved one by one instead.
+     *
+     * @param bookings the bookings to save
+     * @return for each booking, whether it was saved as {@link #save(Bookings)} would have
+     */
+    @Override
+    public BatchResult saveAll(List<Bookings> bookings) {
+        for (Bookings booking : bookings) {
+            if (booking != null) {
+                assignId(booking);
+            }
+        }
+        boolean[] saved = new boolean[bookings.size()];
+        try (JdbcConnectionPool.Lease lease = pool.lease()) {
+            lease.connection().setAutoCommit(false);
+            PreparedStatement exists = lease.prepare(EXISTS);
+            PreparedStatement insert = lease.prepare(INSERT);
+            Set<Long> batchIds = new HashSet<>();
+            for (int i = 0; i < saved.length; i++) {
+                Bookings booking = bookings.get(i);
+                if (booking == null || !batchIds.add(booking.getBookingId()) || exists(exists, booking.getBookingId())) {
+                    continue;
+                }
+                bindInsert(insert, booking);
+                insert.addBatch();
+                saved[i] = true;
+            }
+            try {
+                insert.executeBatch();
+                lease.connection().commit();
+            } catch (BatchUpdateException e) {
+                lease.connection().rollback();
+                lease.connection().setAutoCommit(true);
+                for (int i = 0; i < saved.length; i++) {
+                    saved[i] = saved[i] && insert(lease, bookings.get(i));
+                }
+            }
+        } catch (SQLException e) {
+            throw JdbcRows.databaseError("saving a batch of bookings", e);
+        }
+        return BatchResult.of(saved);
+    }
+
+    /**
+     * Saves a new booking only if its vehicle has no other booking overlapping its rental period. The vehicle's
+     * row is locked while its bookings are checked and the new one inserted, in one transaction.
+     *
+     * @param booking the booking to reserve
+     * @return the outcome, with the conflicting bookings if the period is taken; a booking whose vehicle is not
+     *         stored in the database is rejected
+     */
+    @Override
+    public ReservationResult reserve(Bookings booking) {
+        if (booking == null) {
+            return ReservationResult.rejected(null);
+        }
+        try (JdbcConnectionPool.Lease lease = pool.lease()) {
+            if (booking.getBookingId() != 0 && exists(lease.prepare(EXISTS), booking.getBookingId())) {
+                return ReservationResult.rejected(booking);
+            }
+            lease.connection().setAutoCommit(false);
+            PreparedStatement lockVehicle = lease.prepare(LOCK_VEHICLE);
+            lockVehicle.setString(1, booking.getVehicle().getVehicleId());
+            try (ResultSet row = lockVehicle.executeQuery()) {
+                if (!row.next()) {
+                    return ReservationResult.rejected(booking);
+                }
+            }
+            List<Bookings> conflicts = overlapping(lease, booking.getVehicle(), booking.getRentalDate(), booking.getReturnDate());
+            if (!conflicts.isEmpty()) {
+                return ReservationResult.conflict(booking, conflicts);
+            }
+            assignId(booking);
+            boolean saved = insert(lease, booking);
+            lease.connection().commit();
+            return saved ? ReservationResult.reserved(booking) : ReservationResult.rejected(booking);
+        } catch (SQLException e) {
+            throw JdbcRows.databaseError("reserving vehicle " + booking.getVehicle().getVehicleId(), e);
+        }
+    }
+
+    /**
+     * Loads bookings in bulk into an empty table, as one JDBC batch in one transaction.
+     *
+     * @param bookings the bookings to load, with their booking IDs
+     * @throws IllegalStateException if the table is not empty
+     */
+    @Override
+    public void restoreAll(Collection<Bookings> bookings) {
+        try (JdbcConnectionPool.Lease lease = pool.lease()) {
+            try (ResultSet row = lease.prepare(ANY_BOOKING).executeQuery()) {
+                if (row.next()) {
+                    throw new IllegalStateException("Bookings can only be restored into an empty database");
+                }
+            }
+            lease.connection().setAutoCommit(false);
+            PreparedStatement insert = lease.prepare(INSERT);
+            for (Bookings booking : bookings) {
+                if (booking.getBookingId() == 0) {
+                    throw new IllegalArgumentException("Restored bookings must have a booking ID");
+                }
+                bindInsert(insert, booking);
+                insert.addBatch();
+                lastBookingId.accumulateAndGet(booking.getBookingId(), Math::max);
+            }
+            insert.executeBatch();
+            lease.connection().commit();
+        } catch (SQLException e) {
+            throw JdbcRows.databaseError("restoring bookings", e);
+        }
+    }
+
+    /**
+     * Updates an existing booking, matched by its booking ID or, if it has none, by an equal booking for the same
+     * vehicle and customer. The update is applied whatever the current version.
+     *
+     * @param booking the booking with updated information
+     * @return {@code true} if the booking was updated successfully, {@code false} otherwise
+     */
+    @Override
+    public boolean update(Bookings booking) {
+        if (booking == null) {
+            return false;
+        }
+        try (JdbcConnectionPool.Lease lease = pool.lease()) {
+            long bookingId = resolveId(lease, booking);
+            if (bookingId == 0) {
+                return false;
+            }
+            booking.setBookingId(bookingId);
+            PreparedStatement update = lease.prepare(UPDATE);
+            bindUpdate(update, booking);
+            return change(update);
+        } catch (SQLException e) {
+            throw JdbcRows.databaseError("updating booking " + booking.getBookingId(), e);
+        }
+    }
+
+    /**
+     * Updates an existing booking only if its stored version is still {@code expectedVersion}, as one conditional
+     * {@code UPDATE}.
+     *
+     * @param booking the booking with updated information
+     * @param expectedVersion the version the update is based on
+     * @return {@code true} if the booking was updated, {@code false} if it does not exist or its version changed
+     */
+    @Override
+    public boolean compareAndUpdate(Bookings booking, long expectedVersion) {
+        if (booking == null) {
+            return false;
+        }
+        try (JdbcConnectionPool.Lease lease = pool.lease()) {
+            PreparedStatement update = lease.prepare(COMPARE_AND_UPDATE);
+            bindUpdate(update, booking);
+            update.setLong(6, expectedVersion);
+            return change(update);
+        } catch (SQLException e) {
+            throw JdbcRows.databaseError("updating booking " + booking.getBookingId(), e);
+        }
+    }
+
+    /**
+     * Updates a batch of existing bookings, each matched as {@link #update(Bookings)} matches it, as one JDBC batch
+     * in one transaction.
+     *
+     * @param bookings the bookings with updated information
+     * @return for each booking, whether it was updated as {@link #update(Bookings)} would have
+     */
+    @Override
+    public BatchResult updateAll(List<Bookings> bookings) {
+        boolean[] updated = new boolean[bookings.size()];
+        List<Integer> positions = new ArrayList<>(bookings.size());
+        try (JdbcConnectionPool.Lease lease = pool.lease()) {
+            lease.connection().setAutoCommit(false);
+            PreparedStatement update = lease.prepare(UPDATE);
+            for (int i = 0; i < updated.length; i++) {
+                Bookings booking = bookings.get(i);
+                long bookingId = booking == null ? 0 : resolveId(lease, booking);
+                if (bookingId != 0) {
+                    booking.setBookingId(bookingId);
+                    bindUpdate(update, booking);
+                    update.addBatch();
+                    positions.add(i);
+                }
+            }
+            try {
+                int[] counts = update.executeBatch();
+                lease.connection().commit();
+                for (int b = 0; b < counts.length; b++) {
+                    updated[positions.get(b)] = counts[b] > 0 || counts[b] == PreparedStatement.SUCCESS_NO_INFO;
+                }
+            } catch (BatchUpdateException e) {
+                // A booking moved to a vehicle or customer that is not stored; update them one by one instead
+                lease.connection().rollback();
+                lease.connection().setAutoCommit(true);
+                update.clearBatch();
+                for (int i : positions) {
+                    bindUpdate(update, bookings.get(i));
+                    updated[i] = change(update);
+                }
+            }
+        } catch (SQLException e) {
+            throw JdbcRows.databaseError("updating a batch of bookings", e);
+        }
+        return BatchResult.of(updated);
+    }
+
+    /**
+     * Cancels the first booking, by booking ID, made by a specific customer for a specific vehicle.
+     *
+     * @param vehicle the vehicle associated with the booking
+     * @param customer the customer who made the booking
+     * @return {@code true} if the booking was canceled successfully, {@code false} otherwise
+     */
+    @Override
+    public boolean cancel(Vehicle vehicle, Customer customer) {
+        try (JdbcConnectionPool.Lease lease = pool.lease()) {
+            PreparedStatement delete = lease.prepare(DELETE_FIRST_FOR_PAIR);
+            delete.setString(1, vehicle.getVehicleId());
+            delete.setString(2, customer.getCustomerId());
+            while (delete.executeUpdate() == 0) {
+                // Canceled concurrently, try the next one if there is any
+                if (!existsForPair(lease, vehicle.getVehicleId(), customer.getCustomerId())) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (SQLException e) {
+            throw JdbcRows.databaseError("canceling a booking of vehicle " + vehicle.getVehicleId(), e);
+        }
+    }
+
+    @Override
+    public boolean cancel(long bookingId) {
+        try (JdbcConnectionPool.Lease lease = pool.lease()) {
+            PreparedStatement delete = lease.prepare(DELETE);
+            delete.setLong(1, bookingId);
+            return delete.executeUpdate() == 1;
+        } catch (SQLException e) {
+            throw JdbcRows.databaseError("canceling booking " + bookingId, e);
+        }
+    }
+
+    @Override
+    public BatchResult cancelAll(List<Versioned<Bookings>> bookings) {
+        boolean[] canceled = new boolean[bookings.size()];
+        List<Integer> positions = new ArrayList<>(bookings.size());
+        try (JdbcConnectionPool.Lease lease = pool.lease()) {
+            lease.connection().setAutoCommit(false);
+            PreparedStatement delete = lease.prepare(COMPARE_AND_DELETE);
+            for (int i = 0; i < canceled.length; i++) {
+                Versioned<Bookings> booking = bookings.get(i);
+                if (booking != null) {
+                    delete.setLong(1, booking.getValue().getBookingId());
+                    delete.setLong(2, booking.getVersion());
+                    delete.addBatch();
+                    positions.add(i);
+                }
+            }
+            int[] counts = delete.executeBatch();
+            lease.connection().commit();
+            for (int b = 0; b < counts.length; b++) {
+                canceled[positions.get(b)] = counts[b] > 0 || counts[b] == PreparedStatement.SUCCESS_NO_INFO;
+            }
+        } catch (SQLException e) {
+            throw JdbcRows.databaseError("canceling a batch of bookings", e);
+        }
+        return BatchResult.of(canceled);
+    }
+
+    @Override
+    public Bookings getById(long bookingId) {
+        Versioned<Bookings> versioned = getVersioned(bookingId);
+        return versioned == null ? null : versioned.getValue();
+    }
+
+    @Override
+    public Versioned<Bookings> getVersioned(long bookingId) {
+        try (JdbcConnectionPool.Lease lease = pool.lease()) {
+            PreparedStatement select = lease.prepare(SELECT_BY_ID);
+            select.setLong(1, bookingId);
+            try (ResultSet row = select.executeQuery()) {
+                return row.next() ? new Versioned<>(JdbcRows.readBooking(row, brands), row.getLong("booking_version")) : null;
+            }
+        } catch (SQLException e) {
+            throw JdbcRows.databaseError("reading booking " + bookingId, e);
+        }
+    }
+
+    @Override
+    public Bookings getByVehicleAndCustomer(Vehicle vehicle, String customerId) {
+        List<Bookings> first = query(SELECT_FIRST_FOR_PAIR, vehicle.getVehicleId(), customerId);
+        return first.isEmpty() ? null : first.get(0);
+    }
+
+    @Override
+    public List<Bookings> getAll() {
+        return query(SELECT_ALL);
+    }
+
+    /**
+     * Streams all bookings in booking ID order, fetching them a page at a time as the stream is consumed.
+     *
+     * @return a stream of all bookings
+     */
+    @Override
+    public Stream<Bookings> stream() {
+        return JdbcRows.pagedStream(afterId -> getPage(afterId, STREAM_PAGE_SIZE), Bookings::getBookingId, 0L, STREAM_PAGE_SIZE);
+    }
+
+    @Override
+    public List<Bookings> getPage(long afterBookingId, int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        return query(SELECT_PAGE, afterBookingId, pageSize);
+    }
+
+    // The bookings of one vehicle or customer are read with a single indexed query before being streamed
+    @Override
+    public Stream<Bookings> streamBookingsByVehicle(Vehicle vehicle) {
+        return getBookingsByVehicle(vehicle).stream();
+    }
+
+    @Override
+    public Stream<Bookings> streamBookingsByCustomer(String customerId) {
+        return getBookingsByCustomer(customerId).stream();
+    }
+
+    @Override
+    public List<Bookings> getBookingsByVehicle(Vehicle vehicle) {
+        return query(SELECT_BY_VEHICLE, vehicle.getVehicleId());
+    }
+
+    @Override
+    public List<Bookings> getBookingsByCustomer(String customerId) {
+        return query(SELECT_BY_CUSTOMER, customerId);
+    }
+
+    @Override
+    public List<Bookings> findOverlappingBookings(Vehicle vehicle, LocalDateTime start, LocalDateTime end) {
+        try (JdbcConnectionPool.Lease lease = pool.lease()) {
+            return overlapping(lease, vehicle, start, end);
+        } catch (SQLException e) {
+            throw JdbcRows.databaseError("reading the bookings of vehicle " + vehicle.getVehicleId(), e);
+        }
+    }
+
+    @Override
+    public boolean bookingExists(Vehicle vehicle, String customerId) {
+        try (JdbcConnectionPool.Lease lease = pool.lease()) {
+            return existsForPair(lease, vehicle.getVehicleId(), customerId);
+        } catch (SQLException e) {
+            throw JdbcRows.databaseError("reading the bookings of vehicle " + vehicle.getVehicleId(), e);
+        }
+    }
+
+    private void assignId(Bookings booking) {
+        if (booking.getBookingId() == 0) {
+            booking.setBookingId(lastBookingId.incrementAndGet());
+        } else {
+            lastBookingId.accumulateAndGet(booking.getBookingId(), Math::max);
+        }
+    }
+
+    // Returns the ID of the stored booking an update applies to, or 0 if there is none
+    private static long resolveId(JdbcConnectionPool.Lease lease, Bookings booking) throws SQLException {
+        if (booking.getBookingId() != 0 && exists(lease.prepare(EXISTS), booking.getBookingId())) {
+            return booking.getBookingId();
+        }
+        PreparedStatement findEqual = lease.prepare(FIND_EQUAL);
+        findEqual.setString(1, booking.getVehicle().getVehicleId());
+        findEqual.setString(2, booking.getCustomer().getCustomerId());
+        findEqual.setObject(3, booking.getRentalDate());
+        findEqual.setObject(4, booking.getReturnDate());
+        try (ResultSet row = findEqual.executeQuery()) {
+            return row.next() ? row.getLong(1) : 0;
+        }
+    }
+
+    private List<Bookings> overlapping(JdbcConnectionPool.Lease lease, Vehicle vehicle, LocalDateTime start, LocalDateTime end)
+            throws SQLException {
+        PreparedStatement select = lease.prepare(SELECT_OVERLAPPING);
+        select.setString(1, vehicle.getVehicleId());
+        select.setObject(2, end);
+        select.setObject(3, start);
+        return read(select);
+    }
+
+    private List<Bookings> query(String sql, Object... parameters) {
+        try (JdbcConnectionPool.Lease lease = pool.lease()) {
+            PreparedStatement select = lease.prepare(sql);
+            for (int i = 0; i < parameters.length; i++) {
+                select.setObject(i + 1, parameters[i]);
+            }
+            return read(select);
+        } catch (SQLException e) {
+            throw JdbcRows.databaseError("reading bookings", e);
+        }
+    }
+
+    private List<Bookings> read(PreparedStatement select) throws SQLException {
+        List<Bookings> result = new ArrayList<>();
+        try (ResultSet row = select.executeQuery()) {
+            while (row.next()) {
+                result.add(JdbcRows.readBooking(row, brands));
+            }
+        }
+        return result;
+    }
+
+    private static boolean insert(JdbcConnectionPool.Lease lease, Bookings booking) throws SQLException {
+        PreparedStatement insert = lease.prepare(INSERT);
+        bindInsert(insert, booking);
+        try {
+            return insert.executeUpdate() == 1;
+        } catch (SQLException e) {
+            if (JdbcRows.isConstraintViolation(e)) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    // Runs an update of one booking; moving it to a vehicle or customer that is not stored changes nothing
+    private static boolean change(PreparedStatement update) throws SQLException {
+        try {
+            return update.executeUpdate() == 1;
+        } catch (SQLException e) {
+            if (JdbcRows.isConstraintViolation(e)) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    private static void bindInsert(PreparedStatement insert, Bookings booking) throws SQLException {
+        insert.setLong(1, booking.getBookingId());
+        insert.setString(2, booking.getVehicle().getVehicleId());
+        insert.setString(3, booking.getCustomer().getCustomerId());
+        insert.setObject(4, booking.getRentalDate());
+        insert.setObject(5, booking.getReturnDate());
+    }
+
+    private static void bindUpdate(PreparedStatement update, Bookings booking) throws SQLException {
+        update.setString(1, booking.getVehicle().getVehicleId());
+        update.setString(2, booking.getCustomer().getCustomerId());
+        update.setObject(3, booking.getRentalDate());
+        update.setObject(4, booking.getReturnDate());
+        update.setLong(5, booking.getBookingId());
+    }
+
+    private static boolean exists(PreparedStatement exists, long bookingId) throws SQLException {
+        exists.setLong(1, bookingId);
+        try (ResultSet row = exists.executeQuery()) {
+            return row.next();
+        }
+    }
+
+    private static boolean existsForPair(JdbcConnectionPool.Lease lease, String vehicleId, String customerId) throws SQLException {
+        PreparedStatement exists = lease.prepare(EXISTS_FOR_PAIR);
+        exists.setString(1, vehicleId);
+        exists.setString(2, customerId);
+        try (ResultSet row = exists.executeQuery()) {
+            return row.next();
+        }
+    }
+}
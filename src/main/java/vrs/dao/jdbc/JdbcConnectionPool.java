@@ -0,0 +1,183 @@
+package vrs.dao.jdbc;
+
+import java.io.Closeable;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * The {@code JdbcConnectionPool} class keeps a fixed number of open connections to one database and lends them
+ * out one at a time, so DAO calls do not pay for opening a connection. Each connection keeps its own cache of
+ * prepared statements, so a statement is parsed and planned once per connection rather than once per call.
+ * <p>
+ * A connection is borrowed with {@link #lease()} and handed back by closing the lease, typically with
+ * try-with-resources. Callers block while every connection is in use.
+ */
+public class JdbcConnectionPool implements Closeable {
+
+    private static final int STATEMENT_CACHE_SIZE = 64;
+
+    private final BlockingQueue<Lease> idle;
+    private final List<Lease> leases = new ArrayList<>();
+    private volatile boolean closed;
+
+    /**
+     * Opens {@code size} connections to the given database.
+     *
+     * @param url the JDBC URL of the database
+     * @param user the user to connect as
+     * @param password the user's password
+     * @param size the number of connections
+     * @throws SQLException if a connection cannot be opened
+     * @throws IllegalArgumentException if the size is not positive
+     */
+    public JdbcConnectionPool(String url, String user, String password, int size) throws SQLException {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Pool size must be positive");
+        }
+        idle = new ArrayBlockingQueue<>(size);
+        try {
+            for (int i = 0; i < size; i++) {
+                Lease lease = new Lease(DriverManager.getConnection(url, user, password));
+                leases.add(lease);
+                idle.add(lease);
+            }
+        } catch (SQLException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens a pool over an embedded H2 database stored in a file, which is created if it does not exist.
+     * The database runs inside this JVM, so no server is needed.
+     *
+     * @param databaseFile the database file, without H2's {@code .mv.db} extension
+     * @param size the number of connections
+     * @return the opened pool
+     * @throws SQLException if the database cannot be opened
+     */
+    public static JdbcConnectionPool openH2(Path databaseFile, int size) throws SQLException {
+        return new JdbcConnectionPool("jdbc:h2:file:" + databaseFile.toAbsolutePath() + ";LOCK_TIMEOUT=10000", "sa", "", size);
+    }
+
+    /**
+     * Borrows a connection, waiting until one is free. Close the lease to hand the connection back.
+     *
+     * @return the borrowed connection
+     * @throws SQLException if the pool is closed or the wait is interrupted
+     */
+    public Lease lease() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        try {
+            return idle.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection", e);
+        }
+    }
+
+    /**
+     * Closes every connection. Leases still out are closed as well and must not be used afterwards.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (Lease lease : leases) {
+            lease.closeConnection();
+        }
+    }
+
+    /**
+     * A borrowed connection together with its cache of prepared statements.
+     */
+    public final class Lease implements AutoCloseable {
+
+        private final Connection connection;
+        private final Map<String, PreparedStatement> statements;
+
+        private Lease(Connection connection) {
+            this.connection = connection;
+            this.statements = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                    if (size() <= STATEMENT_CACHE_SIZE) {
+                        return false;
+                    }
+                    closeQuietly(eldest.getValue());
+                    return true;
+                }
+            };
+        }
+
+        public Connection connection() {
+            return connection;
+        }
+
+        /**
+         * Returns the prepared statement for the given SQL, preparing it only the first time it is used on this
+         * connection. Parameters left over from the previous use are cleared.
+         *
+         * @param sql the SQL of the statement
+         * @return the prepared statement, owned by the lease; do not close it
+         * @throws SQLException if the statement cannot be prepared
+         */
+        public PreparedStatement prepare(String sql) throws SQLException {
+            PreparedStatement statement = statements.get(sql);
+            if (statement == null) {
+                statement = connection.prepareStatement(sql);
+                statements.put(sql, statement);
+            } else {
+                statement.clearParameters();
+                statement.clearBatch();
+            }
+            return statement;
+        }
+
+        /**
+         * Hands the connection back to the pool. A transaction left open is rolled back first.
+         */
+        @Override
+        public void close() {
+            try {
+                if (!connection.getAutoCommit()) {
+                    connection.rollback();
+                    connection.setAutoCommit(true);
+                }
+            } catch (SQLException e) {
+                System.out.println("Error resetting pooled connection: " + e.getMessage());
+            }
+            idle.offer(this);
+        }
+
+        private void closeConnection() {
+            for (PreparedStatement statement : statements.values()) {
+                closeQuietly(statement);
+            }
+            statements.clear();
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                System.out.println("Error closing pooled connection: " + e.getMessage());
+            }
+        }
+    }
+
+    private static void closeQuietly(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            // The statement is dropped either way
+        }
+    }
+}
@@ -0,0 +1,341 @@
+package vrs.dao.jdbc;
+
+import vrs.dao.BatchResult;
+import vrs.dao.CustomerDAO;
+import vrs.models.Bookings;
+import vrs.models.Customer;
+import vrs.models.others.Brand;
+
+import java.sql.BatchUpdateException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * The {@code JdbcCustomerDAO} class is a {@code CustomerDAO} that stores customers and their contact details in the
+ * {@code customer} table of a relational database; every call borrows a pooled connection.
+ * <p>
+ * Customers are read back without their rental history, which is kept as booking IDs in {@code customer_booking}
+ * and read with {@link #getCustomerBookings(String)}; bookings canceled since they were added no longer show up
+ * there. The change hooks of {@code CustomerDAO} are not called, as the database is the persistent store.
+ */
+public class JdbcCustomerDAO extends CustomerDAO {
+
+    private static final int STREAM_PAGE_SIZE = 500;
+
+    private static final String INSERT = "INSERT INTO customer (customer_id, customer_name, license_number, phone, email, home_address) "
+            + "VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE = "UPDATE customer SET customer_name = ?, license_number = ?, phone = ?, email = ?, "
+            + "home_address = ? WHERE customer_id = ?";
+    private static final String DELETE = "DELETE FROM customer WHERE customer_id = ?";
+    private static final String DELETE_HISTORY = "DELETE FROM customer_booking WHERE customer_id = ?";
+    private static final String EXISTS = "SELECT 1 FROM customer WHERE customer_id = ?";
+    private static final String SELECT = "SELECT " + JdbcRows.CUSTOMER_COLUMNS + " FROM customer c";
+    private static final String SELECT_BY_ID = SELECT + " WHERE c.customer_id = ?";
+    private static final String SELECT_ALL = SELECT + " ORDER BY c.customer_id";
+    private static final String SELECT_PAGE = SELECT + " WHERE c.customer_id > ? ORDER BY c.customer_id LIMIT ?";
+    private static final String INSERT_HISTORY = "INSERT INTO customer_booking (customer_id, booking_id) VALUES (?, ?)";
+    private static final String SELECT_HISTORY = JdbcRows.SELECT_BOOKINGS
+            + " JOIN customer_booking h ON h.booking_id = b.booking_id WHERE h.customer_id = ? ORDER BY h.history_id";
+
+    private final JdbcConnectionPool pool;
+
+    public JdbcCustomerDAO(JdbcConnectionPool pool) {
+        if (pool == null) {
+            throw new IllegalArgumentException("Connection pool cannot be null");
+        }
+        this.pool = pool;
+    }
+
+    @Override
+    public void saveCustomer(Customer customer) {
+        if (customer == null) {
+            throw new IllegalArgumentException("Customer cannot be null.");
+        }
+        try (JdbcConnectionPool.Lease lease = pool.lease()) {
+            PreparedStatement insert = lease.prepare(INSERT);
+            insert.setString(1, customer.getCustomerId());
+            JdbcRows.bindCustomer(insert, customer, 2);
+            insert.executeUpdate();
+        } catch (SQLException e) {
+            if (JdbcRows.isConstraintViolation(e)) {
+                throw new IllegalStateException("Customer with ID " + customer.getCustomerId() + " already exists.");
+            }
+            throw JdbcRows.databaseError("saving customer " + customer.getCustomerId(), e);
+        }
+        System.out.println("Customer registered successfully: " + customer);
+    }
+
+    // Register a batch of new customers as one JDBC batch in one transaction; customers already stored, or
+    // repeated within the batch, are left out. Falls back to one insert per customer if another writer races it.
+    @Override
+    public BatchResult saveCustomers(List<Customer> customers) {
+        BatchResult result = insertAll(customers);
+        System.out.println(result.getSuccessCount() + " of " + result.size() + " customers registered successfully.");
+        return result;
+    }
+
+    @Override
+    public Optional<Customer> findCustomerById(String customerId) {
+        if (customerId == null) {
+            return Optional.empty();
+        }
+        try (JdbcConnectionPool.Lease lease = pool.lease()) {
+            PreparedStatement select = lease.prepare(SELECT_BY_ID);
+            select.setString(1, customerId);
+            try (ResultSet row = select.executeQuery()) {
+                return row.next() ? Optional.of(JdbcRows.readCustomer(row)) : Optional.empty();
+            }
+        } catch (SQLException e) {
+            throw JdbcRows.databaseError("reading customer " + customerId, e);
+        }
+    }
+
+    @Override
+    public void updateCustomer(Customer customer) {
+        if (customer == null) {
+            throw new IllegalArgumentException("Customer cannot be null.");
+        }
+        int updated;
+        try (JdbcConnectionPool.Lease lease = pool.lease()) {
+            PreparedStatement update = lease.prepare(UPDATE);
+            int next = JdbcRows.bindCustomer(update, customer, 1);
+            update.setString(next, customer.getCustomerId());
+            updated = update.executeUpdate();
+        } catch (SQLException e) {
+            throw JdbcRows.databaseError("updating customer " + customer.getCustomerId(), e);
+        }
+        if (updated == 0) {
+            throw new IllegalStateException("Customer with ID " + customer.getCustomerId() + " does not exist.");
+        }
+        System.out.println("Customer updated successfully: " + customer);
+    }
+
+    // Update a batch of existing customers as one JDBC batch in one transaction
+    @Override
+    public BatchResult updateCustomers(List<Customer> customers) {
+        boolean[] updated = new boolean[customers.size()];
+        List<Integer> positions = new ArrayList<>(customers.size());
+        try (JdbcConnectionPool.Lease lease = pool.lease()) {
+            lease.connection().setAutoCommit(false);
+            PreparedStatement update = lease.prepare(UPDATE);
+            for (int i = 0; i < updated.length; i++) {
+                Customer customer = customers.get(i);
+                if (customer != null) {
+                    int next = JdbcRows.bindCustomer(update, customer, 1);
+                    update.setString(next, customer.getCustomerId());
+                    update.addBatch();
+                    positions.add(i);
+                }
+            }
+            int[] counts = update.executeBatch();
+            lease.connection().commit();
+            for (int b = 0; b < counts.length; b++) {
+                updated[positions.get(b)] = counts[b] > 0 || counts[b] == PreparedStatement.SUCCESS_NO_INFO;
+            }
+        } catch (SQLException e) {
+            throw JdbcRows.databaseError("updating a batch of customers", e);
+        }
+        BatchResult result = BatchResult.of(updated);
+        System.out.println(result.getSuccessCount() + " of " + result.size() + " customers updated successfully.");
+        return result;
+    }
+
+    // Delete a customer together with its rental history, in one transaction; a customer with bookings is kept
+    @Override
+    public void deleteCustomer(String customerId) {
+        int deleted;
+        try (JdbcConnectionPool.Lease lease = pool.lease()) {
+            lease.connection().setAutoCommit(false);
+            PreparedStatement delete = lease.prepare(DELETE);
+            delete.setString(1, customerId);
+            deleted = delete.executeUpdate();
+            PreparedStatement deleteHistory = lease.prepare(DELETE_HISTORY);
+            deleteHistory.setString(1, customerId);
+            deleteHistory.executeUpdate();
+            lease.connection().commit();
+        } catch (SQLException e) {
+            if (JdbcRows.isConstraintViolation(e)) {
+                throw new IllegalStateException("Customer with ID " + customerId + " still has bookings and cannot be deleted.", e);
+            }
+            throw JdbcRows.databaseError("deleting customer " + customerId, e);
+        }
+        if (deleted == 0) {
+            throw new IllegalStateException("Customer with ID " + customerId + " does not exist.");
+        }
+        System.out.println("Customer with ID " + customerId + " has been deleted.");
+    }
+
+    @Override
+    public List<Customer> findAllCustomers() {
+        return query(SELECT_ALL, null, 0);
+    }
+
+    // Stream all customers in customer ID order, fetching them a page at a time as the stream is consumed
+    @Override
+    public Stream<Customer> streamAllCustomers() {
+        return JdbcRows.pagedStream(afterId -> findCustomersPage(afterId, STREAM_PAGE_SIZE), Customer::getCustomerId, null, STREAM_PAGE_SIZE);
+    }
+
+    @Override
+    public List<Customer> findCustomersPage(String afterCustomerId, int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        return query(SELECT_PAGE, afterCustomerId == null ? "" : afterCustomerId, pageSize);
+    }
+
+    // Append a booking ID to a customer's rental history; the booking itself is stored by the bookings DAO
+    @Override
+    public void addBookingToCustomerHistory(String customerId, Bookings booking) {
+        try (JdbcConnectionPool.Lease lease = pool.lease()) {
+            if (customerId == null || !exists(lease.prepare(EXISTS), customerId)) {
+                throw new IllegalStateException("Customer with ID " + customerId + " not found.");
+            }
+            PreparedStatement insert = lease.prepare(INSERT_HISTORY);
+            insert.setString(1, customerId);
+            insert.setLong(2, booking.getBookingId());
+            insert.executeUpdate();
+        } catch (SQLException e) {
+            throw JdbcRows.databaseError("adding a booking to customer " + customerId, e);
+        }
+        System.out.println("Booking added to customer " + customerId + "'s history.");
+    }
+
+    @Override
+    public void restoreAll(Collection<Customer> customers) {
+        BatchResult result = insertAll(new ArrayList<>(customers));
+        if (!result.allSucceeded()) {
+            throw new IllegalStateException(result.getFailureCount() + " restored customers already exist");
+        }
+    }
+
+    @Override
+    protected void restoreCustomer(Customer customer) {
+        try (JdbcConnectionPool.Lease lease = pool.lease()) {
+            PreparedStatement update = lease.prepare(UPDATE);
+            int next = JdbcRows.bindCustomer(update, customer, 1);
+            update.setString(next, customer.getCustomerId());
+            if (update.executeUpdate() == 0) {
+                insert(lease, customer);
+            }
+        } catch (SQLException e) {
+            throw JdbcRows.databaseError("restoring customer " + customer.getCustomerId(), e);
+        }
+    }
+
+    @Override
+    protected void forgetCustomer(String customerId) {
+        try (JdbcConnectionPool.Lease lease = pool.lease()) {
+            PreparedStatement delete = lease.prepare(DELETE);
+            delete.setString(1, customerId);
+            delete.executeUpdate();
+        } catch (SQLException e) {
+            throw JdbcRows.databaseError("removing customer " + customerId, e);
+        }
+    }
+
+    // Get all bookings in a customer's rental history, in the order they were added
+    @Override
+    public List<Bookings> getCustomerBookings(String customerId) {
+        List<Bookings> result = new ArrayList<>();
+        try (JdbcConnectionPool.Lease lease = pool.lease()) {
+            if (customerId == null || !exists(lease.prepare(EXISTS), customerId)) {
+                throw new IllegalStateException("Customer with ID " + customerId + " not found.");
+            }
+            PreparedStatement select = lease.prepare(SELECT_HISTORY);
+            select.setString(1, customerId);
+            Map<String, Brand> brands = new HashMap<>();
+            try (ResultSet row = select.executeQuery()) {
+                while (row.next()) {
+                    result.add(JdbcRows.readBooking(row, brands));
+                }
+            }
+        } catch (SQLException e) {
+            throw JdbcRows.databaseError("reading the bookings of customer " + customerId, e);
+        }
+        return result;
+    }
+
+    private BatchResult insertAll(List<Customer> customers) {
+        boolean[] saved = new boolean[customers.size()];
+        try (JdbcConnectionPool.Lease lease = pool.lease()) {
+            lease.connection().setAutoCommit(false);
+            PreparedStatement exists = lease.prepare(EXISTS);
+            PreparedStatement insert = lease.prepare(INSERT);
+            Set<String> batchIds = new HashSet<>();
+            for (int i = 0; i < saved.length; i++) {
+                Customer customer = customers.get(i);
+                if (customer == null || !batchIds.add(customer.getCustomerId()) || exists(exists, customer.getCustomerId())) {
+                    continue;
+                }
+                insert.setString(1, customer.getCustomerId());
+                JdbcRows.bindCustomer(insert, customer, 2);
+                insert.addBatch();
+                saved[i] = true;
+            }
+            try {
+                insert.executeBatch();
+                lease.connection().commit();
+            } catch (BatchUpdateException e) {
+                lease.connection().rollback();
+                lease.connection().setAutoCommit(true);
+                for (int i = 0; i < saved.length; i++) {
+                    saved[i] = saved[i] && insert(lease, customers.get(i));
+                }
+            }
+        } catch (SQLException e) {
+            throw JdbcRows.databaseError("saving a batch of customers", e);
+        }
+        return BatchResult.of(saved);
+    }
+
+    private List<Customer> query(String sql, String afterCustomerId, int limit) {
+        List<Customer> result = new ArrayList<>();
+        try (JdbcConnectionPool.Lease lease = pool.lease()) {
+            PreparedStatement select = lease.prepare(sql);
+            if (afterCustomerId != null) {
+                select.setString(1, afterCustomerId);
+                select.setInt(2, limit);
+            }
+            try (ResultSet row = select.executeQuery()) {
+                while (row.next()) {
+                    result.add(JdbcRows.readCustomer(row));
+                }
+            }
+        } catch (SQLException e) {
+            throw JdbcRows.databaseError("reading customers", e);
+        }
+        return result;
+    }
+
+    private static boolean insert(JdbcConnectionPool.Lease lease, Customer customer) throws SQLException {
+        PreparedStatement insert = lease.prepare(INSERT);
+        insert.setString(1, customer.getCustomerId());
+        JdbcRows.bindCustomer(insert, customer, 2);
+        try {
+            return insert.executeUpdate() == 1;
+        } catch (SQLException e) {
+            if (JdbcRows.isConstraintViolation(e)) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    private static boolean exists(PreparedStatement exists, String customerId) throws SQLException {
+        exists.setString(1, customerId);
+        try (ResultSet row = exists.executeQuery()) {
+            return row.next();
+        }
+    }
+}
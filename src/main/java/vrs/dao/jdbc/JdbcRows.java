@@ -0,0 +1,246 @@
+package vrs.dao.jdbc;
+
+import vrs.models.Bookings;
+import vrs.models.Customer;
+import vrs.models.enums.customer.ContactType;
+import vrs.models.enums.vehicle.othercategories.EngineType;
+import vrs.models.enums.vehicle.othercategories.FuelType;
+import vrs.models.enums.vehicle.vehiclecategories.CarCategory;
+import vrs.models.enums.vehicle.vehiclecategories.MotorcycleCategory;
+import vrs.models.enums.vehicle.vehiclecategories.TruckCategory;
+import vrs.models.others.Brand;
+import vrs.models.vehicle.Car;
+import vrs.models.vehicle.Motorcycle;
+import vrs.models.vehicle.Truck;
+import vrs.models.vehicle.Vehicle;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * The {@code JdbcRows} class maps vehicles, customers and bookings to the columns of {@link JdbcSchema} and back,
+ * and holds the helpers shared by the JDBC DAOs. Queries always alias the vehicle table as {@code v}, the customer
+ * table as {@code c} and the booking table as {@code b}.
+ */
+final class JdbcRows {
+
+    static final String VEHICLE_COLUMNS = "v.vehicle_id, v.vehicle_type, v.license_plate, v.model, v.brand_name, "
+            + "v.brand_year, v.brand_country, v.fuel_type, v.category, v.base_rental_rate, v.available, "
+            + "v.seating_capacity, v.transmission_type, v.trunk_capacity, v.mileage, v.cargo_capacity, "
+            + "v.cargo_bed_size, v.axle_count, v.engine_type, v.version";
+
+    // The columns bound by bindVehicle, in order
+    static final String VEHICLE_FIELDS = "vehicle_type, license_plate, model, brand_name, brand_year, brand_country, "
+            + "fuel_type, category, base_rental_rate, available, seating_capacity, transmission_type, trunk_capacity, "
+            + "mileage, cargo_capacity, cargo_bed_size, axle_count, engine_type";
+    static final int VEHICLE_FIELD_COUNT = 18;
+
+    static final String CUSTOMER_COLUMNS = "c.customer_id, c.customer_name, c.license_number, c.phone, c.email, c.home_address";
+
+    static final String SELECT_BOOKINGS = "SELECT b.booking_id, b.rental_date, b.return_date, b.version AS booking_version, "
+            + VEHICLE_COLUMNS + ", " + CUSTOMER_COLUMNS
+            + " FROM booking b JOIN vehicle v ON v.vehicle_id = b.vehicle_id JOIN customer c ON c.customer_id = b.customer_id";
+
+    private static final String CAR = "CAR";
+    private static final String TRUCK = "TRUCK";
+    private static final String MOTORCYCLE = "MOTORCYCLE";
+
+    private JdbcRows() {
+    }
+
+    /**
+     * Binds every vehicle column except the vehicle ID, in the order of {@link #VEHICLE_FIELDS}.
+     *
+     * @param statement the statement to bind
+     * @param vehicle the vehicle to store
+     * @param first the index of the first parameter to bind
+     * @return the index of the next parameter
+     * @throws SQLException if a parameter cannot be bound
+     * @throws IllegalArgumentException if the vehicle type is not supported
+     */
+    static int bindVehicle(PreparedStatement statement, Vehicle vehicle, int first) throws SQLException {
+        int i = first;
+        statement.setString(i++, typeOf(vehicle));
+        statement.setString(i++, vehicle.getLicensePlate());
+        statement.setString(i++, vehicle.getModel());
+        statement.setString(i++, vehicle.getBrand().getBrandName());
+        statement.setInt(i++, vehicle.getBrand().getYear());
+        statement.setString(i++, vehicle.getBrand().getCountryOfOrigin());
+        statement.setString(i++, vehicle.getFuelType().name());
+        statement.setString(i++, vehicle.getVehicleCategory() == null ? null : vehicle.getVehicleCategory().getCategoryName());
+        statement.setDouble(i++, vehicle.getBaseRentalRate());
+        statement.setBoolean(i++, vehicle.isAvailable());
+        Car car = vehicle instanceof Car ? (Car) vehicle : null;
+        Truck truck = vehicle instanceof Truck ? (Truck) vehicle : null;
+        Motorcycle motorcycle = vehicle instanceof Motorcycle ? (Motorcycle) vehicle : null;
+        setInt(statement, i++, car == null ? null : car.getSeatingCapacity());
+        statement.setString(i++, car == null ? null : car.getTransmissionType());
+        setDouble(statement, i++, car == null ? null : car.getTrunkCapacity());
+        setDouble(statement, i++, car != null ? Double.valueOf(car.getMileage())
+                : motorcycle != null ? Double.valueOf(motorcycle.getMileage()) : null);
+        setDouble(statement, i++, truck == null ? null : truck.getCargoCapacity());
+        setDouble(statement, i++, truck == null ? null : truck.getCargoBedSize());
+        setInt(statement, i++, truck == null ? null : truck.getAxleCount());
+        statement.setString(i++, motorcycle == null ? null : motorcycle.getEngineType().name());
+        return i;
+    }
+
+    /**
+     * Reads the vehicle in the {@link #VEHICLE_COLUMNS} of the current row.
+     *
+     * @param row the result set, positioned on a row
+     * @param brands the brands read so far, keyed by name, year and country, so vehicles of a brand share it
+     * @return the vehicle
+     * @throws SQLException if a column cannot be read
+     */
+    static Vehicle readVehicle(ResultSet row, Map<String, Brand> brands) throws SQLException {
+        String vehicleId = row.getString("vehicle_id");
+        String licensePlate = row.getString("license_plate");
+        String model = row.getString("model");
+        String brandName = row.getString("brand_name");
+        int brandYear = row.getInt("brand_year");
+        String brandCountry = row.getString("brand_country");
+        Brand brand = brands.computeIfAbsent(brandName + '\n' + brandYear + '\n' + brandCountry,
+                key -> new Brand(brandName, brandYear, brandCountry));
+        FuelType fuelType = FuelType.valueOf(row.getString("fuel_type"));
+        String category = row.getString("category");
+        double baseRentalRate = row.getDouble("base_rental_rate");
+        boolean available = row.getBoolean("available");
+        String type = row.getString("vehicle_type");
+        switch (type) {
+            case CAR:
+                return new Car(vehicleId, licensePlate, model, brand, fuelType,
+                        category == null ? null : CarCategory.valueOf(category), baseRentalRate, available,
+                        row.getInt("seating_capacity"), row.getString("transmission_type"),
+                        row.getDouble("trunk_capacity"), row.getDouble("mileage"));
+            case TRUCK:
+                return new Truck(vehicleId, licensePlate, model, brand, fuelType,
+                        category == null ? null : TruckCategory.valueOf(category), baseRentalRate, available,
+                        row.getDouble("cargo_capacity"), row.getDouble("cargo_bed_size"), row.getInt("axle_count"));
+            case MOTORCYCLE:
+                return new Motorcycle(vehicleId, licensePlate, model, brand, fuelType,
+                        category == null ? null : MotorcycleCategory.valueOf(category), baseRentalRate, available,
+                        EngineType.valueOf(row.getString("engine_type")), row.getDouble("mileage"));
+            default:
+                throw new SQLException("Unknown vehicle type '" + type + "' for vehicle " + vehicleId);
+        }
+    }
+
+    /**
+     * Binds the customer name, license number and contact details, in the column order of the customer table.
+     *
+     * @param statement the statement to bind
+     * @param customer the customer to store
+     * @param first the index of the first parameter to bind
+     * @return the index of the next parameter
+     * @throws SQLException if a parameter cannot be bound
+     */
+    static int bindCustomer(PreparedStatement statement, Customer customer, int first) throws SQLException {
+        Map<ContactType, String> contactInfo = customer.getContactInfo() == null ? Map.of() : customer.getContactInfo();
+        int i = first;
+        statement.setString(i++, customer.getCustomerName());
+        statement.setString(i++, customer.getLicenseNumber());
+        statement.setString(i++, contactInfo.get(ContactType.PHONE));
+        statement.setString(i++, contactInfo.get(ContactType.EMAIL));
+        statement.setString(i++, contactInfo.get(ContactType.HOMEADDRESS));
+        return i;
+    }
+
+    /**
+     * Reads the customer in the {@link #CUSTOMER_COLUMNS} of the current row, without its rental history.
+     *
+     * @param row the result set, positioned on a row
+     * @return the customer
+     * @throws SQLException if a column cannot be read
+     */
+    static Customer readCustomer(ResultSet row) throws SQLException {
+        Customer customer = new Customer(row.getString("customer_id"), row.getString("customer_name"),
+                row.getString("license_number"));
+        putContact(customer, ContactType.PHONE, row.getString("phone"));
+        putContact(customer, ContactType.EMAIL, row.getString("email"));
+        putContact(customer, ContactType.HOMEADDRESS, row.getString("home_address"));
+        return customer;
+    }
+
+    /**
+     * Reads the booking of the current row of a {@link #SELECT_BOOKINGS} query, with its vehicle and customer.
+     *
+     * @param row the result set, positioned on a row
+     * @param brands the brands read so far
+     * @return the booking
+     * @throws SQLException if a column cannot be read
+     */
+    static Bookings readBooking(ResultSet row, Map<String, Brand> brands) throws SQLException {
+        Bookings booking = new Bookings(readVehicle(row, brands), readCustomer(row),
+                row.getObject("rental_date", LocalDateTime.class), row.getObject("return_date", LocalDateTime.class));
+        booking.setBookingId(row.getLong("booking_id"));
+        return booking;
+    }
+
+    /**
+     * Streams the rows of a keyset-paged query lazily, fetching the next page only when the previous one is used up,
+     * so no connection is held while the stream is consumed.
+     *
+     * @param pageAfter fetches the page after a key
+     * @param keyOf the key of an item, used to fetch the page after it
+     * @param firstKey the key before the first item
+     * @param pageSize the number of items per page
+     * @return the stream of all items
+     */
+    static <K, T> Stream<T> pagedStream(Function<K, List<T>> pageAfter, Function<T, K> keyOf, K firstKey, int pageSize) {
+        return Stream.iterate(pageAfter.apply(firstKey), page -> !page.isEmpty(),
+                        page -> page.size() < pageSize ? List.of() : pageAfter.apply(keyOf.apply(page.get(page.size() - 1))))
+                .flatMap(List::stream);
+    }
+
+    // SQLSTATE class 23 covers primary key and other integrity constraint violations
+    static boolean isConstraintViolation(SQLException e) {
+        return e.getSQLState() != null && e.getSQLState().startsWith("23");
+    }
+
+    static IllegalStateException databaseError(String action, SQLException e) {
+        return new IllegalStateException("Database error while " + action + ": " + e.getMessage(), e);
+    }
+
+    private static String typeOf(Vehicle vehicle) {
+        if (vehicle instanceof Car) {
+            return CAR;
+        }
+        if (vehicle instanceof Truck) {
+            return TRUCK;
+        }
+        if (vehicle instanceof Motorcycle) {
+            return MOTORCYCLE;
+        }
+        throw new IllegalArgumentException("Unsupported vehicle type: " + vehicle.getClass().getName());
+    }
+
+    private static void setInt(PreparedStatement statement, int index, Integer value) throws SQLException {
+        if (value == null) {
+            statement.setNull(index, Types.INTEGER);
+        } else {
+            statement.setInt(index, value);
+        }
+    }
+
+    private static void setDouble(PreparedStatement statement, int index, Double value) throws SQLException {
+        if (value == null) {
+            statement.setNull(index, Types.DOUBLE);
+        } else {
+            statement.setDouble(index, value);
+        }
+    }
+
+    private static void putContact(Customer customer, ContactType type, String value) {
+        if (value != null) {
+            customer.getContactInfo().put(type, value);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package vrs.dao.jdbc;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * The {@code JdbcSchema} class creates the tables and indexes used by the JDBC DAOs, if they do not exist yet.
+ * <p>
+ * Cars, trucks and motorcycles share one {@code vehicle} table, with a {@code vehicle_type} column and one nullable
+ * column per type-specific attribute, so any vehicle is read with a single-row lookup and no joins. A customer's
+ * contact details are columns of the {@code customer} table, and its rental history is a list of booking IDs in
+ * {@code customer_booking}. Bookings are indexed by vehicle and rental date, by customer and by rental period.
+ * <p>
+ * A booking's vehicle and customer are foreign keys, so a vehicle or customer cannot be deleted while it still has
+ * bookings. Every stored booking can therefore be read back with its vehicle and customer, and the bookings that
+ * are listed are the same ones that count in overlap checks and in the highest booking ID. The keys are added to
+ * tables created before they existed, which fails if such a table already holds bookings of deleted vehicles or
+ * customers.
+ */
+final class JdbcSchema {
+
+    private static final String[] STATEMENTS = {
+            "CREATE TABLE IF NOT EXISTS vehicle ("
+                    + "vehicle_id VARCHAR(64) PRIMARY KEY, "
+                    + "vehicle_type VARCHAR(16) NOT NULL, "
+                    + "license_plate VARCHAR(32) NOT NULL, "
+                    + "model VARCHAR(128) NOT NULL, "
+                    + "brand_name VARCHAR(128) NOT NULL, "
+                    + "brand_year INT NOT NULL, "
+                    + "brand_country VARCHAR(128), "
+                    + "fuel_type VARCHAR(16) NOT NULL, "
+                    + "category VARCHAR(32), "
+                    + "base_rental_rate DOUBLE PRECISION NOT NULL, "
+                    + "available BOOLEAN NOT NULL, "
+                    + "seating_capacity INT, "
+                    + "transmission_type VARCHAR(16), "
+                    + "trunk_capacity DOUBLE PRECISION, "
+                    + "mileage DOUBLE PRECISION, "
+                    + "cargo_capacity DOUBLE PRECISION, "
+                    + "cargo_bed_size DOUBLE PRECISION, "
+                    + "axle_count INT, "
+                    + "engine_type VARCHAR(32), "
+                    + "version BIGINT NOT NULL)",
+            "CREATE TABLE IF NOT EXISTS customer ("
+                    + "customer_id VARCHAR(64) PRIMARY KEY, "
+                    + "customer_name VARCHAR(128) NOT NULL, "
+                    + "license_number VARCHAR(64) NOT NULL, "
+                    + "phone VARCHAR(64), "
+                    + "email VARCHAR(128), "
+                    + "home_address VARCHAR(255))",
+            "CREATE TABLE IF NOT EXISTS customer_booking ("
+                    + "history_id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, "
+                    + "customer_id VARCHAR(64) NOT NULL, "
+                    + "booking_id BIGINT NOT NULL)",
+            "CREATE TABLE IF NOT EXISTS booking ("
+                    + "booking_id BIGINT PRIMARY KEY, "
+                    + "vehicle_id VARCHAR(64) NOT NULL, "
+                    + "customer_id VARCHAR(64) NOT NULL, "
+                    + "rental_date TIMESTAMP NOT NULL, "
+                    + "return_date TIMESTAMP NOT NULL, "
+                    + "version BIGINT NOT NULL)",
+            // Vehicles may have no category; tables created before that was allowed are relaxed
+            "ALTER TABLE vehicle ALTER COLUMN category SET NULL",
+            "ALTER TABLE booking ADD CONSTRAINT IF NOT EXISTS fk_booking_vehicle "
+                    + "FOREIGN KEY (vehicle_id) REFERENCES vehicle (vehicle_id)",
+            "ALTER TABLE booking ADD CONSTRAINT IF NOT EXISTS fk_booking_customer "
+                    + "FOREIGN KEY (customer_id) REFERENCES customer (customer_id)",
+            "CREATE INDEX IF NOT EXISTS idx_vehicle_available ON vehicle (available, vehicle_id)",
+            "CREATE INDEX IF NOT EXISTS idx_customer_booking_customer ON customer_booking (customer_id, history_id)",
+            "CREATE INDEX IF NOT EXISTS idx_booking_vehicle ON booking (vehicle_id, rental_date)",
+            "CREATE INDEX IF NOT EXISTS idx_booking_customer ON booking (customer_id, booking_id)",
+            "CREATE INDEX IF NOT EXISTS idx_booking_dates ON booking (rental_date, return_date)"
+    };
+
+    private JdbcSchema() {
+    }
+
+    /**
+     * Creates the missing tables and indexes.
+     *
+     * @param pool the connections to the database
+     * @throws SQLException if the schema cannot be created
+     */
+    static void create(JdbcConnectionPool pool) throws SQLException {
+        try (JdbcConnectionPool.Lease lease = pool.lease();
+             Statement statement = lease.connection().createStatement()) {
+            for (String sql : STATEMENTS) {
+                statement.execute(sql);
+            }
+        }
+    }
+}
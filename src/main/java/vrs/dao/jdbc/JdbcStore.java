@@ -0,0 +1,81 @@
+package vrs.dao.jdbc;
+
+import java.io.Closeable;
+import java.nio.file.Path;
+import java.sql.SQLException;
+
+/**
+ * The {@code JdbcStore} class opens an embedded database, creates the missing tables and indexes, and exposes
+ * the JDBC vehicle, customer and bookings DAOs over one shared connection pool.
+ * <p>
+ * Unlike {@code DurableStore}, nothing is kept in memory or replayed on open: every DAO call reads or writes the
+ * database, so the store can be reopened on the same file at any time.
+ */
+public class JdbcStore implements Closeable {
+
+    private final JdbcConnectionPool pool;
+    private final JdbcVehicleDAO vehicleDAO;
+    private final JdbcCustomerDAO customerDAO;
+    private final JdbcBookingsDAO bookingsDAO;
+
+    private JdbcStore(JdbcConnectionPool pool) throws SQLException {
+        this.pool = pool;
+        this.vehicleDAO = new JdbcVehicleDAO(pool);
+        this.customerDAO = new JdbcCustomerDAO(pool);
+        this.bookingsDAO = new JdbcBookingsDAO(pool);
+    }
+
+    /**
+     * Opens an embedded H2 database stored in a file, creating the file and the schema if needed.
+     *
+     * @param databaseFile the database file, without H2's {@code .mv.db} extension
+     * @param poolSize the number of pooled connections
+     * @return the opened store
+     * @throws SQLException if the database cannot be opened or the schema cannot be created
+     */
+    public static JdbcStore open(Path databaseFile, int poolSize) throws SQLException {
+        return open(JdbcConnectionPool.openH2(databaseFile, poolSize));
+    }
+
+    /**
+     * Creates the missing schema in the pooled database and opens the DAOs over it. The store takes ownership
+     * of the pool and closes it when the store is closed.
+     *
+     * @param pool the connections to the database
+     * @return the opened store
+     * @throws SQLException if the schema cannot be created
+     */
+    public static JdbcStore open(JdbcConnectionPool pool) throws SQLException {
+        try {
+            JdbcSchema.create(pool);
+            return new JdbcStore(pool);
+        } catch (SQLException e) {
+            pool.close();
+            throw e;
+        }
+    }
+
+    public JdbcVehicleDAO getVehicleDAO() {
+        return vehicleDAO;
+    }
+
+    public JdbcCustomerDAO getCustomerDAO() {
+        return customerDAO;
+    }
+
+    public JdbcBookingsDAO getBookingsDAO() {
+        return bookingsDAO;
+    }
+
+    public JdbcConnectionPool getPool() {
+        return pool;
+    }
+
+    /**
+     * Closes every pooled connection; the embedded database is closed with its last connection.
+     */
+    @Override
+    public void close() {
+        pool.close();
+    }
+}
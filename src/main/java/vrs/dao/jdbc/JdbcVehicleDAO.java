@@ -0,0 +1,346 @@
+package vrs.dao.jdbc;
+
+import vrs.dao.BatchResult;
+import vrs.dao.VehicleDAO;
+import vrs.dao.Versioned;
+import vrs.models.others.Brand;
+import vrs.models.vehicle.Vehicle;
+
+import java.sql.BatchUpdateException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * The {@code JdbcVehicleDAO} class is a {@code VehicleDAO} that stores cars, trucks and motorcycles in the
+ * {@code vehicle} table of a relational database, one row per vehicle.
+ * <p>
+ * Every call borrows a pooled connection and reuses its cached prepared statements. Batches are written with
+ * JDBC batch statements in a single transaction. Vehicles are read back as new objects, so changes made to a
+ * returned vehicle are only stored by {@link #update(Vehicle)}.
+ */
+public class JdbcVehicleDAO extends VehicleDAO {
+
+    private static final int STREAM_PAGE_SIZE = 500;
+
+    private static final String INSERT = "INSERT INTO vehicle (vehicle_id, " + JdbcRows.VEHICLE_FIELDS + ", version) VALUES (?, "
+            + "?, ".repeat(JdbcRows.VEHICLE_FIELD_COUNT) + "1)";
+    private static final String UPDATE = "UPDATE vehicle SET " + JdbcRows.VEHICLE_FIELDS.replace(",", " = ?,")
+            + " = ?, version = version + 1 WHERE vehicle_id = ?";
+    private static final String COMPARE_AND_UPDATE = UPDATE + " AND version = ?";
+    private static final String DELETE = "DELETE FROM vehicle WHERE vehicle_id = ?";
+    private static final String EXISTS = "SELECT 1 FROM vehicle WHERE vehicle_id = ?";
+    private static final String SELECT = "SELECT " + JdbcRows.VEHICLE_COLUMNS + " FROM vehicle v";
+    private static final String SELECT_BY_ID = SELECT + " WHERE v.vehicle_id = ?";
+    private static final String SELECT_ALL = SELECT + " ORDER BY v.vehicle_id";
+    private static final String SELECT_PAGE = SELECT + " WHERE v.vehicle_id > ? ORDER BY v.vehicle_id LIMIT ?";
+    private static final String SELECT_AVAILABLE = SELECT + " WHERE v.available = TRUE ORDER BY v.vehicle_id";
+
+    private final JdbcConnectionPool pool;
+    private final Map<String, Brand> brands = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a DAO over the {@code vehicle} table of the pooled database, which must already have the schema.
+     *
+     * @param pool the connections to the database
+     */
+    public JdbcVehicleDAO(JdbcConnectionPool pool) {
+        if (pool == null) {
+            throw new IllegalArgumentException("Connection pool cannot be null");
+        }
+        this.pool = pool;
+    }
+
+    /**
+     * Saves a new vehicle of any type.
+     *
+     * @param vehicle the vehicle to save
+     * @return {@code true} if the vehicle was saved successfully, {@code false} if it is null or its ID already exists
+     */
+    @Override
+    public boolean save(Vehicle vehicle) {
+        if (vehicle == null) {
+            return false;
+        }
+        try (JdbcConnectionPool.Lease lease = pool.lease()) {
+            PreparedStatement insert = lease.prepare(INSERT);
+            insert.setString(1, vehicle.getVehicleId());
+            JdbcRows.bindVehicle(insert, vehicle, 2);
+            return insert.executeUpdate() == 1;
+        } catch (SQLException e) {
+            if (JdbcRows.isConstraintViolation(e)) {
+                return false;
+            }
+            throw JdbcRows.databaseError("saving vehicle " + vehicle.getVehicleId(), e);
+        }
+    }
+
+    /**
+     * Saves a batch of new vehicles as one JDBC batch in one transaction. Vehicles whose ID is already stored,
+     * or repeated within the batch, are left out of the batch; should another writer insert one of the IDs
+     * meanwhile, the batch is rolled back and the vehicles are saved one by one instead.
+     *
+     * @param vehicles the vehicles to save
+     * @return for each vehicle, whether it was saved as {@link #save(Vehicle)} would have
+     */
+    @Override
+    public BatchResult saveAll(List<? extends Vehicle> vehicles) {
+        boolean[] saved = new boolean[vehicles.size()];
+        try (JdbcConnectionPool.Lease lease = pool.lease()) {
+            lease.connection().setAutoCommit(false);
+            PreparedStatement exists = lease.prepare(EXISTS);
+            PreparedStatement insert = lease.prepare(INSERT);
+            Set<String> batchIds = new HashSet<>();
+            for (int i = 0; i < saved.length; i++) {
+                Vehicle vehicle = vehicles.get(i);
+                if (vehicle == null || !batchIds.add(vehicle.getVehicleId()) || exists(exists, vehicle.getVehicleId())) {
+                    continue;
+                }
+                insert.setString(1, vehicle.getVehicleId());
+                JdbcRows.bindVehicle(insert, vehicle, 2);
+                insert.addBatch();
+                saved[i] = true;
+            }
+            try {
+                insert.executeBatch();
+                lease.connection().commit();
+            } catch (BatchUpdateException e) {
+                lease.connection().rollback();
+                lease.connection().setAutoCommit(true);
+                for (int i = 0; i < saved.length; i++) {
+                    saved[i] = saved[i] && insert(lease, vehicles.get(i));
+                }
+            }
+        } catch (SQLException e) {
+            throw JdbcRows.databaseError("saving a batch of vehicles", e);
+        }
+        return BatchResult.of(saved);
+    }
+
+    /**
+     * Updates an existing vehicle of any type.
+     *
+     * @param vehicle the vehicle with updated information
+     * @return {@code true} if the vehicle was updated successfully, {@code false} if it is not stored
+     */
+    @Override
+    public boolean update(Vehicle vehicle) {
+        if (vehicle == null) {
+            return false;
+        }
+        try (JdbcConnectionPool.Lease lease = pool.lease()) {
+            PreparedStatement update = lease.prepare(UPDATE);
+            int next = JdbcRows.bindVehicle(update, vehicle, 1);
+            update.setString(next, vehicle.getVehicleId());
+            return update.executeUpdate() == 1;
+        } catch (SQLException e) {
+            throw JdbcRows.databaseError("updating vehicle " + vehicle.getVehicleId(), e);
+        }
+    }
+
+    /**
+     * Updates a batch of existing vehicles as one JDBC batch in one transaction.
+     *
+     * @param vehicles the vehicles with updated information
+     * @return for each vehicle, whether it was updated as {@link #update(Vehicle)} would have
+     */
+    @Override
+    public BatchResult updateAll(List<? extends Vehicle> vehicles) {
+        boolean[] updated = new boolean[vehicles.size()];
+        List<Integer> positions = new ArrayList<>(vehicles.size());
+        try (JdbcConnectionPool.Lease lease = pool.lease()) {
+            lease.connection().setAutoCommit(false);
+            PreparedStatement update = lease.prepare(UPDATE);
+            for (int i = 0; i < updated.length; i++) {
+                Vehicle vehicle = vehicles.get(i);
+                if (vehicle != null) {
+                    int next = JdbcRows.bindVehicle(update, vehicle, 1);
+                    update.setString(next, vehicle.getVehicleId());
+                    update.addBatch();
+                    positions.add(i);
+                }
+            }
+            int[] counts = update.executeBatch();
+            lease.connection().commit();
+            for (int b = 0; b < counts.length; b++) {
+                updated[positions.get(b)] = counts[b] > 0 || counts[b] == PreparedStatement.SUCCESS_NO_INFO;
+            }
+        } catch (SQLException e) {
+            throw JdbcRows.databaseError("updating a batch of vehicles", e);
+        }
+        return BatchResult.of(updated);
+    }
+
+    /**
+     * Updates an existing vehicle only if its stored version is still {@code expectedVersion}, as one conditional
+     * {@code UPDATE}, so no lock is held between reading the version and writing.
+     *
+     * @param vehicle the vehicle with updated information
+     * @param expectedVersion the version the update is based on
+     * @return {@code true} if the vehicle was updated, {@code false} if it does not exist or its version changed
+     */
+    @Override
+    public boolean compareAndUpdate(Vehicle vehicle, long expectedVersion) {
+        if (vehicle == null) {
+            return false;
+        }
+        try (JdbcConnectionPool.Lease lease = pool.lease()) {
+            PreparedStatement update = lease.prepare(COMPARE_AND_UPDATE);
+            int next = JdbcRows.bindVehicle(update, vehicle, 1);
+            update.setString(next, vehicle.getVehicleId());
+            update.setLong(next + 1, expectedVersion);
+            return update.executeUpdate() == 1;
+        } catch (SQLException e) {
+            throw JdbcRows.databaseError("updating vehicle " + vehicle.getVehicleId(), e);
+        }
+    }
+
+    @Override
+    public Versioned<Vehicle> getVersioned(String vehicleId) {
+        if (vehicleId == null) {
+            return null;
+        }
+        try (JdbcConnectionPool.Lease lease = pool.lease()) {
+            PreparedStatement select = lease.prepare(SELECT_BY_ID);
+            select.setString(1, vehicleId);
+            try (ResultSet row = select.executeQuery()) {
+                return row.next() ? new Versioned<>(JdbcRows.readVehicle(row, brands), row.getLong("version")) : null;
+            }
+        } catch (SQLException e) {
+            throw JdbcRows.databaseError("reading vehicle " + vehicleId, e);
+        }
+    }
+
+    /**
+     * Deletes a vehicle that has no bookings.
+     *
+     * @param vehicleId the ID of the vehicle to delete
+     * @return {@code true} if the vehicle was deleted, {@code false} if it does not exist
+     * @throws IllegalStateException if the vehicle still has bookings, or the database cannot be reached
+     */
+    @Override
+    public boolean delete(String vehicleId) {
+        if (vehicleId == null) {
+            return false;
+        }
+        try (JdbcConnectionPool.Lease lease = pool.lease()) {
+            PreparedStatement delete = lease.prepare(DELETE);
+            delete.setString(1, vehicleId);
+            return delete.executeUpdate() == 1;
+        } catch (SQLException e) {
+            if (JdbcRows.isConstraintViolation(e)) {
+                throw new IllegalStateException("Vehicle " + vehicleId + " still has bookings and cannot be deleted", e);
+            }
+            throw JdbcRows.databaseError("deleting vehicle " + vehicleId, e);
+        }
+    }
+
+    @Override
+    public Vehicle getById(String vehicleId) {
+        Versioned<Vehicle> versioned = getVersioned(vehicleId);
+        return versioned == null ? null : versioned.getValue();
+    }
+
+    /**
+     * Retrieves a batch of vehicles by their IDs over one borrowed connection.
+     *
+     * @param vehicleIds the IDs of the vehicles to retrieve
+     * @return the vehicles, in the same order as their IDs, with {@code null} for an ID that is not found
+     */
+    @Override
+    public List<Vehicle> getByIds(List<String> vehicleIds) {
+        List<Vehicle> result = new ArrayList<>(vehicleIds.size());
+        try (JdbcConnectionPool.Lease lease = pool.lease()) {
+            PreparedStatement select = lease.prepare(SELECT_BY_ID);
+            for (String vehicleId : vehicleIds) {
+                select.setString(1, vehicleId);
+                try (ResultSet row = select.executeQuery()) {
+                    result.add(row.next() ? JdbcRows.readVehicle(row, brands) : null);
+                }
+            }
+        } catch (SQLException e) {
+            throw JdbcRows.databaseError("reading a batch of vehicles", e);
+        }
+        return result;
+    }
+
+    /**
+     * Retrieves all vehicles, in vehicle ID order.
+     *
+     * @return a list of all vehicles
+     */
+    @Override
+    public List<Vehicle> getAll() {
+        return query(SELECT_ALL, null, 0);
+    }
+
+    /**
+     * Streams all vehicles in vehicle ID order, fetching them a page at a time as the stream is consumed.
+     *
+     * @return a stream of all vehicles
+     */
+    @Override
+    public Stream<Vehicle> stream() {
+        return JdbcRows.pagedStream(afterId -> getPage(afterId, STREAM_PAGE_SIZE), Vehicle::getVehicleId, null, STREAM_PAGE_SIZE);
+    }
+
+    @Override
+    public List<Vehicle> getPage(String afterVehicleId, int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        return query(SELECT_PAGE, afterVehicleId == null ? "" : afterVehicleId, pageSize);
+    }
+
+    @Override
+    public List<Vehicle> getAvailableVehicles() {
+        return query(SELECT_AVAILABLE, null, 0);
+    }
+
+    private List<Vehicle> query(String sql, String afterVehicleId, int limit) {
+        List<Vehicle> result = new ArrayList<>();
+        try (JdbcConnectionPool.Lease lease = pool.lease()) {
+            PreparedStatement select = lease.prepare(sql);
+            if (afterVehicleId != null) {
+                select.setString(1, afterVehicleId);
+                select.setInt(2, limit);
+            }
+            try (ResultSet row = select.executeQuery()) {
+                while (row.next()) {
+                    result.add(JdbcRows.readVehicle(row, brands));
+                }
+            }
+        } catch (SQLException e) {
+            throw JdbcRows.databaseError("reading vehicles", e);
+        }
+        return result;
+    }
+
+    private static boolean insert(JdbcConnectionPool.Lease lease, Vehicle vehicle) throws SQLException {
+        PreparedStatement insert = lease.prepare(INSERT);
+        insert.setString(1, vehicle.getVehicleId());
+        JdbcRows.bindVehicle(insert, vehicle, 2);
+        try {
+            return insert.executeUpdate() == 1;
+        } catch (SQLException e) {
+            if (JdbcRows.isConstraintViolation(e)) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    private static boolean exists(PreparedStatement exists, String vehicleId) throws SQLException {
+        exists.setString(1, vehicleId);
+        try (ResultSet row = exists.executeQuery()) {
+            return row.next();
+        }
+    }
+}
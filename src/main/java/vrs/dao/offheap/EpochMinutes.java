@@ -0,0 +1,103 @@
+package vrs.dao.offheap;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * The {@code EpochMinutes} class encodes booking times as the number of minutes since 1970-01-01T00:00, in an
+ * {@code int}. That covers about four thousand years either side of 1970, in four bytes instead of a
+ * {@code LocalDateTime} object. Rentals are booked at whole minutes, which {@link #encode} stores alone; a time
+ * with seconds is stored as its {@link #encodeFloor floor minute} and the {@link #remainderNanos remainder} past it.
+ */
+public final class EpochMinutes {
+
+    private EpochMinutes() {
+    }
+
+    /**
+     * Encodes a time that falls on a whole minute.
+     *
+     * @param time the time to encode
+     * @return the minutes since the epoch
+     * @throws IllegalArgumentException if the time has seconds or nanoseconds, or is out of range
+     */
+    public static int encode(LocalDateTime time) {
+        if (time.getSecond() != 0 || time.getNano() != 0) {
+            throw new IllegalArgumentException("Only whole minutes can be stored: " + time);
+        }
+        long minutes = time.toEpochSecond(ZoneOffset.UTC) / 60;
+        if (minutes < Integer.MIN_VALUE || minutes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Time out of range: " + time);
+        }
+        return (int) minutes;
+    }
+
+    public static LocalDateTime decode(int minutes) {
+        return LocalDateTime.ofEpochSecond(minutes * 60L, 0, ZoneOffset.UTC);
+    }
+
+    /**
+     * Decodes a time stored as its last whole minute and the remainder past it.
+     *
+     * @param minutes the minutes since the epoch, as returned by {@link #encodeFloor}
+     * @param remainderNanos the nanoseconds past that minute, as returned by {@link #remainderNanos}
+     * @return the time
+     */
+    public static LocalDateTime decode(int minutes, long remainderNanos) {
+        return decode(minutes).plusNanos(remainderNanos);
+    }
+
+    /**
+     * Encodes the last whole minute at or before a time. Together with {@link #remainderNanos} it stores any time
+     * exactly, where {@link #encode} only takes whole minutes.
+     *
+     * @param time the time to encode
+     * @return the minutes since the epoch
+     * @throws IllegalArgumentException if the time is out of range
+     */
+    public static int encodeFloor(LocalDateTime time) {
+        return encode(time.truncatedTo(ChronoUnit.MINUTES));
+    }
+
+    /**
+     * Returns the part of a time past its last whole minute.
+     *
+     * @param time the time
+     * @return the nanoseconds past the minute, from 0 to just under a minute
+     */
+    public static long remainderNanos(LocalDateTime time) {
+        return time.getSecond() * 1_000_000_000L + time.getNano();
+    }
+
+    /**
+     * Returns the last whole minute at or before a time, so that for a stored minute {@code m},
+     * {@code m > floor(t)} exactly when {@code decode(m)} is after {@code t}.
+     *
+     * @param time the time to round down
+     * @return the minutes since the epoch, saturated to the {@code int} range
+     */
+    public static int floor(LocalDateTime time) {
+        return saturate(Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), 60));
+    }
+
+    /**
+     * Returns the first whole minute at or after a time, so that for a stored minute {@code m},
+     * {@code m < ceil(t)} exactly when {@code decode(m)} is before {@code t}.
+     *
+     * @param time the time to round up
+     * @return the minutes since the epoch, saturated to the {@code int} range
+     */
+    public static int ceil(LocalDateTime time) {
+        long seconds = time.toEpochSecond(ZoneOffset.UTC);
+        long minutes = Math.floorDiv(seconds, 60);
+        if (Math.floorMod(seconds, 60) != 0 || time.getNano() != 0) {
+            minutes++;
+        }
+        return saturate(minutes);
+    }
+
+    private static int saturate(long minutes) {
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, minutes));
+    }
+}
@@ -0,0 +1,596 @@
+package vrs.dao.offheap;
+
+import vrs.dao.BatchResult;
+import vrs.dao.CustomerDAO;
+import vrs.dao.VehicleDAO;
+import vrs.models.Bookings;
+import vrs.models.Customer;
+import vrs.models.vehicle.Vehicle;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * The {@code OffHeapBookingTable} class keeps an append-only archive of bookings outside the Java heap, as
+ * fixed-width 32-byte rows in direct buffers, so years of booking history cost the garbage collector nothing.
+ * <p>
+ * A row holds the booking ID, the vehicle and customer as indexes into small on-heap dictionaries of IDs, the
+ * rental and return times as {@link EpochMinutes}, and the next row of the same vehicle and of the same customer.
+ * Those links chain each vehicle's and each customer's rows together, so their bookings are found without scanning
+ * the table. Bookings can be appended in any booking ID order; a booking is found through an open-addressing index
+ * from booking ID to row, held in two primitive arrays, so there is still no object per booking on the heap. The
+ * few times that are not on a whole minute keep the nanoseconds past their minute in a small on-heap map.
+ * <p>
+ * {@code Bookings} objects are only built when a booking is read, from the vehicle and customer currently stored
+ * in the given DAOs; overlap checks compare the encoded times first and build only the bookings they return.
+ * A booking whose vehicle or customer has been deleted since keeps its row, and counts in {@link #size()}, but
+ * is left out of reads until a vehicle or customer with that ID is stored again.
+ * The table is safe for concurrent use: appends and removals are exclusive, reads run in parallel. Reads copy the
+ * rows they need under the lock and look up vehicles and customers after releasing it, so a slow DAO never holds
+ * up appends.
+ */
+public class OffHeapBookingTable {
+
+    private static final int ROW_BYTES = 32;
+    private static final int BOOKING_ID = 0;
+    private static final int VEHICLE = 8;
+    private static final int CUSTOMER = 12;
+    private static final int RENTAL_MINUTE = 16;
+    private static final int RETURN_MINUTE = 20;
+    private static final int NEXT_BY_VEHICLE = 24;
+    private static final int NEXT_BY_CUSTOMER = 28;
+    private static final int NONE = -1;
+    private static final int DEFAULT_SEGMENT_SHIFT = 16;  // 65,536 rows, 2 MiB per segment
+
+    private final Function<String, ? extends Vehicle> vehicleLookup;
+    private final Function<String, Customer> customerLookup;
+    private final int segmentShift;
+    private final int segmentMask;
+    private final List<ByteBuffer> segments = new ArrayList<>();
+    private final Dictionary vehicles = new Dictionary();
+    private final Dictionary customers = new Dictionary();
+    private final RowIndex rowsById = new RowIndex();
+    private final Map<Integer, long[]> remainders = new HashMap<>();  // Rental and return nanoseconds past the minute, by row
+    private final BitSet removed = new BitSet();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private int rowCount;
+    private int removedCount;
+
+    /**
+     * Creates an empty table whose bookings are materialized with the vehicles and customers of the given DAOs.
+     *
+     * @param vehicleDAO the DAO to look up the vehicle of a booking
+     * @param customerDAO the DAO to look up the customer of a booking
+     */
+    public OffHeapBookingTable(VehicleDAO vehicleDAO, CustomerDAO customerDAO) {
+        this(vehicleDAO, customerDAO, DEFAULT_SEGMENT_SHIFT);
+    }
+
+    /**
+     * Creates an empty table that allocates its off-heap memory {@code 2^segmentShift} rows at a time.
+     *
+     * @param vehicleDAO the DAO to look up the vehicle of a booking
+     * @param customerDAO the DAO to look up the customer of a booking
+     * @param segmentShift the base-2 logarithm of the number of rows per segment, between 4 and 24
+     */
+    public OffHeapBookingTable(VehicleDAO vehicleDAO, CustomerDAO customerDAO, int segmentShift) {
+        this(vehicleDAO == null ? null : vehicleDAO::getById,
+                customerDAO == null ? null : customerId -> customerDAO.findCustomerById(customerId).orElse(null),
+                segmentShift);
+    }
+
+    /**
+     * Creates an empty table whose bookings are materialized with the vehicles and customers the given functions
+     * return, as when the vehicles are spread over several DAOs.
+     *
+     * @param vehicleLookup returns the vehicle of an ID, or {@code null} if there is none
+     * @param customerLookup returns the customer of an ID, or {@code null} if there is none
+     */
+    public OffHeapBookingTable(Function<String, ? extends Vehicle> vehicleLookup, Function<String, Customer> customerLookup) {
+        this(vehicleLookup, customerLookup, DEFAULT_SEGMENT_SHIFT);
+    }
+
+    private OffHeapBookingTable(Function<String, ? extends Vehicle> vehicleLookup, Function<String, Customer> customerLookup,
+                                int segmentShift) {
+        if (vehicleLookup == null || customerLookup == null) {
+            throw new IllegalArgumentException("Vehicle and customer lookups cannot be null");
+        }
+        if (segmentShift < 4 || segmentShift > 24) {
+            throw new IllegalArgumentException("Segment shift must be between 4 and 24");
+        }
+        this.vehicleLookup = vehicleLookup;
+        this.customerLookup = customerLookup;
+        this.segmentShift = segmentShift;
+        this.segmentMask = (1 << segmentShift) - 1;
+    }
+
+    /**
+     * Appends a booking, unless a booking with the same ID is already in the table.
+     *
+     * @param booking the booking to archive
+     * @return {@code true} if the booking was appended, {@code false} if its ID is already in the table
+     * @throws IllegalArgumentException if the booking has no ID or times out of range
+     */
+    public boolean append(Bookings booking) {
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            return appendRow(booking);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Appends bookings in the order given, taking the write lock once. Bookings whose ID is already in the table,
+     * or repeated in the batch, are skipped.
+     *
+     * @param bookings the bookings to archive
+     * @return which bookings were appended
+     * @throws IllegalArgumentException as {@link #append(Bookings)} does; the bookings before the invalid one are kept
+     */
+    public BatchResult appendAll(List<Bookings> bookings) {
+        boolean[] appended = new boolean[bookings.size()];
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            for (int i = 0; i < appended.length; i++) {
+                appended[i] = appendRow(bookings.get(i));
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        return BatchResult.of(appended);
+    }
+
+    /**
+     * Removes a booking. Its row stays allocated but is skipped by every read.
+     *
+     * @param bookingId the ID of the booking to remove
+     * @return {@code true} if the booking was removed, {@code false} if it is not in the table
+     */
+    public boolean remove(long bookingId) {
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            int row = find(bookingId);
+            if (row == NONE) {
+                return false;
+            }
+            removed.set(row);
+            removedCount++;
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Retrieves a booking by its booking ID, building it from its row.
+     *
+     * @param bookingId the ID of the booking to retrieve
+     * @return the booking, or {@code null} if it is not in the table or its vehicle or customer no longer exists
+     */
+    public Bookings get(long bookingId) {
+        RowValues values;
+        Lock readLock = lock.readLock();
+        readLock.lock();
+        try {
+            int row = find(bookingId);
+            values = row == NONE ? null : copyRow(row);
+        } finally {
+            readLock.unlock();
+        }
+        return values == null ? null : materialize(values);
+    }
+
+    /**
+     * Retrieves several bookings by their booking IDs, taking the read lock once.
+     *
+     * @param bookingIds the IDs of the bookings to retrieve
+     * @return the bookings found, in the order of their IDs; IDs not in the table, or whose vehicle or customer no
+     *         longer exists, are left out
+     */
+    public List<Bookings> getAll(List<Long> bookingIds) {
+        List<RowValues> rows = new ArrayList<>(bookingIds.size());
+        Lock readLock = lock.readLock();
+        readLock.lock();
+        try {
+            for (long bookingId : bookingIds) {
+                int row = find(bookingId);
+                if (row != NONE) {
+                    rows.add(copyRow(row));
+                }
+            }
+        } finally {
+            readLock.unlock();
+        }
+        return materializeAll(rows);
+    }
+
+    public boolean contains(long bookingId) {
+        Lock readLock = lock.readLock();
+        readLock.lock();
+        try {
+            return find(bookingId) != NONE;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Streams every booking in the order appended, building each one only as the stream reaches it.
+     * Bookings appended while the stream is consumed are not included.
+     *
+     * @return a stream of all bookings
+     */
+    public Stream<Bookings> stream() {
+        int rows;
+        Lock readLock = lock.readLock();
+        readLock.lock();
+        try {
+            rows = rowCount;
+        } finally {
+            readLock.unlock();
+        }
+        return IntStream.range(0, rows).mapToObj(this::readLive).filter(booking -> booking != null);
+    }
+
+    /**
+     * Retrieves the bookings of a vehicle by following its chain of rows.
+     *
+     * @param vehicleId the ID of the vehicle
+     * @return the bookings of the vehicle, in booking ID order
+     */
+    public List<Bookings> getBookingsByVehicle(String vehicleId) {
+        return findByVehicle(vehicleId, null, null);
+    }
+
+    /**
+     * Retrieves the bookings of a customer by following its chain of rows.
+     *
+     * @param customerId the ID of the customer
+     * @return the bookings of the customer, in booking ID order
+     */
+    public List<Bookings> getBookingsByCustomer(String customerId) {
+        List<RowValues> rows = new ArrayList<>();
+        Lock readLock = lock.readLock();
+        readLock.lock();
+        try {
+            int index = customers.indexOf(customerId);
+            for (int row = customers.first(index); row != NONE; row = readInt(row, NEXT_BY_CUSTOMER)) {
+                if (!removed.get(row)) {
+                    rows.add(copyRow(row));
+                }
+            }
+        } finally {
+            readLock.unlock();
+        }
+        rows.sort(Comparator.comparingLong(values -> values.bookingId));
+        return materializeAll(rows);
+    }
+
+    /**
+     * Retrieves the bookings of a vehicle whose rental period overlaps {@code [start, end)}. The periods are compared
+     * in their encoded form first, so only the rows that may overlap are copied and checked exactly.
+     *
+     * @param vehicleId the ID of the vehicle
+     * @param start the start of the period (inclusive)
+     * @param end the end of the period (exclusive)
+     * @return the overlapping bookings, in booking ID order
+     */
+    public List<Bookings> findOverlappingBookings(String vehicleId, LocalDateTime start, LocalDateTime end) {
+        return findByVehicle(vehicleId, start, end);
+    }
+
+    /**
+     * Returns the number of bookings in the table, not counting removed ones.
+     *
+     * @return the number of bookings
+     */
+    public int size() {
+        Lock readLock = lock.readLock();
+        readLock.lock();
+        try {
+            return rowCount - removedCount;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the off-heap memory allocated for rows, including the unused end of the last segment.
+     *
+     * @return the allocated bytes
+     */
+    public long getOffHeapBytes() {
+        Lock readLock = lock.readLock();
+        readLock.lock();
+        try {
+            return (long) segments.size() * ROW_BYTES << segmentShift;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    // Appends the row of a booking unless its ID is already in the table; the caller holds the write lock
+    private boolean appendRow(Bookings booking) {
+        long bookingId = booking.getBookingId();
+        if (bookingId <= 0) {
+            throw new IllegalArgumentException("Archived bookings must have a booking ID");
+        }
+        if (find(bookingId) != NONE) {
+            return false;
+        }
+        int rentalMinute = EpochMinutes.encodeFloor(booking.getRentalDate());
+        int returnMinute = EpochMinutes.encodeFloor(booking.getReturnDate());
+        if (rowCount == Integer.MAX_VALUE) {
+            throw new IllegalStateException("Booking table is full");
+        }
+        int row = rowCount;
+        if ((row >>> segmentShift) == segments.size()) {
+            segments.add(ByteBuffer.allocateDirect(ROW_BYTES << segmentShift).order(ByteOrder.nativeOrder()));
+        }
+        int vehicle = vehicles.add(booking.getVehicle().getVehicleId());
+        int customer = customers.add(booking.getCustomer().getCustomerId());
+        ByteBuffer segment = segments.get(row >>> segmentShift);
+        int offset = (row & segmentMask) * ROW_BYTES;
+        segment.putLong(offset + BOOKING_ID, bookingId);
+        segment.putInt(offset + VEHICLE, vehicle);
+        segment.putInt(offset + CUSTOMER, customer);
+        segment.putInt(offset + RENTAL_MINUTE, rentalMinute);
+        segment.putInt(offset + RETURN_MINUTE, returnMinute);
+        segment.putInt(offset + NEXT_BY_VEHICLE, NONE);
+        segment.putInt(offset + NEXT_BY_CUSTOMER, NONE);
+        long rentalNanos = EpochMinutes.remainderNanos(booking.getRentalDate());
+        long returnNanos = EpochMinutes.remainderNanos(booking.getReturnDate());
+        if (rentalNanos != 0 || returnNanos != 0) {
+            remainders.put(row, new long[] {rentalNanos, returnNanos});
+        }
+        int previousByVehicle = vehicles.link(vehicle, row);
+        if (previousByVehicle != NONE) {
+            writeInt(previousByVehicle, NEXT_BY_VEHICLE, row);
+        }
+        int previousByCustomer = customers.link(customer, row);
+        if (previousByCustomer != NONE) {
+            writeInt(previousByCustomer, NEXT_BY_CUSTOMER, row);
+        }
+        rowsById.put(bookingId, row);
+        rowCount++;
+        return true;
+    }
+
+    // Follows a vehicle's chain, keeping the bookings whose period overlaps [start, end); null bounds are open
+    private List<Bookings> findByVehicle(String vehicleId, LocalDateTime start, LocalDateTime end) {
+        // The rows hold floor minutes, so these bounds let through every row that may overlap
+        int startMinute = start == null ? Integer.MIN_VALUE : EpochMinutes.floor(start);
+        int endMinute = end == null ? Integer.MAX_VALUE : EpochMinutes.ceil(end);
+        List<RowValues> rows = new ArrayList<>();
+        Lock readLock = lock.readLock();
+        readLock.lock();
+        try {
+            int index = vehicles.indexOf(vehicleId);
+            for (int row = vehicles.first(index); row != NONE; row = readInt(row, NEXT_BY_VEHICLE)) {
+                if (!removed.get(row) && readInt(row, RENTAL_MINUTE) < endMinute && readInt(row, RETURN_MINUTE) >= startMinute) {
+                    RowValues values = copyRow(row);
+                    if ((end == null || values.rentalDate().isBefore(end)) && (start == null || values.returnDate().isAfter(start))) {
+                        rows.add(values);
+                    }
+                }
+            }
+        } finally {
+            readLock.unlock();
+        }
+        rows.sort(Comparator.comparingLong(values -> values.bookingId));
+        return materializeAll(rows);
+    }
+
+    // The live row of a booking ID, or NONE; the caller holds a lock
+    private int find(long bookingId) {
+        int row = rowsById.get(bookingId);
+        return row == NONE || removed.get(row) ? NONE : row;
+    }
+
+    private Bookings readLive(int row) {
+        RowValues values;
+        Lock readLock = lock.readLock();
+        readLock.lock();
+        try {
+            values = removed.get(row) ? null : copyRow(row);
+        } finally {
+            readLock.unlock();
+        }
+        return values == null ? null : materialize(values);
+    }
+
+    // Copies the fields of a row onto the heap; the caller holds a lock
+    private RowValues copyRow(int row) {
+        long[] remainder = remainders.get(row);
+        return new RowValues(readLong(row, BOOKING_ID), vehicles.idOf(readInt(row, VEHICLE)), customers.idOf(readInt(row, CUSTOMER)),
+                readInt(row, RENTAL_MINUTE), remainder == null ? 0 : remainder[0],
+                readInt(row, RETURN_MINUTE), remainder == null ? 0 : remainder[1]);
+    }
+
+    private List<Bookings> materializeAll(List<RowValues> rows) {
+        List<Bookings> result = new ArrayList<>(rows.size());
+        for (RowValues values : rows) {
+            Bookings booking = materialize(values);
+            if (booking != null) {
+                result.add(booking);
+            }
+        }
+        return result;
+    }
+
+    // Builds the booking of a copied row, or returns null if its vehicle or customer no longer exists; called
+    // without the lock, as the lookups may be slow
+    private Bookings materialize(RowValues values) {
+        Vehicle vehicle = vehicleLookup.apply(values.vehicleId);
+        Customer customer = customerLookup.apply(values.customerId);
+        if (vehicle == null || customer == null) {
+            return null;
+        }
+        Bookings booking = new Bookings(vehicle, customer, values.rentalDate(), values.returnDate());
+        booking.setBookingId(values.bookingId);
+        return booking;
+    }
+
+    private long readLong(int row, int field) {
+        return segments.get(row >>> segmentShift).getLong((row & segmentMask) * ROW_BYTES + field);
+    }
+
+    private int readInt(int row, int field) {
+        return segments.get(row >>> segmentShift).getInt((row & segmentMask) * ROW_BYTES + field);
+    }
+
+    private void writeInt(int row, int field, int value) {
+        segments.get(row >>> segmentShift).putInt((row & segmentMask) * ROW_BYTES + field, value);
+    }
+
+    // The fields of a row, copied out so the booking can be built once the lock is released
+    private static final class RowValues {
+        private final long bookingId;
+        private final String vehicleId;
+        private final String customerId;
+        private final int rentalMinute;
+        private final long rentalNanos;
+        private final int returnMinute;
+        private final long returnNanos;
+
+        private RowValues(long bookingId, String vehicleId, String customerId, int rentalMinute, long rentalNanos,
+                          int returnMinute, long returnNanos) {
+            this.bookingId = bookingId;
+            this.vehicleId = vehicleId;
+            this.customerId = customerId;
+            this.rentalMinute = rentalMinute;
+            this.rentalNanos = rentalNanos;
+            this.returnMinute = returnMinute;
+            this.returnNanos = returnNanos;
+        }
+
+        private LocalDateTime rentalDate() {
+            return EpochMinutes.decode(rentalMinute, rentalNanos);
+        }
+
+        private LocalDateTime returnDate() {
+            return EpochMinutes.decode(returnMinute, returnNanos);
+        }
+    }
+
+    // Maps booking IDs to rows by open addressing with linear probing; booking IDs are positive, so 0 marks a free slot
+    private static final class RowIndex {
+        private long[] keys = new long[16];
+        private int[] rows = new int[16];
+        private int size;
+
+        int get(long bookingId) {
+            int mask = keys.length - 1;
+            for (int slot = slotOf(bookingId, mask); keys[slot] != 0; slot = (slot + 1) & mask) {
+                if (keys[slot] == bookingId) {
+                    return rows[slot];
+                }
+            }
+            return NONE;
+        }
+
+        // Maps the ID to the row, replacing the row of a removed booking with the same ID
+        void put(long bookingId, int row) {
+            if ((size + 1) * 2 > keys.length) {
+                grow();
+            }
+            int mask = keys.length - 1;
+            int slot = slotOf(bookingId, mask);
+            while (keys[slot] != 0 && keys[slot] != bookingId) {
+                slot = (slot + 1) & mask;
+            }
+            if (keys[slot] == 0) {
+                keys[slot] = bookingId;
+                size++;
+            }
+            rows[slot] = row;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldRows = rows;
+            keys = new long[oldKeys.length * 2];
+            rows = new int[oldRows.length * 2];
+            int mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    int slot = slotOf(oldKeys[i], mask);
+                    while (keys[slot] != 0) {
+                        slot = (slot + 1) & mask;
+                    }
+                    keys[slot] = oldKeys[i];
+                    rows[slot] = oldRows[i];
+                }
+            }
+        }
+
+        private static int slotOf(long bookingId, int mask) {
+            return (int) ((bookingId * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+        }
+    }
+
+    // Numbers the IDs of vehicles or customers, and keeps the first and last row of each one's chain
+    private static final class Dictionary {
+        private final Map<String, Integer> indexes = new HashMap<>();
+        private final List<String> ids = new ArrayList<>();
+        private int[] firstRows = new int[16];
+        private int[] lastRows = new int[16];
+
+        int indexOf(String id) {
+            Integer index = indexes.get(id);
+            return index == null ? NONE : index;
+        }
+
+        String idOf(int index) {
+            return ids.get(index);
+        }
+
+        int add(String id) {
+            Integer index = indexes.get(id);
+            if (index != null) {
+                return index;
+            }
+            int added = ids.size();
+            if (added == firstRows.length) {
+                firstRows = Arrays.copyOf(firstRows, added * 2);
+                lastRows = Arrays.copyOf(lastRows, added * 2);
+            }
+            firstRows[added] = NONE;
+            lastRows[added] = NONE;
+            ids.add(id);
+            indexes.put(id, added);
+            return added;
+        }
+
+        int first(int index) {
+            return index == NONE ? NONE : firstRows[index];
+        }
+
+        // Makes the row the last of the chain and returns the previous last row, NONE if it is the first
+        int link(int index, int row) {
+            int previous = lastRows[index];
+            if (previous == NONE) {
+                firstRows[index] = row;
+            }
+            lastRows[index] = row;
+            return previous;
+        }
+    }
+}
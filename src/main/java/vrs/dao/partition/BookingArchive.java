@@ -0,0 +1,383 @@
+package vrs.dao.partition;
+
+import vrs.dao.CustomerDAO;
+import vrs.dao.VehicleDAO;
+import vrs.dao.offheap.EpochMinutes;
+import vrs.models.Bookings;
+import vrs.models.Customer;
+import vrs.models.vehicle.Vehicle;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * The {@code BookingArchive} class is the cold tier of booking storage: closed bookings, partitioned by rental
+ * month into compressed {@link ColdSegment} files in one directory on local disk.
+ * <p>
+ * Only the segment headers are kept in memory. A query first narrows the segments down by the period it asks for
+ * and by the vehicle, customer or booking ID it looks for, and only reads the files left, so its cost follows the
+ * time range asked for rather than the size of the archive. Rows are compared in their encoded form, and
+ * {@code Bookings} objects are built only for the matching ones, from the vehicles and customers currently stored
+ * in the given DAOs. A row whose vehicle or customer has since been deleted stays in the archive, but is left
+ * out of query results, since there is no vehicle or customer to build its booking from; it still counts towards
+ * {@link #size()}. The archive is read-only once written, except that a segment can be rewritten without some
+ * of its bookings. It is safe for concurrent use; writes are serialized, and reads see the segments as of when
+ * they started.
+ */
+public class BookingArchive {
+
+    private static final String PREFIX = "bookings-";
+    private static final String SUFFIX = ".seg.gz";
+
+    private final Path directory;
+    private final VehicleDAO vehicleDAO;
+    private final CustomerDAO customerDAO;
+    private final NavigableMap<YearMonth, List<ColdSegment>> segmentsByMonth = new ConcurrentSkipListMap<>();
+    private final AtomicLong lastSequence = new AtomicLong();
+
+    private BookingArchive(Path directory, VehicleDAO vehicleDAO, CustomerDAO customerDAO) {
+        this.directory = directory;
+        this.vehicleDAO = vehicleDAO;
+        this.customerDAO = customerDAO;
+    }
+
+    /**
+     * Opens the archive in a directory, creating the directory if needed and reading the headers of the segments
+     * already in it.
+     *
+     * @param directory the directory of the segment files
+     * @param vehicleDAO the DAO to look up the vehicle of an archived booking
+     * @param customerDAO the DAO to look up the customer of an archived booking
+     * @return the opened archive
+     * @throws IOException if the directory or a segment cannot be read
+     */
+    public static BookingArchive open(Path directory, VehicleDAO vehicleDAO, CustomerDAO customerDAO) throws IOException {
+        if (vehicleDAO == null || customerDAO == null) {
+            throw new IllegalArgumentException("Vehicle and customer DAOs cannot be null");
+        }
+        Files.createDirectories(directory);
+        BookingArchive archive = new BookingArchive(directory, vehicleDAO, customerDAO);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            for (Path file : files) {
+                ColdSegment segment = ColdSegment.open(file);
+                archive.segmentsByMonth.computeIfAbsent(segment.getMonth(), month -> new ArrayList<>()).add(segment);
+                archive.lastSequence.accumulateAndGet(sequenceOf(file), Math::max);
+            }
+        }
+        return archive;
+    }
+
+    /**
+     * Writes bookings rented in the same month to a new segment.
+     *
+     * @param month the rental month of the bookings
+     * @param bookings the bookings, with booking IDs
+     * @throws IOException if the segment cannot be written
+     */
+    public synchronized void add(YearMonth month, List<Bookings> bookings) throws IOException {
+        if (bookings.isEmpty()) {
+            return;
+        }
+        ColdSegment segment = ColdSegment.write(newSegmentFile(month), month, bookings);
+        List<ColdSegment> updated = new ArrayList<>(segmentsByMonth.getOrDefault(month, List.of()));
+        updated.add(segment);
+        segmentsByMonth.put(month, updated);  // Readers keep iterating the list they already got
+    }
+
+    /**
+     * Rewrites the segments of a month without the given bookings, as when they turn out to have been changed
+     * in the hot tier while being archived.
+     *
+     * @param month the rental month of the bookings
+     * @param bookingIds the IDs of the bookings to drop
+     * @throws IOException if a segment cannot be read or written
+     */
+    public synchronized void removeAll(YearMonth month, Set<Long> bookingIds) throws IOException {
+        List<ColdSegment> segments = segmentsByMonth.getOrDefault(month, List.of());
+        List<ColdSegment> updated = new ArrayList<>(segments.size());
+        for (ColdSegment segment : segments) {
+            List<ColdSegment.Row> kept = segment.scan((id, vehicle, customer, rental, ret) -> !bookingIds.contains(id));
+            if (kept.size() == segment.getRowCount()) {
+                updated.add(segment);
+                continue;
+            }
+            if (!kept.isEmpty()) {
+                updated.add(ColdSegment.writeRows(newSegmentFile(month), month, kept));
+            }
+            Files.delete(segment.getFile());
+        }
+        if (updated.isEmpty()) {
+            segmentsByMonth.remove(month);
+        } else {
+            segmentsByMonth.put(month, updated);
+        }
+    }
+
+    /**
+     * Retrieves an archived booking by its booking ID, reading only the segments whose ID range covers it.
+     *
+     * @param bookingId the ID of the booking
+     * @return the booking, or {@code null} if it is not archived or its vehicle or customer no longer exists
+     */
+    public Bookings getById(long bookingId) {
+        for (ColdSegment segment : segments()) {
+            if (segment.mayContain(bookingId)) {
+                List<ColdSegment.Row> rows = scan(segment, (id, vehicle, customer, rental, ret) -> id == bookingId);
+                if (!rows.isEmpty()) {
+                    List<Bookings> bookings = materialize(rows);
+                    return bookings.isEmpty() ? null : bookings.get(0);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Retrieves the archived bookings of a vehicle whose rental period overlaps {@code [start, end)}, reading only
+     * the segments that cover part of the period and hold bookings of the vehicle.
+     *
+     * @param vehicleId the ID of the vehicle
+     * @param start the start of the period (inclusive), or {@code null} for no lower bound
+     * @param end the end of the period (exclusive), or {@code null} for no upper bound
+     * @return the overlapping bookings, in booking ID order
+     */
+    public List<Bookings> findByVehicle(String vehicleId, LocalDateTime start, LocalDateTime end) {
+        int startMinute = start == null ? Integer.MIN_VALUE : EpochMinutes.floor(start);
+        int endMinute = end == null ? Integer.MAX_VALUE : EpochMinutes.ceil(end);
+        List<ColdSegment.Row> rows = new ArrayList<>();
+        for (ColdSegment segment : segments()) {
+            int vehicleIndex = segment.vehicleIndex(vehicleId);
+            if (vehicleIndex >= 0 && segment.overlaps(startMinute, endMinute)) {
+                for (ColdSegment.Row row : scan(segment, (id, vehicle, customer, rental, ret) ->
+                        vehicle == vehicleIndex && rental < endMinute && ret >= startMinute)) {
+                    if (row.overlaps(start, end)) {
+                        rows.add(row);
+                    }
+                }
+            }
+        }
+        return materialize(rows);
+    }
+
+    /**
+     * Retrieves the archived bookings of a customer whose rental period overlaps {@code [start, end)}, reading only
+     * the segments that cover part of the period and hold bookings of the customer.
+     *
+     * @param customerId the ID of the customer
+     * @param start the start of the period (inclusive), or {@code null} for no lower bound
+     * @param end the end of the period (exclusive), or {@code null} for no upper bound
+     * @return the overlapping bookings, in booking ID order
+     */
+    public List<Bookings> findByCustomer(String customerId, LocalDateTime start, LocalDateTime end) {
+        int startMinute = start == null ? Integer.MIN_VALUE : EpochMinutes.floor(start);
+        int endMinute = end == null ? Integer.MAX_VALUE : EpochMinutes.ceil(end);
+        List<ColdSegment.Row> rows = new ArrayList<>();
+        for (ColdSegment segment : segments()) {
+            int customerIndex = segment.customerIndex(customerId);
+            if (customerIndex >= 0 && segment.overlaps(startMinute, endMinute)) {
+                for (ColdSegment.Row row : scan(segment, (id, vehicle, customer, rental, ret) ->
+                        customer == customerIndex && rental < endMinute && ret >= startMinute)) {
+                    if (row.overlaps(start, end)) {
+                        rows.add(row);
+                    }
+                }
+            }
+        }
+        return materialize(rows);
+    }
+
+    /**
+     * Retrieves the next page of archived bookings in booking ID order, starting right after {@code afterBookingId}.
+     * Only the segments holding later IDs are read, and of those only the ones whose ID range the page reaches.
+     *
+     * @param afterBookingId the ID of the last booking of the previous page, or 0 for the first page
+     * @param pageSize the maximum number of bookings to return
+     * @return the bookings of the page; fewer than {@code pageSize} means it is the last page
+     */
+    public List<Bookings> getPage(long afterBookingId, int pageSize) {
+        List<ColdSegment> later = new ArrayList<>();
+        for (ColdSegment segment : segments()) {
+            if (segment.getRowCount() > 0 && segment.getMaxBookingId() > afterBookingId) {
+                later.add(segment);
+            }
+        }
+        Iterator<ColdSegment.Row> rows = new RowsInIdOrder(later, (id, vehicle, customer, rental, ret) -> id > afterBookingId);
+        List<Bookings> page = new ArrayList<>(Math.min(pageSize, 1024));
+        while (page.size() < pageSize && rows.hasNext()) {
+            Bookings booking = materialize(rows.next());
+            if (booking != null) {
+                page.add(booking);
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Streams every archived booking in booking ID order. A segment is only read once the stream reaches the
+     * first booking ID it holds, so segments with disjoint ID ranges are read one at a time.
+     *
+     * @return a stream of all archived bookings
+     */
+    public Stream<Bookings> stream() {
+        Iterator<ColdSegment.Row> rows = new RowsInIdOrder(segments(), (id, vehicle, customer, rental, ret) -> true);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(rows, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .map(this::materialize)
+                .filter(Objects::nonNull);
+    }
+
+    /**
+     * Returns the number of archived bookings, from the segment headers.
+     *
+     * @return the number of bookings
+     */
+    public long size() {
+        long size = 0;
+        for (ColdSegment segment : segments()) {
+            size += segment.getRowCount();
+        }
+        return size;
+    }
+
+    public int getSegmentCount() {
+        return segments().size();
+    }
+
+    /**
+     * Returns the size of the segment files on disk.
+     *
+     * @return the compressed size in bytes
+     */
+    public long getDiskBytes() {
+        long bytes = 0;
+        for (ColdSegment segment : segments()) {
+            try {
+                bytes += Files.size(segment.getFile());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return bytes;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    private List<ColdSegment> segments() {
+        List<ColdSegment> all = new ArrayList<>();
+        for (List<ColdSegment> segments : segmentsByMonth.values()) {
+            all.addAll(segments);
+        }
+        return all;
+    }
+
+    private static List<ColdSegment.Row> scan(ColdSegment segment, ColdSegment.RowFilter filter) {
+        try {
+            return segment.scan(filter);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read booking segment " + segment.getFile(), e);
+        }
+    }
+
+    // Builds the bookings of the rows, skipping those whose vehicle or customer no longer exists
+    private List<Bookings> materialize(List<ColdSegment.Row> rows) {
+        rows.sort(Comparator.comparingLong(row -> row.bookingId));
+        List<Bookings> bookings = new ArrayList<>(rows.size());
+        for (ColdSegment.Row row : rows) {
+            Bookings booking = materialize(row);
+            if (booking != null) {
+                bookings.add(booking);
+            }
+        }
+        return bookings;
+    }
+
+    // The booking of a row, or null if its vehicle or customer no longer exists
+    private Bookings materialize(ColdSegment.Row row) {
+        Vehicle vehicle = vehicleDAO.getById(row.vehicleId);
+        Customer customer = customerDAO.findCustomerById(row.customerId).orElse(null);
+        if (vehicle == null || customer == null) {
+            return null;
+        }
+        Bookings booking = new Bookings(vehicle, customer, row.rentalDate(), row.returnDate());
+        booking.setBookingId(row.bookingId);
+        return booking;
+    }
+
+    private Path newSegmentFile(YearMonth month) {
+        return directory.resolve(PREFIX + month + "-" + lastSequence.incrementAndGet() + SUFFIX);
+    }
+
+    // Segment files are named bookings-<year>-<month>-<sequence>.seg.gz
+    private static long sequenceOf(Path file) {
+        String name = file.getFileName().toString();
+        String withoutSuffix = name.substring(0, name.length() - SUFFIX.length());
+        try {
+            return Long.parseLong(withoutSuffix.substring(withoutSuffix.lastIndexOf('-') + 1));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Merges the rows of several segments in booking ID order. Segments are read in order of their lowest booking
+     * ID, each only once the merge has reached that ID, so only the rows of segments whose ID ranges overlap are
+     * held in memory together.
+     */
+    private static final class RowsInIdOrder implements Iterator<ColdSegment.Row> {
+        private final Deque<ColdSegment> unread;
+        private final ColdSegment.RowFilter filter;
+        private final PriorityQueue<ColdSegment.Row> pending = new PriorityQueue<>(Comparator.comparingLong(row -> row.bookingId));
+
+        private RowsInIdOrder(List<ColdSegment> segments, ColdSegment.RowFilter filter) {
+            List<ColdSegment> sorted = new ArrayList<>(segments);
+            sorted.sort(Comparator.comparingLong(ColdSegment::getMinBookingId));
+            this.unread = new ArrayDeque<>(sorted);
+            this.filter = filter;
+        }
+
+        @Override
+        public boolean hasNext() {
+            readDueSegments();
+            return !pending.isEmpty();
+        }
+
+        @Override
+        public ColdSegment.Row next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return pending.poll();
+        }
+
+        // Reads every segment that may hold a booking ID below the lowest one pending
+        private void readDueSegments() {
+            while (!unread.isEmpty()
+                    && (pending.isEmpty() || unread.peekFirst().getMinBookingId() <= pending.peek().bookingId)) {
+                pending.addAll(scan(unread.pollFirst(), filter));
+            }
+        }
+    }
+}
@@ -0,0 +1,299 @@
+package vrs.dao.partition;
+
+import vrs.dao.offheap.EpochMinutes;
+import vrs.models.Bookings;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The {@code ColdSegment} class is one compressed file of archived bookings rented in the same month.
+ * <p>
+ * The file starts with a header holding the month, the number of rows, the range of booking IDs, the earliest
+ * rental and latest return minute, and the sorted vehicle and customer IDs the rows refer to. Each row is then a
+ * booking ID, a vehicle and a customer index into those dictionaries, and the rental and return times, each as its
+ * whole minute in {@link EpochMinutes} and the nanoseconds past it, in booking ID order; the whole file is GZIP
+ * compressed, so the remainders of times on whole minutes take next to no space. The header keeps minutes only,
+ * so it can tell that a file has no match but not that it has one. Only the header is kept in memory,
+ * so a query can tell from it whether the file has to be read at all.
+ */
+final class ColdSegment {
+
+    private static final int MAGIC = 0x56525342;  // "VRSB"
+    private static final int FORMAT_VERSION = 1;
+
+    private final Path file;
+    private final YearMonth month;
+    private final int rowCount;
+    private final long minBookingId;
+    private final long maxBookingId;
+    private final int minRentalMinute;
+    private final int maxReturnMinute;
+    private final String[] vehicleIds;
+    private final String[] customerIds;
+
+    private ColdSegment(Path file, YearMonth month, int rowCount, long minBookingId, long maxBookingId,
+                        int minRentalMinute, int maxReturnMinute, String[] vehicleIds, String[] customerIds) {
+        this.file = file;
+        this.month = month;
+        this.rowCount = rowCount;
+        this.minBookingId = minBookingId;
+        this.maxBookingId = maxBookingId;
+        this.minRentalMinute = minRentalMinute;
+        this.maxReturnMinute = maxReturnMinute;
+        this.vehicleIds = vehicleIds;
+        this.customerIds = customerIds;
+    }
+
+    /**
+     * Writes bookings to a new segment file, through a temporary file that is moved into place once complete.
+     *
+     * @param file the segment file to create
+     * @param month the rental month of the bookings
+     * @param bookings the bookings, with booking IDs
+     * @return the written segment
+     * @throws IOException if the file cannot be written
+     */
+    static ColdSegment write(Path file, YearMonth month, List<Bookings> bookings) throws IOException {
+        List<Row> rows = new ArrayList<>(bookings.size());
+        for (Bookings booking : bookings) {
+            rows.add(new Row(booking.getBookingId(), booking.getVehicle().getVehicleId(), booking.getCustomer().getCustomerId(),
+                    EpochMinutes.encodeFloor(booking.getRentalDate()), EpochMinutes.remainderNanos(booking.getRentalDate()),
+                    EpochMinutes.encodeFloor(booking.getReturnDate()), EpochMinutes.remainderNanos(booking.getReturnDate())));
+        }
+        return writeRows(file, month, rows);
+    }
+
+    /**
+     * Writes rows read from other segments to a new segment file, as {@link #write(Path, YearMonth, List)} does.
+     * The vehicles and customers of the rows do not have to exist any more.
+     *
+     * @param file the segment file to create
+     * @param month the rental month of the rows
+     * @param rows the rows
+     * @return the written segment
+     * @throws IOException if the file cannot be written
+     */
+    static ColdSegment writeRows(Path file, YearMonth month, List<Row> rows) throws IOException {
+        rows = new ArrayList<>(rows);
+        rows.sort(Comparator.comparingLong(row -> row.bookingId));
+        TreeSet<String> vehicles = new TreeSet<>();
+        TreeSet<String> customers = new TreeSet<>();
+        int minRental = Integer.MAX_VALUE;
+        int maxReturn = Integer.MIN_VALUE;
+        for (Row row : rows) {
+            vehicles.add(row.vehicleId);
+            customers.add(row.customerId);
+            minRental = Math.min(minRental, row.rentalMinute);
+            maxReturn = Math.max(maxReturn, row.returnMinute);
+        }
+        ColdSegment segment = new ColdSegment(file, month, rows.size(),
+                rows.isEmpty() ? 0 : rows.get(0).bookingId, rows.isEmpty() ? 0 : rows.get(rows.size() - 1).bookingId,
+                minRental, maxReturn, vehicles.toArray(new String[0]), customers.toArray(new String[0]));
+
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new GZIPOutputStream(Files.newOutputStream(temporary), 1 << 16)))) {
+            segment.writeHeader(out);
+            for (Row row : rows) {
+                out.writeLong(row.bookingId);
+                out.writeInt(Arrays.binarySearch(segment.vehicleIds, row.vehicleId));
+                out.writeInt(Arrays.binarySearch(segment.customerIds, row.customerId));
+                out.writeInt(row.rentalMinute);
+                out.writeLong(row.rentalNanos);
+                out.writeInt(row.returnMinute);
+                out.writeLong(row.returnNanos);
+            }
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return segment;
+    }
+
+    /**
+     * Reads the header of a segment file, without its rows.
+     *
+     * @param file the segment file
+     * @return the segment
+     * @throws IOException if the file cannot be read or is not a segment file
+     */
+    static ColdSegment open(Path file) throws IOException {
+        try (DataInputStream in = openRows(file)) {
+            return readHeader(file, in);
+        }
+    }
+
+    /**
+     * Reads the rows accepted by the filter, decompressing the file as it goes.
+     *
+     * @param filter selects the rows to return
+     * @return the accepted rows, in booking ID order
+     * @throws IOException if the file cannot be read
+     */
+    List<Row> scan(RowFilter filter) throws IOException {
+        List<Row> result = new ArrayList<>();
+        try (DataInputStream in = openRows(file)) {
+            readHeader(file, in);
+            for (int i = 0; i < rowCount; i++) {
+                long bookingId = in.readLong();
+                int vehicle = in.readInt();
+                int customer = in.readInt();
+                int rentalMinute = in.readInt();
+                long rentalNanos = in.readLong();
+                int returnMinute = in.readInt();
+                long returnNanos = in.readLong();
+                if (filter.accept(bookingId, vehicle, customer, rentalMinute, returnMinute)) {
+                    result.add(new Row(bookingId, vehicleIds[vehicle], customerIds[customer], rentalMinute, rentalNanos,
+                            returnMinute, returnNanos));
+                }
+            }
+        }
+        return result;
+    }
+
+    // The index of a vehicle in this segment's dictionary, or a negative value if none of its bookings is here
+    int vehicleIndex(String vehicleId) {
+        return vehicleId == null ? -1 : Arrays.binarySearch(vehicleIds, vehicleId);
+    }
+
+    int customerIndex(String customerId) {
+        return customerId == null ? -1 : Arrays.binarySearch(customerIds, customerId);
+    }
+
+    // Whether any row's rental period may overlap a period from within minute startMinute to before minute endMinute
+    boolean overlaps(int startMinute, int endMinute) {
+        return rowCount > 0 && minRentalMinute < endMinute && maxReturnMinute >= startMinute;
+    }
+
+    boolean mayContain(long bookingId) {
+        return rowCount > 0 && bookingId >= minBookingId && bookingId <= maxBookingId;
+    }
+
+    long getMinBookingId() {
+        return minBookingId;
+    }
+
+    long getMaxBookingId() {
+        return maxBookingId;
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    YearMonth getMonth() {
+        return month;
+    }
+
+    int getRowCount() {
+        return rowCount;
+    }
+
+    private void writeHeader(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(month.getYear());
+        out.writeInt(month.getMonthValue());
+        out.writeInt(rowCount);
+        out.writeLong(minBookingId);
+        out.writeLong(maxBookingId);
+        out.writeInt(minRentalMinute);
+        out.writeInt(maxReturnMinute);
+        writeDictionary(out, vehicleIds);
+        writeDictionary(out, customerIds);
+    }
+
+    private static ColdSegment readHeader(Path file, DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+            throw new IOException("Not a booking segment file: " + file);
+        }
+        YearMonth month = YearMonth.of(in.readInt(), in.readInt());
+        int rowCount = in.readInt();
+        long minBookingId = in.readLong();
+        long maxBookingId = in.readLong();
+        int minRentalMinute = in.readInt();
+        int maxReturnMinute = in.readInt();
+        String[] vehicleIds = readDictionary(in);
+        String[] customerIds = readDictionary(in);
+        return new ColdSegment(file, month, rowCount, minBookingId, maxBookingId, minRentalMinute, maxReturnMinute,
+                vehicleIds, customerIds);
+    }
+
+    private static void writeDictionary(DataOutputStream out, String[] ids) throws IOException {
+        out.writeInt(ids.length);
+        for (String id : ids) {
+            out.writeUTF(id);
+        }
+    }
+
+    private static String[] readDictionary(DataInputStream in) throws IOException {
+        String[] ids = new String[in.readInt()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = in.readUTF();
+        }
+        return ids;
+    }
+
+    private static DataInputStream openRows(Path file) throws IOException {
+        return new DataInputStream(new BufferedInputStream(new GZIPInputStream(Files.newInputStream(file), 1 << 16)));
+    }
+
+    /**
+     * Selects rows by their encoded columns, before any object is built for them.
+     */
+    @FunctionalInterface
+    interface RowFilter {
+        boolean accept(long bookingId, int vehicle, int customer, int rentalMinute, int returnMinute);
+    }
+
+    /**
+     * A row read back from a segment, with its vehicle and customer IDs resolved.
+     */
+    static final class Row {
+        final long bookingId;
+        final String vehicleId;
+        final String customerId;
+        final int rentalMinute;
+        final long rentalNanos;
+        final int returnMinute;
+        final long returnNanos;
+
+        Row(long bookingId, String vehicleId, String customerId, int rentalMinute, long rentalNanos,
+            int returnMinute, long returnNanos) {
+            this.bookingId = bookingId;
+            this.vehicleId = vehicleId;
+            this.customerId = customerId;
+            this.rentalMinute = rentalMinute;
+            this.rentalNanos = rentalNanos;
+            this.returnMinute = returnMinute;
+            this.returnNanos = returnNanos;
+        }
+
+        LocalDateTime rentalDate() {
+            return EpochMinutes.decode(rentalMinute, rentalNanos);
+        }
+
+        LocalDateTime returnDate() {
+            return EpochMinutes.decode(returnMinute, returnNanos);
+        }
+
+        // Whether the rental period overlaps [start, end); a null bound is open
+        boolean overlaps(LocalDateTime start, LocalDateTime end) {
+            return (end == null || rentalDate().isBefore(end)) && (start == null || returnDate().isAfter(start));
+        }
+    }
+}
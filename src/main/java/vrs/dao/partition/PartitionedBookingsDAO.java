@@ -0,0 +1,302 @@
+package vrs.dao.partition;
+
+import vrs.dao.AvailabilityIndex;
+import vrs.dao.BatchResult;
+import vrs.dao.BookingsDAO;
+import vrs.dao.Versioned;
+import vrs.models.Bookings;
+import vrs.models.vehicle.Vehicle;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * The {@code PartitionedBookingsDAO} class splits bookings into two tiers by rental month. Bookings of the current
+ * and future months, and bookings not yet returned, stay in the hot tier: the indexed, in-memory store inherited from
+ * {@link BookingsDAO}, through which every write goes. {@link #archiveClosedBookings(LocalDateTime)} moves the
+ * bookings of earlier months that have been returned to a {@link BookingArchive} on local disk, one compressed
+ * segment per month, which is only read by queries whose period or keys reach into it.
+ * <p>
+ * Reads by booking ID, by vehicle and by customer, overlap checks, full listings and pages cover both tiers; the
+ * range queries {@link #getBookingsByVehicle(Vehicle, LocalDateTime, LocalDateTime)} and
+ * {@link #getBookingsByCustomer(String, LocalDateTime, LocalDateTime)} only read the archived months that
+ * overlap the range. Archived bookings are read-only: updates and cancellations only apply to the hot tier,
+ * and reservations are checked against the hot tier, as archived bookings are in the past. A booking present in
+ * both tiers while it is being archived is read from the hot tier. Archived bookings whose vehicle or customer
+ * has been deleted since are left out of reads, as {@link BookingArchive} describes.
+ */
+public class PartitionedBookingsDAO extends BookingsDAO {
+
+    private final BookingArchive archive;
+
+    /**
+     * Creates an empty hot tier with its own availability index, in front of the given archive.
+     *
+     * @param archive the cold tier
+     */
+    public PartitionedBookingsDAO(BookingArchive archive) {
+        this(new AvailabilityIndex(), archive);
+    }
+
+    /**
+     * Creates an empty hot tier that records the booked periods in the given availability index.
+     *
+     * @param availabilityIndex the index of booked periods, shared with the vehicle DAOs
+     * @param archive the cold tier
+     */
+    public PartitionedBookingsDAO(AvailabilityIndex availabilityIndex, BookingArchive archive) {
+        super(availabilityIndex);
+        if (archive == null) {
+            throw new IllegalArgumentException("Booking archive cannot be null");
+        }
+        this.archive = archive;
+    }
+
+    public BookingArchive getArchive() {
+        return archive;
+    }
+
+    /**
+     * Moves the closed bookings to the archive: those rented before the month of {@code now} and returned by
+     * {@code now}. Each month is written as one new segment, then the bookings of all written months leave the hot
+     * tier together; a booking updated in the meantime stays hot and is dropped from its segment again. If a
+     * segment cannot be written, the months written before it are still moved.
+     *
+     * @param now the current time
+     * @return the number of bookings archived
+     * @throws IllegalStateException if a segment cannot be written
+     */
+    public int archiveClosedBookings(LocalDateTime now) {
+        YearMonth currentMonth = YearMonth.from(now);
+        Map<YearMonth, List<Versioned<Bookings>>> closedByMonth = new TreeMap<>();
+        super.stream()
+                .filter(booking -> YearMonth.from(booking.getRentalDate()).isBefore(currentMonth)
+                        && !booking.getReturnDate().isAfter(now))
+                .forEach(booking -> {
+                    Versioned<Bookings> versioned = super.getVersioned(booking.getBookingId());
+                    if (versioned != null) {
+                        closedByMonth.computeIfAbsent(YearMonth.from(booking.getRentalDate()), month -> new ArrayList<>())
+                                .add(versioned);
+                    }
+                });
+
+        List<Versioned<Bookings>> written = new ArrayList<>();
+        List<YearMonth> writtenMonths = new ArrayList<>();
+        IllegalStateException failure = null;
+        for (Map.Entry<YearMonth, List<Versioned<Bookings>>> month : closedByMonth.entrySet()) {
+            try {
+                archive.add(month.getKey(), month.getValue().stream().map(Versioned::getValue).collect(Collectors.toList()));
+            } catch (IOException e) {
+                failure = new IllegalStateException("Cannot archive the bookings of " + month.getKey() + ": " + e.getMessage(), e);
+                break;
+            }
+            for (Versioned<Bookings> versioned : month.getValue()) {
+                written.add(versioned);
+                writtenMonths.add(month.getKey());
+            }
+        }
+
+        // The written months leave the hot tier in one batch, so the periods of each vehicle are released once
+        BatchResult canceled = super.cancelAll(written);
+        Map<YearMonth, Set<Long>> changedByMonth = new TreeMap<>();
+        for (int i : canceled.getFailedIndexes()) {
+            changedByMonth.computeIfAbsent(writtenMonths.get(i), month -> new HashSet<>())
+                    .add(written.get(i).getValue().getBookingId());
+        }
+        for (Map.Entry<YearMonth, Set<Long>> changed : changedByMonth.entrySet()) {
+            try {
+                archive.removeAll(changed.getKey(), changed.getValue());
+            } catch (IOException e) {
+                throw new IllegalStateException("Cannot drop changed bookings from the archive of " + changed.getKey()
+                        + ": " + e.getMessage(), e);
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return canceled.getSuccessCount();
+    }
+
+    @Override
+    public Bookings getById(long bookingId) {
+        Bookings booking = super.getById(bookingId);
+        return booking != null ? booking : archive.getById(bookingId);
+    }
+
+    /**
+     * Retrieves all bookings of both tiers, in booking ID order. Reads the whole archive.
+     *
+     * @return a list of all bookings
+     */
+    @Override
+    public List<Bookings> getAll() {
+        return merge(archive.stream().collect(Collectors.toList()), super.getAll());
+    }
+
+    /**
+     * Streams the bookings of both tiers lazily, in booking ID order. The archive is read a segment at a time as
+     * the stream reaches it, as {@link BookingArchive#stream()} describes.
+     *
+     * @return a stream of all bookings
+     */
+    @Override
+    public Stream<Bookings> stream() {
+        Iterator<Bookings> merged = new MergedById(
+                archive.stream().filter(booking -> !isHot(booking.getBookingId())).iterator(), super.stream().iterator());
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(merged, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * Retrieves the next page of bookings of both tiers in booking ID order, starting right after
+     * {@code afterBookingId}. A page is taken from each tier and the two are merged, which holds the first
+     * {@code pageSize} bookings of both together.
+     *
+     * @param afterBookingId the ID of the last booking of the previous page, or 0 for the first page
+     * @param pageSize the maximum number of bookings to return
+     * @return the bookings of the page; fewer than {@code pageSize} means it is the last page
+     */
+    @Override
+    public List<Bookings> getPage(long afterBookingId, int pageSize) {
+        List<Bookings> page = merge(archive.getPage(afterBookingId, pageSize), super.getPage(afterBookingId, pageSize));
+        return page.size() > pageSize ? new ArrayList<>(page.subList(0, pageSize)) : page;
+    }
+
+    @Override
+    public Stream<Bookings> streamBookingsByVehicle(Vehicle vehicle) {
+        return getBookingsByVehicle(vehicle).stream();
+    }
+
+    @Override
+    public Stream<Bookings> streamBookingsByCustomer(String customerId) {
+        return getBookingsByCustomer(customerId).stream();
+    }
+
+    @Override
+    public List<Bookings> getBookingsByVehicle(Vehicle vehicle) {
+        return merge(archive.findByVehicle(vehicle.getVehicleId(), null, null), super.getBookingsByVehicle(vehicle));
+    }
+
+    @Override
+    public List<Bookings> getBookingsByCustomer(String customerId) {
+        return merge(archive.findByCustomer(customerId, null, null), super.getBookingsByCustomer(customerId));
+    }
+
+    /**
+     * Retrieves the bookings of a vehicle whose rental period overlaps {@code [start, end)}, reading only the
+     * archived months that cover part of the period.
+     *
+     * @param vehicle the vehicle for which to retrieve bookings
+     * @param start the start of the period (inclusive)
+     * @param end the end of the period (exclusive)
+     * @return the overlapping bookings, in booking ID order
+     */
+    @Override
+    public List<Bookings> findOverlappingBookings(Vehicle vehicle, LocalDateTime start, LocalDateTime end) {
+        return merge(archive.findByVehicle(vehicle.getVehicleId(), start, end), super.findOverlappingBookings(vehicle, start, end));
+    }
+
+    /**
+     * Retrieves the bookings of a vehicle rented during {@code [start, end)}, as the vehicle's history over a period.
+     *
+     * @param vehicle the vehicle for which to retrieve bookings
+     * @param start the start of the period (inclusive)
+     * @param end the end of the period (exclusive)
+     * @return the bookings overlapping the period, in booking ID order
+     */
+    public List<Bookings> getBookingsByVehicle(Vehicle vehicle, LocalDateTime start, LocalDateTime end) {
+        return findOverlappingBookings(vehicle, start, end);
+    }
+
+    /**
+     * Retrieves a customer's bookings whose rental period overlaps {@code [start, end)}, reading only the archived
+     * months that cover part of the period and hold bookings of the customer.
+     *
+     * @param customerId the customer ID for which to retrieve bookings
+     * @param start the start of the period (inclusive)
+     * @param end the end of the period (exclusive)
+     * @return the bookings overlapping the period, in booking ID order
+     */
+    public List<Bookings> getBookingsByCustomer(String customerId, LocalDateTime start, LocalDateTime end) {
+        List<Bookings> hot = new ArrayList<>();
+        for (Bookings booking : super.getBookingsByCustomer(customerId)) {
+            if (booking.getRentalDate().isBefore(end) && booking.getReturnDate().isAfter(start)) {
+                hot.add(booking);
+            }
+        }
+        return merge(archive.findByCustomer(customerId, start, end), hot);
+    }
+
+    // Combines archived and hot bookings in booking ID order; a booking in both tiers is taken from the hot tier
+    private List<Bookings> merge(List<Bookings> archived, List<Bookings> hot) {
+        if (archived.isEmpty()) {
+            return hot;
+        }
+        List<Bookings> result = new ArrayList<>(archived.size() + hot.size());
+        for (Bookings booking : archived) {
+            if (!isHot(booking.getBookingId())) {
+                result.add(booking);
+            }
+        }
+        result.addAll(hot);
+        result.sort(Comparator.comparingLong(Bookings::getBookingId));
+        return result;
+    }
+
+    private boolean isHot(long bookingId) {
+        return super.getById(bookingId) != null;
+    }
+
+    // Merges two streams of bookings that are each in booking ID order; of two bookings with the same ID, the
+    // hot one is kept
+    private static final class MergedById implements Iterator<Bookings> {
+        private final Iterator<Bookings> archived;
+        private final Iterator<Bookings> hot;
+        private Bookings nextArchived;
+        private Bookings nextHot;
+
+        private MergedById(Iterator<Bookings> archived, Iterator<Bookings> hot) {
+            this.archived = archived;
+            this.hot = hot;
+            this.nextArchived = archived.hasNext() ? archived.next() : null;
+            this.nextHot = hot.hasNext() ? hot.next() : null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextArchived != null || nextHot != null;
+        }
+
+        @Override
+        public Bookings next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            if (nextHot == null || (nextArchived != null && nextArchived.getBookingId() < nextHot.getBookingId())) {
+                Bookings result = nextArchived;
+                nextArchived = archived.hasNext() ? archived.next() : null;
+                return result;
+            }
+            if (nextArchived != null && nextArchived.getBookingId() == nextHot.getBookingId()) {
+                nextArchived = archived.hasNext() ? archived.next() : null;
+            }
+            Bookings result = nextHot;
+            nextHot = hot.hasNext() ? hot.next() : null;
+            return result;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package vrs.dao.persistence;
+
+/**
+ * The {@code DurabilityLevel} enum defines when a change written to the {@code WriteAheadLog}
+ * is forced to disk before the DAO call that made it returns.
+ */
+public enum DurabilityLevel {
+    /**
+     * Every change is forced to disk on its own before the call returns.
+     */
+    PER_WRITE,
+    /**
+     * Every change is on disk before the call returns, but concurrent changes share one fsync (group commit).
+     */
+    BATCHED,
+    /**
+     * Calls return as soon as the change is written; the log is forced to disk periodically in the background.
+     */
+    ASYNC
+}
@@ -0,0 +1,244 @@
+package vrs.dao.persistence;
+
+import vrs.dao.AvailabilityIndex;
+import vrs.dao.BatchResult;
+import vrs.dao.BookingsDAO;
+import vrs.dao.CustomerDAO;
+import vrs.dao.ReservationResult;
+import vrs.dao.Versioned;
+import vrs.models.Bookings;
+import vrs.models.Customer;
+import vrs.models.vehicle.Vehicle;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * The {@code DurableBookingsDAO} class is a {@code BookingsDAO} that records every change in a
+ * {@code WriteAheadLog} before the call returns, so the bookings can be rebuilt after a restart.
+ * Reads are served from memory and its indexes as before.
+ * <p>
+ * Each change is appended to the log while the booking's write lock is held, just before it is applied in memory,
+ * so a change that cannot be logged is never seen by readers, and changes to the same booking are logged in the
+ * order they are applied, while changes to different bookings are logged concurrently.
+ */
+public class DurableBookingsDAO extends BookingsDAO {
+
+    private final WriteAheadLog log;
+    private final ReadWriteLock checkpointLock = new ReentrantReadWriteLock();
+    private boolean replaying;
+    // Every booking rebuilt while recovering, by ID, including those canceled since, so that the rental histories
+    // recovered after them can refer to them; cleared once recovery is done
+    private final Map<Long, Bookings> recoveredBookings = new HashMap<>();
+
+    /**
+     * Creates an empty bookings database that records its changes in the given log.
+     *
+     * @param log the log to record changes in
+     * @param availabilityIndex the index of booked periods, shared with the vehicle DAOs
+     */
+    public DurableBookingsDAO(WriteAheadLog log, AvailabilityIndex availabilityIndex) {
+        super(availabilityIndex);
+        if (log == null) {
+            throw new IllegalArgumentException("Write-ahead log cannot be null");
+        }
+        this.log = log;
+    }
+
+    @Override
+    public boolean save(Bookings booking) {
+        boolean saved;
+        checkpointLock.readLock().lock();
+        try {
+            saved = super.save(booking);
+        } finally {
+            checkpointLock.readLock().unlock();
+        }
+        return saved && committed();
+    }
+
+    // Logs every booking of the batch, then waits for the log once
+    @Override
+    public BatchResult saveAll(List<Bookings> bookings) {
+        BatchResult result;
+        checkpointLock.readLock().lock();
+        try {
+            result = super.saveAll(bookings);
+        } finally {
+            checkpointLock.readLock().unlock();
+        }
+        log.commit(log.position());
+        return result;
+    }
+
+    // Takes the checkpoint lock before the vehicle lock, in the same order as save and update, and waits for the
+    // log only once the vehicle lock is released, so other reservations of the vehicle do not wait for the disk
+    @Override
+    public ReservationResult reserve(Bookings booking) {
+        ReservationResult result;
+        checkpointLock.readLock().lock();
+        try {
+            result = super.reserve(booking);
+        } finally {
+            checkpointLock.readLock().unlock();
+        }
+        if (result.isReserved()) {
+            committed();
+        }
+        return result;
+    }
+
+    @Override
+    public boolean update(Bookings booking) {
+        boolean updated;
+        checkpointLock.readLock().lock();
+        try {
+            updated = super.update(booking);
+        } finally {
+            checkpointLock.readLock().unlock();
+        }
+        return updated && committed();
+    }
+
+    @Override
+    public BatchResult updateAll(List<Bookings> bookings) {
+        BatchResult result;
+        checkpointLock.readLock().lock();
+        try {
+            result = super.updateAll(bookings);
+        } finally {
+            checkpointLock.readLock().unlock();
+        }
+        log.commit(log.position());
+        return result;
+    }
+
+    @Override
+    public boolean compareAndUpdate(Bookings booking, long expectedVersion) {
+        boolean updated;
+        checkpointLock.readLock().lock();
+        try {
+            updated = super.compareAndUpdate(booking, expectedVersion);
+        } finally {
+            checkpointLock.readLock().unlock();
+        }
+        return updated && committed();
+    }
+
+    @Override
+    public boolean cancel(long bookingId) {
+        boolean canceled;
+        checkpointLock.readLock().lock();
+        try {
+            canceled = super.cancel(bookingId);
+        } finally {
+            checkpointLock.readLock().unlock();
+        }
+        return canceled && committed();
+    }
+
+    @Override
+    public BatchResult cancelAll(List<Versioned<Bookings>> bookings) {
+        BatchResult result;
+        checkpointLock.readLock().lock();
+        try {
+            result = super.cancelAll(bookings);
+        } finally {
+            checkpointLock.readLock().unlock();
+        }
+        log.commit(log.position());
+        return result;
+    }
+
+    @Override
+    protected void savingBooking(Bookings booking) {
+        if (!replaying) {
+            log.append(LogRecordType.BOOKING_SAVED, LogCodec.encodeBooking(booking));
+        }
+    }
+
+    @Override
+    protected void updatingBooking(Bookings booking) {
+        if (!replaying) {
+            log.append(LogRecordType.BOOKING_UPDATED, LogCodec.encodeBooking(booking));
+        }
+    }
+
+    @Override
+    protected void cancelingBooking(long bookingId) {
+        if (!replaying) {
+            log.append(LogRecordType.BOOKING_CANCELED, LogCodec.encodeLong(bookingId));
+        }
+    }
+
+    // Held exclusively while a checkpoint captures the bookings together with the log position
+    Lock checkpointLock() {
+        return checkpointLock.writeLock();
+    }
+
+    // Waits until everything appended so far, including this thread's change, is as durable as the log promises
+    private boolean committed() {
+        log.commit(log.position());
+        return true;
+    }
+
+    // Applies a logged change without logging it again
+    void replay(LogRecordType type, byte[] payload, Function<String, Vehicle> vehicleLookup, CustomerDAO customerDAO) {
+        replaying = true;
+        try {
+            switch (type) {
+                case BOOKING_SAVED:
+                case BOOKING_UPDATED:
+                    Bookings booking = resolve(LogCodec.decodeBooking(payload), vehicleLookup, customerDAO);
+                    if (booking != null) {
+                        recoveredBookings.put(booking.getBookingId(), booking);
+                        if (type == LogRecordType.BOOKING_SAVED) {
+                            super.save(booking);
+                        } else {
+                            super.update(booking);
+                        }
+                    }
+                    break;
+                case BOOKING_CANCELED:
+                    super.cancel(LogCodec.decodeLong(payload));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Not a booking log record: " + type);
+            }
+        } finally {
+            replaying = false;
+        }
+    }
+
+    // Remembers a booking loaded from a snapshot, stored or only in a rental history, for the replay that follows
+    void rememberRecovered(Bookings booking) {
+        recoveredBookings.put(booking.getBookingId(), booking);
+    }
+
+    // Returns a booking rebuilt while recovering, even if it has been canceled since
+    Bookings findRecovered(long bookingId) {
+        return recoveredBookings.get(bookingId);
+    }
+
+    void recoveryDone() {
+        recoveredBookings.clear();
+    }
+
+    private static Bookings resolve(LogCodec.BookingRecord record, Function<String, Vehicle> vehicleLookup, CustomerDAO customerDAO) {
+        Vehicle vehicle = vehicleLookup.apply(record.vehicleId);
+        Customer customer = customerDAO.findCustomerById(record.customerId).orElse(null);
+        if (vehicle == null || customer == null) {
+            System.out.println("Skipping logged booking " + record.bookingId + ": vehicle " + record.vehicleId
+                    + " or customer " + record.customerId + " not found");
+            return null;
+        }
+        Bookings booking = new Bookings(vehicle, customer, record.rentalDate, record.returnDate);
+        booking.setBookingId(record.bookingId);
+        return booking;
+    }
+}
@@ -0,0 +1,182 @@
+package vrs.dao.persistence;
+
+import vrs.dao.BatchResult;
+import vrs.dao.CustomerDAO;
+import vrs.models.Bookings;
+import vrs.models.Customer;
+import vrs.models.vehicle.Vehicle;
+
+import java.io.DataInput;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * The {@code DurableCustomerDAO} class is a {@code CustomerDAO} that records every change in a
+ * {@code WriteAheadLog} before the call returns, so the customers can be rebuilt after a restart.
+ * Reads are served from memory as before.
+ * <p>
+ * Each change is appended to the log while the customer's write lock is held, just before it is applied in memory,
+ * so a change that cannot be logged is never seen by readers, and changes to the same customer are logged in the
+ * order they are applied, while changes to different customers are logged concurrently.
+ */
+public class DurableCustomerDAO extends CustomerDAO {
+
+    private final WriteAheadLog log;
+    private final ReadWriteLock checkpointLock = new ReentrantReadWriteLock();
+
+    /**
+     * Creates an empty customer database that records its changes in the given log.
+     *
+     * @param log the log to record changes in
+     * @param vehicleLookup returns the vehicle of an ID, to read rental histories back with
+     */
+    public DurableCustomerDAO(WriteAheadLog log, Function<String, ? extends Vehicle> vehicleLookup) {
+        super(vehicleLookup);
+        if (log == null) {
+            throw new IllegalArgumentException("Write-ahead log cannot be null");
+        }
+        this.log = log;
+    }
+
+    @Override
+    public void saveCustomer(Customer customer) {
+        checkpointLock.readLock().lock();
+        try {
+            super.saveCustomer(customer);
+        } finally {
+            checkpointLock.readLock().unlock();
+        }
+        log.commit(log.position());
+    }
+
+    // Logs every customer of the batch, then waits for the log once
+    @Override
+    public BatchResult saveCustomers(List<Customer> customers) {
+        BatchResult result;
+        checkpointLock.readLock().lock();
+        try {
+            result = super.saveCustomers(customers);
+        } finally {
+            checkpointLock.readLock().unlock();
+        }
+        log.commit(log.position());
+        return result;
+    }
+
+    @Override
+    public void updateCustomer(Customer customer) {
+        checkpointLock.readLock().lock();
+        try {
+            super.updateCustomer(customer);
+        } finally {
+            checkpointLock.readLock().unlock();
+        }
+        log.commit(log.position());
+    }
+
+    @Override
+    public BatchResult updateCustomers(List<Customer> customers) {
+        BatchResult result;
+        checkpointLock.readLock().lock();
+        try {
+            result = super.updateCustomers(customers);
+        } finally {
+            checkpointLock.readLock().unlock();
+        }
+        log.commit(log.position());
+        return result;
+    }
+
+    @Override
+    public void deleteCustomer(String customerId) {
+        checkpointLock.readLock().lock();
+        try {
+            super.deleteCustomer(customerId);
+        } finally {
+            checkpointLock.readLock().unlock();
+        }
+        log.commit(log.position());
+    }
+
+    @Override
+    public void addBookingToCustomerHistory(String customerId, Bookings booking) {
+        checkpointLock.readLock().lock();
+        try {
+            super.addBookingToCustomerHistory(customerId, booking);
+        } finally {
+            checkpointLock.readLock().unlock();
+        }
+        log.commit(log.position());
+    }
+
+    @Override
+    protected void savingCustomer(Customer customer) {
+        log.append(LogRecordType.CUSTOMER_SAVED, LogCodec.encodeCustomer(customer));
+    }
+
+    @Override
+    protected void updatingCustomer(Customer customer) {
+        log.append(LogRecordType.CUSTOMER_UPDATED, LogCodec.encodeCustomer(customer));
+    }
+
+    @Override
+    protected void deletingCustomer(String customerId) {
+        log.append(LogRecordType.CUSTOMER_DELETED, LogCodec.encodeString(customerId));
+    }
+
+    @Override
+    protected void addingBookingToHistory(String customerId, Bookings booking) {
+        log.append(LogRecordType.CUSTOMER_BOOKING_ADDED, LogCodec.encodeCustomerBooking(customerId, booking.getBookingId()));
+    }
+
+    // Held exclusively while a checkpoint captures the customers together with the log position
+    Lock checkpointLock() {
+        return checkpointLock.writeLock();
+    }
+
+    // Applies a logged change without logging it again. Histories refer to bookings as they were when the change
+    // was logged, including bookings canceled since.
+    void replay(LogRecordType type, byte[] payload, DurableBookingsDAO bookingsDAO) {
+        switch (type) {
+            case CUSTOMER_SAVED:
+            case CUSTOMER_UPDATED:
+                LogCodec.CustomerRecord record = LogCodec.decodeCustomer(payload);
+                Customer customer = record.customer;
+                List<Bookings> history = new ArrayList<>();
+                if (record.historyIds != null) {
+                    for (long bookingId : record.historyIds) {
+                        Bookings booking = bookingsDAO.findRecovered(bookingId);
+                        if (booking != null) {
+                            history.add(booking);
+                        }
+                    }
+                } else if (type == LogRecordType.CUSTOMER_UPDATED) {
+                    // Logged without its history, which is taken to be that of the customer it replaced
+                    findCustomerById(customer.getCustomerId())
+                            .ifPresent(previous -> customer.getRentalHistory().addAll(previous.getRentalHistory()));
+                }
+                restoreCustomer(customer);
+                restoreHistory(customer.getCustomerId(), history);
+                break;
+            case CUSTOMER_DELETED:
+                forgetCustomer(LogCodec.decodeString(payload));
+                break;
+            case CUSTOMER_BOOKING_ADDED:
+                LogCodec.decode(payload, (DataInput in) -> {
+                    String customerId = in.readUTF();
+                    Bookings booking = bookingsDAO.findRecovered(in.readLong());
+                    if (booking != null) {
+                        restoreHistory(customerId, List.of(booking));
+                    }
+                    return null;
+                });
+                break;
+            default:
+                throw new IllegalArgumentException("Not a customer log record: " + type);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package vrs.dao.persistence;
+
+import vrs.dao.AvailabilityIndex;
+import vrs.dao.VehicleDAO;
+import vrs.models.Bookings;
+import vrs.models.Customer;
+import vrs.models.vehicle.Vehicle;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Function;
+
+/**
+ * The {@code DurableStore} class opens the write-ahead log shared by the durable customer and bookings DAOs
+ * and recovers their in-memory state by replaying it.
+ * <p>
+ * Customers and bookings are written to the same log, so a booking is always replayed after the customer it
+ * refers to. Vehicles are not logged; they are looked up in the given {@code VehicleDAO}, which must be loaded
+ * before the store is opened, unless they are loaded from a {@code FleetSnapshot} taken by {@link #checkpoint}.
+ */
+public class DurableStore implements Closeable {
+
+    private final WriteAheadLog log;
+    private final DurableCustomerDAO customerDAO;
+    private final DurableBookingsDAO bookingsDAO;
+    private final List<? extends VehicleDAO> vehicleDAOs;
+
+    private DurableStore(WriteAheadLog log, DurableCustomerDAO customerDAO, DurableBookingsDAO bookingsDAO,
+                         List<? extends VehicleDAO> vehicleDAOs) {
+        this.log = log;
+        this.customerDAO = customerDAO;
+        this.bookingsDAO = bookingsDAO;
+        this.vehicleDAOs = vehicleDAOs;
+    }
+
+    /**
+     * Opens the log and rebuilds the customers and bookings recorded in it.
+     *
+     * @param logFile the log file, created if it does not exist
+     * @param durability when changes are forced to disk
+     * @param vehicleDAO the vehicles that logged bookings refer to
+     * @param availabilityIndex the index of booked periods, shared with the vehicle DAOs
+     * @return the opened store
+     * @throws IOException if the log cannot be opened or read
+     */
+    public static DurableStore open(Path logFile, DurabilityLevel durability, VehicleDAO vehicleDAO,
+                                    AvailabilityIndex availabilityIndex) throws IOException {
+        return open(logFile, null, durability, List.of(vehicleDAO), availabilityIndex);
+    }
+
+    /**
+     * Loads the snapshot, if there is one, and replays only the part of the log written after it.
+     * The vehicles of the snapshot are saved into the given vehicle DAOs, which should be empty.
+     *
+     * @param logFile the log file, created if it does not exist
+     * @param snapshotFile the snapshot file, or {@code null} to replay the whole log
+     * @param durability when changes are forced to disk
+     * @param vehicleDAOs the DAOs holding the vehicles that bookings refer to
+     * @param availabilityIndex the index of booked periods, shared with the vehicle DAOs
+     * @return the opened store
+     * @throws IOException if the snapshot or the log cannot be read
+     */
+    public static DurableStore open(Path logFile, Path snapshotFile, DurabilityLevel durability,
+                                    List<? extends VehicleDAO> vehicleDAOs, AvailabilityIndex availabilityIndex) throws IOException {
+        WriteAheadLog log = WriteAheadLog.open(logFile, durability);
+        try {
+            Function<String, Vehicle> vehicleLookup = vehicleId -> findVehicle(vehicleDAOs, vehicleId);
+            DurableCustomerDAO customerDAO = new DurableCustomerDAO(log, vehicleLookup);
+            DurableBookingsDAO bookingsDAO = new DurableBookingsDAO(log, availabilityIndex);
+            long replayFrom = 0;
+            if (snapshotFile != null && Files.exists(snapshotFile)) {
+                replayFrom = FleetSnapshot.load(snapshotFile, vehicleDAOs, customerDAO, bookingsDAO);
+                bookingsDAO.getAll().forEach(bookingsDAO::rememberRecovered);
+                for (Customer customer : customerDAO.findAllCustomers()) {
+                    customerDAO.getCustomerBookings(customer.getCustomerId()).forEach(bookingsDAO::rememberRecovered);
+                }
+            }
+            log.replay(replayFrom, (type, payload) -> {
+                switch (type) {
+                    case BOOKING_SAVED:
+                    case BOOKING_UPDATED:
+                    case BOOKING_CANCELED:
+                        bookingsDAO.replay(type, payload, vehicleLookup, customerDAO);
+                        break;
+                    default:
+                        customerDAO.replay(type, payload, bookingsDAO);
+                }
+            });
+            bookingsDAO.recoveryDone();
+            return new DurableStore(log, customerDAO, bookingsDAO, vehicleDAOs);
+        } catch (IOException | RuntimeException e) {
+            log.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Writes a snapshot of the vehicles, customers and bookings, so the next start only replays the log after this point.
+     * Changes to customers and bookings are held back while their state, their rental histories and the log position
+     * are captured; the file itself is written afterwards.
+     *
+     * @param snapshotFile the snapshot file, replaced atomically
+     * @throws IOException if the snapshot cannot be written
+     */
+    public void checkpoint(Path snapshotFile) throws IOException {
+        checkpoint(snapshotFile, () -> { });
+    }
+
+    // Runs afterCapture once the state has been captured and the locks released, before the file is written,
+    // which lets tests change the store in between
+    void checkpoint(Path snapshotFile, Runnable afterCapture) throws IOException {
+        long logPosition;
+        List<Customer> customers;
+        List<Bookings> bookings;
+        Map<String, List<Long>> histories = new HashMap<>();
+        Map<Long, Bookings> historyBookings = new LinkedHashMap<>();
+        Lock customerLock = customerDAO.checkpointLock();
+        Lock bookingsLock = bookingsDAO.checkpointLock();
+        customerLock.lock();
+        try {
+            bookingsLock.lock();
+            try {
+                logPosition = log.position();
+                customers = customerDAO.findAllCustomers();
+                bookings = bookingsDAO.getAll();
+                // Histories keep growing once the locks are released, so they are copied here
+                for (Customer customer : customers) {
+                    histories.put(customer.getCustomerId(), List.copyOf(customer.getRentalHistory()));
+                    for (Bookings booking : customerDAO.getCustomerBookings(customer.getCustomerId())) {
+                        historyBookings.putIfAbsent(booking.getBookingId(), booking);
+                    }
+                }
+            } finally {
+                bookingsLock.unlock();
+            }
+        } finally {
+            customerLock.unlock();
+        }
+        afterCapture.run();
+        List<Vehicle> vehicles = new ArrayList<>();
+        for (VehicleDAO vehicleDAO : vehicleDAOs) {
+            vehicles.addAll(vehicleDAO.getAll());
+        }
+        FleetSnapshot.write(snapshotFile, logPosition, vehicles, customers, histories, bookings, historyBookings.values());
+    }
+
+    public DurableCustomerDAO getCustomerDAO() {
+        return customerDAO;
+    }
+
+    public DurableBookingsDAO getBookingsDAO() {
+        return bookingsDAO;
+    }
+
+    public WriteAheadLog getLog() {
+        return log;
+    }
+
+    /**
+     * Forces the log to disk and closes it.
+     *
+     * @throws IOException if the log cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        log.close();
+    }
+
+    private static Vehicle findVehicle(List<? extends VehicleDAO> vehicleDAOs, String vehicleId) {
+        for (VehicleDAO vehicleDAO : vehicleDAOs) {
+            Vehicle vehicle = vehicleDAO.getById(vehicleId);
+            if (vehicle != null) {
+                return vehicle;
+            }
+        }
+        return null;
+    }
+}
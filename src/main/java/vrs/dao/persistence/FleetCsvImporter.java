@@ -0,0 +1,455 @@
+package vrs.dao.persistence;
+
+import vrs.dao.BatchResult;
+import vrs.dao.VehicleDAO;
+import vrs.models.enums.vehicle.othercategories.EngineType;
+import vrs.models.enums.vehicle.othercategories.FuelType;
+import vrs.models.enums.vehicle.vehiclecategories.CarCategory;
+import vrs.models.enums.vehicle.vehiclecategories.MotorcycleCategory;
+import vrs.models.enums.vehicle.vehiclecategories.TruckCategory;
+import vrs.models.others.Brand;
+import vrs.models.vehicle.Car;
+import vrs.models.vehicle.Motorcycle;
+import vrs.models.vehicle.Truck;
+import vrs.models.vehicle.Vehicle;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * The {@code FleetCsvImporter} class loads cars, trucks and motorcycles in bulk from a CSV file into a {@code VehicleDAO}.
+ * <p>
+ * The first line is a header naming the columns, in any order and case: {@code type} ({@code CAR}, {@code TRUCK} or
+ * {@code MOTORCYCLE}), {@code vehicleId}, {@code licensePlate}, {@code model}, {@code brand}, {@code brandYear},
+ * {@code brandCountry}, {@code fuelType}, {@code category}, {@code baseRentalRate} and {@code available}, followed by the
+ * columns of each type that occurs in the file: {@code seatingCapacity}, {@code transmissionType}, {@code trunkCapacity}
+ * and {@code mileage} for cars, {@code cargoCapacity}, {@code cargoBedSize} and {@code axleCount} for trucks, and
+ * {@code engineType} and {@code mileage} for motorcycles. Fields may be quoted; a quoted field cannot span lines.
+ * <p>
+ * The file is read through a {@code FileChannel} one chunk at a time and cut into batches of rows. Batches are
+ * parsed in parallel, each row going through the constructor of its vehicle type so the usual validation applies,
+ * and are saved in file order by the calling thread, one {@link VehicleDAO#saveAll(List)} call per batch. Only a
+ * bounded number of batches is in flight at any time, so memory use does not grow with the size of the file. Rows
+ * with the same brand name, year and country share one {@code Brand}, which is linked to each vehicle saved with it.
+ * <p>
+ * A row that cannot be parsed, fails validation or is rejected by the DAO is reported in the {@code ImportReport}
+ * and does not stop the import.
+ */
+public class FleetCsvImporter {
+
+    private static final int DEFAULT_BATCH_SIZE = 1000;
+    private static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
+    private static final String[] COMMON_COLUMNS = {"type", "vehicleId", "licensePlate", "model", "brand", "brandYear",
+            "brandCountry", "fuelType", "category", "baseRentalRate", "available"};
+
+    private final VehicleDAO vehicleDAO;
+    private final int batchSize;
+    private final int parallelism;
+
+    /**
+     * Creates an importer that parses batches of 1000 rows on one thread per available processor.
+     *
+     * @param vehicleDAO the DAO to save the vehicles into
+     */
+    public FleetCsvImporter(VehicleDAO vehicleDAO) {
+        this(vehicleDAO, DEFAULT_BATCH_SIZE, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates an importer with the given batch size and number of parsing threads.
+     *
+     * @param vehicleDAO the DAO to save the vehicles into
+     * @param batchSize the number of rows parsed and saved together
+     * @param parallelism the number of threads parsing batches
+     * @throws IllegalArgumentException if the DAO is null or the batch size or parallelism is not positive
+     */
+    public FleetCsvImporter(VehicleDAO vehicleDAO, int batchSize, int parallelism) {
+        if (vehicleDAO == null) {
+            throw new IllegalArgumentException("Vehicle DAO cannot be null");
+        }
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive");
+        }
+        this.vehicleDAO = vehicleDAO;
+        this.batchSize = batchSize;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Imports every row of the file.
+     *
+     * @param file the CSV file, encoded in UTF-8
+     * @return the number of rows read and imported, and the errors of the rejected rows
+     * @throws IOException if the file cannot be read or its header is missing a common column
+     */
+    public ImportReport importFile(Path file) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            LineReader reader = new LineReader(channel, DEFAULT_CHUNK_SIZE);
+            String headerLine = reader.readLine();
+            if (headerLine == null) {
+                return new ImportReport(0, 0, new ArrayList<>());
+            }
+            Header header = Header.parse(headerLine, file);
+            Map<String, Brand> brands = new ConcurrentHashMap<>();
+            Progress progress = new Progress();
+            Deque<Future<ParsedBatch>> inFlight = new ArrayDeque<>();
+
+            List<String> lines = new ArrayList<>(batchSize);
+            long firstLineNumber = reader.lineNumber() + 1;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+                if (lines.size() == batchSize) {
+                    submit(executor, inFlight, header, brands, firstLineNumber, lines);
+                    lines = new ArrayList<>(batchSize);
+                    firstLineNumber = reader.lineNumber() + 1;
+                    if (inFlight.size() > 2 * parallelism) {
+                        load(await(inFlight.poll()), progress);
+                    }
+                }
+            }
+            if (!lines.isEmpty()) {
+                submit(executor, inFlight, header, brands, firstLineNumber, lines);
+            }
+            while (!inFlight.isEmpty()) {
+                load(await(inFlight.poll()), progress);
+            }
+            return new ImportReport(progress.rowsRead, progress.imported, progress.errors);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void submit(ExecutorService executor, Deque<Future<ParsedBatch>> inFlight, Header header,
+                               Map<String, Brand> brands, long firstLineNumber, List<String> lines) {
+        inFlight.add(executor.submit(() -> parse(header, brands, firstLineNumber, lines)));
+    }
+
+    private static ParsedBatch await(Future<ParsedBatch> batch) throws IOException {
+        try {
+            return batch.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Import interrupted");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Parsing a batch of rows failed", e.getCause());
+        }
+    }
+
+    // Saves a parsed batch with one saveAll call and reports each rejected vehicle under its line number;
+    // runs on the importing thread only, so brands are only changed by one thread
+    private void load(ParsedBatch batch, Progress progress) {
+        progress.rowsRead += batch.rowsRead;
+        BatchResult result = null;
+        String failure = null;
+        try {
+            result = vehicleDAO.saveAll(batch.vehicles);
+        } catch (RuntimeException e) {
+            failure = e.getMessage();
+        }
+        int next = 0;
+        for (int i = 0; i < batch.vehicles.size(); i++) {
+            long lineNumber = batch.vehicleLines[i];
+            while (next < batch.errors.size() && batch.errors.get(next).getLineNumber() < lineNumber) {
+                progress.errors.add(batch.errors.get(next++));
+            }
+            Vehicle vehicle = batch.vehicles.get(i);
+            if (result == null) {
+                progress.errors.add(new ImportReport.RowError(lineNumber, "Vehicle " + vehicle.getVehicleId()
+                        + " was not saved: saving its batch failed: " + failure));
+            } else if (result.isSuccessful(i)) {
+                vehicle.getBrand().addCategory(vehicle.getVehicleCategory());
+                vehicle.getBrand().addVehicle(vehicle);
+                progress.imported++;
+            } else {
+                progress.errors.add(new ImportReport.RowError(lineNumber,
+                        "Vehicle " + vehicle.getVehicleId() + " was not saved: its ID already exists or its type is not supported"));
+            }
+        }
+        while (next < batch.errors.size()) {
+            progress.errors.add(batch.errors.get(next++));
+        }
+    }
+
+    private static ParsedBatch parse(Header header, Map<String, Brand> brands, long firstLineNumber, List<String> lines) {
+        ParsedBatch batch = new ParsedBatch(lines.size());
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i);
+            if (line.isBlank()) {
+                continue;
+            }
+            long lineNumber = firstLineNumber + i;
+            batch.rowsRead++;
+            try {
+                batch.addVehicle(lineNumber, parseVehicle(header, brands, splitFields(line)));
+            } catch (RuntimeException e) {
+                batch.errors.add(new ImportReport.RowError(lineNumber, e.getMessage()));
+            }
+        }
+        return batch;
+    }
+
+    private static Vehicle parseVehicle(Header header, Map<String, Brand> brands, List<String> fields) {
+        if (fields.size() != header.width) {
+            throw new IllegalArgumentException("Expected " + header.width + " fields but found " + fields.size());
+        }
+        String type = header.value(fields, "type").toUpperCase(Locale.ROOT);
+        String vehicleId = header.value(fields, "vehicleId");
+        String licensePlate = header.value(fields, "licensePlate");
+        String model = header.value(fields, "model");
+        Brand brand = brand(brands, header.value(fields, "brand"), parseInt(header, fields, "brandYear"),
+                header.value(fields, "brandCountry"));
+        FuelType fuelType = parseEnum(FuelType.class, header.value(fields, "fuelType"), "fuel type");
+        String category = header.value(fields, "category");
+        double baseRentalRate = parseDouble(header, fields, "baseRentalRate");
+        boolean available = parseBoolean(header, fields, "available");
+        switch (type) {
+            case "CAR":
+                return new Car(vehicleId, licensePlate, model, brand, fuelType,
+                        parseEnum(CarCategory.class, category, "car category"), baseRentalRate, available,
+                        parseInt(header, fields, "seatingCapacity"), header.value(fields, "transmissionType"),
+                        parseDouble(header, fields, "trunkCapacity"), parseDouble(header, fields, "mileage"));
+            case "TRUCK":
+                return new Truck(vehicleId, licensePlate, model, brand, fuelType,
+                        parseEnum(TruckCategory.class, category, "truck category"), baseRentalRate, available,
+                        parseDouble(header, fields, "cargoCapacity"), parseDouble(header, fields, "cargoBedSize"),
+                        parseInt(header, fields, "axleCount"));
+            case "MOTORCYCLE":
+                return new Motorcycle(vehicleId, licensePlate, model, brand, fuelType,
+                        parseEnum(MotorcycleCategory.class, category, "motorcycle category"), baseRentalRate, available,
+                        parseEnum(EngineType.class, header.value(fields, "engineType"), "engine type"),
+                        parseDouble(header, fields, "mileage"));
+            default:
+                throw new IllegalArgumentException("Unknown vehicle type: " + type);
+        }
+    }
+
+    private static Brand brand(Map<String, Brand> brands, String name, int year, String country) {
+        if (name.isEmpty()) {
+            throw new IllegalArgumentException("Brand cannot be empty");
+        }
+        return brands.computeIfAbsent(name + '\n' + year + '\n' + country, key -> new Brand(name, year, country));
+    }
+
+    private static int parseInt(Header header, List<String> fields, String column) {
+        String value = header.value(fields, column);
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + column + ": '" + value + "'");
+        }
+    }
+
+    private static double parseDouble(Header header, List<String> fields, String column) {
+        String value = header.value(fields, column);
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + column + ": '" + value + "'");
+        }
+    }
+
+    private static boolean parseBoolean(Header header, List<String> fields, String column) {
+        String value = header.value(fields, column);
+        if (value.equalsIgnoreCase("true")) {
+            return true;
+        }
+        if (value.equalsIgnoreCase("false")) {
+            return false;
+        }
+        throw new IllegalArgumentException("Invalid " + column + ": '" + value + "'");
+    }
+
+    private static <E extends Enum<E>> E parseEnum(Class<E> type, String value, String description) {
+        try {
+            return Enum.valueOf(type, value.toUpperCase(Locale.ROOT).replace(' ', '_').replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown " + description + ": '" + value + "'");
+        }
+    }
+
+    // Splits a line on commas outside double quotes; a doubled quote inside a quoted field stands for one quote
+    private static List<String> splitFields(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString().trim());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        fields.add(field.toString().trim());
+        return fields;
+    }
+
+    /**
+     * The column positions named by the header line.
+     */
+    private static final class Header {
+
+        private final Map<String, Integer> positions;
+        private final int width;
+
+        private Header(Map<String, Integer> positions, int width) {
+            this.positions = positions;
+            this.width = width;
+        }
+
+        static Header parse(String line, Path file) throws IOException {
+            List<String> names = splitFields(line);
+            Map<String, Integer> positions = new HashMap<>();
+            for (int i = 0; i < names.size(); i++) {
+                if (positions.put(names.get(i).toLowerCase(Locale.ROOT), i) != null) {
+                    throw new IOException("Duplicate column '" + names.get(i) + "' in the header of " + file);
+                }
+            }
+            for (String column : COMMON_COLUMNS) {
+                if (!positions.containsKey(column.toLowerCase(Locale.ROOT))) {
+                    throw new IOException("Missing column '" + column + "' in the header of " + file);
+                }
+            }
+            return new Header(positions, names.size());
+        }
+
+        // Type-specific columns may be missing from the header; only rows of that type are rejected then
+        String value(List<String> fields, String column) {
+            Integer position = positions.get(column.toLowerCase(Locale.ROOT));
+            if (position == null) {
+                throw new IllegalArgumentException("Missing column '" + column + "' for this vehicle type");
+            }
+            return fields.get(position);
+        }
+    }
+
+    /**
+     * The vehicles parsed from one batch of lines, with their line numbers, and the rows that failed.
+     */
+    private static final class ParsedBatch {
+
+        private final List<Vehicle> vehicles;
+        private final long[] vehicleLines;
+        private final List<ImportReport.RowError> errors = new ArrayList<>();
+        private int rowsRead;
+
+        ParsedBatch(int capacity) {
+            this.vehicles = new ArrayList<>(capacity);
+            this.vehicleLines = new long[capacity];
+        }
+
+        void addVehicle(long lineNumber, Vehicle vehicle) {
+            vehicleLines[vehicles.size()] = lineNumber;
+            vehicles.add(vehicle);
+        }
+    }
+
+    /**
+     * The running totals of an import, only touched by the importing thread.
+     */
+    private static final class Progress {
+
+        private long rowsRead;
+        private long imported;
+        private final List<ImportReport.RowError> errors = new ArrayList<>();
+    }
+
+    /**
+     * Reads UTF-8 lines from a channel one chunk at a time. Lines are cut on the newline byte, which never occurs
+     * inside a multi-byte UTF-8 character, so a line split across two chunks is simply carried over to the next one.
+     */
+    private static final class LineReader {
+
+        private final FileChannel channel;
+        private final ByteBuffer chunk;
+        private byte[] line = new byte[256];
+        private int lineLength;
+        private long lineNumber;
+        private boolean endOfFile;
+
+        LineReader(FileChannel channel, int chunkSize) {
+            this.channel = channel;
+            this.chunk = ByteBuffer.allocateDirect(chunkSize);
+            this.chunk.flip();
+        }
+
+        // Returns the next line without its line terminator, or null at the end of the file
+        String readLine() throws IOException {
+            while (true) {
+                while (chunk.hasRemaining()) {
+                    byte b = chunk.get();
+                    if (b == '\n') {
+                        return takeLine();
+                    }
+                    if (lineLength == line.length) {
+                        line = Arrays.copyOf(line, line.length * 2);
+                    }
+                    line[lineLength++] = b;
+                }
+                if (endOfFile) {
+                    return lineLength > 0 ? takeLine() : null;
+                }
+                chunk.clear();
+                endOfFile = channel.read(chunk) < 0;
+                chunk.flip();
+            }
+        }
+
+        long lineNumber() {
+            return lineNumber;
+        }
+
+        private String takeLine() {
+            int start = 0;
+            int end = lineLength;
+            if (end > 0 && line[end - 1] == '\r') {
+                end--;
+            }
+            if (lineNumber == 0 && end >= 3 && line[0] == (byte) 0xEF && line[1] == (byte) 0xBB && line[2] == (byte) 0xBF) {
+                start = 3;
+            }
+            lineNumber++;
+            lineLength = 0;
+            return new String(line, start, end - start, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,465 @@
+package vrs.dao.persistence;
+
+import vrs.dao.BookingsDAO;
+import vrs.dao.CustomerDAO;
+import vrs.dao.VehicleDAO;
+import vrs.models.Bookings;
+import vrs.models.Customer;
+import vrs.models.enums.customer.ContactType;
+import vrs.models.enums.vehicle.othercategories.EngineType;
+import vrs.models.enums.vehicle.othercategories.FuelType;
+import vrs.models.enums.vehicle.vehiclecategories.CarCategory;
+import vrs.models.enums.vehicle.vehiclecategories.MotorcycleCategory;
+import vrs.models.enums.vehicle.vehiclecategories.TruckCategory;
+import vrs.models.interfaces.VehicleCategory;
+import vrs.models.others.Brand;
+import vrs.models.vehicle.Car;
+import vrs.models.vehicle.Motorcycle;
+import vrs.models.vehicle.Truck;
+import vrs.models.vehicle.Vehicle;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * The {@code FleetSnapshot} class writes the vehicles, customers and bookings to a compact, versioned binary
+ * file and loads them back, so a node can start from a snapshot plus the tail of its {@code WriteAheadLog}
+ * instead of replaying the whole log.
+ * <p>
+ * The file is a header (magic number, format version and the log position the snapshot covers), followed by
+ * a brand table, a vehicle table, a customer table, a booking table and a table of the bookings that are only
+ * in rental histories, having been canceled, and a CRC32C of everything before it.
+ * Brands, vehicles and customers are referred to by their position in their table, so every booking takes a
+ * fixed 40 bytes. The file is written to a temporary file and moved into place, and read through a
+ * memory-mapped buffer in one sequential pass.
+ */
+public final class FleetSnapshot {
+
+    private static final int MAGIC = 0x56525353;  // "VRSS"
+    private static final int FORMAT_VERSION = 1;
+
+    private static final byte CAR = 1;
+    private static final byte TRUCK = 2;
+    private static final byte MOTORCYCLE = 3;
+
+    private FleetSnapshot() {
+    }
+
+    /**
+     * Writes a snapshot file, replacing any previous snapshot atomically.
+     * Vehicles and customers referred to by bookings but no longer stored are kept in the file, marked as not stored,
+     * so the bookings can be rebuilt without them being stored again. So are the bookings of rental histories that
+     * are no longer stored.
+     * The histories are passed in as booking IDs captured together with the rest, since the customers' own
+     * histories may have grown since.
+     *
+     * @param file the snapshot file
+     * @param logPosition the log position up to which the snapshot includes all changes
+     * @param vehicles the stored vehicles
+     * @param customers the stored customers
+     * @param histories the booking IDs of each customer's rental history, by customer ID
+     * @param bookings the stored bookings
+     * @param historyBookings the bookings the histories refer to, stored or not
+     * @throws IOException if the snapshot cannot be written
+     */
+    public static void write(Path file, long logPosition, Collection<? extends Vehicle> vehicles, Collection<Customer> customers,
+                             Map<String, List<Long>> histories, Collection<Bookings> bookings,
+                             Collection<Bookings> historyBookings) throws IOException {
+        Map<String, Integer> vehicleIndexes = new HashMap<>();
+        List<Vehicle> vehicleTable = new ArrayList<>(vehicles);
+        List<Boolean> vehicleStored = new ArrayList<>();
+        for (Vehicle vehicle : vehicleTable) {
+            vehicleIndexes.put(vehicle.getVehicleId(), vehicleIndexes.size());
+            vehicleStored.add(true);
+        }
+        Map<String, Integer> customerIndexes = new HashMap<>();
+        List<Customer> customerTable = new ArrayList<>(customers);
+        List<Boolean> customerStored = new ArrayList<>();
+        for (Customer customer : customerTable) {
+            customerIndexes.put(customer.getCustomerId(), customerIndexes.size());
+            customerStored.add(true);
+        }
+        Set<Long> storedBookingIds = new HashSet<>(bookings.size() * 2);
+        for (Bookings booking : bookings) {
+            storedBookingIds.add(booking.getBookingId());
+        }
+        Map<Long, Bookings> historyOnly = new LinkedHashMap<>();
+        for (Bookings booking : historyBookings) {
+            if (!storedBookingIds.contains(booking.getBookingId())) {
+                historyOnly.putIfAbsent(booking.getBookingId(), booking);
+            }
+        }
+        List<Bookings> referencedBookings = new ArrayList<>(bookings);
+        referencedBookings.addAll(historyOnly.values());
+        for (Bookings booking : referencedBookings) {
+            if (vehicleIndexes.putIfAbsent(booking.getVehicle().getVehicleId(), vehicleTable.size()) == null) {
+                vehicleTable.add(booking.getVehicle());
+                vehicleStored.add(false);
+            }
+            if (customerIndexes.putIfAbsent(booking.getCustomer().getCustomerId(), customerTable.size()) == null) {
+                customerTable.add(booking.getCustomer());
+                customerStored.add(false);
+            }
+        }
+        Map<Brand, Integer> brandIndexes = new LinkedHashMap<>();
+        for (Vehicle vehicle : vehicleTable) {
+            brandIndexes.putIfAbsent(vehicle.getBrand(), brandIndexes.size());
+        }
+
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        CRC32C checksum = new CRC32C();
+        try (OutputStream fileOut = Files.newOutputStream(temporary);
+             CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(fileOut, 1 << 16), checksum);
+             DataOutputStream out = new DataOutputStream(checked)) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(logPosition);
+
+            out.writeInt(brandIndexes.size());
+            for (Brand brand : brandIndexes.keySet()) {
+                writeString(out, brand.getBrandName());
+                out.writeInt(brand.getYear());
+                writeString(out, brand.getCountryOfOrigin());
+                out.writeInt(brand.getCategory().size());
+                for (VehicleCategory category : brand.getCategory()) {
+                    writeCategory(out, category);
+                }
+            }
+
+            out.writeInt(vehicleTable.size());
+            for (int i = 0; i < vehicleTable.size(); i++) {
+                writeVehicle(out, vehicleTable.get(i), brandIndexes.get(vehicleTable.get(i).getBrand()), vehicleStored.get(i));
+            }
+
+            out.writeInt(customerTable.size());
+            for (int i = 0; i < customerTable.size(); i++) {
+                Customer customer = customerTable.get(i);
+                out.writeBoolean(customerStored.get(i));
+                writeString(out, customer.getCustomerId());
+                writeString(out, customer.getCustomerName());
+                writeString(out, customer.getLicenseNumber());
+                Map<ContactType, String> contactInfo = customer.getContactInfo() == null ? Map.of() : customer.getContactInfo();
+                out.writeInt(contactInfo.size());
+                for (Map.Entry<ContactType, String> contact : contactInfo.entrySet()) {
+                    out.writeByte(contact.getKey().ordinal());
+                    writeString(out, contact.getValue());
+                }
+                List<Long> history = histories.getOrDefault(customer.getCustomerId(), List.of());
+                out.writeInt(history.size());
+                for (long bookingId : history) {
+                    out.writeLong(bookingId);
+                }
+            }
+
+            writeBookings(out, bookings, vehicleIndexes, customerIndexes);
+            writeBookings(out, historyOnly.values(), vehicleIndexes, customerIndexes);
+
+            out.flush();
+            fileOut.write(ByteBuffer.allocate(Long.BYTES).putLong(checksum.getValue()).array());
+        }
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Loads a snapshot into empty DAOs. Each stored vehicle is saved into the first vehicle DAO that accepts it,
+     * customers are restored without logging, and bookings are restored in bulk, which rebuilds the booking
+     * indexes in parallel.
+     *
+     * @param file the snapshot file
+     * @param vehicleDAOs the DAOs to save the vehicles into, e.g. a {@code CarDAO}, a {@code TruckDAO} and a {@code MotorcycleDAO}
+     * @param customerDAO the DAO to restore the customers into
+     * @param bookingsDAO the empty DAO to restore the bookings into
+     * @return the log position up to which the snapshot includes all changes
+     * @throws IOException if the snapshot cannot be read or is corrupt
+     */
+    public static long load(Path file, List<? extends VehicleDAO> vehicleDAOs, CustomerDAO customerDAO,
+                            BookingsDAO bookingsDAO) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot " + file + " is too large to map");
+            }
+            if (size < 3 * Integer.BYTES + Long.BYTES) {
+                throw new IOException("Snapshot " + file + " is truncated");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+            CRC32C checksum = new CRC32C();
+            checksum.update(buffer.slice(0, (int) size - Long.BYTES));
+            if (buffer.getLong((int) size - Long.BYTES) != checksum.getValue()) {
+                throw new IOException("Snapshot " + file + " is corrupt");
+            }
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException(file + " is not a snapshot");
+            }
+            int version = buffer.getInt();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unsupported snapshot version " + version + " in " + file);
+            }
+            long logPosition = buffer.getLong();
+
+            Brand[] brands = new Brand[buffer.getInt()];
+            for (int i = 0; i < brands.length; i++) {
+                Brand brand = new Brand(readString(buffer), buffer.getInt(), readString(buffer));
+                int categories = buffer.getInt();
+                for (int c = 0; c < categories; c++) {
+                    brand.addCategory(readCategory(buffer));
+                }
+                brands[i] = brand;
+            }
+
+            Vehicle[] vehicles = new Vehicle[buffer.getInt()];
+            for (int i = 0; i < vehicles.length; i++) {
+                boolean stored = buffer.get() != 0;
+                Vehicle vehicle = readVehicle(buffer, brands);
+                vehicles[i] = vehicle;
+                if (stored && vehicle != null) {
+                    saveVehicle(vehicle, vehicleDAOs);
+                }
+            }
+
+            Customer[] customers = new Customer[buffer.getInt()];
+            long[][] histories = new long[customers.length][];
+            List<Customer> storedCustomers = new ArrayList<>(customers.length);
+            for (int i = 0; i < customers.length; i++) {
+                boolean stored = buffer.get() != 0;
+                Customer customer = new Customer(readString(buffer), readString(buffer), readString(buffer));
+                int contacts = buffer.getInt();
+                for (int c = 0; c < contacts; c++) {
+                    customer.getContactInfo().put(ContactType.values()[buffer.get()], readString(buffer));
+                }
+                histories[i] = new long[buffer.getInt()];
+                for (int h = 0; h < histories[i].length; h++) {
+                    histories[i][h] = buffer.getLong();
+                }
+                customers[i] = customer;
+                if (stored) {
+                    storedCustomers.add(customer);
+                }
+            }
+            customerDAO.restoreAll(storedCustomers);
+
+            Map<Long, Bookings> bookingsById = new HashMap<>();
+            List<Bookings> bookings = readBookings(buffer, vehicles, customers, bookingsById);
+            bookingsDAO.restoreAll(bookings);
+            readBookings(buffer, vehicles, customers, bookingsById);
+
+            for (int i = 0; i < customers.length; i++) {
+                List<Bookings> history = new ArrayList<>(histories[i].length);
+                for (long bookingId : histories[i]) {
+                    Bookings booking = bookingsById.get(bookingId);
+                    if (booking != null) {
+                        history.add(booking);
+                    }
+                }
+                customerDAO.restoreHistory(customers[i].getCustomerId(), history);
+            }
+            return logPosition;
+        }
+    }
+
+    private static void writeBookings(DataOutputStream out, Collection<Bookings> bookings, Map<String, Integer> vehicleIndexes,
+                                      Map<String, Integer> customerIndexes) throws IOException {
+        out.writeInt(bookings.size());
+        for (Bookings booking : bookings) {
+            out.writeLong(booking.getBookingId());
+            out.writeInt(vehicleIndexes.get(booking.getVehicle().getVehicleId()));
+            out.writeInt(customerIndexes.get(booking.getCustomer().getCustomerId()));
+            writeDateTime(out, booking.getRentalDate());
+            writeDateTime(out, booking.getReturnDate());
+        }
+    }
+
+    // Reads a booking table, adding each booking to bookingsById too
+    private static List<Bookings> readBookings(ByteBuffer buffer, Vehicle[] vehicles, Customer[] customers,
+                                               Map<Long, Bookings> bookingsById) {
+        int bookingCount = buffer.getInt();
+        List<Bookings> bookings = new ArrayList<>(bookingCount);
+        for (int i = 0; i < bookingCount; i++) {
+            long bookingId = buffer.getLong();
+            Vehicle vehicle = vehicles[buffer.getInt()];
+            Customer customer = customers[buffer.getInt()];
+            LocalDateTime rentalDate = readDateTime(buffer);
+            LocalDateTime returnDate = readDateTime(buffer);
+            if (vehicle == null) {
+                continue;  // Its vehicle could not be rebuilt, which has already been reported
+            }
+            Bookings booking = new Bookings(vehicle, customer, rentalDate, returnDate);
+            booking.setBookingId(bookingId);
+            bookings.add(booking);
+            bookingsById.put(bookingId, booking);
+        }
+        return bookings;
+    }
+
+    private static void writeVehicle(DataOutputStream out, Vehicle vehicle, int brandIndex, boolean stored) throws IOException {
+        out.writeBoolean(stored);
+        if (vehicle instanceof Car) {
+            out.writeByte(CAR);
+        } else if (vehicle instanceof Truck) {
+            out.writeByte(TRUCK);
+        } else if (vehicle instanceof Motorcycle) {
+            out.writeByte(MOTORCYCLE);
+        } else {
+            throw new IllegalArgumentException("Unsupported vehicle type: " + vehicle.getClass().getName());
+        }
+        writeString(out, vehicle.getVehicleId());
+        writeString(out, vehicle.getLicensePlate());
+        writeString(out, vehicle.getModel());
+        out.writeInt(brandIndex);
+        out.writeBoolean(vehicle.getBrand().getAssociatedVehicles().contains(vehicle));
+        out.writeByte(vehicle.getFuelType().ordinal());
+        writeCategory(out, vehicle.getVehicleCategory());
+        out.writeDouble(vehicle.getBaseRentalRate());
+        out.writeBoolean(vehicle.isAvailable());
+        if (vehicle instanceof Car) {
+            Car car = (Car) vehicle;
+            out.writeInt(car.getSeatingCapacity());
+            writeString(out, car.getTransmissionType());
+            out.writeDouble(car.getTrunkCapacity());
+            out.writeDouble(car.getMileage());
+        } else if (vehicle instanceof Truck) {
+            Truck truck = (Truck) vehicle;
+            out.writeDouble(truck.getCargoCapacity());
+            out.writeDouble(truck.getCargoBedSize());
+            out.writeInt(truck.getAxleCount());
+        } else {
+            Motorcycle motorcycle = (Motorcycle) vehicle;
+            out.writeByte(motorcycle.getEngineType() == null ? -1 : motorcycle.getEngineType().ordinal());
+            out.writeDouble(motorcycle.getMileage());
+        }
+    }
+
+    // Rebuilds a vehicle through its constructor, so it is validated like any new vehicle; returns null if it is rejected
+    private static Vehicle readVehicle(ByteBuffer in, Brand[] brands) {
+        byte type = in.get();
+        String vehicleId = readString(in);
+        String licensePlate = readString(in);
+        String model = readString(in);
+        Brand brand = brands[in.getInt()];
+        boolean associated = in.get() != 0;
+        FuelType fuelType = FuelType.values()[in.get()];
+        VehicleCategory category = readCategory(in);
+        double baseRentalRate = in.getDouble();
+        boolean available = in.get() != 0;
+        try {
+            Vehicle vehicle;
+            switch (type) {
+                case CAR:
+                    vehicle = new Car(vehicleId, licensePlate, model, brand, fuelType, (CarCategory) category, baseRentalRate,
+                            available, in.getInt(), readString(in), in.getDouble(), in.getDouble());
+                    break;
+                case TRUCK:
+                    vehicle = new Truck(vehicleId, licensePlate, model, brand, fuelType, (TruckCategory) category, baseRentalRate,
+                            available, in.getDouble(), in.getDouble(), in.getInt());
+                    break;
+                case MOTORCYCLE:
+                    byte engine = in.get();
+                    vehicle = new Motorcycle(vehicleId, licensePlate, model, brand, fuelType, (MotorcycleCategory) category,
+                            baseRentalRate, available, engine < 0 ? null : EngineType.values()[engine], in.getDouble());
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown vehicle type " + type);
+            }
+            if (associated) {
+                brand.getAssociatedVehicles().add(vehicle);
+            }
+            return vehicle;
+        } catch (IllegalArgumentException e) {
+            // Constructor arguments are evaluated first, so the attributes have been read even though it threw
+            System.out.println("Skipping vehicle " + vehicleId + " from snapshot: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static void saveVehicle(Vehicle vehicle, List<? extends VehicleDAO> vehicleDAOs) {
+        for (VehicleDAO vehicleDAO : vehicleDAOs) {
+            if (vehicleDAO.save(vehicle)) {
+                return;
+            }
+        }
+        System.out.println("No vehicle DAO accepted vehicle " + vehicle.getVehicleId() + " from snapshot");
+    }
+
+    private static void writeCategory(DataOutputStream out, VehicleCategory category) throws IOException {
+        if (category instanceof CarCategory) {
+            out.writeByte(CAR);
+        } else if (category instanceof TruckCategory) {
+            out.writeByte(TRUCK);
+        } else if (category instanceof MotorcycleCategory) {
+            out.writeByte(MOTORCYCLE);
+        } else {
+            out.writeByte(0);
+            return;
+        }
+        out.writeByte(((Enum<?>) category).ordinal());
+    }
+
+    private static VehicleCategory readCategory(ByteBuffer in) {
+        switch (in.get()) {
+            case CAR:
+                return CarCategory.values()[in.get()];
+            case TRUCK:
+                return TruckCategory.values()[in.get()];
+            case MOTORCYCLE:
+                return MotorcycleCategory.values()[in.get()];
+            default:
+                return null;
+        }
+    }
+
+    private static void writeDateTime(DataOutputStream out, LocalDateTime dateTime) throws IOException {
+        out.writeLong(dateTime.toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(dateTime.getNano());
+    }
+
+    private static LocalDateTime readDateTime(ByteBuffer in) {
+        return LocalDateTime.ofEpochSecond(in.getLong(), in.getInt(), ZoneOffset.UTC);
+    }
+
+    // Strings are stored as a UTF-8 byte count followed by the bytes; -1 stands for null
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,78 @@
+package vrs.dao.persistence;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The {@code ImportReport} class is the outcome of a bulk import: how many data rows were read, how many
+ * vehicles were saved, and why each of the other rows was rejected.
+ */
+public final class ImportReport {
+
+    private final long rowsRead;
+    private final long vehiclesImported;
+    private final List<RowError> errors;
+
+    ImportReport(long rowsRead, long vehiclesImported, List<RowError> errors) {
+        this.rowsRead = rowsRead;
+        this.vehiclesImported = vehiclesImported;
+        this.errors = Collections.unmodifiableList(errors);
+    }
+
+    public long getRowsRead() {
+        return rowsRead;
+    }
+
+    public long getVehiclesImported() {
+        return vehiclesImported;
+    }
+
+    /**
+     * Returns the rejected rows, in the order they appear in the file.
+     *
+     * @return the errors, one per rejected row
+     */
+    public List<RowError> getErrors() {
+        return errors;
+    }
+
+    public boolean hasErrors() {
+        return !errors.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "ImportReport{" +
+                "rowsRead=" + rowsRead +
+                ", vehiclesImported=" + vehiclesImported +
+                ", errors=" + errors.size() +
+                '}';
+    }
+
+    /**
+     * A row that was not imported, with its line number in the file (the header being line 1) and the reason.
+     */
+    public static final class RowError {
+
+        private final long lineNumber;
+        private final String message;
+
+        RowError(long lineNumber, String message) {
+            this.lineNumber = lineNumber;
+            this.message = message;
+        }
+
+        public long getLineNumber() {
+            return lineNumber;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return "Line " + lineNumber + ": " + message;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package vrs.dao.persistence;
+
+import vrs.models.Bookings;
+import vrs.models.Customer;
+import vrs.models.enums.customer.ContactType;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The {@code LogCodec} class encodes customers and bookings into the binary payloads stored in the
+ * {@code WriteAheadLog}, and decodes them again. Bookings refer to their vehicle and customer by ID, and
+ * customers to the bookings of their rental history by booking ID.
+ */
+final class LogCodec {
+
+    private LogCodec() {
+    }
+
+    static byte[] encodeCustomer(Customer customer) {
+        return encode(out -> writeCustomer(out, customer));
+    }
+
+    static CustomerRecord decodeCustomer(byte[] payload) {
+        ByteArrayInputStream bytes = new ByteArrayInputStream(payload);
+        return decode(bytes, in -> {
+            Customer customer = readCustomer(in);
+            // Records written before rental histories were logged end after the contact details
+            long[] historyIds = null;
+            if (bytes.available() > 0) {
+                historyIds = new long[in.readInt()];
+                for (int i = 0; i < historyIds.length; i++) {
+                    historyIds[i] = in.readLong();
+                }
+            }
+            return new CustomerRecord(customer, historyIds);
+        });
+    }
+
+    static byte[] encodeBooking(Bookings booking) {
+        return encode(out -> writeBooking(out, booking));
+    }
+
+    static BookingRecord decodeBooking(byte[] payload) {
+        return decode(payload, LogCodec::readBooking);
+    }
+
+    static byte[] encodeCustomerBooking(String customerId, long bookingId) {
+        return encode(out -> {
+            out.writeUTF(customerId);
+            out.writeLong(bookingId);
+        });
+    }
+
+    static byte[] encodeString(String value) {
+        return encode(out -> out.writeUTF(value));
+    }
+
+    static String decodeString(byte[] payload) {
+        return decode(payload, DataInput::readUTF);
+    }
+
+    static byte[] encodeLong(long value) {
+        return encode(out -> out.writeLong(value));
+    }
+
+    static long decodeLong(byte[] payload) {
+        return decode(payload, DataInput::readLong);
+    }
+
+    static void writeCustomer(DataOutput out, Customer customer) throws IOException {
+        out.writeUTF(customer.getCustomerId());
+        out.writeUTF(customer.getCustomerName());
+        out.writeUTF(customer.getLicenseNumber());
+        Map<ContactType, String> contactInfo = customer.getContactInfo();
+        out.writeInt(contactInfo == null ? 0 : contactInfo.size());
+        if (contactInfo != null) {
+            for (Map.Entry<ContactType, String> contact : contactInfo.entrySet()) {
+                out.writeByte(contact.getKey().ordinal());
+                out.writeUTF(contact.getValue());
+            }
+        }
+        List<Long> history = customer.getRentalHistory();
+        out.writeInt(history.size());
+        for (long bookingId : history) {
+            out.writeLong(bookingId);
+        }
+    }
+
+    static Customer readCustomer(DataInput in) throws IOException {
+        Customer customer = new Customer(in.readUTF(), in.readUTF(), in.readUTF());
+        int contacts = in.readInt();
+        Map<ContactType, String> contactInfo = new EnumMap<>(ContactType.class);
+        for (int i = 0; i < contacts; i++) {
+            contactInfo.put(ContactType.values()[in.readByte()], in.readUTF());
+        }
+        customer.getContactInfo().putAll(contactInfo);
+        return customer;
+    }
+
+    static void writeBooking(DataOutput out, Bookings booking) throws IOException {
+        out.writeLong(booking.getBookingId());
+        out.writeUTF(booking.getVehicle().getVehicleId());
+        out.writeUTF(booking.getCustomer().getCustomerId());
+        writeDateTime(out, booking.getRentalDate());
+        writeDateTime(out, booking.getReturnDate());
+    }
+
+    static BookingRecord readBooking(DataInput in) throws IOException {
+        return new BookingRecord(in.readLong(), in.readUTF(), in.readUTF(), readDateTime(in), readDateTime(in));
+    }
+
+    static void writeDateTime(DataOutput out, LocalDateTime dateTime) throws IOException {
+        out.writeLong(dateTime.toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(dateTime.getNano());
+    }
+
+    static LocalDateTime readDateTime(DataInput in) throws IOException {
+        return LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+    }
+
+    private static byte[] encode(Writer writer) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            writer.write(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static <T> T decode(byte[] payload, Reader<T> reader) {
+        return decode(new ByteArrayInputStream(payload), reader);
+    }
+
+    private static <T> T decode(ByteArrayInputStream payload, Reader<T> reader) {
+        try (DataInputStream in = new DataInputStream(payload)) {
+            return reader.read(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Corrupt log record", e);
+        }
+    }
+
+    private interface Writer {
+        void write(DataOutput out) throws IOException;
+    }
+
+    interface Reader<T> {
+        T read(DataInput in) throws IOException;
+    }
+
+    /**
+     * A decoded customer whose rental history is still referred to by booking ID.
+     */
+    static final class CustomerRecord {
+        final Customer customer;
+        final long[] historyIds;  // null if the record was written without the history
+
+        CustomerRecord(Customer customer, long[] historyIds) {
+            this.customer = customer;
+            this.historyIds = historyIds;
+        }
+    }
+
+    /**
+     * A decoded booking whose vehicle and customer are still referred to by ID.
+     */
+    static final class BookingRecord {
+        final long bookingId;
+        final String vehicleId;
+        final String customerId;
+        final LocalDateTime rentalDate;
+        final LocalDateTime returnDate;
+
+        BookingRecord(long bookingId, String vehicleId, String customerId, LocalDateTime rentalDate, LocalDateTime returnDate) {
+            this.bookingId = bookingId;
+            this.vehicleId = vehicleId;
+            this.customerId = customerId;
+            this.rentalDate = rentalDate;
+            this.returnDate = returnDate;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package vrs.dao.persistence;
+
+/**
+ * The {@code LogRecordType} enum lists the kinds of changes recorded in the {@code WriteAheadLog}.
+ * Each type is written as a single byte code, which must never change once records have been written.
+ */
+public enum LogRecordType {
+    CUSTOMER_SAVED((byte) 1),
+    CUSTOMER_UPDATED((byte) 2),
+    CUSTOMER_DELETED((byte) 3),
+    CUSTOMER_BOOKING_ADDED((byte) 4),
+    BOOKING_SAVED((byte) 10),
+    BOOKING_UPDATED((byte) 11),
+    BOOKING_CANCELED((byte) 12);
+
+    private final byte code;
+
+    LogRecordType(byte code) {
+        this.code = code;
+    }
+
+    public byte getCode() {
+        return code;
+    }
+
+    /**
+     * Returns the record type written with the given code.
+     *
+     * @param code the byte code read from the log
+     * @return the matching record type
+     * @throws IllegalArgumentException if no record type uses the code
+     */
+    public static LogRecordType fromCode(byte code) {
+        for (LogRecordType type : values()) {
+            if (type.code == code) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException("Unknown log record type: " + code);
+    }
+}
@@ -0,0 +1,368 @@
+package vrs.dao.persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.zip.CRC32C;
+
+/**
+ * The {@code WriteAheadLog} class is an append-only, checksummed binary log of changes on local disk.
+ * <p>
+ * The file starts with a magic number and a format version, followed by records of the form
+ * {@code [payload length][CRC32C of type and payload][type][payload]}. When the log is opened,
+ * a torn or corrupt tail left by a crash is cut off at the last complete record.
+ * <p>
+ * Writing a record and making it durable are two steps: {@link #append} writes the record and returns its
+ * log position, and {@link #commit} waits until that position is on disk as required by the
+ * {@link DurabilityLevel}. With {@link DurabilityLevel#BATCHED}, the first committing thread forces the log
+ * for everyone who appended before it, so concurrent commits share one fsync.
+ * <p>
+ * A record that fails part way through being written is cut off again, so every later record still starts at the
+ * position the previous one returned. If it cannot be cut off, the log refuses any further appends.
+ */
+public class WriteAheadLog implements Closeable {
+
+    private static final int MAGIC = 0x56525357;  // "VRSW"
+    private static final int FORMAT_VERSION = 1;
+    private static final int FILE_HEADER_SIZE = 8;
+    private static final int RECORD_HEADER_SIZE = 9;  // length, checksum and type
+    private static final long DEFAULT_ASYNC_FLUSH_INTERVAL_MILLIS = 200;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final DurabilityLevel durability;
+    private final ScheduledExecutorService asyncFlusher;
+
+    private final Object appendLock = new Object();
+    private final Object syncLock = new Object();
+    private volatile long writtenPosition;  // written under appendLock
+    private long durablePosition;           // guarded by syncLock
+    private boolean syncInProgress;         // guarded by syncLock
+    private volatile boolean closed;
+    private IOException failure;            // guarded by appendLock; set when a torn record could not be cut off
+
+    private WriteAheadLog(Path file, FileChannel channel, long validEnd, DurabilityLevel durability, long asyncFlushIntervalMillis) {
+        this.file = file;
+        this.channel = channel;
+        this.durability = durability;
+        this.writtenPosition = validEnd;
+        this.durablePosition = validEnd;
+        if (durability == DurabilityLevel.ASYNC) {
+            asyncFlusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "wal-flusher-" + file.getFileName());
+                thread.setDaemon(true);
+                return thread;
+            });
+            asyncFlusher.scheduleWithFixedDelay(this::flushQuietly, asyncFlushIntervalMillis, asyncFlushIntervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            asyncFlusher = null;
+        }
+    }
+
+    /**
+     * Opens the log file, creating it if needed, and cuts off any incomplete record at its end.
+     *
+     * @param file the log file
+     * @param durability when appended records are forced to disk
+     * @return the opened log, positioned after its last complete record
+     * @throws IOException if the file cannot be opened or is not a log file
+     */
+    public static WriteAheadLog open(Path file, DurabilityLevel durability) throws IOException {
+        return open(file, durability, DEFAULT_ASYNC_FLUSH_INTERVAL_MILLIS);
+    }
+
+    /**
+     * Opens the log file, creating it if needed, and cuts off any incomplete record at its end.
+     *
+     * @param file the log file
+     * @param durability when appended records are forced to disk
+     * @param asyncFlushIntervalMillis how often the log is forced to disk with {@link DurabilityLevel#ASYNC}
+     * @return the opened log, positioned after its last complete record
+     * @throws IOException if the file cannot be opened or is not a log file
+     */
+    public static WriteAheadLog open(Path file, DurabilityLevel durability, long asyncFlushIntervalMillis) throws IOException {
+        if (durability == null) {
+            throw new IllegalArgumentException("Durability level cannot be null");
+        }
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            if (channel.size() < FILE_HEADER_SIZE) {
+                ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE).putInt(MAGIC).putInt(FORMAT_VERSION).flip();
+                channel.truncate(0);
+                writeFully(channel, header, 0);
+                channel.force(true);
+            } else {
+                ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE);
+                readFully(channel, header, 0);
+                header.flip();
+                if (header.getInt() != MAGIC) {
+                    throw new IOException(file + " is not a write-ahead log");
+                }
+                int version = header.getInt();
+                if (version != FORMAT_VERSION) {
+                    throw new IOException("Unsupported write-ahead log version " + version + " in " + file);
+                }
+            }
+            long validEnd = scan(channel, FILE_HEADER_SIZE, null);
+            if (validEnd < channel.size()) {
+                channel.truncate(validEnd);  // Drop the torn tail of an interrupted write
+                channel.force(true);
+            }
+            channel.position(validEnd);
+            return new WriteAheadLog(file, channel, validEnd, durability, asyncFlushIntervalMillis);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the durability level of this log.
+     *
+     * @return the durability level
+     */
+    public DurabilityLevel getDurability() {
+        return durability;
+    }
+
+    /**
+     * Feeds every complete record to the handler, in the order they were appended.
+     *
+     * @param handler receives the type and payload of each record
+     * @throws IOException if the log cannot be read
+     */
+    public void replay(BiConsumer<LogRecordType, byte[]> handler) throws IOException {
+        replay(FILE_HEADER_SIZE, handler);
+    }
+
+    /**
+     * Feeds every complete record from the given position onwards to the handler, in the order they were appended.
+     *
+     * @param fromPosition a position returned by {@link #append} or {@link #position}, e.g. the position a snapshot was taken at
+     * @param handler receives the type and payload of each record
+     * @throws IOException if the log cannot be read
+     */
+    public void replay(long fromPosition, BiConsumer<LogRecordType, byte[]> handler) throws IOException {
+        synchronized (appendLock) {
+            if (fromPosition > writtenPosition) {
+                throw new IOException("Position " + fromPosition + " is beyond the end of " + file);
+            }
+            scan(channel, Math.max(fromPosition, FILE_HEADER_SIZE), handler);
+        }
+    }
+
+    /**
+     * Returns the position just after the last appended record.
+     *
+     * @return the current end of the log
+     */
+    public long position() {
+        return writtenPosition;
+    }
+
+    /**
+     * Appends a record to the log. The record is not necessarily durable until {@link #commit} returns.
+     *
+     * @param type the type of the record
+     * @param payload the encoded change
+     * @return the log position just after the record
+     * @throws UncheckedIOException if the record cannot be written
+     * @throws IllegalStateException if the log is closed, or an earlier record could not be written nor cut off
+     */
+    public long append(LogRecordType type, byte[] payload) {
+        CRC32C checksum = new CRC32C();
+        checksum.update(type.getCode());
+        checksum.update(payload);
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + payload.length)
+                .putInt(payload.length)
+                .putInt((int) checksum.getValue())
+                .put(type.getCode())
+                .put(payload)
+                .flip();
+        synchronized (appendLock) {
+            if (closed) {
+                throw new IllegalStateException("Write-ahead log " + file + " is closed");
+            }
+            if (failure != null) {
+                throw new IllegalStateException("Write-ahead log " + file + " failed and no longer accepts records", failure);
+            }
+            try {
+                while (record.hasRemaining()) {
+                    channel.write(record);
+                }
+            } catch (IOException e) {
+                discardTornRecord(e);
+                throw new UncheckedIOException("Failed to append to " + file, e);
+            }
+            writtenPosition += record.limit();
+            return writtenPosition;
+        }
+    }
+
+    /**
+     * Waits until the log is durable up to the given position, as required by the durability level.
+     *
+     * @param position a position returned by {@link #append}
+     * @throws UncheckedIOException if the log cannot be forced to disk
+     */
+    public void commit(long position) {
+        switch (durability) {
+            case PER_WRITE:
+                force();
+                break;
+            case BATCHED:
+                awaitDurable(position);
+                break;
+            case ASYNC:
+                break;
+        }
+    }
+
+    /**
+     * Appends a record and commits it.
+     *
+     * @param type the type of the record
+     * @param payload the encoded change
+     */
+    public void write(LogRecordType type, byte[] payload) {
+        commit(append(type, payload));
+    }
+
+    /**
+     * Forces everything written so far to disk and closes the log.
+     *
+     * @throws IOException if the log cannot be forced or closed
+     */
+    @Override
+    public void close() throws IOException {
+        if (asyncFlusher != null) {
+            asyncFlusher.shutdown();
+        }
+        synchronized (appendLock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            channel.force(false);
+            channel.close();
+        }
+    }
+
+    // Cuts the part of a record written before the failure off again, or fails the log if that is not possible;
+    // the caller holds appendLock
+    private void discardTornRecord(IOException cause) {
+        try {
+            channel.truncate(writtenPosition);
+            channel.position(writtenPosition);
+        } catch (IOException e) {
+            cause.addSuppressed(e);
+            failure = cause;
+        }
+    }
+
+    // Group commit: one thread forces the log for all records appended so far, the others wait for it
+    private void awaitDurable(long position) {
+        while (true) {
+            synchronized (syncLock) {
+                while (syncInProgress && durablePosition < position) {
+                    try {
+                        syncLock.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new UncheckedIOException(new InterruptedIOException("Interrupted while waiting for " + file));
+                    }
+                }
+                if (durablePosition >= position) {
+                    return;
+                }
+                syncInProgress = true;
+            }
+            try {
+                force();
+            } finally {
+                synchronized (syncLock) {
+                    syncInProgress = false;
+                    syncLock.notifyAll();
+                }
+            }
+        }
+    }
+
+    private void force() {
+        long target = writtenPosition;
+        try {
+            channel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to force " + file + " to disk", e);
+        }
+        synchronized (syncLock) {
+            durablePosition = Math.max(durablePosition, target);
+            syncLock.notifyAll();
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            if (!closed) {
+                force();
+            }
+        } catch (UncheckedIOException e) {
+            System.out.println("Error flushing write-ahead log: " + e.getMessage());
+        }
+    }
+
+    // Reads records from the given position and returns the position after the last complete, valid record
+    private static long scan(FileChannel channel, long from, BiConsumer<LogRecordType, byte[]> handler) throws IOException {
+        long size = channel.size();
+        long position = from;
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        while (position + RECORD_HEADER_SIZE <= size) {
+            header.clear();
+            readFully(channel, header, position);
+            header.flip();
+            int length = header.getInt();
+            int expectedChecksum = header.getInt();
+            byte code = header.get();
+            if (length < 0 || position + RECORD_HEADER_SIZE + length > size) {
+                break;
+            }
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            readFully(channel, payload, position + RECORD_HEADER_SIZE);
+            CRC32C checksum = new CRC32C();
+            checksum.update(code);
+            checksum.update(payload.array());
+            if ((int) checksum.getValue() != expectedChecksum) {
+                break;
+            }
+            if (handler != null) {
+                handler.accept(LogRecordType.fromCode(code), payload.array());
+            }
+            position += RECORD_HEADER_SIZE + length;
+        }
+        return position;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new IOException("Unexpected end of write-ahead log");
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position());
+        }
+    }
+}
@@ -7,6 +7,7 @@ import java.time.temporal.ChronoUnit;
 import java.util.Objects;
 
 public class Bookings {
+    private long bookingId;
     private Vehicle vehicle;
     private Customer customer;
     private LocalDateTime rentalDate;
@@ -25,6 +26,10 @@ public class Bookings {
         this.returnDate = returnDate;
     }
 
+    public long getBookingId() {
+        return bookingId;
+    }
+
     public Vehicle getVehicle() {
         return vehicle;
     }
@@ -41,6 +46,11 @@ public class Bookings {
         return returnDate;
     }
 
+    // Assigned by the bookings database when the booking is first saved; 0 means not saved yet
+    public void setBookingId(long bookingId) {
+        this.bookingId = bookingId;
+    }
+
     public void setVehicle(Vehicle vehicle) {
         this.vehicle = vehicle;
     }
@@ -64,8 +74,9 @@ public class Bookings {
     @Override
     public String toString() {
         return "Bookings{" +
-                "vehicle=" + vehicle +
-                ", customer=" + customer +
+                "bookingId=" + bookingId +
+                ", vehicle=" + vehicle +
+                ", customerId=" + (customer == null ? null : customer.getCustomerId()) +
                 ", rentalDate=" + rentalDate +
                 ", returnDate=" + returnDate +
                 '}';
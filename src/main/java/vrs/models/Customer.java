@@ -2,18 +2,18 @@ package vrs.models;
 
 import vrs.models.enums.customer.ContactType;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class Customer {
     private final String customerId;
     private final String customerName;
     private final String licenseNumber;
     private Map<ContactType, String> contactInfo;
-    private final List<Bookings> rentalHistory;
+    private final List<Long> rentalHistory;  // Booking IDs, so a customer never holds on to the bookings themselves
 
     public Customer(String customerId, String customerName, String licenseNumber) {
         if (customerId == null || customerId.isEmpty()) throw new IllegalArgumentException("ID cannot be null or empty");
@@ -23,7 +23,7 @@ public class Customer {
         this.customerName = customerName;
         this.licenseNumber = licenseNumber;
         this.contactInfo = new HashMap<>();
-        this.rentalHistory = new ArrayList<>();
+        this.rentalHistory = new CopyOnWriteArrayList<>();  // Read far more often than appended to, and safe to iterate while bookings are added
     }
 
     public String getCustomerId() {
@@ -41,7 +41,7 @@ public class Customer {
         return contactInfo;
     }
 
-    public List<Bookings> getRentalHistory() {
+    public List<Long> getRentalHistory() {
         return rentalHistory;
     }
 
@@ -49,10 +49,8 @@ public class Customer {
         this.contactInfo = contactInfo;
     }
 
-    public void addBookingToHistory(Bookings booking) {
-        if (booking != null) {
-            rentalHistory.add(booking);
-        }
+    public void addBookingToHistory(long bookingId) {
+        rentalHistory.add(bookingId);
     }
 
     @Override
@@ -7,11 +7,18 @@ import vrs.models.interfaces.VehicleCategory;
 import vrs.models.vehicle.Vehicle;
 
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class Brand {
+    private static final Map<String, Integer> BRAND_IDS = new ConcurrentHashMap<>();
+    private static final AtomicInteger NEXT_BRAND_ID = new AtomicInteger();
+
     private String brandName;
+    private int brandId;
     private String countryOfOrigin;
     private int year;
     private Set<VehicleCategory> category;
@@ -19,6 +26,7 @@ public class Brand {
 
     public Brand(String brandName, int year, String countryOfOrigin) {
         this.brandName = brandName;
+        this.brandId = idOf(brandName);
         this.countryOfOrigin = countryOfOrigin;
         this.year = year;
         this.category = new HashSet<>();
@@ -29,6 +37,15 @@ public class Brand {
         return brandName;
     }
 
+    /**
+     * Returns the ID of this brand's name, as given by {@link #idOf(String)}.
+     *
+     * @return the brand ID, or -1 if the brand has no name
+     */
+    public int getBrandId() {
+        return brandId;
+    }
+
     public String getCountryOfOrigin() {
         return countryOfOrigin;
     }
@@ -45,6 +62,7 @@ public class Brand {
 
     public void setBrandName(String brandName) {
         this.brandName = brandName;
+        this.brandId = idOf(brandName);
     }
 
     public void setCountryOfOrigin(String countryOfOrigin) {
@@ -78,6 +96,20 @@ public class Brand {
         }
     }
 
+    /**
+     * Returns the ID shared by every brand with the given name, assigning the next free one the first time the
+     * name is seen. IDs are small and dense from 0, so they can index arrays of per-brand values.
+     *
+     * @param brandName the brand name
+     * @return the brand ID, or -1 if the name is {@code null}
+     */
+    public static int idOf(String brandName) {
+        if (brandName == null) {
+            return -1;
+        }
+        return BRAND_IDS.computeIfAbsent(brandName, name -> NEXT_BRAND_ID.getAndIncrement());
+    }
+
     @Override
     public String toString() {
         return "Brand{" +
@@ -65,6 +65,24 @@ public class Car extends Vehicle {
         this.mileage = mileage;
     }
 
+    /**
+     * Constructs a copy of another {@code Car}, sharing its brand.
+     *
+     * @param other the car to copy
+     */
+    public Car(Car other) {
+        super(other);
+        this.seatingCapacity = other.seatingCapacity;
+        this.transmissionType = other.transmissionType;
+        this.trunkCapacity = other.trunkCapacity;
+        this.mileage = other.mileage;
+    }
+
+    @Override
+    public Car copy() {
+        return new Car(this);
+    }
+
     /**
      * Returns the seating capacity of the car.
      *
@@ -158,8 +176,8 @@ public class Car extends Vehicle {
     }
 
     @Override
-    protected RentalCostCalculator createRentalCostCalculator() {
-        return new CarRentalCostCalculator();
+    protected RentalCostCalculator getRentalCostCalculator() {
+        return CarRentalCostCalculator.getInstance();
     }
 
     /**
@@ -50,6 +50,22 @@ public Motorcycle(String vehicleId, String licensePlate, String model, Brand bra
         this.mileage = mileage;
     }
 
+    /**
+     * Constructs a copy of another {@code Motorcycle}, sharing its brand.
+     *
+     * @param other the motorcycle to copy
+     */
+    public Motorcycle(Motorcycle other) {
+        super(other);
+        this.engineType = other.engineType;
+        this.mileage = other.mileage;
+    }
+
+    @Override
+    public Motorcycle copy() {
+        return new Motorcycle(this);
+    }
+
     /**
      * Returns the engine type of the motorcycle.
      *
@@ -93,8 +109,8 @@ public Motorcycle(String vehicleId, String licensePlate, String model, Brand bra
     }
 
     @Override
-    protected RentalCostCalculator createRentalCostCalculator() {
-        return new MotorRentalCostCalculator();
+    protected RentalCostCalculator getRentalCostCalculator() {
+        return MotorRentalCostCalculator.getInstance();
     }
 
     /**
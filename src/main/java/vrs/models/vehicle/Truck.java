@@ -57,6 +57,23 @@ public class Truck extends Vehicle {
         this.axleCount = axleCount;
     }
 
+    /**
+     * Constructs a copy of another {@code Truck}, sharing its brand.
+     *
+     * @param other the truck to copy
+     */
+    public Truck(Truck other) {
+        super(other);
+        this.cargoCapacity = other.cargoCapacity;
+        this.cargoBedSize = other.cargoBedSize;
+        this.axleCount = other.axleCount;
+    }
+
+    @Override
+    public Truck copy() {
+        return new Truck(this);
+    }
+
     /**
      * Returns the cargo capacity of the truck in kilograms.
      *
@@ -127,8 +144,8 @@ public class Truck extends Vehicle {
     }
 
     @Override
-    protected RentalCostCalculator createRentalCostCalculator() {
-        return new TruckRentalCostCalculator();
+    protected RentalCostCalculator getRentalCostCalculator() {
+        return TruckRentalCostCalculator.getInstance();
     }
 
     /**
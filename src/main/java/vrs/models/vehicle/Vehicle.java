@@ -1,12 +1,12 @@
 package vrs.models.vehicle;
 
+import vrs.business.PricingContext;
 import vrs.business.RentalCostCalculator;
 import vrs.models.Bookings;
 import vrs.models.others.Brand;
 import vrs.models.interfaces.VehicleCategory;
 import vrs.models.enums.vehicle.othercategories.FuelType;
 
-import java.time.Year;
 import java.util.Objects;
 
 public abstract class  Vehicle {
@@ -49,6 +49,30 @@ public abstract class  Vehicle {
         this.isAvailable = isAvailable;
     }
 
+    /**
+     * Copies the fields of another vehicle, which has been validated already. The brand is shared, not copied.
+     *
+     * @param other the vehicle to copy
+     */
+    protected Vehicle(Vehicle other) {
+        this.vehicleId = other.vehicleId;
+        this.licensePlate = other.licensePlate;
+        this.model = other.model;
+        this.brand = other.brand;
+        this.fuelType = other.fuelType;
+        this.vehicleCategory = other.vehicleCategory;
+        this.baseRentalRate = other.baseRentalRate;
+        this.isAvailable = other.isAvailable;
+    }
+
+    /**
+     * Returns a copy of this vehicle that can be changed through its setters without changing this one.
+     * The brand is shared between the two.
+     *
+     * @return the copy
+     */
+    public abstract Vehicle copy();
+
     // Getters and Setters
     public String getVehicleId() {
         return vehicleId;
@@ -113,15 +137,22 @@ public abstract class  Vehicle {
     }
 
     public int calculateAge() {
-        int currentYear = Year.now().getValue();
+        return calculateAge(PricingContext.systemDefault().getCurrentYear());
+    }
+
+    public int calculateAge(int currentYear) {
         return currentYear - brand.getYear();
     }
 
-    protected abstract RentalCostCalculator createRentalCostCalculator();
+    /**
+     * Returns the calculator that prices bookings of this kind of vehicle, shared by all vehicles of the kind.
+     *
+     * @return the shared calculator
+     */
+    protected abstract RentalCostCalculator getRentalCostCalculator();
 
     public double calculateRentalCost(Bookings booking) {
-        RentalCostCalculator costCalculator = createRentalCostCalculator();
-        return costCalculator.calculateRentalCost(this, booking);
+        return getRentalCostCalculator().calculateRentalCost(this, booking);
     }
 
     /**
@@ -1,11 +1,15 @@
 package vrs.services;
 
+import vrs.dao.BatchResult;
 import vrs.dao.BookingsDAO;
+import vrs.dao.ReservationResult;
+import vrs.dao.Versioned;
 import vrs.models.Bookings;
 import vrs.models.Customer;
 import vrs.models.vehicle.Vehicle;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 public class BookingsService {
 
@@ -25,6 +29,28 @@ public class BookingsService {
         return bookingsDAO.save(booking);
     }
 
+    /**
+     * Saves a batch of new bookings, taking each write lock once and, with a durable DAO, waiting for the log once.
+     *
+     * @param bookings the bookings to save
+     * @return for each booking, whether it was saved
+     */
+    public BatchResult saveBookings(List<Bookings> bookings) {
+        return bookingsDAO.saveAll(bookings);
+    }
+
+    /**
+     * Reserves a vehicle for a booking, unless the vehicle is already booked for an overlapping period.
+     * Unlike calling {@code bookingExists} and then {@code saveBooking}, the check and the save happen as
+     * one step, so two customers can never reserve the same vehicle for the same time.
+     *
+     * @param booking the booking to reserve
+     * @return the outcome, with the conflicting bookings if the period is taken
+     */
+    public ReservationResult reserveBooking(Bookings booking) {
+        return bookingsDAO.reserve(booking);
+    }
+
     /**
      * Updates an existing booking in the system.
      *
@@ -35,6 +61,38 @@ public class BookingsService {
         return bookingsDAO.update(booking);
     }
 
+    /**
+     * Updates a batch of existing bookings, taking each write lock once and, with a durable DAO, waiting for the log once.
+     *
+     * @param bookings the bookings to update
+     * @return for each booking, whether it was updated
+     */
+    public BatchResult updateBookings(List<Bookings> bookings) {
+        return bookingsDAO.updateAll(bookings);
+    }
+
+    /**
+     * Updates an existing booking only if nobody else updated it since {@code expectedVersion} was read
+     * with {@link #getVersionedBooking(long)}.
+     *
+     * @param booking the booking to update, with its booking ID
+     * @param expectedVersion the version the update is based on
+     * @return {@code true} if the booking was updated successfully, {@code false} if it is missing or was changed meanwhile
+     */
+    public boolean updateBooking(Bookings booking, long expectedVersion) {
+        return bookingsDAO.compareAndUpdate(booking, expectedVersion);
+    }
+
+    /**
+     * Retrieves a booking together with its current version, for a later {@link #updateBooking(Bookings, long)}.
+     *
+     * @param bookingId the ID of the booking to retrieve
+     * @return the booking and its version, or {@code null} if not found
+     */
+    public Versioned<Bookings> getVersionedBooking(long bookingId) {
+        return bookingsDAO.getVersioned(bookingId);
+    }
+
     /**
      * Cancels a booking made by a specific customer for a specific vehicle.
      *
@@ -66,6 +124,26 @@ public class BookingsService {
         return bookingsDAO.getAll();
     }
 
+    /**
+     * Streams all bookings lazily, in booking ID order, without copying them into a list.
+     *
+     * @return a stream of all bookings
+     */
+    public Stream<Bookings> streamAllBookings() {
+        return bookingsDAO.stream();
+    }
+
+    /**
+     * Retrieves the next page of bookings in booking ID order, e.g. the next 50 after a given booking ID.
+     *
+     * @param afterBookingId the ID of the last booking of the previous page, or 0 for the first page
+     * @param pageSize the maximum number of bookings to return
+     * @return the bookings of the page; fewer than {@code pageSize} means it is the last page
+     */
+    public List<Bookings> getBookingsPage(long afterBookingId, int pageSize) {
+        return bookingsDAO.getPage(afterBookingId, pageSize);
+    }
+
     /**
      * Retrieves a list of bookings for a specific vehicle.
      *
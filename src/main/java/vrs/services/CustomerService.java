@@ -1,10 +1,12 @@
 package vrs.services;
 
+import vrs.dao.BatchResult;
 import vrs.dao.CustomerDAO;
 import vrs.models.Customer;
 import vrs.models.Bookings;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * The {@code CustomerService} class provides business logic and operations for handling customers.
@@ -31,6 +33,17 @@ public class CustomerService {
         }
     }
 
+    /**
+     * Registers a batch of new customers, taking each write lock once for the whole batch and, with a durable DAO,
+     * waiting for the log once. A customer that cannot be registered does not stop the others.
+     *
+     * @param customers the customers to register
+     * @return for each customer, whether it was registered
+     */
+    public BatchResult registerCustomers(List<Customer> customers) {
+        return customerDAO.saveCustomers(customers);
+    }
+
     /**
      * Updates the details of an existing customer.
      *
@@ -44,6 +57,17 @@ public class CustomerService {
         }
     }
 
+    /**
+     * Updates the details of a batch of existing customers, taking each write lock once for the whole batch
+     * and, with a durable DAO, waiting for the log once. A customer that cannot be updated does not stop the others.
+     *
+     * @param customers the customers with updated details
+     * @return for each customer, whether it was updated
+     */
+    public BatchResult updateCustomers(List<Customer> customers) {
+        return customerDAO.updateCustomers(customers);
+    }
+
     /**
      * Retrieves a customer by their ID.
      *
@@ -69,7 +93,7 @@ public class CustomerService {
     }
 
     /**
-     * Adds a booking to a customer's rental history.
+     * Adds a saved booking to a customer's rental history.
      *
      * @param customerId the ID of the customer
      * @param booking the booking to add
@@ -77,7 +101,7 @@ public class CustomerService {
     public void addBookingToHistory(String customerId, Bookings booking) {
         try {
             customerDAO.addBookingToCustomerHistory(customerId, booking);
-        } catch (IllegalStateException e) {
+        } catch (IllegalArgumentException | IllegalStateException e) {
             System.out.println("Error adding booking: " + e.getMessage());
         }
     }
@@ -105,4 +129,24 @@ public class CustomerService {
     public List<Customer> getAllCustomers() {
         return customerDAO.findAllCustomers();
     }
+
+    /**
+     * Streams all customers lazily, in customer ID order, without copying them into a list.
+     *
+     * @return a stream of all customers
+     */
+    public Stream<Customer> streamAllCustomers() {
+        return customerDAO.streamAllCustomers();
+    }
+
+    /**
+     * Retrieves the next page of customers in customer ID order, e.g. the next 50 after a given customer ID.
+     *
+     * @param afterCustomerId the ID of the last customer of the previous page, or {@code null} for the first page
+     * @param pageSize the maximum number of customers to return
+     * @return the customers of the page; fewer than {@code pageSize} means it is the last page
+     */
+    public List<Customer> getCustomersPage(String afterCustomerId, int pageSize) {
+        return customerDAO.findCustomersPage(afterCustomerId, pageSize);
+    }
 }
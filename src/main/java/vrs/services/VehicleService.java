@@ -1,8 +1,16 @@
 package vrs.services;
 
+import vrs.dao.BatchResult;
 import vrs.dao.VehicleDAO;
+import vrs.dao.Versioned;
+import vrs.dao.persistence.FleetCsvImporter;
+import vrs.dao.persistence.ImportReport;
 import vrs.models.vehicle.Vehicle;
+
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * The {@code VehicleService} class provides business logic and operations for handling vehicles.
@@ -31,6 +39,32 @@ public class VehicleService {
         }
     }
 
+    /**
+     * Adds a batch of new vehicles, taking each write lock once for the whole batch instead of once per vehicle.
+     *
+     * @param vehicles the vehicles to add
+     * @return for each vehicle, whether it was added
+     */
+    public BatchResult addVehicles(List<? extends Vehicle> vehicles) {
+        return vehicleDAO.saveAll(vehicles);
+    }
+
+    /**
+     * Adds the vehicles listed in a CSV file in bulk, as described in {@link FleetCsvImporter}.
+     * Invalid rows are skipped and listed in the returned report.
+     *
+     * @param csvFile the CSV file to import
+     * @return the import report, or {@code null} if the file could not be read
+     */
+    public ImportReport importVehicles(Path csvFile) {
+        try {
+            return new FleetCsvImporter(vehicleDAO).importFile(csvFile);
+        } catch (IOException e) {
+            System.out.println("Error importing vehicles: " + e.getMessage());
+            return null;
+        }
+    }
+
     /**
      * Updates an existing vehicle in the system.
      *
@@ -46,6 +80,43 @@ public class VehicleService {
         }
     }
 
+    /**
+     * Updates a batch of existing vehicles, taking each write lock once for the whole batch instead of once per vehicle.
+     *
+     * @param vehicles the vehicles with updated information
+     * @return for each vehicle, whether it was updated
+     */
+    public BatchResult updateVehicles(List<? extends Vehicle> vehicles) {
+        return vehicleDAO.updateAll(vehicles);
+    }
+
+    /**
+     * Updates an existing vehicle only if nobody else updated it since {@code expectedVersion} was read
+     * with {@link #getVersionedVehicle(String)}.
+     *
+     * @param vehicle the vehicle with updated information
+     * @param expectedVersion the version the update is based on
+     * @return {@code true} if the vehicle was updated successfully, {@code false} if it is missing or was changed meanwhile
+     */
+    public boolean updateVehicle(Vehicle vehicle, long expectedVersion) {
+        try {
+            return vehicleDAO.compareAndUpdate(vehicle, expectedVersion);
+        } catch (Exception e) {
+            System.out.println("Error updating vehicle: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Retrieves a vehicle together with its current version, for a later {@link #updateVehicle(Vehicle, long)}.
+     *
+     * @param vehicleId the ID of the vehicle to retrieve
+     * @return the vehicle and its version, or {@code null} if not found
+     */
+    public Versioned<Vehicle> getVersionedVehicle(String vehicleId) {
+        return vehicleDAO.getVersioned(vehicleId);
+    }
+
     /**
      * Deletes a vehicle by its ID (cancels the vehicle from the system).
      *
@@ -71,6 +142,16 @@ public class VehicleService {
         return vehicleDAO.getById(vehicleId);
     }
 
+    /**
+     * Retrieves a batch of vehicles by their IDs.
+     *
+     * @param vehicleIds the IDs of the vehicles to retrieve
+     * @return the vehicles, in the same order as their IDs, with {@code null} for an ID that is not found
+     */
+    public List<Vehicle> getVehiclesByIds(List<String> vehicleIds) {
+        return vehicleDAO.getByIds(vehicleIds);
+    }
+
     /**
      * Retrieves all vehicles in the system.
      *
@@ -80,6 +161,26 @@ public class VehicleService {
         return vehicleDAO.getAll();
     }
 
+    /**
+     * Streams all vehicles lazily, without copying the whole fleet into a list.
+     *
+     * @return a stream of all vehicles
+     */
+    public Stream<Vehicle> streamAllVehicles() {
+        return vehicleDAO.stream();
+    }
+
+    /**
+     * Retrieves the next page of vehicles in vehicle ID order, e.g. the next 50 after a given vehicle ID.
+     *
+     * @param afterVehicleId the ID of the last vehicle of the previous page, or {@code null} for the first page
+     * @param pageSize the maximum number of vehicles to return
+     * @return the vehicles of the page; fewer than {@code pageSize} means it is the last page
+     */
+    public List<Vehicle> getVehiclesPage(String afterVehicleId, int pageSize) {
+        return vehicleDAO.getPage(afterVehicleId, pageSize);
+    }
+
     /**
      * Retrieves a list of available vehicles.
      *
@@ -0,0 +1,138 @@
+package vrs.business;
+
+import org.junit.jupiter.api.Test;
+import vrs.models.Bookings;
+import vrs.models.Customer;
+import vrs.models.enums.vehicle.othercategories.EngineType;
+import vrs.models.enums.vehicle.othercategories.FuelType;
+import vrs.models.enums.vehicle.vehiclecategories.CarCategory;
+import vrs.models.enums.vehicle.vehiclecategories.MotorcycleCategory;
+import vrs.models.enums.vehicle.vehiclecategories.TruckCategory;
+import vrs.models.others.Brand;
+import vrs.models.vehicle.Car;
+import vrs.models.vehicle.Motorcycle;
+import vrs.models.vehicle.Truck;
+import vrs.models.vehicle.Vehicle;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RentalCostCalculatorTest {
+
+    private static final int CURRENT_YEAR = 2026;
+
+    // Rentals start before, inside and after the calendar's horizon, and some run across its ends
+    private static final LocalDateTime[] RENTAL_DATES = {
+            LocalDateTime.of(2023, 12, 20, 9, 0), LocalDateTime.of(2024, 12, 28, 18, 30),
+            LocalDateTime.of(2026, 2, 27, 10, 0), LocalDateTime.of(2026, 6, 30, 23, 59),
+            LocalDateTime.of(2026, 12, 24, 8, 0), LocalDateTime.of(2027, 12, 30, 12, 0),
+            LocalDateTime.of(2031, 3, 1, 0, 0)};
+    private static final long[] RENTAL_DAYS = {0, 1, 2, 6, 7, 13, 30, 45, 400, 2000};
+
+    @Test
+    void batchCarCostsAreExactlyThoseOfSingleQuotes() {
+        PricingContext context = context();
+        List<Vehicle> cars = List.of(
+                new Car("V1", "GR-1", "Corolla", new Brand("Toyota", 2022, "Japan"), FuelType.PETROL, CarCategory.SEDAN,
+                        45.0, true, 5, "AUTOMATIC", 470, 11.0),
+                new Car("V2", "GR-2", "X5", new Brand("BMW", 2019, "Germany"), FuelType.DIESEL, CarCategory.SUV,
+                        95.5, true, 5, "AUTOMATIC", 650, 9.0),
+                new Car("V3", "GR-3", "Leaf", new Brand("Nissan", 2026, "Japan"), FuelType.ELECTRIC, CarCategory.HATCHBACK,
+                        38.25, true, 4, "AUTOMATIC", 435, 14.5));
+        assertBatchMatchesSingleQuotes(new CarRentalCostCalculator(context), cars, context);
+    }
+
+    @Test
+    void batchTruckCostsAreExactlyThoseOfSingleQuotes() {
+        PricingContext context = context();
+        List<Vehicle> trucks = List.of(
+                new Truck("V1", "GT-1", "Hilux", new Brand("Toyota", 2022, "Japan"), FuelType.DIESEL, TruckCategory.PICKUP,
+                        80.0, true, 1000, 1500, 2),
+                new Truck("V2", "GT-2", "579", new Brand("Peterbilt", 2015, "USA"), FuelType.DIESEL,
+                        TruckCategory.SEMI_TRUCK, 210.75, true, 3200, 4000, 6));
+        assertBatchMatchesSingleQuotes(new TruckRentalCostCalculator(context), trucks, context);
+    }
+
+    @Test
+    void batchMotorcycleCostsAreExactlyThoseOfSingleQuotes() {
+        PricingContext context = context();
+        List<Vehicle> motorcycles = List.of(
+                new Motorcycle("V1", "GM-1", "MT-07", new Brand("Yamaha", 2021, "Japan"), FuelType.PETROL,
+                        MotorcycleCategory.STANDARD, 30.0, true, EngineType.TWIN_CYLINDER, 25),
+                new Motorcycle("V2", "GM-2", "Zero SR", new Brand("Zero", 2024, "USA"), FuelType.ELECTRIC,
+                        MotorcycleCategory.TOURING, 52.4, true, EngineType.ELECTRIC, 40));
+        assertBatchMatchesSingleQuotes(new MotorRentalCostCalculator(context), motorcycles, context);
+    }
+
+    private static void assertBatchMatchesSingleQuotes(RentalCostCalculator calculator, List<Vehicle> vehicles,
+                                                       PricingContext context) {
+        Customer customer = new Customer("C1", "Ama Mensah", "DL-C1");
+        List<Vehicle> quotedVehicles = new ArrayList<>();
+        List<Bookings> bookings = new ArrayList<>();
+        for (Vehicle vehicle : vehicles) {
+            for (LocalDateTime rentalDate : RENTAL_DATES) {
+                for (long days : RENTAL_DAYS) {
+                    quotedVehicles.add(vehicle);
+                    bookings.add(new Bookings(vehicle, customer, rentalDate, rentalDate.plusDays(days).plusHours(days % 5)));
+                }
+            }
+        }
+        int count = bookings.size();
+        double[] baseRates = new double[count];
+        int[] vehicleAges = new int[count];
+        int[] categoryOrdinals = new int[count];
+        int[] fuelOrdinals = new int[count];
+        int[] brandIds = new int[count];
+        long[] startEpochDays = new long[count];
+        long[] daysRented = new long[count];
+        for (int i = 0; i < count; i++) {
+            Vehicle vehicle = quotedVehicles.get(i);
+            baseRates[i] = vehicle.getBaseRentalRate();
+            vehicleAges[i] = vehicle.calculateAge(context.getCurrentYear());
+            categoryOrdinals[i] = ((Enum<?>) vehicle.getVehicleCategory()).ordinal();
+            fuelOrdinals[i] = vehicle.getFuelType().ordinal();
+            brandIds[i] = vehicle.getBrand().getBrandId();
+            startEpochDays[i] = bookings.get(i).getRentalDate().toLocalDate().toEpochDay();
+            daysRented[i] = bookings.get(i).calculateRentalDuration();
+        }
+        double[] costs = new double[count];
+
+        calculator.calculateRentalCosts(baseRates, vehicleAges, categoryOrdinals, fuelOrdinals, brandIds, startEpochDays,
+                daysRented, costs);
+
+        for (int i = 0; i < count; i++) {
+            assertEquals(calculator.calculateRentalCost(quotedVehicles.get(i), bookings.get(i)), costs[i], 0.0,
+                    bookings.get(i).toString());
+        }
+    }
+
+    // Prices by rules with every kind of factor set, at a fixed time
+    private static PricingContext context() {
+        Properties config = new Properties();
+        config.setProperty("car.category.SUV", "1.3");
+        config.setProperty("car.fuel.DIESEL", "1.05");
+        config.setProperty("car.brand.BMW", "1.25");
+        config.setProperty("car.age.rate", "0.03");
+        config.setProperty("car.duration.7", "0.1");
+        config.setProperty("car.duration.30", "0.2");
+        config.setProperty("truck.category.PICKUP", "1.15");
+        config.setProperty("truck.brand.Peterbilt", "1.4");
+        config.setProperty("truck.duration.14", "0.05");
+        config.setProperty("motorcycle.fuel.ELECTRIC", "0.9");
+        config.setProperty("motorcycle.brand.Yamaha", "1.1");
+        config.setProperty("motorcycle.duration.3", "0.15");
+        config.setProperty("calendar.horizon.years", "2");
+        config.setProperty("calendar.holiday.christmas", "12-25:0.35");
+        config.setProperty("calendar.holiday.leap", "02-29:0.2");
+        config.setProperty("calendar.surge.festival", "2026-06-28..2026-07-04:0.6");
+        Clock clock = Clock.fixed(Instant.parse(CURRENT_YEAR + "-05-15T12:00:00Z"), ZoneOffset.UTC);
+        return new PricingContext(clock, PricingRules.fromProperties(config, CURRENT_YEAR));
+    }
+}
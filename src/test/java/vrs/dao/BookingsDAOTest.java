@@ -0,0 +1,94 @@
+package vrs.dao;
+
+import org.junit.jupiter.api.Test;
+import vrs.models.Bookings;
+import vrs.models.Customer;
+import vrs.models.enums.vehicle.othercategories.FuelType;
+import vrs.models.enums.vehicle.vehiclecategories.CarCategory;
+import vrs.models.others.Brand;
+import vrs.models.vehicle.Car;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class BookingsDAOTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2025, 3, 1, 10, 0);
+
+    @Test
+    void concurrentReservationsOfOverlappingPeriodsReserveOneOfThem() throws Exception {
+        BookingsDAO bookingsDAO = new BookingsDAO();
+        Customer customer = new Customer("C1", "Ama Mensah", "DL-C1");
+        List<Car> vehicles = List.of(car("V1"), car("V2"), car("V3"));
+        int threads = 8;
+        int rounds = 50;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (int round = 0; round < rounds; round++) {
+                LocalDateTime roundStart = START.plusDays(3L * round);
+                CountDownLatch ready = new CountDownLatch(threads);
+                List<Future<ReservationResult>> results = new ArrayList<>();
+                for (int i = 0; i < threads; i++) {
+                    // Every thread asks for a different but overlapping day of one of the vehicles
+                    Car vehicle = vehicles.get(i % vehicles.size());
+                    LocalDateTime rentalDate = roundStart.plusHours(i);
+                    results.add(executor.submit(() -> {
+                        ready.countDown();
+                        ready.await();
+                        return bookingsDAO.reserve(new Bookings(vehicle, customer, rentalDate, rentalDate.plusDays(1)));
+                    }));
+                }
+                int reserved = 0;
+                for (Future<ReservationResult> result : results) {
+                    ReservationResult outcome = result.get();
+                    reserved += outcome.isReserved() ? 1 : 0;
+                    if (!outcome.isReserved()) {
+                        assertEquals(ReservationResult.Status.CONFLICT, outcome.getStatus());
+                    }
+                }
+                assertEquals(vehicles.size(), reserved, "round " + round);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(vehicles.size() * rounds, bookingsDAO.getAll().size());
+        for (Car vehicle : vehicles) {
+            List<Bookings> booked = bookingsDAO.getBookingsByVehicle(vehicle);
+            assertEquals(rounds, booked.size());
+            for (Bookings booking : booked) {
+                assertEquals(List.of(booking), bookingsDAO.findOverlappingBookings(vehicle, booking.getRentalDate(),
+                        booking.getReturnDate()));
+            }
+        }
+    }
+
+    @Test
+    void aReservationFreedByCancellingCanBeReservedAgain() {
+        BookingsDAO bookingsDAO = new BookingsDAO();
+        Customer customer = new Customer("C1", "Ama Mensah", "DL-C1");
+        Car vehicle = car("V1");
+        ReservationResult first = bookingsDAO.reserve(new Bookings(vehicle, customer, START, START.plusDays(2)));
+        assertEquals(ReservationResult.Status.RESERVED, first.getStatus());
+        assertFalse(bookingsDAO.reserve(new Bookings(vehicle, customer, START.plusDays(1), START.plusDays(3))).isReserved());
+
+        bookingsDAO.cancel(first.getBooking().getBookingId());
+
+        assertEquals(ReservationResult.Status.RESERVED,
+                bookingsDAO.reserve(new Bookings(vehicle, customer, START.plusDays(1), START.plusDays(3))).getStatus());
+        assertEquals(1, bookingsDAO.getAll().size());
+    }
+
+    private static Car car(String vehicleId) {
+        return new Car(vehicleId, "GR-" + vehicleId, "Corolla", new Brand("Toyota", 2022, "Japan"), FuelType.PETROL,
+                CarCategory.SEDAN, 45.0, true, 5, "AUTOMATIC", 470, 11.0);
+    }
+}
@@ -0,0 +1,87 @@
+package vrs.dao.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TinyLfuCacheTest {
+
+    @Test
+    void concurrentMissesForTheSameKeyShareOneLoad() throws Exception {
+        TinyLfuCache<String, String> cache = new TinyLfuCache<>(100);
+        AtomicInteger loaderCalls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> cache.get("V1", key -> {
+                    loaderCalls.incrementAndGet();
+                    await(release);
+                    return "value of " + key;
+                })));
+            }
+            // Every thread has missed before the load finishes, so all but one wait for it
+            while (cache.getStats().getMissCount() < threads) {
+                Thread.onSpinWait();
+            }
+            release.countDown();
+            for (Future<String> result : results) {
+                assertEquals("value of V1", result.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, loaderCalls.get());
+        assertEquals(1, cache.getStats().getLoadCount());
+        assertEquals("value of V1", cache.getIfPresent("V1"));
+    }
+
+    @Test
+    void aKeyInvalidatedWhileLoadingIsNotCached() throws Exception {
+        TinyLfuCache<String, String> cache = new TinyLfuCache<>(100);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> stale = executor.submit(() -> cache.get("V1", key -> {
+                loading.countDown();
+                await(release);
+                return "before write";
+            }));
+            assertTrue(loading.await(10, TimeUnit.SECONDS));
+            // A write to the backing store invalidates the key while the old value is still being read
+            cache.invalidate("V1");
+            release.countDown();
+
+            assertEquals("before write", stale.get(10, TimeUnit.SECONDS));
+            assertNull(cache.getIfPresent("V1"));
+            assertEquals("after write", cache.get("V1", key -> "after write"));
+            assertEquals("after write", cache.getIfPresent("V1"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
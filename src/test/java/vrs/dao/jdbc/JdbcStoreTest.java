@@ -0,0 +1,224 @@
+package vrs.dao.jdbc;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import vrs.dao.BatchResult;
+import vrs.dao.ReservationResult;
+import vrs.models.Bookings;
+import vrs.models.Customer;
+import vrs.models.enums.vehicle.othercategories.EngineType;
+import vrs.models.enums.vehicle.othercategories.FuelType;
+import vrs.models.enums.vehicle.vehiclecategories.CarCategory;
+import vrs.models.enums.vehicle.vehiclecategories.MotorcycleCategory;
+import vrs.models.enums.vehicle.vehiclecategories.TruckCategory;
+import vrs.models.others.Brand;
+import vrs.models.vehicle.Car;
+import vrs.models.vehicle.Motorcycle;
+import vrs.models.vehicle.Truck;
+import vrs.models.vehicle.Vehicle;
+
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JdbcStoreTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2025, 3, 1, 10, 0);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void carsTrucksAndMotorcyclesReadBackAsStored() throws SQLException {
+        List<Vehicle> vehicles = List.of(car("V1"), truck("V2"), motorcycle("V3"),
+                new Car("V4", "GR-4", "Yaris", brand(), FuelType.HYBRID, null, 38.0, false, 4, "MANUAL", 350, 14.5));
+        try (JdbcStore store = JdbcStore.open(directory.resolve("vrs"), 2)) {
+            for (Vehicle vehicle : vehicles) {
+                assertTrue(store.getVehicleDAO().save(vehicle), vehicle.getVehicleId());
+            }
+        }
+        // Read back after reopening, so nothing comes from an object kept by the DAO
+        try (JdbcStore store = JdbcStore.open(directory.resolve("vrs"), 2)) {
+            for (Vehicle vehicle : vehicles) {
+                Vehicle stored = store.getVehicleDAO().getById(vehicle.getVehicleId());
+                assertEquals(vehicle.getClass(), stored.getClass());
+                assertEquals(vehicle.toString(), stored.toString());
+            }
+            assertEquals(vehicles.size(), store.getVehicleDAO().getAll().size());
+        }
+    }
+
+    @Test
+    void savingABatchOfVehiclesSkipsRepeatedAndStoredIds() throws SQLException {
+        try (JdbcStore store = JdbcStore.open(directory.resolve("vrs"), 2)) {
+            JdbcVehicleDAO vehicleDAO = store.getVehicleDAO();
+            vehicleDAO.save(car("V1"));
+            BatchResult saved = vehicleDAO.saveAll(Arrays.asList(truck("V2"), car("V1"), motorcycle("V3"), truck("V2"), null));
+            assertEquals(List.of(1, 3, 4), saved.getFailedIndexes());
+            assertEquals(3, vehicleDAO.getAll().size());
+        }
+    }
+
+    @Test
+    void savingABatchOfBookingsSkipsThoseOfMissingVehicles() throws SQLException {
+        try (JdbcStore store = JdbcStore.open(directory.resolve("vrs"), 2)) {
+            Customer customer = storedCustomer(store, "C1");
+            Car stored = car("V1");
+            store.getVehicleDAO().save(stored);
+            Bookings first = new Bookings(stored, customer, START, START.plusDays(2));
+            Bookings missing = new Bookings(car("V9"), customer, START, START.plusDays(2));
+            Bookings second = new Bookings(stored, customer, START.plusDays(5), START.plusDays(6));
+
+            BatchResult saved = store.getBookingsDAO().saveAll(List.of(first, missing, second));
+
+            assertEquals(List.of(1), saved.getFailedIndexes());
+            assertEquals(List.of(first.getBookingId(), second.getBookingId()),
+                    store.getBookingsDAO().getAll().stream().map(Bookings::getBookingId).toList());
+        }
+    }
+
+    @Test
+    void savingABatchOfBookingsSkipsRepeatedAndStoredIds() throws SQLException {
+        try (JdbcStore store = JdbcStore.open(directory.resolve("vrs"), 2)) {
+            Customer customer = storedCustomer(store, "C1");
+            Car stored = car("V1");
+            store.getVehicleDAO().save(stored);
+            Bookings first = new Bookings(stored, customer, START, START.plusDays(2));
+            store.getBookingsDAO().save(first);
+            Bookings again = new Bookings(stored, customer, START.plusDays(5), START.plusDays(6));
+            again.setBookingId(first.getBookingId());
+            Bookings next = new Bookings(stored, customer, START.plusDays(8), START.plusDays(9));
+
+            BatchResult saved = store.getBookingsDAO().saveAll(List.of(again, next, next));
+
+            assertEquals(List.of(0, 2), saved.getFailedIndexes());
+            assertEquals(START, store.getBookingsDAO().getById(first.getBookingId()).getRentalDate());
+            assertEquals(2, store.getBookingsDAO().getAll().size());
+        }
+    }
+
+    @Test
+    void reservingATakenPeriodReturnsTheConflictAndSavesNothing() throws SQLException {
+        try (JdbcStore store = JdbcStore.open(directory.resolve("vrs"), 2)) {
+            Customer customer = storedCustomer(store, "C1");
+            Car stored = car("V1");
+            store.getVehicleDAO().save(stored);
+            ReservationResult first = store.getBookingsDAO().reserve(new Bookings(stored, customer, START, START.plusDays(3)));
+            assertTrue(first.isReserved());
+
+            ReservationResult second = store.getBookingsDAO().reserve(
+                    new Bookings(stored, customer, START.plusDays(2), START.plusDays(4)));
+
+            assertEquals(ReservationResult.Status.CONFLICT, second.getStatus());
+            assertEquals(List.of(first.getBooking().getBookingId()),
+                    second.getConflictingBookings().stream().map(Bookings::getBookingId).toList());
+            assertEquals(1, store.getBookingsDAO().getAll().size());
+            // The vehicle lock was released with the transaction, so the next free period can be reserved
+            assertTrue(store.getBookingsDAO().reserve(new Bookings(stored, customer, START.plusDays(3), START.plusDays(4))).isReserved());
+            assertEquals(ReservationResult.Status.REJECTED,
+                    store.getBookingsDAO().reserve(new Bookings(car("V9"), customer, START, START.plusDays(1))).getStatus());
+        }
+    }
+
+    @Test
+    void concurrentReservationsOfTheSamePeriodReserveItOnce() throws Exception {
+        try (JdbcStore store = JdbcStore.open(directory.resolve("vrs"), 4)) {
+            Customer customer = storedCustomer(store, "C1");
+            Car stored = car("V1");
+            store.getVehicleDAO().save(stored);
+            int threads = 8;
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            try {
+                CountDownLatch ready = new CountDownLatch(threads);
+                List<Future<ReservationResult>> results = new ArrayList<>();
+                for (int i = 0; i < threads; i++) {
+                    LocalDateTime rentalDate = START.plusHours(i);
+                    results.add(executor.submit(() -> {
+                        ready.countDown();
+                        ready.await();
+                        return store.getBookingsDAO().reserve(new Bookings(stored, customer, rentalDate, rentalDate.plusDays(1)));
+                    }));
+                }
+                int reserved = 0;
+                for (Future<ReservationResult> result : results) {
+                    reserved += result.get().isReserved() ? 1 : 0;
+                }
+                assertEquals(1, reserved);
+                assertEquals(1, store.getBookingsDAO().getAll().size());
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    @Test
+    void openingADatabaseOfAnEarlierSchemaRelaxesCategoriesAndAddsForeignKeys() throws SQLException {
+        Path databaseFile = directory.resolve("vrs");
+        try (JdbcConnectionPool pool = JdbcConnectionPool.openH2(databaseFile, 1);
+             JdbcConnectionPool.Lease lease = pool.lease();
+             Statement statement = lease.connection().createStatement()) {
+            statement.execute("CREATE TABLE vehicle (vehicle_id VARCHAR(64) PRIMARY KEY, vehicle_type VARCHAR(16) NOT NULL, "
+                    + "license_plate VARCHAR(32) NOT NULL, model VARCHAR(128) NOT NULL, brand_name VARCHAR(128) NOT NULL, "
+                    + "brand_year INT NOT NULL, brand_country VARCHAR(128), fuel_type VARCHAR(16) NOT NULL, "
+                    + "category VARCHAR(32) NOT NULL, base_rental_rate DOUBLE PRECISION NOT NULL, available BOOLEAN NOT NULL, "
+                    + "seating_capacity INT, transmission_type VARCHAR(16), trunk_capacity DOUBLE PRECISION, "
+                    + "mileage DOUBLE PRECISION, cargo_capacity DOUBLE PRECISION, cargo_bed_size DOUBLE PRECISION, "
+                    + "axle_count INT, engine_type VARCHAR(32), version BIGINT NOT NULL)");
+            statement.execute("CREATE TABLE booking (booking_id BIGINT PRIMARY KEY, vehicle_id VARCHAR(64) NOT NULL, "
+                    + "customer_id VARCHAR(64) NOT NULL, rental_date TIMESTAMP NOT NULL, return_date TIMESTAMP NOT NULL, "
+                    + "version BIGINT NOT NULL)");
+        }
+
+        // Opened twice, so the second time finds the column relaxed and the keys already there
+        JdbcStore.open(databaseFile, 1).close();
+        try (JdbcStore store = JdbcStore.open(databaseFile, 2)) {
+            Car uncategorized = new Car("V1", "GR-1", "Yaris", brand(), FuelType.HYBRID, null, 38.0, true, 4, "MANUAL", 350, 14.5);
+            assertTrue(store.getVehicleDAO().save(uncategorized));
+            assertNull(store.getVehicleDAO().getById("V1").getVehicleCategory());
+
+            Customer customer = storedCustomer(store, "C1");
+            assertFalse(store.getBookingsDAO().save(new Bookings(car("V9"), customer, START, START.plusDays(1))));
+            assertTrue(store.getBookingsDAO().save(new Bookings(uncategorized, customer, START, START.plusDays(1))));
+            assertThrows(IllegalStateException.class, () -> store.getVehicleDAO().delete("V1"));
+        }
+    }
+
+    private static Customer storedCustomer(JdbcStore store, String customerId) {
+        Customer customer = new Customer(customerId, "Ama Mensah", "DL-" + customerId);
+        store.getCustomerDAO().saveCustomer(customer);
+        return customer;
+    }
+
+    private static Car car(String vehicleId) {
+        return new Car(vehicleId, "GR-" + vehicleId, "Corolla", brand(), FuelType.PETROL, CarCategory.SEDAN, 45.0, true,
+                5, "AUTOMATIC", 470, 11.0);
+    }
+
+    private static Truck truck(String vehicleId) {
+        return new Truck(vehicleId, "GT-" + vehicleId, "Hilux", brand(), FuelType.DIESEL, TruckCategory.PICKUP, 80.0, false,
+                1000, 1500, 2);
+    }
+
+    private static Motorcycle motorcycle(String vehicleId) {
+        return new Motorcycle(vehicleId, "GM-" + vehicleId, "MT-07", brand(), FuelType.PETROL, MotorcycleCategory.STANDARD,
+                30.0, true, EngineType.TWIN_CYLINDER, 25);
+    }
+
+    private static Brand brand() {
+        return new Brand("Toyota", 2022, "Japan");
+    }
+}
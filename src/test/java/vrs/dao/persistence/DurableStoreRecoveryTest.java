@@ -0,0 +1,151 @@
+package vrs.dao.persistence;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import vrs.dao.AvailabilityIndex;
+import vrs.dao.CarDAO;
+import vrs.dao.CustomerDAO;
+import vrs.models.Bookings;
+import vrs.models.Customer;
+import vrs.models.enums.customer.ContactType;
+import vrs.models.enums.vehicle.othercategories.FuelType;
+import vrs.models.enums.vehicle.vehiclecategories.CarCategory;
+import vrs.models.others.Brand;
+import vrs.models.vehicle.Car;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DurableStoreRecoveryTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void replayingTheLogRecoversCustomersWithTheirHistory() throws IOException {
+        Path logFile = directory.resolve("vrs.log");
+        AvailabilityIndex availabilityIndex = new AvailabilityIndex();
+        Map<Customer, List<String>> live;
+        try (DurableStore store = DurableStore.open(logFile, DurabilityLevel.PER_WRITE, fleet(availabilityIndex), availabilityIndex)) {
+            live = makeChanges(store, false);
+        }
+
+        AvailabilityIndex recoveredIndex = new AvailabilityIndex();
+        try (DurableStore recovered = DurableStore.open(logFile, DurabilityLevel.PER_WRITE, fleet(recoveredIndex), recoveredIndex)) {
+            assertEquals(live, customersWithHistory(recovered.getCustomerDAO()));
+        }
+    }
+
+    @Test
+    void loadingASnapshotAndTheLogAfterItRecoversCustomersWithTheirHistory() throws IOException {
+        Path logFile = directory.resolve("vrs.log");
+        Path snapshotFile = directory.resolve("vrs.snapshot");
+        AvailabilityIndex availabilityIndex = new AvailabilityIndex();
+        Map<Customer, List<String>> live;
+        try (DurableStore store = DurableStore.open(logFile, null, DurabilityLevel.PER_WRITE,
+                List.of(fleet(availabilityIndex)), availabilityIndex)) {
+            makeChanges(store, false);
+            store.checkpoint(snapshotFile);
+            live = makeChanges(store, true);
+        }
+
+        AvailabilityIndex recoveredIndex = new AvailabilityIndex();
+        try (DurableStore recovered = DurableStore.open(logFile, snapshotFile, DurabilityLevel.PER_WRITE,
+                List.of(new CarDAO(recoveredIndex)), recoveredIndex)) {
+            assertEquals(live, customersWithHistory(recovered.getCustomerDAO()));
+        }
+    }
+
+    @Test
+    void historyAddedWhileACheckpointIsWrittenIsRecoveredOnce() throws IOException {
+        Path logFile = directory.resolve("vrs.log");
+        Path snapshotFile = directory.resolve("vrs.snapshot");
+        AvailabilityIndex availabilityIndex = new AvailabilityIndex();
+        Map<Customer, List<String>> live;
+        try (DurableStore store = DurableStore.open(logFile, null, DurabilityLevel.PER_WRITE,
+                List.of(fleet(availabilityIndex)), availabilityIndex)) {
+            makeChanges(store, false);
+            Bookings booked = new Bookings(fleetCar(), store.getCustomerDAO().findCustomerById("C2a").orElseThrow(),
+                    LocalDateTime.of(2025, 5, 1, 10, 0), LocalDateTime.of(2025, 5, 2, 10, 0));
+            store.getBookingsDAO().save(booked);
+            // Logged after the captured log position, while the snapshot file, which holds the booking, is still to be written
+            store.checkpoint(snapshotFile, () -> store.getCustomerDAO().addBookingToCustomerHistory("C2a", booked));
+            live = customersWithHistory(store.getCustomerDAO());
+        }
+
+        AvailabilityIndex recoveredIndex = new AvailabilityIndex();
+        try (DurableStore recovered = DurableStore.open(logFile, snapshotFile, DurabilityLevel.PER_WRITE,
+                List.of(new CarDAO(recoveredIndex)), recoveredIndex)) {
+            assertEquals(live, customersWithHistory(recovered.getCustomerDAO()));
+        }
+    }
+
+    // Books, cancels and updates customers, so their histories hold canceled bookings and survive updates
+    private static Map<Customer, List<String>> makeChanges(DurableStore store, boolean secondRound) {
+        DurableCustomerDAO customers = store.getCustomerDAO();
+        DurableBookingsDAO bookings = store.getBookingsDAO();
+        Car car = fleetCar();
+        String suffix = secondRound ? "b" : "a";
+        Customer ama = new Customer("C1" + suffix, "Ama Mensah", "DL-0001");
+        Customer kofi = new Customer("C2" + suffix, "Kofi Boateng", "DL-0002");
+        customers.saveCustomer(ama);
+        customers.saveCustomer(kofi);
+
+        LocalDateTime start = LocalDateTime.of(2025, secondRound ? 9 : 3, 1, 10, 0);
+        Bookings first = new Bookings(car, ama, start, start.plusDays(2));
+        Bookings canceled = new Bookings(car, ama, start.plusDays(5), start.plusDays(7));
+        Bookings kept = new Bookings(car, kofi, start.plusDays(10), start.plusDays(12));
+        bookings.save(first);
+        bookings.save(canceled);
+        bookings.save(kept);
+        customers.addBookingToCustomerHistory(ama.getCustomerId(), first);
+        customers.addBookingToCustomerHistory(ama.getCustomerId(), canceled);
+        customers.addBookingToCustomerHistory(kofi.getCustomerId(), kept);
+        bookings.cancel(canceled.getBookingId());
+
+        // An update of the same customer keeps its history, and bookings added afterwards are kept too
+        ama.getContactInfo().put(ContactType.EMAIL, "ama@example.com");
+        customers.updateCustomer(ama);
+        Bookings later = new Bookings(car, ama, start.plusDays(20), start.plusDays(21));
+        bookings.save(later);
+        customers.addBookingToCustomerHistory(ama.getCustomerId(), later);
+
+        // An update with a new customer object keeps the history that object has
+        Customer renamed = new Customer(kofi.getCustomerId(), "Kofi A. Boateng", kofi.getLicenseNumber());
+        renamed.getRentalHistory().addAll(kofi.getRentalHistory());
+        customers.updateCustomer(renamed);
+        return customersWithHistory(customers);
+    }
+
+    // Each customer with the bookings of its history; customers are equal regardless of their history
+    private static Map<Customer, List<String>> customersWithHistory(CustomerDAO customerDAO) {
+        Map<Customer, List<String>> result = new LinkedHashMap<>();
+        for (Customer customer : customerDAO.findAllCustomers()) {
+            List<String> history = new ArrayList<>();
+            for (Bookings booking : customerDAO.getCustomerBookings(customer.getCustomerId())) {
+                history.add(booking.getBookingId() + " " + booking.getVehicle().getVehicleId() + " "
+                        + booking.getRentalDate() + " " + booking.getReturnDate());
+            }
+            result.put(customer, history);
+        }
+        return result;
+    }
+
+    private static CarDAO fleet(AvailabilityIndex availabilityIndex) {
+        CarDAO cars = new CarDAO(availabilityIndex);
+        cars.save(fleetCar());
+        return cars;
+    }
+
+    private static Car fleetCar() {
+        return new Car("V1", "GR-1001-24", "Corolla", new Brand("Toyota", 2019, "Japan"), FuelType.PETROL,
+                CarCategory.SEDAN, 45.0, true, 5, "AUTOMATIC", 470, 11.0);
+    }
+}